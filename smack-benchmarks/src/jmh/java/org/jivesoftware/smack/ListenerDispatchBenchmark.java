@@ -0,0 +1,84 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jivesoftware.smack.filter.AndFilter;
+import org.jivesoftware.smack.filter.FromMatchesFilter;
+import org.jivesoftware.smack.filter.MessageTypeFilter;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.util.PacketParserUtilsBenchmark;
+
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the dispatch of an incoming stanza to the stanza listeners of a connection. Only one listener matches the
+ * stanza, all others are registered for other rooms, which is typical for clients which joined many group chats.
+ * Since {@link AbstractXMPPConnection#invokeStanzaCollectorsAndNotifyRecvListeners(Stanza)} waits for the invocation
+ * of the (non-async) listeners, the measurement includes the listener invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListenerDispatchBenchmark extends SmackTestSuite {
+
+    @Param({"1", "10", "100"})
+    public int listenerCount;
+
+    private DummyConnection connection;
+
+    private Stanza stanza;
+
+    private final AtomicLong processedStanzas = new AtomicLong();
+
+    @Setup
+    public void setup() throws Exception {
+        connection = DummyConnection.newConnectedDummyConnection();
+        stanza = PacketParserUtils.parseStanza(PacketParserUtilsBenchmark.MESSAGE);
+
+        for (int i = 0; i < listenerCount; i++) {
+            String room = i == 0 ? "coven" : "room" + i;
+            connection.addStanzaListener(s -> processedStanzas.incrementAndGet(),
+                            new AndFilter(MessageTypeFilter.GROUPCHAT,
+                                            FromMatchesFilter.createBare(
+                                                            JidCreate.entityBareFrom(room + "@chat.shakespeare.lit"))));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        connection.disconnect();
+    }
+
+    @Benchmark
+    public void dispatch() {
+        connection.processStanza(stanza);
+    }
+}
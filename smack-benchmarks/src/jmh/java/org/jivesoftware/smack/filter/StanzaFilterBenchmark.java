@@ -0,0 +1,90 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.util.PacketParserUtilsBenchmark;
+
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the evaluation of typical stanza filters, as performed for every incoming stanza and every registered
+ * listener and collector.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StanzaFilterBenchmark extends SmackTestSuite {
+
+    private Message message;
+
+    private StanzaFilter groupchatFromRoomFilter;
+
+    private StanzaFilter extensionFilter;
+
+    private StanzaFilter nonMatchingFilter;
+
+    private StanzaFilter stanzaIdFilter;
+
+    @Setup
+    public void setup() throws Exception {
+        message = PacketParserUtils.parseStanza(PacketParserUtilsBenchmark.MESSAGE);
+
+        // Similar to the filter used by MultiUserChat for the messages of a room.
+        groupchatFromRoomFilter = new AndFilter(MessageTypeFilter.GROUPCHAT,
+                        FromMatchesFilter.createBare(JidCreate.entityBareFrom("coven@chat.shakespeare.lit")),
+                        MessageWithBodiesFilter.INSTANCE);
+
+        extensionFilter = new StanzaExtensionFilter("delay", "urn:xmpp:delay");
+
+        nonMatchingFilter = new OrFilter(StanzaTypeFilter.PRESENCE, StanzaTypeFilter.IQ,
+                        new StanzaExtensionFilter("x", "jabber:x:conference"));
+
+        stanzaIdFilter = new StanzaIdFilter("162BEBB1-F6DB-4D9A-9BD8-CFDCC801A0B2");
+    }
+
+    @Benchmark
+    public boolean groupchatFromRoomFilter() {
+        return groupchatFromRoomFilter.accept(message);
+    }
+
+    @Benchmark
+    public boolean extensionFilter() {
+        return extensionFilter.accept(message);
+    }
+
+    @Benchmark
+    public boolean nonMatchingFilter() {
+        return nonMatchingFilter.accept(message);
+    }
+
+    @Benchmark
+    public boolean stanzaIdFilter() {
+        return stanzaIdFilter.accept(message);
+    }
+}
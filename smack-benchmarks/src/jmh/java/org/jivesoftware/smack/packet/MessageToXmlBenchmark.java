@@ -0,0 +1,150 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+import org.jivesoftware.smackx.chatstates.ChatState;
+import org.jivesoftware.smackx.chatstates.packet.ChatStateExtension;
+import org.jivesoftware.smackx.receipts.DeliveryReceiptRequest;
+
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the serialization of a typical chat message and the XML escaping of text. Run with
+ * {@code -Pjmh.profilers=gc} to also obtain the number of bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageToXmlBenchmark extends SmackTestSuite {
+
+    private static final String CLEAN_TEXT = "Art thou not Romeo, and a Montague? Neither, fair saint, if either thee"
+                    + " dislike.";
+
+    private static final String DIRTY_TEXT = "Art thou not Romeo & a Montague? <Neither>, fair saint, if either thee"
+                    + " dislike.";
+
+    private static final XmlEnvironment CLIENT_XML_ENVIRONMENT = new XmlEnvironment(StreamOpen.CLIENT_NAMESPACE);
+
+    private Message message;
+
+    private StandardExtensionElement element;
+
+    @Setup
+    public void setup() throws IOException {
+        message = StanzaBuilder.buildMessage("a4b4dd4f-2a3b-4b24-9aa6-9f3a0b6d4d8e")
+                        .ofType(Message.Type.chat)
+                        .from(JidCreate.from("juliet@capulet.lit/balcony"))
+                        .to(JidCreate.from("romeo@montague.lit/garden"))
+                        .setBody(CLEAN_TEXT)
+                        .addExtension(new ChatStateExtension(ChatState.active))
+                        .addExtension(new DeliveryReceiptRequest())
+                        .build();
+
+        element = StandardExtensionElement.builder("outer", "urn:example:benchmark")
+                        .addAttribute("id", "de305d54-75b4-431b-adb2-eb6b9e546013")
+                        .addElement("inner", CLEAN_TEXT)
+                        .build();
+    }
+
+    @Benchmark
+    public String messageToXmlString() {
+        return message.toXML().toString();
+    }
+
+    @Benchmark
+    public StringWriter messageWriteToWriter() throws IOException {
+        StringWriter writer = new StringWriter(512);
+        XmlStringBuilder xml = (XmlStringBuilder) message.toXML(StreamOpen.CLIENT_NAMESPACE);
+        xml.write(writer, XmlEnvironment.EMPTY);
+        return writer;
+    }
+
+    @Benchmark
+    public StringBuilder elementToXml() {
+        return element.toXML(XmlEnvironment.EMPTY).toXML(XmlEnvironment.EMPTY);
+    }
+
+    /**
+     * Build a chat message like element in the usual chunked mode, and write the chunks to a {@link Writer} afterwards.
+     *
+     * @return the writer.
+     * @throws IOException in case of an I/O error.
+     */
+    @Benchmark
+    public StringWriter chunkedToWriter() throws IOException {
+        StringWriter writer = new StringWriter(512);
+        XmlStringBuilder xml = new XmlStringBuilder(message, CLIENT_XML_ENVIRONMENT);
+        appendMessage(xml);
+        xml.write(writer, CLIENT_XML_ENVIRONMENT);
+        return writer;
+    }
+
+    /**
+     * Build the same XML as {@link #chunkedToWriter()}, with the very same builder invocations, but stream it directly
+     * to the {@link Writer}, without collecting the chunks first.
+     *
+     * @return the writer.
+     * @throws IOException in case of an I/O error.
+     */
+    @Benchmark
+    public StringWriter directToWriter() throws IOException {
+        StringWriter writer = new StringWriter(512);
+        XmlStringBuilder xml = new XmlStringBuilder(writer, message, CLIENT_XML_ENVIRONMENT);
+        appendMessage(xml);
+        xml.flush();
+        return writer;
+    }
+
+    private void appendMessage(XmlStringBuilder xml) {
+        xml.optAttribute("to", message.getTo());
+        xml.optAttribute("from", message.getFrom());
+        xml.optAttribute("id", message.getStanzaId());
+        xml.attribute("type", message.getType());
+        xml.rightAngleBracket();
+        xml.element("body", DIRTY_TEXT);
+        xml.halfOpenElement(ChatState.active.name()).xmlnsAttribute(ChatStateExtension.NAMESPACE).closeEmptyElement();
+        xml.halfOpenElement(DeliveryReceiptRequest.ELEMENT).xmlnsAttribute(DeliveryReceiptRequest.NAMESPACE)
+                        .closeEmptyElement();
+        xml.closeElement(message);
+    }
+
+    @Benchmark
+    public CharSequence escapeCleanText() {
+        return StringUtils.escapeForXmlText(CLEAN_TEXT);
+    }
+
+    @Benchmark
+    public CharSequence escapeDirtyText() {
+        return StringUtils.escapeForXmlText(DIRTY_TEXT);
+    }
+}
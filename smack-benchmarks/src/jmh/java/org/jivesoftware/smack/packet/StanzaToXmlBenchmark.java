@@ -0,0 +1,82 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.util.PacketParserUtilsBenchmark;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the serialization of the stanzas of the {@link PacketParserUtilsBenchmark} corpus, both into a String and
+ * via {@link XmlStringBuilder#write(java.io.Writer, XmlEnvironment)}, which is what connections use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StanzaToXmlBenchmark extends SmackTestSuite {
+
+    @Param({"message", "presence", "iq"})
+    public String stanzaType;
+
+    private Stanza stanza;
+
+    @Setup
+    public void setup() throws Exception {
+        String xml;
+        switch (stanzaType) {
+        case "message":
+            xml = PacketParserUtilsBenchmark.MESSAGE;
+            break;
+        case "presence":
+            xml = PacketParserUtilsBenchmark.PRESENCE;
+            break;
+        case "iq":
+            xml = PacketParserUtilsBenchmark.IQ;
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown stanza type: " + stanzaType);
+        }
+        stanza = PacketParserUtils.parseStanza(xml);
+    }
+
+    @Benchmark
+    public String toXmlString() {
+        return stanza.toXML().toString();
+    }
+
+    @Benchmark
+    public StringWriter writeToWriter() throws IOException {
+        StringWriter writer = new StringWriter(1024);
+        XmlStringBuilder xml = (XmlStringBuilder) stanza.toXML(StreamOpen.CLIENT_NAMESPACE);
+        xml.write(writer, XmlEnvironment.EMPTY);
+        return writer;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the provider lookup and the stanza parse rate. Run with {@code -Pjmh.profilers=gc} to also obtain the
+ * number of bytes allocated per lookup and per parsed stanza.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProviderLookupBenchmark extends SmackTestSuite {
+
+    private static final String MESSAGE = "<message xmlns='jabber:client'"
+                    + " from='juliet@capulet.lit/balcony' to='romeo@montague.lit/garden'"
+                    + " id='a4b4dd4f-2a3b-4b24-9aa6-9f3a0b6d4d8e' type='chat'>"
+                    + "<body>Art thou not Romeo, and a Montague?</body>"
+                    + "<active xmlns='http://jabber.org/protocol/chatstates'/>"
+                    + "<request xmlns='urn:xmpp:receipts'/>"
+                    + "<markable xmlns='urn:xmpp:chat-markers:0'/>"
+                    + "<origin-id xmlns='urn:xmpp:sid:0' id='de305d54-75b4-431b-adb2-eb6b9e546013'/>"
+                    + "</message>";
+
+    // Use non-constant Strings, like the ones obtained from the XML parser.
+    private final String elementName = new StringBuilder("dela").append('y').toString();
+
+    private final String namespace = new StringBuilder("urn:xmpp:").append("delay").toString();
+
+    private final String unknownNamespace = new StringBuilder("urn:example:").append("unknown").toString();
+
+    @Benchmark
+    public ExtensionElementProvider<ExtensionElement> lookupExtensionProvider() {
+        return ProviderManager.getExtensionProvider(elementName, namespace);
+    }
+
+    @Benchmark
+    public ExtensionElementProvider<ExtensionElement> lookupUnknownExtensionProvider() {
+        return ProviderManager.getExtensionProvider(elementName, unknownNamespace);
+    }
+
+    @Benchmark
+    public Stanza parseMessage() throws Exception {
+        return PacketParserUtils.parseStanza(MESSAGE);
+    }
+}
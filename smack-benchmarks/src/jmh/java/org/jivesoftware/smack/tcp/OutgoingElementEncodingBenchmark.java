@@ -0,0 +1,180 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StreamOpen;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.util.PacketParserUtilsBenchmark;
+import org.jivesoftware.smack.util.UTF8;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the steps {@link XmppTcpTransportModule} performs for every outgoing top level stream element: splitting
+ * the element's XML into chunks, encoding the chunks to UTF-8 and, if TLS is established, wrapping the bytes with the
+ * {@link SSLEngine}. The TLS session is established in memory, between a client and a server engine, using the
+ * self-signed certificate found in the benchmark resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OutgoingElementEncodingBenchmark extends SmackTestSuite {
+
+    private static final char[] KEYSTORE_PASSWORD = "benchmark".toCharArray();
+
+    private Stanza stanza;
+
+    private XmlEnvironment outgoingStreamXmlEnvironment;
+
+    private SSLEngine clientEngine;
+
+    private ByteBuffer netBuffer;
+
+    @Setup
+    public void setup() throws Exception {
+        stanza = PacketParserUtils.parseStanza(PacketParserUtilsBenchmark.MESSAGE);
+        outgoingStreamXmlEnvironment = XmlEnvironment.builder().withNamespace(StreamOpen.CLIENT_NAMESPACE).build();
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = OutgoingElementEncodingBenchmark.class.getResourceAsStream("/benchmark.p12")) {
+            keyStore.load(inputStream, KEYSTORE_PASSWORD);
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD);
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
+                        TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+
+        clientEngine = sslContext.createSSLEngine("localhost", 5222);
+        clientEngine.setUseClientMode(true);
+        SSLEngine serverEngine = sslContext.createSSLEngine();
+        serverEngine.setUseClientMode(false);
+
+        handshake(clientEngine, serverEngine);
+
+        netBuffer = ByteBuffer.allocate(clientEngine.getSession().getPacketBufferSize());
+    }
+
+    @Benchmark
+    public int encode() {
+        int bytes = 0;
+        for (CharSequence chunk : toChunks()) {
+            ByteBuffer outgoingBuffer = UTF8.encode(chunk);
+            bytes += outgoingBuffer.remaining();
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public int encodeAndWrap() throws SSLException {
+        int bytes = 0;
+        for (CharSequence chunk : toChunks()) {
+            ByteBuffer outgoingBuffer = UTF8.encode(chunk);
+            while (outgoingBuffer.hasRemaining()) {
+                netBuffer.clear();
+                SSLEngineResult result = clientEngine.wrap(outgoingBuffer, netBuffer);
+                if (result.getStatus() != SSLEngineResult.Status.OK) {
+                    throw new IllegalStateException("Unexpected SSLEngine result: " + result);
+                }
+                bytes += result.bytesProduced();
+            }
+        }
+        return bytes;
+    }
+
+    private Iterable<CharSequence> toChunks() {
+        XmlStringBuilder xml = (XmlStringBuilder) stanza.toXML(outgoingStreamXmlEnvironment);
+        return xml.toList(outgoingStreamXmlEnvironment);
+    }
+
+    private static void handshake(SSLEngine client, SSLEngine server) throws IOException {
+        int bufferSize = Math.max(client.getSession().getPacketBufferSize(),
+                        client.getSession().getApplicationBufferSize());
+        ByteBuffer clientToServer = ByteBuffer.allocate(bufferSize);
+        ByteBuffer serverToClient = ByteBuffer.allocate(bufferSize);
+        ByteBuffer clientApplicationData = ByteBuffer.allocate(bufferSize);
+        ByteBuffer serverApplicationData = ByteBuffer.allocate(bufferSize);
+        ByteBuffer empty = ByteBuffer.allocate(0);
+
+        client.beginHandshake();
+        server.beginHandshake();
+
+        for (int i = 0; i < 1000; i++) {
+            if (isHandshakeFinished(client) && isHandshakeFinished(server)) {
+                return;
+            }
+
+            step(client, empty, clientToServer, serverToClient, clientApplicationData);
+            step(server, empty, serverToClient, clientToServer, serverApplicationData);
+        }
+        throw new IOException("TLS handshake did not finish");
+    }
+
+    private static void step(SSLEngine engine, ByteBuffer empty, ByteBuffer outgoing, ByteBuffer incoming,
+                    ByteBuffer applicationData) throws SSLException {
+        switch (engine.getHandshakeStatus()) {
+        case NEED_WRAP:
+            engine.wrap(empty, outgoing);
+            break;
+        case NEED_UNWRAP:
+            incoming.flip();
+            engine.unwrap(incoming, applicationData);
+            incoming.compact();
+            break;
+        case NEED_TASK:
+            Runnable task;
+            while ((task = engine.getDelegatedTask()) != null) {
+                task.run();
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static boolean isHandshakeFinished(SSLEngine engine) {
+        SSLEngineResult.HandshakeStatus handshakeStatus = engine.getHandshakeStatus();
+        return handshakeStatus == SSLEngineResult.HandshakeStatus.FINISHED
+                        || handshakeStatus == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING;
+    }
+}
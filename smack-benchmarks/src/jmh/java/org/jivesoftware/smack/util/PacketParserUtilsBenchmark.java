@@ -0,0 +1,130 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.xml.SmackXmlParser;
+import org.jivesoftware.smack.xml.XmlPullParserFactory;
+import org.jivesoftware.smack.xml.stax.StaxXmlPullParserFactory;
+import org.jivesoftware.smack.xml.xpp3.Xpp3XmlPullParserFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures {@link PacketParserUtils#parseStanza(String)} of typical messages, presences and IQs with the XPP3 and the
+ * StAX based XML pull parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PacketParserUtilsBenchmark extends SmackTestSuite {
+
+    public static final String MESSAGE = "<message xmlns='jabber:client' from='coven@chat.shakespeare.lit/thirdwitch'"
+                    + " to='hag66@shakespeare.lit/pda' type='groupchat' id='162BEBB1-F6DB-4D9A-9BD8-CFDCC801A0B2'>"
+                    + "<body>Thrice the brinded cat hath mew'd &amp; once the hedge-pig whined.</body>"
+                    + "<active xmlns='http://jabber.org/protocol/chatstates'/>"
+                    + "<request xmlns='urn:xmpp:receipts'/>"
+                    + "<origin-id xmlns='urn:xmpp:sid:0' id='de305d54-75b4-431b-adb2-eb6b9e546013'/>"
+                    + "<stanza-id xmlns='urn:xmpp:sid:0' by='coven@chat.shakespeare.lit'"
+                    + " id='5f3dbc5e-e1d3-4077-a492-693f3769c7ad'/>"
+                    + "<delay xmlns='urn:xmpp:delay' from='coven@chat.shakespeare.lit' stamp='2002-10-13T23:58:37Z'/>"
+                    + "</message>";
+
+    public static final String PRESENCE = "<presence xmlns='jabber:client' from='coven@chat.shakespeare.lit/firstwitch'"
+                    + " to='hag66@shakespeare.lit/pda' id='n13mt3l'>"
+                    + "<show>away</show>"
+                    + "<status>Hovering through the fog and filthy air</status>"
+                    + "<priority>5</priority>"
+                    + "<c xmlns='http://jabber.org/protocol/caps' hash='sha-1' node='https://igniterealtime.org/projects/smack'"
+                    + " ver='QgayPKawpkPSDYmwT/WM94uAlu0='/>"
+                    + "<x xmlns='http://jabber.org/protocol/muc#user'>"
+                    + "<item affiliation='owner' role='moderator' jid='crone1@shakespeare.lit/desktop'/>"
+                    + "</x>"
+                    + "<delay xmlns='urn:xmpp:delay' from='coven@chat.shakespeare.lit' stamp='2002-10-13T23:58:37Z'/>"
+                    + "</presence>";
+
+    public static final String IQ = "<iq xmlns='jabber:client' from='juliet@example.com' to='juliet@example.com/balcony'"
+                    + " type='result' id='bv1bs71f'>"
+                    + "<query xmlns='jabber:iq:roster' ver='ver11'>"
+                    + "<item jid='romeo@example.net' name='Romeo' subscription='both'><group>Friends</group></item>"
+                    + "<item jid='mercutio@example.com' name='Mercutio' subscription='from'/>"
+                    + "<item jid='benvolio@example.net' name='Benvolio' subscription='both'><group>Friends</group>"
+                    + "<group>Montague</group></item>"
+                    + "<item jid='nurse@example.com' name='Nurse' subscription='to'/>"
+                    + "<item jid='tybalt@example.com' subscription='none' ask='subscribe'/>"
+                    + "</query>"
+                    + "</iq>";
+
+    @Param({"xpp3", "stax"})
+    public String parser;
+
+    @Param({"message", "presence", "iq"})
+    public String stanza;
+
+    private String xml;
+
+    @Setup
+    public void setup() {
+        XmlPullParserFactory xmlPullParserFactory;
+        switch (parser) {
+        case "xpp3":
+            xmlPullParserFactory = new Xpp3XmlPullParserFactory();
+            break;
+        case "stax":
+            xmlPullParserFactory = new StaxXmlPullParserFactory();
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown parser: " + parser);
+        }
+        SmackXmlParser.setXmlPullParserFactory(xmlPullParserFactory);
+
+        switch (stanza) {
+        case "message":
+            xml = MESSAGE;
+            break;
+        case "presence":
+            xml = PRESENCE;
+            break;
+        case "iq":
+            xml = IQ;
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown stanza: " + stanza);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SmackXmlParser.setXmlPullParserFactory(null);
+    }
+
+    @Benchmark
+    public Stanza parseStanza() throws Exception {
+        return PacketParserUtils.parseStanza(xml);
+    }
+}
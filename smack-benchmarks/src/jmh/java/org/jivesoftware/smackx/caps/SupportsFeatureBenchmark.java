@@ -0,0 +1,109 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.caps;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.jivesoftware.smackx.disco.ServiceDiscoveryManager;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
+
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the throughput of feature checks of remote entities whose capabilities are known via Entity Capabilities.
+ * This is a typical hot path, e.g. when checking for chat state or receipt support before sending a message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SupportsFeatureBenchmark extends SmackTestSuite {
+
+    private static final String NODE = "https://example.org/smack-benchmark";
+
+    private static final String VER = "benchmark-ver";
+
+    private static final String FEATURE_PREFIX = "urn:xmpp:smack:benchmark:";
+
+    private static final String SUPPORTED_FEATURE = FEATURE_PREFIX + 42;
+
+    private static final String UNSUPPORTED_FEATURE = FEATURE_PREFIX + "unsupported";
+
+    private DummyConnection connection;
+
+    private ServiceDiscoveryManager serviceDiscoveryManager;
+
+    private EntityFullJid jid;
+
+    @Setup
+    public void setup() throws Exception {
+        connection = DummyConnection.newConnectedDummyConnection();
+        serviceDiscoveryManager = ServiceDiscoveryManager.getInstanceFor(connection);
+        jid = JidCreate.entityFullFrom("juliet@capulet.lit/balcony");
+
+        DiscoverInfoBuilder discoverInfoBuilder = DiscoverInfo.builder("benchmark");
+        discoverInfoBuilder.ofType(IQ.Type.result);
+        discoverInfoBuilder.addIdentity(new DiscoverInfo.Identity("client", "pc"));
+        // Clients typically announce a few dozen features.
+        for (int i = 0; i < 64; i++) {
+            discoverInfoBuilder.addFeature(FEATURE_PREFIX + i);
+        }
+
+        EntityCapsManager.addDiscoverInfoByNode(NODE + '#' + VER, discoverInfoBuilder.build());
+        EntityCapsManager.JID_TO_NODEVER_CACHE.put(jid, new EntityCapsManager.NodeVerHash(NODE, VER, "sha-1"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        connection.disconnect();
+    }
+
+    @Benchmark
+    public boolean supportsFeature() throws Exception {
+        return serviceDiscoveryManager.supportsFeature(jid, SUPPORTED_FEATURE);
+    }
+
+    @Benchmark
+    public boolean supportsFeatureUnsupported() throws Exception {
+        return serviceDiscoveryManager.supportsFeature(jid, UNSUPPORTED_FEATURE);
+    }
+
+    /**
+     * Baseline: Obtain a copy of the cached information, as done by {@link ServiceDiscoveryManager#discoverInfo}, and
+     * check it for the feature.
+     *
+     * @return true if the feature is supported.
+     * @throws Exception in case of an exception.
+     */
+    @Benchmark
+    public boolean discoverInfoContainsFeature() throws Exception {
+        return serviceDiscoveryManager.discoverInfo(jid).containsFeature(SUPPORTED_FEATURE);
+    }
+}
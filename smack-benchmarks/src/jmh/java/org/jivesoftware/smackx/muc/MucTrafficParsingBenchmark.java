@@ -0,0 +1,116 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.muc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the parsing throughput of typical group chat traffic, with eager and lazy extension element parsing. A
+ * typical client only looks at the body of a groupchat message, while the delay, stanza-id and origin-id extension
+ * elements, as well as the entity capabilities and MUC user extensions of occupant presences, are often never read.
+ * <p>
+ * Lazy parsing still tokenizes every extension element, as the raw XML is re-serialized from the parser events, so it
+ * only saves the provider invocations. Reading an element tokenizes its raw XML again, which is why the benchmarks
+ * reading one or all extension elements are included.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MucTrafficParsingBenchmark extends SmackTestSuite {
+
+    private static final String GROUPCHAT_MESSAGE = "<message xmlns='jabber:client'"
+                    + " from='coven@chat.shakespeare.lit/thirdwitch' to='hecate@shakespeare.lit/broom'"
+                    + " id='162BEBB1-F6DB-4D9A-9BD8-CFDCC801A0B2' type='groupchat'>"
+                    + "<body>Thrice the brinded cat hath mew'd.</body>"
+                    + "<delay xmlns='urn:xmpp:delay' from='coven@chat.shakespeare.lit' stamp='2002-10-13T23:58:37Z'/>"
+                    + "<stanza-id xmlns='urn:xmpp:sid:0' id='5f3dbc5e-e1d3-4077-a492-693f3769c7ad'"
+                    + " by='coven@chat.shakespeare.lit'/>"
+                    + "<origin-id xmlns='urn:xmpp:sid:0' id='de305d54-75b4-431b-adb2-eb6b9e546013'/>"
+                    + "<x xmlns='http://jabber.org/protocol/muc#user'>"
+                    + "<item affiliation='member' jid='crone1@shakespeare.lit/desktop' role='participant'/>"
+                    + "</x>"
+                    + "</message>";
+
+    private static final String OCCUPANT_PRESENCE = "<presence xmlns='jabber:client'"
+                    + " from='coven@chat.shakespeare.lit/firstwitch' to='hag66@shakespeare.lit/pda'"
+                    + " id='27C55F89-1C6A-459A-9EB5-77690145D624'>"
+                    + "<c xmlns='http://jabber.org/protocol/caps' hash='sha-1' node='https://example.org/client'"
+                    + " ver='QgayPKawpkPSDYmwT/WM94uAlu0='/>"
+                    + "<x xmlns='http://jabber.org/protocol/muc#user'>"
+                    + "<item affiliation='owner' jid='crone1@shakespeare.lit/desktop' role='moderator'/>"
+                    + "</x>"
+                    + "</presence>";
+
+    @Param({"false", "true"})
+    private boolean lazy;
+
+    @Setup
+    public void setup() {
+        SmackConfiguration.setLazyExtensionElementParsing(lazy);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SmackConfiguration.setLazyExtensionElementParsing(false);
+    }
+
+    @Benchmark
+    public String parseGroupchatMessageAndReadBody() throws Exception {
+        Message message = PacketParserUtils.parseStanza(GROUPCHAT_MESSAGE);
+        return message.getBody();
+    }
+
+    @Benchmark
+    public Presence parseOccupantPresence() throws Exception {
+        return PacketParserUtils.parseStanza(OCCUPANT_PRESENCE);
+    }
+
+    @Benchmark
+    public Object parseGroupchatMessageAndReadDelay() throws Exception {
+        Message message = PacketParserUtils.parseStanza(GROUPCHAT_MESSAGE);
+        return message.getExtensionElement("delay", "urn:xmpp:delay");
+    }
+
+    /**
+     * Worst case for lazy parsing: Every extension element of the message is read.
+     *
+     * @return the number of extension elements.
+     * @throws Exception in case of an exception.
+     */
+    @Benchmark
+    public int parseGroupchatMessageAndReadAllExtensions() throws Exception {
+        Message message = PacketParserUtils.parseStanza(GROUPCHAT_MESSAGE);
+        return message.getExtensions().size();
+    }
+}
@@ -34,9 +34,15 @@ import org.jivesoftware.smack.proxy.ProxyInfo;
  */
 public final class BOSHConfiguration extends ConnectionConfiguration {
 
+    /**
+     * The default maximum size, in characters, of the payload of a single BOSH body.
+     */
+    public static final int DEFAULT_MAX_BODY_PAYLOAD_SIZE = 64 * 1024;
+
     private final boolean https;
     private final String file;
     private Map<String, String> httpHeaders;
+    private final int maxBodyPayloadSize;
 
     private BOSHConfiguration(Builder builder) {
         super(builder);
@@ -57,6 +63,7 @@ public final class BOSHConfiguration extends ConnectionConfiguration {
             file = null;
         }
         httpHeaders = builder.httpHeaders;
+        maxBodyPayloadSize = builder.maxBodyPayloadSize;
     }
 
     public boolean isProxyEnabled() {
@@ -89,6 +96,17 @@ public final class BOSHConfiguration extends ConnectionConfiguration {
         return httpHeaders;
     }
 
+    /**
+     * Get the maximum size, in characters, of the payload of a single BOSH body. Outgoing top level stream elements
+     * which are queued at the same time are packed into a single body up to this size.
+     *
+     * @return the maximum payload size of a body.
+     * @since 4.5
+     */
+    public int getMaxBodyPayloadSize() {
+        return maxBodyPayloadSize;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -97,6 +115,7 @@ public final class BOSHConfiguration extends ConnectionConfiguration {
         private boolean https;
         private String file;
         private Map<String, String> httpHeaders = new HashMap<>();
+        private int maxBodyPayloadSize = DEFAULT_MAX_BODY_PAYLOAD_SIZE;
 
         private Builder() {
         }
@@ -120,6 +139,22 @@ public final class BOSHConfiguration extends ConnectionConfiguration {
             return this;
         }
 
+        /**
+         * Set the maximum size, in characters, of the payload of a single BOSH body. A single top level stream element
+         * exceeding this size is still sent, but will not be packed together with other elements.
+         *
+         * @param maxBodyPayloadSize the maximum payload size of a body.
+         * @return a reference to this builder.
+         * @since 4.5
+         */
+        public Builder setMaxBodyPayloadSize(int maxBodyPayloadSize) {
+            if (maxBodyPayloadSize <= 0) {
+                throw new IllegalArgumentException("The maximum body payload size must be positive");
+            }
+            this.maxBodyPayloadSize = maxBodyPayloadSize;
+            return this;
+        }
+
         @Override
         public BOSHConfiguration build() {
             return new BOSHConfiguration(this);
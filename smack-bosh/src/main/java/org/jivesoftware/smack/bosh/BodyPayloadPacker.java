@@ -0,0 +1,115 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bosh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
+
+/**
+ * Packs the elements of the outgoing queue into the payloads of BOSH bodies. All elements which are already queued are
+ * packed into the same payload, as long as the payload does not exceed the maximum size. Every element is serialized
+ * only once: an element which does not fit into the current payload is kept, together with its XML, as the first
+ * element of the next payload.
+ * <p>
+ * Instances must only be used by a single thread, which must be the only consumer of the queue.
+ * </p>
+ */
+final class BodyPayloadPacker {
+
+    private final BlockingQueue<TopLevelStreamElement> queue;
+
+    private final int maxPayloadSize;
+
+    private final List<TopLevelStreamElement> packedElements = new ArrayList<>();
+
+    private final StringBuilder payload = new StringBuilder(1024);
+
+    private TopLevelStreamElement carriedElement;
+
+    private CharSequence carriedElementXml;
+
+    BodyPayloadPacker(BlockingQueue<TopLevelStreamElement> queue, int maxPayloadSize) {
+        this.queue = queue;
+        this.maxPayloadSize = maxPayloadSize;
+    }
+
+    /**
+     * Pack the next payload, blocking until at least one element is available. The first element of a payload is
+     * always packed, even if it exceeds the maximum payload size on its own.
+     *
+     * @return the payload.
+     * @throws InterruptedException if the calling thread was interrupted, or the queue was shut down, while waiting.
+     */
+    String packNextPayload() throws InterruptedException {
+        packedElements.clear();
+        payload.setLength(0);
+
+        TopLevelStreamElement element = carriedElement;
+        CharSequence elementXml = carriedElementXml;
+        if (element == null) {
+            element = queue.take();
+            elementXml = element.toXML(XMPPBOSHConnection.BOSH_URI);
+        } else {
+            carriedElement = null;
+            carriedElementXml = null;
+        }
+        pack(element, elementXml);
+
+        while (payload.length() < maxPayloadSize) {
+            element = queue.poll();
+            if (element == null) {
+                break;
+            }
+
+            elementXml = element.toXML(XMPPBOSHConnection.BOSH_URI);
+            if (payload.length() + elementXml.length() > maxPayloadSize) {
+                carriedElement = element;
+                carriedElementXml = elementXml;
+                break;
+            }
+            pack(element, elementXml);
+        }
+
+        return payload.toString();
+    }
+
+    /**
+     * Get the elements packed into the payload returned by the last invocation of {@link #packNextPayload()}.
+     *
+     * @return the packed elements.
+     */
+    List<TopLevelStreamElement> getPackedElements() {
+        return packedElements;
+    }
+
+    /**
+     * Check if an element was taken from the queue, but did not fit into the last payload.
+     *
+     * @return <code>true</code> if an element is carried over to the next payload.
+     */
+    boolean hasCarriedElement() {
+        return carriedElement != null;
+    }
+
+    private void pack(TopLevelStreamElement element, CharSequence elementXml) {
+        packedElements.add(element);
+        payload.append(elementXml);
+    }
+}
@@ -18,9 +18,6 @@
 package org.jivesoftware.smack.bosh;
 
 import java.io.IOException;
-import java.io.PipedReader;
-import java.io.PipedWriter;
-import java.io.Writer;
 import java.net.InetAddress;
 import java.util.Map;
 import java.util.logging.Level;
@@ -35,6 +32,7 @@ import org.jivesoftware.smack.SmackException.SmackWrappedException;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.XMPPException.StreamErrorException;
+import org.jivesoftware.smack.debugger.SmackDebugger;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.packet.Presence;
@@ -53,7 +51,6 @@ import org.igniterealtime.jbosh.BOSHClient;
 import org.igniterealtime.jbosh.BOSHClientConfig;
 import org.igniterealtime.jbosh.BOSHClientConnEvent;
 import org.igniterealtime.jbosh.BOSHClientConnListener;
-import org.igniterealtime.jbosh.BOSHClientRequestListener;
 import org.igniterealtime.jbosh.BOSHClientResponseListener;
 import org.igniterealtime.jbosh.BOSHException;
 import org.igniterealtime.jbosh.BOSHMessageEvent;
@@ -101,10 +98,6 @@ public class XMPPBOSHConnection extends AbstractXMPPConnection {
     private boolean isFirstInitialization = true;
     private boolean done = false;
 
-    // The readerPipe and consumer thread are used for the debugger.
-    private PipedWriter readerPipe;
-    private Thread readerConsumer;
-
     /**
      * The session ID for the BOSH session with the connection manager.
      */
@@ -251,11 +244,12 @@ public class XMPPBOSHConnection extends AbstractXMPPConnection {
 
     private void writeElements() {
         writerThreadRunning = true;
+        final BodyPayloadPacker payloadPacker = new BodyPayloadPacker(outgoingQueue, config.getMaxBodyPayloadSize());
         try {
             while (true) {
-                TopLevelStreamElement element;
+                String payload;
                 try {
-                    element = outgoingQueue.take();
+                    payload = payloadPacker.packNextPayload();
                 } catch (InterruptedException e) {
                     LOGGER.log(Level.FINE,
                                     "Writer thread exiting: Outgoing queue was shutdown as signalled by interrupted exception",
@@ -263,8 +257,7 @@ public class XMPPBOSHConnection extends AbstractXMPPConnection {
                     return;
                 }
 
-                String xmlPayload = element.toXML(BOSH_URI).toString();
-                ComposableBody.Builder composableBodyBuilder = ComposableBody.builder().setPayloadXML(xmlPayload);
+                ComposableBody.Builder composableBodyBuilder = ComposableBody.builder().setPayloadXML(payload);
                 if (sessionID != null) {
                     BodyQName qName = BodyQName.create(BOSH_URI, "sid");
                     composableBodyBuilder.setAttribute(qName, sessionID);
@@ -272,6 +265,9 @@ public class XMPPBOSHConnection extends AbstractXMPPConnection {
 
                 ComposableBody composableBody = composableBodyBuilder.build();
 
+                // jbosh sends the body right away if the number of requests in flight is below the 'requests' limit
+                // negotiated with the connection manager, and blocks otherwise. While we are blocked, further elements
+                // accumulate in the outgoing queue and will be packed into the next body.
                 try {
                     client.send(composableBody);
                 } catch (BOSHException e) {
@@ -280,9 +276,11 @@ public class XMPPBOSHConnection extends AbstractXMPPConnection {
                     return;
                 }
 
-                if (element instanceof Stanza) {
-                    Stanza stanza = (Stanza) element;
-                    firePacketSendingListeners(stanza);
+                for (TopLevelStreamElement sentElement : payloadPacker.getPackedElements()) {
+                    if (sentElement instanceof Stanza) {
+                        Stanza stanza = (Stanza) sentElement;
+                        firePacketSendingListeners(stanza);
+                    }
                 }
             }
         } catch (Exception exception) {
@@ -356,13 +354,9 @@ public class XMPPBOSHConnection extends AbstractXMPPConnection {
         client = null;
 
         // Close down the readers and writers.
-        CloseableUtil.maybeClose(readerPipe, LOGGER);
         CloseableUtil.maybeClose(reader, LOGGER);
         CloseableUtil.maybeClose(writer, LOGGER);
 
-        // set readerConsumer = null before reader to avoid NPE reference
-        readerConsumer = null;
-        readerPipe = null;
         reader = null;
         writer = null;
     }
@@ -388,88 +382,28 @@ public class XMPPBOSHConnection extends AbstractXMPPConnection {
     }
 
     /**
-     * Initialize the SmackDebugger which allows to log and debug XML traffic.
+     * Initialize the SmackDebugger which allows to log and debug XML traffic. The BOSH bodies are directly handed to
+     * the debugger, as there is no reader and writer for the XML traffic of a BOSH connection.
      */
     @Override
     protected void initDebugger() {
-        // TODO: Maybe we want to extend the SmackDebugger for simplification
-        //       and a performance boost.
-
-        // Initialize a empty writer which discards all data.
-        writer = new Writer() {
-            @Override
-            public void write(char[] cbuf, int off, int len) {
-                /* ignore */ }
-
-            @Override
-            public void close() {
-                /* ignore */ }
-
-            @Override
-            public void flush() {
-                /* ignore */ }
-        };
-
-        // Initialize a pipe for received raw data.
-        try {
-            readerPipe = new PipedWriter();
-            reader = new PipedReader(readerPipe);
-        }
-        catch (IOException e) {
-            // Ignore
-        }
-
-        // Call the method from the parent class which initializes the debugger.
-        super.initDebugger();
+        final SmackDebugger debugger = this.debugger;
 
         // Add listeners for the received and sent raw data.
-        client.addBOSHClientResponseListener(new BOSHClientResponseListener() {
-            @Override
-            public void responseReceived(BOSHMessageEvent event) {
-                if (event.getBody() != null) {
-                    try {
-                        readerPipe.write(event.getBody().toXML());
-                        readerPipe.flush();
-                    } catch (Exception e) {
-                        // Ignore
-                    }
-                }
+        client.addBOSHClientResponseListener(event -> {
+            AbstractBody body = event.getBody();
+            if (body != null) {
+                debugger.incomingStreamSink(body.toXML());
+                debugger.onIncomingElementCompleted();
             }
         });
-        client.addBOSHClientRequestListener(new BOSHClientRequestListener() {
-            @Override
-            public void requestSent(BOSHMessageEvent event) {
-                if (event.getBody() != null) {
-                    try {
-                        writer.write(event.getBody().toXML());
-                        // Fix all BOSH sent debug messages not shown
-                        writer.flush();
-                    } catch (Exception e) {
-                        // Ignore
-                    }
-                }
+        client.addBOSHClientRequestListener(event -> {
+            AbstractBody body = event.getBody();
+            if (body != null) {
+                debugger.outgoingStreamSink(body.toXML());
+                debugger.onOutgoingElementCompleted();
             }
         });
-
-        // Create and start a thread which discards all read data.
-        readerConsumer = new Thread() {
-            private Thread thread = this;
-            private int bufferLength = 1024;
-
-            @Override
-            public void run() {
-                try {
-                    char[] cbuf = new char[bufferLength];
-                    while (readerConsumer == thread && !done) {
-                        reader.read(cbuf, 0, bufferLength);
-                    }
-                } catch (IOException e) {
-                    // Ignore
-                }
-            }
-        };
-        readerConsumer.setDaemon(true);
-        readerConsumer.start();
     }
 
     @Override
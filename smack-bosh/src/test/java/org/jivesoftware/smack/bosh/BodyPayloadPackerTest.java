@@ -0,0 +1,141 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bosh;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+
+import org.junit.jupiter.api.Test;
+
+public class BodyPayloadPackerTest {
+
+    private final BlockingQueue<TopLevelStreamElement> queue = new ArrayBlockingQueue<>(100);
+
+    @Test
+    public void packsAllQueuedElementsIntoOnePayloadTest() throws InterruptedException {
+        CountingElement a = new CountingElement('a', 10);
+        CountingElement b = new CountingElement('b', 10);
+        CountingElement c = new CountingElement('c', 10);
+        queue.addAll(Arrays.asList(a, b, c));
+        BodyPayloadPacker packer = new BodyPayloadPacker(queue, 1024);
+
+        String payload = packer.packNextPayload();
+
+        assertEquals(a.xml + b.xml + c.xml, payload);
+        assertEquals(Arrays.asList(a, b, c), packer.getPackedElements());
+        assertTrue(queue.isEmpty());
+        assertFalse(packer.hasCarriedElement());
+        assertSerializedOnce(a, b, c);
+    }
+
+    @Test
+    public void elementNotFittingIntoPayloadIsCarriedOverTest() throws InterruptedException {
+        CountingElement a = new CountingElement('a', 10);
+        CountingElement b = new CountingElement('b', 10);
+        CountingElement c = new CountingElement('c', 10);
+        CountingElement d = new CountingElement('d', 10);
+        queue.addAll(Arrays.asList(a, b, c, d));
+        BodyPayloadPacker packer = new BodyPayloadPacker(queue, 25);
+
+        assertEquals(a.xml + b.xml, packer.packNextPayload());
+        assertEquals(Arrays.asList(a, b), packer.getPackedElements());
+        assertTrue(packer.hasCarriedElement());
+
+        assertEquals(c.xml + d.xml, packer.packNextPayload());
+        assertEquals(Arrays.asList(c, d), packer.getPackedElements());
+        assertFalse(packer.hasCarriedElement());
+
+        // The element which did not fit into the first payload must not be serialized again for the second payload.
+        assertSerializedOnce(a, b, c, d);
+    }
+
+    @Test
+    public void payloadFillingMaximumSizeExactlyTest() throws InterruptedException {
+        CountingElement a = new CountingElement('a', 10);
+        CountingElement b = new CountingElement('b', 10);
+        CountingElement c = new CountingElement('c', 10);
+        queue.addAll(Arrays.asList(a, b, c));
+        BodyPayloadPacker packer = new BodyPayloadPacker(queue, 20);
+
+        assertEquals(a.xml + b.xml, packer.packNextPayload());
+        // The payload is full, hence the next element is not even taken from the queue.
+        assertFalse(packer.hasCarriedElement());
+        assertEquals(1, queue.size());
+
+        assertEquals(c.xml, packer.packNextPayload());
+        assertSerializedOnce(a, b, c);
+    }
+
+    @Test
+    public void oversizedElementIsPackedAloneTest() throws InterruptedException {
+        CountingElement small = new CountingElement('s', 10);
+        CountingElement large = new CountingElement('l', 100);
+        CountingElement next = new CountingElement('n', 10);
+        queue.addAll(Arrays.asList(small, large, next));
+        BodyPayloadPacker packer = new BodyPayloadPacker(queue, 50);
+
+        assertEquals(small.xml, packer.packNextPayload());
+        assertEquals(large.xml, packer.packNextPayload());
+        assertEquals(Collections.singletonList(large), packer.getPackedElements());
+        assertEquals(next.xml, packer.packNextPayload());
+        assertSerializedOnce(small, large, next);
+    }
+
+    private static void assertSerializedOnce(CountingElement... elements) {
+        for (CountingElement element : elements) {
+            assertEquals(1, element.serializations, "Element " + element.xml + " serialized more than once");
+        }
+    }
+
+    private static final class CountingElement implements Nonza {
+        private final String xml;
+
+        private int serializations;
+
+        private CountingElement(char c, int length) {
+            char[] chars = new char[length];
+            Arrays.fill(chars, c);
+            xml = new String(chars);
+        }
+
+        @Override
+        public String getNamespace() {
+            return "urn:example:test";
+        }
+
+        @Override
+        public String getElementName() {
+            return "test";
+        }
+
+        @Override
+        public CharSequence toXML(XmlEnvironment xmlEnvironment) {
+            serializations++;
+            return xml;
+        }
+    }
+}
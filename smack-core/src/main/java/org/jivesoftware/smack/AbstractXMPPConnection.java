@@ -73,6 +73,7 @@ import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.filter.StanzaIdFilter;
 import org.jivesoftware.smack.internal.SmackTlsContext;
 import org.jivesoftware.smack.iqrequest.IQRequestHandler;
+import org.jivesoftware.smack.metrics.SmackMetrics;
 import org.jivesoftware.smack.packet.AbstractStreamOpen;
 import org.jivesoftware.smack.packet.Bind;
 import org.jivesoftware.smack.packet.ErrorIQ;
@@ -104,7 +105,9 @@ import org.jivesoftware.smack.provider.NonzaProvider;
 import org.jivesoftware.smack.provider.ProviderManager;
 import org.jivesoftware.smack.sasl.SASLErrorException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.sasl.SaslNonzaFactory;
 import org.jivesoftware.smack.sasl.core.SASLAnonymous;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
 import org.jivesoftware.smack.sasl.packet.SaslNonza;
 import org.jivesoftware.smack.util.Async;
 import org.jivesoftware.smack.util.CollectionUtil;
@@ -204,6 +207,16 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
      */
     private final Collection<StanzaCollector> collectors = new ConcurrentLinkedQueue<>();
 
+    private final Collection<StanzaPublisher> publishers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of stanza publisher subscriptions which currently require the reading of incoming data to be
+     * suspended.
+     */
+    private final AtomicInteger readingSuspensions = new AtomicInteger();
+
+    private final Object readingSuspensionLock = new Object();
+
     private final Map<StanzaListener, ListenerWrapper> recvListeners = new LinkedHashMap<>();
 
     /**
@@ -410,6 +423,21 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
                 }
             })
             .listenFor(SaslNonza.SASLFailure.class, f -> saslAuthentication.authenticationFailed(f))
+            .listenFor(Sasl2Nonza.Challenge.class, c -> {
+                try {
+                    saslAuthentication.challengeReceived(c.getData());
+                } catch (SmackException | InterruptedException e) {
+                    saslAuthentication.authenticationFailed(e);
+                }
+            })
+            .listenFor(Sasl2Nonza.Success.class, s -> {
+                try {
+                    saslAuthentication.authenticated(s.getAdditionalData(), s);
+                } catch (SmackSaslException | NotConnectedException | InterruptedException e) {
+                    saslAuthentication.authenticationFailed(e);
+                }
+            })
+            .listenFor(Sasl2Nonza.Failure.class, f -> saslAuthentication.authenticationFailed(f.getSaslFailure()))
             .install();
 
         SmackDebuggerFactory debuggerFactory = configuration.getDebuggerFactory();
@@ -778,8 +806,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         // Set the connections user to the result of resource binding. It is important that we don't infer the user
         // from the login() arguments and the configurations service name, as, for example, when SASL External is used,
         // the username is not given to login but taken from the 'external' certificate.
-        user = response.getJid();
-        xmppServiceDomain = user.asDomainBareJid();
+        setBoundAddress(response.getJid());
 
         Session.Feature sessionFeature = getFeature(Session.Feature.class);
         // Only bind the session if it's announced as stream feature by the server, is not optional and not disabled
@@ -932,6 +959,50 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         return saslMechanism;
     }
 
+    /**
+     * Authenticate the connection using the given SASL profile. Unlike
+     * {@link #authenticate(String, String, EntityBareJid, SSLSession)}, this does not initiate a new stream after a
+     * successful authentication, as this depends on the SASL profile, and returns the nonza which signaled the
+     * successful authentication. This is used, for example, to authenticate using the Extensible SASL Profile
+     * (XEP-0388), where the success nonza may carry the result of inline features.
+     *
+     * @param username the username that is authenticating with the server.
+     * @param password the password to send to the server.
+     * @param authzid the authorization identifier (typically null).
+     * @param sslSession the optional SSL/TLS session (if one was established)
+     * @param serverMechanisms the SASL mechanisms announced by the server.
+     * @param tokenAuthentication <code>true</code> if the password is a token obtained from the service.
+     * @param saslNonzaFactory the factory creating the nonzas of the SASL exchange.
+     * @return the nonza signaling the successful authentication.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws SASLErrorException if a SASL protocol error was returned.
+     * @throws IOException if an I/O error occurred.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws SmackSaslException if a SASL specific error occurred.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @since 4.5
+     */
+    protected final Nonza authenticate(String username, String password, EntityBareJid authzid,
+                    SSLSession sslSession, List<String> serverMechanisms, boolean tokenAuthentication,
+                    SaslNonzaFactory saslNonzaFactory) throws XMPPErrorException, SASLErrorException,
+                    SmackSaslException, NotConnectedException, NoResponseException, IOException, InterruptedException {
+        saslAuthentication.authenticate(username, password, authzid, sslSession, serverMechanisms, tokenAuthentication,
+                        saslNonzaFactory);
+        return saslAuthentication.getSuccessNonza();
+    }
+
+    /**
+     * Set the XMPP address of this connection after a resource has been bound.
+     *
+     * @param boundAddress the full JID of the bound resource.
+     * @since 4.5
+     */
+    protected final void setBoundAddress(EntityFullJid boundAddress) {
+        user = boundAddress;
+        xmppServiceDomain = boundAddress.asDomainBareJid();
+    }
+
     /**
      * Hook for subclasses right after successful SASL authentication. RFC 6120 § 6.4.6. specifies a that the initiating
      * entity, needs to initiate a new stream in this case. But some transports, like BOSH, requires a special handling.
@@ -1072,13 +1143,32 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
     @SuppressWarnings("TypeParameterUnusedInFormals")
     public <I extends IQ> I sendIqRequestAndWaitForResponse(IQ request)
             throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        final SmackMetrics metrics = SmackConfiguration.getMetrics();
+        final long startNanos = metrics.isEnabled() ? System.nanoTime() : 0;
         StanzaCollector collector = createStanzaCollectorAndSend(request);
-        IQ resultResponse = collector.nextResultOrThrow();
+        IQ resultResponse;
+        try {
+            resultResponse = collector.nextResultOrThrow();
+        } catch (XMPPErrorException e) {
+            // An error response is a response nevertheless.
+            recordIqRoundTripTime(metrics, request, startNanos);
+            throw e;
+        }
+        recordIqRoundTripTime(metrics, request, startNanos);
         @SuppressWarnings("unchecked")
         I concreteResultResponse = (I) resultResponse;
         return concreteResultResponse;
     }
 
+    private static void recordIqRoundTripTime(SmackMetrics metrics, IQ request, long startNanos) {
+        // The start timestamp is only taken if the metrics were enabled, hence use the very same metrics instance.
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        String name = SmackMetrics.iqRoundTripTimeName(request.getChildElementNamespace());
+        metrics.histogram(name).recordNanosSince(startNanos);
+    }
+
     @Override
     public StanzaCollector createStanzaCollectorAndSend(IQ packet) throws NotConnectedException, InterruptedException {
         StanzaFilter packetFilter = new IQReplyFilter(packet, this);
@@ -1125,6 +1215,94 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         collectors.remove(collector);
     }
 
+    @Override
+    public StanzaPublisher createStanzaPublisher(StanzaFilter stanzaFilter) {
+        return createStanzaPublisher(stanzaFilter, StanzaPublisher.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public StanzaPublisher createStanzaPublisher(StanzaFilter stanzaFilter, int bufferSize) {
+        StanzaPublisher publisher = new StanzaPublisher(this, stanzaFilter, bufferSize);
+        publishers.add(publisher);
+        return publisher;
+    }
+
+    void removeStanzaPublisher(StanzaPublisher publisher) {
+        publishers.remove(publisher);
+    }
+
+    /**
+     * Suspend the reading of incoming data, until a matching invocation of {@link #resumeReading()}.
+     */
+    final void suspendReading() {
+        readingSuspensions.incrementAndGet();
+    }
+
+    final void resumeReading() {
+        int remainingSuspensions = readingSuspensions.decrementAndGet();
+        assert remainingSuspensions >= 0;
+        if (remainingSuspensions > 0) {
+            return;
+        }
+
+        notifyReadingSuspensionWaiters();
+        onReadingResumed();
+    }
+
+    /**
+     * Check if the reading of incoming data should be suspended, because a {@link StanzaPublisher} applies
+     * backpressure. Connection implementations should stop to read from the network while this returns
+     * <code>true</code>.
+     *
+     * @return <code>true</code> if the reading of incoming data should be suspended.
+     * @since 4.5
+     */
+    protected final boolean isReadingSuspended() {
+        return readingSuspensions.get() > 0;
+    }
+
+    /**
+     * Invoked once the reading of incoming data is no longer suspended. Connection implementations which do not read
+     * from a dedicated thread, but are for example driven by the {@link SmackReactor}, should override this method
+     * to continue reading.
+     *
+     * @since 4.5
+     */
+    protected void onReadingResumed() {
+    }
+
+    /**
+     * Wait while the reading of incoming data is suspended. Connection implementations which read from a dedicated
+     * thread should invoke this method in that thread after every processed stanza.
+     *
+     * @param abortCondition a condition, which, if it becomes <code>true</code>, stops the waiting.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @see #notifyReadingSuspensionWaiters()
+     * @since 4.5
+     */
+    protected final void waitWhileReadingSuspended(Supplier<Boolean> abortCondition) throws InterruptedException {
+        if (!isReadingSuspended()) {
+            return;
+        }
+        synchronized (readingSuspensionLock) {
+            while (isReadingSuspended() && !abortCondition.get()) {
+                readingSuspensionLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Wake up the threads waiting in {@link #waitWhileReadingSuspended(Supplier)}, so that they re-evaluate their
+     * abort condition.
+     *
+     * @since 4.5
+     */
+    protected final void notifyReadingSuspensionWaiters() {
+        synchronized (readingSuspensionLock) {
+            readingSuspensionLock.notifyAll();
+        }
+    }
+
     @Override
     public final void addStanzaListener(StanzaListener stanzaListener, StanzaFilter stanzaFilter) {
         if (stanzaListener == null) {
@@ -1216,6 +1394,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             return;
         }
         Stanza packet = (Stanza) sendTopLevelStreamElement;
+        SmackConfiguration.getMetrics().counter(SmackMetrics.STANZAS_OUT).increment();
 
         final List<StanzaListener> listenersToNotify = new ArrayList<>();
         synchronized (sendListeners) {
@@ -1234,7 +1413,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             public void run() {
                 for (StanzaListener listener : listenersToNotify) {
                     try {
-                        listener.processStanza(packet);
+                        invokeStanzaListener(listener, packet);
                     }
                     catch (Exception e) {
                         LOGGER.log(Level.WARNING, "Sending listener threw exception", e);
@@ -1491,6 +1670,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         maybeNotifyDebuggerAboutIncoming(stanza);
 
         lastStanzaReceived = System.currentTimeMillis();
+        SmackConfiguration.getMetrics().counter(SmackMetrics.STANZAS_IN).increment();
         // Deliver the incoming packet to listeners.
         invokeStanzaCollectorsAndNotifyRecvListeners(stanza);
     }
@@ -1614,7 +1794,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
                 @Override
                 public void run() {
                     try {
-                        listener.processStanza(packet);
+                        invokeStanzaListener(listener, packet);
                     } catch (Exception e) {
                         LOGGER.log(Level.SEVERE, "Exception in async packet listener", e);
                     }
@@ -1627,13 +1807,17 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             collector.processStanza(packet);
         }
 
+        for (StanzaPublisher publisher : publishers) {
+            publisher.processStanza(packet);
+        }
+
         listenersToNotify.clear();
         extractMatchingListeners(packet, recvListeners, listenersToNotify);
         final Semaphore listenerSemaphore = new Semaphore(1 - listenersToNotify.size());
         for (StanzaListener stanzaListener : listenersToNotify) {
             asyncGoLimited(() -> {
                 try {
-                    stanzaListener.processStanza(packet);
+                    invokeStanzaListener(stanzaListener, packet);
                 }
                 catch (NotConnectedException e) {
                     LOGGER.log(Level.WARNING, "Got not connected exception, aborting", e);
@@ -1670,7 +1854,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
                 }
                 for (StanzaListener listener : listenersToNotify) {
                     try {
-                        listener.processStanza(packet);
+                        invokeStanzaListener(listener, packet);
                     } catch (NotConnectedException e) {
                         LOGGER.log(Level.WARNING, "Got not connected exception, aborting", e);
                         break;
@@ -1682,6 +1866,36 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         });
     }
 
+    /**
+     * Record the depth of the given outgoing queue, after an element was enqueued, if metrics are enabled.
+     *
+     * @param outgoingQueue the outgoing queue.
+     * @since 4.5
+     */
+    protected static void recordOutgoingQueueDepth(Collection<?> outgoingQueue) {
+        SmackMetrics metrics = SmackConfiguration.getMetrics();
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        metrics.histogram(SmackMetrics.OUTGOING_QUEUE_DEPTH).record(outgoingQueue.size());
+    }
+
+    private static void invokeStanzaListener(StanzaListener stanzaListener, Stanza stanza)
+                    throws NotConnectedException, InterruptedException, NotLoggedInException {
+        SmackMetrics metrics = SmackConfiguration.getMetrics();
+        if (!metrics.isEnabled()) {
+            stanzaListener.processStanza(stanza);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            stanzaListener.processStanza(stanza);
+        } finally {
+            metrics.histogram(SmackMetrics.LISTENER_EXECUTION_TIME).recordNanosSince(startNanos);
+        }
+    }
+
     private static void extractMatchingListeners(Stanza stanza, Map<StanzaListener, ListenerWrapper> listeners,
                     Collection<StanzaListener> listenersToNotify) {
         synchronized (listeners) {
@@ -1974,6 +2188,9 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         Objects.requireNonNull(replyFilter, "replyFilter must not be null");
 
         final InternalSmackFuture<S, Exception> future = new InternalSmackFuture<>();
+        final IQ iqRequest = stanza instanceof IQ ? (IQ) stanza : null;
+        final SmackMetrics metrics = SmackConfiguration.getMetrics();
+        final long startNanos = iqRequest != null && metrics.isEnabled() ? System.nanoTime() : 0;
 
         final StanzaListener stanzaListener = new StanzaListener() {
             @Override
@@ -1984,6 +2201,9 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
                     // exception callback will be invoked (if any).
                     return;
                 }
+                if (iqRequest != null) {
+                    recordIqRoundTripTime(metrics, iqRequest, startNanos);
+                }
                 try {
                     XMPPErrorException.ifHasErrorThenThrow(stanza);
                     @SuppressWarnings("unchecked")
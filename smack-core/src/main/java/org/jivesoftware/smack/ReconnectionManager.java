@@ -23,12 +23,12 @@ import java.util.Random;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jivesoftware.smack.XMPPException.StreamErrorException;
 import org.jivesoftware.smack.packet.StreamError;
-import org.jivesoftware.smack.util.Async;
 
 /**
  * Handles the automatic reconnection process. Every time a connection is dropped without
@@ -46,8 +46,15 @@ import org.jivesoftware.smack.util.Async;
  *
  * {@link ReconnectionPolicy#FIXED_DELAY} - The reconnection mechanism will try to reconnect after a fixed delay
  * independently from the number of reconnection attempts already performed.
+ *
+ * {@link ReconnectionPolicy#EXPONENTIAL_BACKOFF} - The reconnection mechanism will double the delay after every failed
+ * attempt, up to a maximum, and randomize it, so that many connections do not reconnect in lockstep.
  * <p>
- * Interrupting the reconnection thread will abort the reconnection mechanism.
+ * The reconnection attempts of all connections are coordinated by a shared scheduler, which does not use a thread per
+ * connection while waiting for the next attempt. At most {@link #getMaxConcurrentReconnectionAttempts()} attempts
+ * are performed at the same time. If more attempts are due, then the ones with the highest
+ * {@link #setPriority(int) priority} are performed first. This avoids overloading the server, for example if a large
+ * number of connections tries to reconnect after the server was restarted.
  * </p>
  *
  * @author Francisco Vives
@@ -109,14 +116,20 @@ public final class ReconnectionManager {
 
     // Holds the connection to the server
     private final WeakReference<AbstractXMPPConnection> weakRefConnection;
-    private final int randomBase = new Random().nextInt(13) + 2; // between 2 and 15 seconds
-    private final Runnable reconnectionRunnable;
+    private static final Random RANDOM = new Random();
+
+    private final int randomBase = RANDOM.nextInt(13) + 2; // between 2 and 15 seconds
+
+    private static final long EXPONENTIAL_BACKOFF_BASE_MILLIS = 1000;
 
     private static int defaultFixedDelay = 15;
+    private static int defaultMaxBackoffDelay = 300;
     private static ReconnectionPolicy defaultReconnectionPolicy = ReconnectionPolicy.RANDOM_INCREASING_DELAY;
 
     private volatile int fixedDelay = defaultFixedDelay;
+    private volatile int maxBackoffDelay = defaultMaxBackoffDelay;
     private volatile ReconnectionPolicy reconnectionPolicy = defaultReconnectionPolicy;
+    private volatile int priority;
 
     /**
      * Set the default fixed delay in seconds between the reconnection attempts. Also set the
@@ -138,6 +151,39 @@ public final class ReconnectionManager {
         defaultReconnectionPolicy = reconnectionPolicy;
     }
 
+    /**
+     * Set the default maximum delay in seconds between reconnection attempts when using
+     * {@link ReconnectionPolicy#EXPONENTIAL_BACKOFF}. The default is 300 seconds.
+     *
+     * @param maxBackoffDelay the maximum delay in seconds.
+     * @since 4.5
+     */
+    public static void setDefaultMaxBackoffDelay(int maxBackoffDelay) {
+        defaultMaxBackoffDelay = maxBackoffDelay;
+    }
+
+    /**
+     * Set the maximum number of reconnection attempts, i.e., connecting and logging in, which are performed
+     * simultaneously by all connections. Further attempts are queued until a running attempt finishes. The default is
+     * {@value ReconnectionScheduler#DEFAULT_MAX_CONCURRENT_ATTEMPTS}.
+     *
+     * @param maxConcurrentReconnectionAttempts the maximum number of simultaneous reconnection attempts.
+     * @since 4.5
+     */
+    public static void setMaxConcurrentReconnectionAttempts(int maxConcurrentReconnectionAttempts) {
+        ReconnectionScheduler.getInstance().setMaxConcurrentAttempts(maxConcurrentReconnectionAttempts);
+    }
+
+    /**
+     * Get the maximum number of reconnection attempts performed simultaneously by all connections.
+     *
+     * @return the maximum number of simultaneous reconnection attempts.
+     * @since 4.5
+     */
+    public static int getMaxConcurrentReconnectionAttempts() {
+        return ReconnectionScheduler.getInstance().getMaxConcurrentAttempts();
+    }
+
     /**
      * Add a new reconnection listener.
      *
@@ -180,136 +226,62 @@ public final class ReconnectionManager {
     }
 
     /**
-     * Flag that indicates if a reconnection should be attempted when abruptly disconnected.
+     * Set the maximum delay in seconds between reconnection attempts when using
+     * {@link ReconnectionPolicy#EXPONENTIAL_BACKOFF}.
+     *
+     * @param maxBackoffDelay the maximum delay in seconds.
+     * @since 4.5
      */
-    private boolean automaticReconnectEnabled = false;
-
-    boolean done = false;
+    public void setMaxBackoffDelay(int maxBackoffDelay) {
+        this.maxBackoffDelay = maxBackoffDelay;
+    }
 
-    private Thread reconnectionThread;
+    /**
+     * Set the priority of this connection's reconnection attempts. If more reconnection attempts are due than
+     * {@link #getMaxConcurrentReconnectionAttempts()}, then attempts with a higher priority are performed first. The
+     * default priority is 0.
+     *
+     * @param priority the priority.
+     * @since 4.5
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
 
-    private ReconnectionManager(AbstractXMPPConnection connection) {
-        weakRefConnection = new WeakReference<>(connection);
+    /**
+     * Get the priority of this connection's reconnection attempts.
+     *
+     * @return the priority.
+     * @since 4.5
+     */
+    public int getPriority() {
+        return priority;
+    }
 
-        reconnectionRunnable = new Runnable() {
-
-            /**
-             * Holds the current number of reconnection attempts
-             */
-            private int attempts = 0;
-
-            /**
-             * Returns the number of seconds until the next reconnection attempt.
-             *
-             * @return the number of seconds until the next reconnection attempt.
-             */
-            private int timeDelay() {
-                attempts++;
-
-                // Delay variable to be assigned
-                int delay;
-                switch (reconnectionPolicy) {
-                case FIXED_DELAY:
-                    delay = fixedDelay;
-                    break;
-                case RANDOM_INCREASING_DELAY:
-                    if (attempts > 13) {
-                        delay = randomBase * 6 * 5; // between 2.5 and 7.5 minutes (~5 minutes)
-                    }
-                    else if (attempts > 7) {
-                        delay = randomBase * 6; // between 30 and 90 seconds (~1 minutes)
-                    }
-                    else {
-                        delay = randomBase; // 10 seconds
-                    }
-                    break;
-                default:
-                    throw new AssertionError("Unknown reconnection policy " + reconnectionPolicy);
-                }
+    /**
+     * Flag that indicates if a reconnection should be attempted when abruptly disconnected.
+     */
+    private boolean automaticReconnectEnabled = false;
 
-                return delay;
-            }
+    boolean done = false;
 
-            /**
-             * The process will try the reconnection until the connection succeed or the user cancel it
-             */
-            @Override
-            public void run() {
-                final AbstractXMPPConnection connection = weakRefConnection.get();
-                if (connection == null) {
-                    return;
-                }
+    /**
+     * The pending or running attempt of the current reconnection cycle, or <code>null</code> if there is no
+     * reconnection cycle.
+     */
+    private ReconnectionAttempt currentAttempt;
 
-                // Reset attempts to zero since a new reconnection cycle is started once this runs.
-                attempts = 0;
-
-                // The process will try to reconnect until the connection is established or
-                // the user cancel the reconnection process AbstractXMPPConnection.disconnect().
-                while (isReconnectionPossible(connection)) {
-                    // Find how much time we should wait until the next reconnection
-                    int remainingSeconds = timeDelay();
-                    // Sleep until we're ready for the next reconnection attempt. Notify
-                    // listeners once per second about how much time remains before the next
-                    // reconnection attempt.
-                    while (remainingSeconds > 0) {
-                        if (!isReconnectionPossible(connection)) {
-                            return;
-                        }
-                        try {
-                            Thread.sleep(1000);
-                            remainingSeconds--;
-                            for (ReconnectionListener listener : reconnectionListeners) {
-                                listener.reconnectingIn(remainingSeconds);
-                            }
-                        }
-                        catch (InterruptedException e) {
-                            LOGGER.log(Level.FINE, "Reconnection Thread was interrupted, aborting reconnection mechanism", e);
-                            // Exit the reconnection thread in case it was interrupted.
-                            return;
-                        }
-                    }
+    /**
+     * The number of attempts of the current reconnection cycle.
+     */
+    private int attempts;
 
-                    for (ReconnectionListener listener : reconnectionListeners) {
-                        listener.reconnectingIn(0);
-                    }
+    private ScheduledAction countdownAction;
 
-                    if (!isReconnectionPossible(connection)) {
-                        return;
-                    }
-                    // Makes a reconnection attempt
-                    try {
-                        try {
-                            connection.connect();
-                        }
-                        catch (SmackException.AlreadyConnectedException e) {
-                            LOGGER.log(Level.FINER, "Connection was already connected on reconnection attempt", e);
-                        }
-                        connection.login();
-                    }
-                    catch (SmackException.AlreadyLoggedInException e) {
-                        // This can happen if another thread concurrently triggers a reconnection
-                        // and/or login. Obviously it should not be handled as a reconnection
-                        // failure. See also SMACK-725.
-                        LOGGER.log(Level.FINER, "Reconnection not required, was already logged in", e);
-                    }
-                    catch (SmackException | IOException | XMPPException e) {
-                        // Fires the failed reconnection notification
-                        for (ReconnectionListener listener : reconnectionListeners) {
-                            listener.reconnectionFailed(e);
-                        }
-                        // Failed to reconnect, try again.
-                        continue;
-                    } catch (InterruptedException e) {
-                        LOGGER.log(Level.FINE, "Reconnection Thread was interrupted, aborting reconnection mechanism", e);
-                        // Exit the reconnection thread in case it was interrupted.
-                        return;
-                    }
+    private Thread attemptThread;
 
-                    // Successfully reconnected .
-                    return;
-                }
-            }
-        };
+    private ReconnectionManager(AbstractXMPPConnection connection) {
+        weakRefConnection = new WeakReference<>(connection);
 
         // If the reconnection mechanism is enable per default, enable it for this ReconnectionManager instance
         if (getEnabledPerDefault()) {
@@ -377,14 +349,166 @@ public final class ReconnectionManager {
             LOGGER.fine("Connection is null, will not reconnect");
             return;
         }
-        // Since there is no thread running, creates a new one to attempt
-        // the reconnection.
-        // avoid to run duplicated reconnectionThread -- fd: 16/09/2010
-        if (reconnectionThread != null && reconnectionThread.isAlive())
+        // Avoid starting a second reconnection cycle.
+        if (currentAttempt != null) {
             return;
+        }
 
-        reconnectionThread = Async.go(reconnectionRunnable,
-                        "Smack Reconnection Manager (" + connection.getConnectionCounter() + ')');
+        // Reset attempts to zero since a new reconnection cycle is started.
+        attempts = 0;
+        scheduleNextAttempt();
+    }
+
+    /**
+     * Returns the number of milliseconds until the next reconnection attempt.
+     *
+     * @return the number of milliseconds until the next reconnection attempt.
+     */
+    private long nextDelayMillis() {
+        attempts++;
+
+        // Delay variable to be assigned
+        int delay;
+        switch (reconnectionPolicy) {
+        case FIXED_DELAY:
+            delay = fixedDelay;
+            break;
+        case RANDOM_INCREASING_DELAY:
+            if (attempts > 13) {
+                delay = randomBase * 6 * 5; // between 2.5 and 7.5 minutes (~5 minutes)
+            }
+            else if (attempts > 7) {
+                delay = randomBase * 6; // between 30 and 90 seconds (~1 minutes)
+            }
+            else {
+                delay = randomBase; // 10 seconds
+            }
+            break;
+        case EXPONENTIAL_BACKOFF:
+            long maxDelayMillis = TimeUnit.SECONDS.toMillis(maxBackoffDelay);
+            long delayMillis = EXPONENTIAL_BACKOFF_BASE_MILLIS << Math.min(attempts - 1, 30);
+            delayMillis = Math.min(delayMillis, maxDelayMillis);
+            // Use "equal jitter", i.e., a delay between the half and the full backoff delay.
+            long halfDelayMillis = delayMillis / 2;
+            return halfDelayMillis + (long) (RANDOM.nextDouble() * (delayMillis - halfDelayMillis));
+        default:
+            throw new AssertionError("Unknown reconnection policy " + reconnectionPolicy);
+        }
+
+        return TimeUnit.SECONDS.toMillis(delay);
+    }
+
+    private synchronized void scheduleNextAttempt() {
+        long delayMillis = nextDelayMillis();
+        ReconnectionAttempt attempt = new ReconnectionAttempt();
+        currentAttempt = attempt;
+        ReconnectionScheduler.getInstance().schedule(attempt, delayMillis);
+
+        if (!reconnectionListeners.isEmpty()) {
+            int remainingSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(delayMillis);
+            scheduleCountdownTick(attempt, remainingSeconds);
+        }
+    }
+
+    /**
+     * Notify the reconnection listeners once per second about how much time remains before the next reconnection
+     * attempt. The final notification, announcing the attempt, is performed by the attempt itself.
+     */
+    private synchronized void scheduleCountdownTick(final ReconnectionAttempt attempt, final int remainingSeconds) {
+        if (remainingSeconds <= 1) {
+            countdownAction = null;
+            return;
+        }
+        countdownAction = AbstractXMPPConnection.schedule(() -> {
+            synchronized (ReconnectionManager.this) {
+                if (currentAttempt != attempt) {
+                    return;
+                }
+                scheduleCountdownTick(attempt, remainingSeconds - 1);
+            }
+            // Do not invoke the listeners in the reactor thread.
+            AbstractXMPPConnection.asyncGo(() -> {
+                for (ReconnectionListener listener : reconnectionListeners) {
+                    listener.reconnectingIn(remainingSeconds - 1);
+                }
+            });
+        }, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Perform a reconnection attempt. This is invoked by the reconnection scheduler once the attempt was admitted.
+     */
+    private void performAttempt(ReconnectionAttempt attempt) {
+        final AbstractXMPPConnection connection = weakRefConnection.get();
+        synchronized (this) {
+            if (currentAttempt != attempt) {
+                // The reconnection was aborted.
+                return;
+            }
+            if (connection == null || !isReconnectionPossible(connection)) {
+                currentAttempt = null;
+                return;
+            }
+            attemptThread = Thread.currentThread();
+        }
+
+        try {
+            for (ReconnectionListener listener : reconnectionListeners) {
+                listener.reconnectingIn(0);
+            }
+
+            // Makes a reconnection attempt
+            try {
+                try {
+                    connection.connect();
+                }
+                catch (SmackException.AlreadyConnectedException e) {
+                    LOGGER.log(Level.FINER, "Connection was already connected on reconnection attempt", e);
+                }
+                connection.login();
+            }
+            catch (SmackException.AlreadyLoggedInException e) {
+                // This can happen if another thread concurrently triggers a reconnection
+                // and/or login. Obviously it should not be handled as a reconnection
+                // failure. See also SMACK-725.
+                LOGGER.log(Level.FINER, "Reconnection not required, was already logged in", e);
+            }
+            catch (SmackException | IOException | XMPPException e) {
+                // Fires the failed reconnection notification
+                for (ReconnectionListener listener : reconnectionListeners) {
+                    listener.reconnectionFailed(e);
+                }
+                // Failed to reconnect, try again.
+                synchronized (this) {
+                    if (currentAttempt != attempt) {
+                        return;
+                    }
+                    if (!isReconnectionPossible(connection)) {
+                        currentAttempt = null;
+                        return;
+                    }
+                    scheduleNextAttempt();
+                }
+                return;
+            }
+            catch (InterruptedException e) {
+                LOGGER.log(Level.FINE, "Reconnection attempt was interrupted, aborting reconnection mechanism", e);
+            }
+
+            // Successfully reconnected, or aborted.
+            synchronized (this) {
+                if (currentAttempt == attempt) {
+                    currentAttempt = null;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                attemptThread = null;
+            }
+            // The attempt is performed by a pooled thread, make sure that a possible interrupt from
+            // abortPossiblyRunningReconnection() does not leak.
+            Thread.interrupted();
+        }
     }
 
     /**
@@ -393,12 +517,34 @@ public final class ReconnectionManager {
      * @since 4.2.2
      */
     public synchronized void abortPossiblyRunningReconnection() {
-        if (reconnectionThread == null) {
+        if (currentAttempt == null) {
             return;
         }
 
-        reconnectionThread.interrupt();
-        reconnectionThread = null;
+        ReconnectionScheduler.getInstance().cancel(currentAttempt);
+        currentAttempt = null;
+
+        if (countdownAction != null) {
+            countdownAction.cancel();
+            countdownAction = null;
+        }
+
+        if (attemptThread != null) {
+            attemptThread.interrupt();
+            attemptThread = null;
+        }
+    }
+
+    private final class ReconnectionAttempt extends ReconnectionScheduler.Attempt {
+        @Override
+        protected int getPriority() {
+            return priority;
+        }
+
+        @Override
+        protected void perform() {
+            performAttempt(this);
+        }
     }
 
     private final ConnectionListener connectionListener = new ConnectionListener() {
@@ -447,5 +593,14 @@ public final class ReconnectionManager {
          * Policy using fixed amount of time between reconnection attempts.
          */
         FIXED_DELAY,
+
+        /**
+         * Policy doubling the delay after every failed attempt, starting with one second, up to the maximum set via
+         * {@link ReconnectionManager#setMaxBackoffDelay(int)}. The delay is randomized to be between the half and the
+         * full backoff delay.
+         *
+         * @since 4.5
+         */
+        EXPONENTIAL_BACKOFF,
     }
 }
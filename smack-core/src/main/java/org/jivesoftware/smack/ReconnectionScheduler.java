@@ -0,0 +1,215 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A scheduler for reconnection attempts shared by all {@link ReconnectionManager} instances. Attempts are timed by the
+ * {@link SmackReactor}, so that waiting for the next attempt does not occupy a thread. Once an attempt is due, it is
+ * added to an admission queue, which is ordered by the priority of the attempts. At most
+ * {@link #getMaxConcurrentAttempts()} attempts are performed simultaneously, which avoids that a large number of
+ * connections overload the server, e.g. after the server was restarted.
+ */
+final class ReconnectionScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(ReconnectionScheduler.class.getName());
+
+    static final int DEFAULT_MAX_CONCURRENT_ATTEMPTS = 16;
+
+    private static final ReconnectionScheduler INSTANCE = new ReconnectionScheduler(DEFAULT_MAX_CONCURRENT_ATTEMPTS);
+
+    static ReconnectionScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    private final PriorityQueue<Attempt> admissionQueue = new PriorityQueue<>();
+
+    private int maxConcurrentAttempts;
+
+    private int runningAttempts;
+
+    private long admissionSequence;
+
+    ReconnectionScheduler(int maxConcurrentAttempts) {
+        setMaxConcurrentAttempts(maxConcurrentAttempts);
+    }
+
+    void setMaxConcurrentAttempts(int maxConcurrentAttempts) {
+        if (maxConcurrentAttempts < 1) {
+            throw new IllegalArgumentException("Must allow at least one concurrent attempt");
+        }
+        synchronized (this) {
+            this.maxConcurrentAttempts = maxConcurrentAttempts;
+        }
+        // The limit may have been increased.
+        dispatch();
+    }
+
+    synchronized int getMaxConcurrentAttempts() {
+        return maxConcurrentAttempts;
+    }
+
+    synchronized int getRunningAttemptCount() {
+        return runningAttempts;
+    }
+
+    synchronized int getQueuedAttemptCount() {
+        return admissionQueue.size();
+    }
+
+    /**
+     * Schedule the given attempt. Once the delay has passed, the attempt is admitted for execution.
+     *
+     * @param attempt the attempt.
+     * @param delayMillis the delay in milliseconds.
+     */
+    synchronized void schedule(Attempt attempt, long delayMillis) {
+        if (attempt.state != Attempt.State.created) {
+            throw new IllegalStateException("Attempt was already scheduled");
+        }
+        attempt.state = Attempt.State.scheduled;
+        attempt.scheduledAction = AbstractXMPPConnection.schedule(() -> admit(attempt), delayMillis,
+                        TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Admit the given attempt for execution. The attempt is performed as soon as there are less than
+     * {@link #getMaxConcurrentAttempts()} running attempts and no other attempt with a higher priority is waiting.
+     *
+     * @param attempt the attempt.
+     */
+    private void admit(Attempt attempt) {
+        synchronized (this) {
+            if (attempt.state != Attempt.State.scheduled) {
+                // The attempt was cancelled in the meantime.
+                return;
+            }
+            attempt.scheduledAction = null;
+            attempt.state = Attempt.State.queued;
+            // Fix the priority while the attempt is queued, as changing it would corrupt the admission queue.
+            attempt.admissionPriority = attempt.getPriority();
+            attempt.admissionSequence = admissionSequence++;
+            admissionQueue.add(attempt);
+        }
+        dispatch();
+    }
+
+    /**
+     * Cancel the given attempt if it is not already running.
+     *
+     * @param attempt the attempt.
+     * @return <code>true</code> if the attempt was scheduled or queued and got cancelled.
+     */
+    synchronized boolean cancel(Attempt attempt) {
+        switch (attempt.state) {
+        case scheduled:
+            attempt.scheduledAction.cancel();
+            attempt.scheduledAction = null;
+            break;
+        case queued:
+            admissionQueue.remove(attempt);
+            break;
+        default:
+            return false;
+        }
+        attempt.state = Attempt.State.cancelled;
+        return true;
+    }
+
+    private void dispatch() {
+        List<Attempt> admittedAttempts = new ArrayList<>();
+        synchronized (this) {
+            while (runningAttempts < maxConcurrentAttempts && !admissionQueue.isEmpty()) {
+                Attempt attempt = admissionQueue.poll();
+                attempt.state = Attempt.State.running;
+                runningAttempts++;
+                admittedAttempts.add(attempt);
+            }
+        }
+
+        for (Attempt attempt : admittedAttempts) {
+            // Connecting and logging in is blocking, hence perform the attempt outside of the reactor.
+            AbstractXMPPConnection.asyncGo(() -> {
+                try {
+                    attempt.perform();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Reconnection attempt threw exception", e);
+                } finally {
+                    attemptFinished(attempt);
+                }
+            });
+        }
+    }
+
+    private void attemptFinished(Attempt attempt) {
+        synchronized (this) {
+            runningAttempts--;
+            attempt.state = Attempt.State.finished;
+        }
+        dispatch();
+    }
+
+    /**
+     * A single reconnection attempt. Attempts can only be scheduled once.
+     */
+    abstract static class Attempt implements Comparable<Attempt> {
+
+        private enum State {
+            created,
+            scheduled,
+            queued,
+            running,
+            finished,
+            cancelled,
+        }
+
+        private State state = State.created;
+
+        private ScheduledAction scheduledAction;
+
+        private int admissionPriority;
+
+        private long admissionSequence;
+
+        /**
+         * Get the priority of this attempt. Attempts with a higher priority are performed first.
+         *
+         * @return the priority.
+         */
+        protected abstract int getPriority();
+
+        /**
+         * Perform the attempt. This method may block.
+         */
+        protected abstract void perform();
+
+        @Override
+        public final int compareTo(Attempt other) {
+            int res = Integer.compare(other.admissionPriority, admissionPriority);
+            if (res != 0) {
+                return res;
+            }
+            return Long.compare(admissionSequence, other.admissionSequence);
+        }
+    }
+}
@@ -36,8 +36,10 @@ import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.SmackException.SmackSaslException;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
 import org.jivesoftware.smack.packet.Mechanisms;
+import org.jivesoftware.smack.packet.Nonza;
 import org.jivesoftware.smack.sasl.SASLErrorException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.sasl.SaslNonzaFactory;
 import org.jivesoftware.smack.sasl.core.ScramSha1PlusMechanism;
 import org.jivesoftware.smack.sasl.packet.SaslNonza;
 import org.jivesoftware.smack.sasl.packet.SaslNonza.SASLFailure;
@@ -155,6 +157,7 @@ public final class SASLAuthentication {
     private final AbstractXMPPConnection connection;
     private final ConnectionConfiguration configuration;
     private SASLMechanism currentMechanism = null;
+    private Nonza successNonza;
 
     SASLAuthentication(AbstractXMPPConnection connection, ConnectionConfiguration configuration) {
         this.configuration = configuration;
@@ -185,13 +188,45 @@ public final class SASLAuthentication {
     SASLMechanism authenticate(String username, String password, EntityBareJid authzid, SSLSession sslSession)
                     throws XMPPErrorException, SASLErrorException, IOException,
                     InterruptedException, SmackSaslException, NotConnectedException, NoResponseException {
-        final SASLMechanism mechanism = selectMechanism(authzid, password);
+        return authenticate(username, password, authzid, sslSession, getServerMechanisms(), false,
+                        SaslNonzaFactory.RFC6120);
+    }
+
+    /**
+     * Performs SASL authentication of the specified user using the given SASL profile. The nonzas of the SASL
+     * exchange are created by the given {@link SaslNonzaFactory}, which allows, for example, to perform the exchange
+     * using the Extensible SASL Profile (XEP-0388).
+     *
+     * @param username the username that is authenticating with the server.
+     * @param password the password to send to the server.
+     * @param authzid the authorization identifier (typically null).
+     * @param sslSession the optional SSL/TLS session (if one was established)
+     * @param serverMechanisms the SASL mechanisms announced by the server.
+     * @param tokenAuthentication <code>true</code> if the password is a token, which restricts the selection to token
+     *        based mechanisms, <code>false</code> if it is the user's password, which excludes them.
+     * @param saslNonzaFactory the factory creating the nonzas of the SASL exchange.
+     * @return the used SASLMechanism.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws SASLErrorException if a SASL protocol error was returned.
+     * @throws IOException if an I/O error occurred.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws SmackSaslException if a SASL specific error occurred.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws NoResponseException if there was no response from the remote entity.
+     */
+    SASLMechanism authenticate(String username, String password, EntityBareJid authzid, SSLSession sslSession,
+                    List<String> serverMechanisms, boolean tokenAuthentication, SaslNonzaFactory saslNonzaFactory)
+                    throws XMPPErrorException, SASLErrorException, IOException,
+                    InterruptedException, SmackSaslException, NotConnectedException, NoResponseException {
+        final SASLMechanism mechanism = selectMechanism(authzid, password, serverMechanisms, tokenAuthentication);
+        mechanism.setSaslNonzaFactory(saslNonzaFactory);
         final CallbackHandler callbackHandler = configuration.getCallbackHandler();
         final String host = connection.getHost();
         final DomainBareJid xmppServiceDomain = connection.getXMPPServiceDomain();
 
         synchronized (this) {
             currentMechanism = mechanism;
+            successNonza = null;
 
             if (callbackHandler != null) {
                 currentMechanism.authenticate(host, xmppServiceDomain, callbackHandler, authzid, sslSession);
@@ -226,6 +261,18 @@ public final class SASLAuthentication {
         challengeReceived(challenge.getData(), false);
     }
 
+    /**
+     * Wrapper for {@link #challengeReceived(String, boolean)}, with <code>finalChallenge</code> set
+     * to <code>false</code>.
+     *
+     * @param challenge the Base64 encoded challenge.
+     * @throws SmackException if Smack detected an exceptional situation.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    void challengeReceived(String challenge) throws SmackException, InterruptedException {
+        challengeReceived(challenge, false);
+    }
+
     /**
      * The server is challenging the SASL authentication we just sent. Forward the challenge
      * to the current SASLMechanism we are using. The SASLMechanism will eventually send a response to
@@ -255,17 +302,31 @@ public final class SASLAuthentication {
      * @throws SmackSaslException if a SASL specific error occurred.
      */
     void authenticated(Success success) throws InterruptedException, SmackSaslException, NotConnectedException {
+        authenticated(success.getData(), success);
+    }
+
+    /**
+     * Notification that the SASL authentication was successful.
+     *
+     * @param additionalData the optional additional data with success.
+     * @param successNonza the nonza signaling the success.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws SmackSaslException if a SASL specific error occurred.
+     */
+    void authenticated(String additionalData, Nonza successNonza) throws InterruptedException, SmackSaslException, NotConnectedException {
         // RFC6120 6.3.10 "At the end of the authentication exchange, the SASL server (the XMPP
         // "receiving entity") can include "additional data with success" if appropriate for the
         // SASL mechanism in use. In XMPP, this is done by including the additional data as the XML
         // character data of the <success/> element." The used SASL mechanism should be able to
         // verify the data send by the server in the success stanza, if any.
-        if (success.getData() != null) {
-            challengeReceived(success.getData(), true);
+        if (additionalData != null) {
+            challengeReceived(additionalData, true);
         }
 
         // Wake up the thread that is waiting in the #authenticate method
         synchronized (this) {
+            this.successNonza = successNonza;
             currentMechanism.afterFinalSaslChallenge();
 
             notify();
@@ -304,6 +365,15 @@ public final class SASLAuthentication {
         }
     }
 
+    /**
+     * Get the nonza which signaled the success of the last SASL authentication.
+     *
+     * @return the success nonza of the last SASL authentication, or <code>null</code>.
+     */
+    synchronized Nonza getSuccessNonza() {
+        return successNonza;
+    }
+
     String getNameOfLastUsedSaslMechansism() {
         SASLMechanism lastUsedMech = currentMechanism;
         if (lastUsedMech == null) {
@@ -312,11 +382,11 @@ public final class SASLAuthentication {
         return lastUsedMech.getName();
     }
 
-    private SASLMechanism selectMechanism(EntityBareJid authzid, String password) throws SmackException.SmackSaslException {
+    private SASLMechanism selectMechanism(EntityBareJid authzid, String password, List<String> serverMechanisms,
+                    boolean tokenAuthentication) throws SmackException.SmackSaslException {
         final boolean passwordAvailable = StringUtils.isNotEmpty(password);
 
         Iterator<SASLMechanism> it = REGISTERED_MECHANISMS.iterator();
-        final List<String> serverMechanisms = getServerMechanisms();
         if (serverMechanisms.isEmpty()) {
             LOGGER.warning("Server did not report any SASL mechanisms");
         }
@@ -342,6 +412,11 @@ public final class SASLAuthentication {
                 continue;
             }
 
+            // Never use the user's password as token, or a token as the user's password.
+            if (mechanism.isTokenBased() != tokenAuthentication) {
+                continue;
+            }
+
             if (authzid != null && !mechanism.authzidSupported()) {
                 skipReasons.add("Skipping " + mechanism + " because authzid is required by not supported by this SASL mechanism");
                 continue;
@@ -33,6 +33,8 @@ import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModuleDescr
 import org.jivesoftware.smack.compression.XMPPInputOutputStream;
 import org.jivesoftware.smack.debugger.ReflectionDebuggerFactory;
 import org.jivesoftware.smack.debugger.SmackDebuggerFactory;
+import org.jivesoftware.smack.metrics.NoOpSmackMetrics;
+import org.jivesoftware.smack.metrics.SmackMetrics;
 import org.jivesoftware.smack.parsing.ExceptionThrowingCallback;
 import org.jivesoftware.smack.parsing.ExceptionThrowingCallbackWithHint;
 import org.jivesoftware.smack.parsing.ParsingExceptionCallback;
@@ -356,6 +358,68 @@ public final class SmackConfiguration {
         SmackConfiguration.unknownIqRequestReplyMode = Objects.requireNonNull(unknownIqRequestReplyMode, "Must set mode");
     }
 
+    private static boolean lazyExtensionElementParsing = false;
+
+    /**
+     * Enable or disable lazy parsing of extension elements of incoming messages and presences. If enabled, the
+     * extension elements are retained as raw XML and only parsed by their provider once they are accessed via one of
+     * the {@code getExtension(…)} methods of the stanza. This can reduce the parsing costs if a lot of extension
+     * elements are never read, e.g. delay or entity capabilities in high-volume group chats. The elements are still
+     * tokenized to retain their raw XML, so only the provider invocations are saved, while every element which is read
+     * is tokenized twice. Note that in
+     * lazy mode, an extension element which fails to parse will not cause the whole stanza to be rejected. Instead,
+     * the element is dropped once it is accessed.
+     * <p>
+     * Lazy extension element parsing is disabled by default.
+     * </p>
+     *
+     * @param lazyExtensionElementParsing <code>true</code> to enable lazy extension element parsing.
+     * @since 4.5
+     */
+    public static void setLazyExtensionElementParsing(boolean lazyExtensionElementParsing) {
+        SmackConfiguration.lazyExtensionElementParsing = lazyExtensionElementParsing;
+    }
+
+    /**
+     * Check if lazy extension element parsing is enabled.
+     *
+     * @return <code>true</code> if lazy extension element parsing is enabled.
+     * @see #setLazyExtensionElementParsing(boolean)
+     * @since 4.5
+     */
+    public static boolean isLazyExtensionElementParsingEnabled() {
+        return lazyExtensionElementParsing;
+    }
+
+    private static volatile SmackMetrics metrics = NoOpSmackMetrics.INSTANCE;
+
+    /**
+     * Set the metrics instance to which all connections report their metrics, e.g. the number of stanzas send and
+     * received, the round-trip time of IQ requests and the execution time of stanza listeners. The default does not
+     * collect any metrics.
+     *
+     * @param metrics the metrics instance, or <code>null</code> to disable metrics collection.
+     * @see org.jivesoftware.smack.metrics.InMemorySmackMetrics
+     * @since 4.5
+     */
+    public static void setMetrics(SmackMetrics metrics) {
+        if (metrics == null) {
+            metrics = NoOpSmackMetrics.INSTANCE;
+        }
+        SmackConfiguration.metrics = metrics;
+    }
+
+    /**
+     * Get the metrics instance to which all connections report their metrics.
+     *
+     * @return the metrics instance.
+     * @see #setMetrics(SmackMetrics)
+     * @since 4.5
+     */
+    public static SmackMetrics getMetrics() {
+        return metrics;
+    }
+
     private static final int defaultConcurrencyLevelLimit;
 
     static {
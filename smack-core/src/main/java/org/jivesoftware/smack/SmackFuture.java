@@ -19,186 +19,553 @@ package org.jivesoftware.smack;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.net.SocketFactory;
 
 import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.util.BiFunction;
 import org.jivesoftware.smack.util.CallbackRecipient;
 import org.jivesoftware.smack.util.Consumer;
 import org.jivesoftware.smack.util.ExceptionCallback;
+import org.jivesoftware.smack.util.Function;
+import org.jivesoftware.smack.util.Objects;
 import org.jivesoftware.smack.util.SuccessCallback;
 
+/**
+ * A future for the result of an asynchronous operation, which either completes with a result, with an exception or
+ * gets cancelled.
+ * <p>
+ * The implementation is lock-free: the outcome of the future is set with a single compare-and-set operation, and
+ * callbacks as well as waiting threads are registered in a lock-free stack, which is drained once the future is
+ * completed. Multiple callbacks may be registered, all of them will be invoked exactly once.
+ * </p>
+ * <p>
+ * Futures can be composed with {@link #map(Function)}, {@link #flatMap(Function)}, {@link #combine(SmackFuture,
+ * BiFunction)} and {@link #allOf(List)}.
+ * </p>
+ *
+ * @param <V> the type of the result.
+ * @param <E> the type of the exception.
+ */
 public abstract class SmackFuture<V, E extends Exception> implements Future<V>, CallbackRecipient<V, E> {
 
     private static final Logger LOGGER = Logger.getLogger(SmackFuture.class.getName());
 
-    private boolean cancelled;
-
-    protected V result;
+    /**
+     * The outcome of a cancelled future.
+     */
+    private static final Object CANCELLED = new Object();
 
-    protected E exception;
+    /**
+     * The head of the completion stack once the future is done.
+     */
+    private static final Completion DONE = new Completion(null);
 
-    private SuccessCallback<V> successCallback;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<SmackFuture, Object> OUTCOME = AtomicReferenceFieldUpdater.newUpdater(
+                    SmackFuture.class, Object.class, "outcome");
 
-    private ExceptionCallback<E> exceptionCallback;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<SmackFuture, Completion> COMPLETIONS = AtomicReferenceFieldUpdater.newUpdater(
+                    SmackFuture.class, Completion.class, "completions");
 
-    private Consumer<SmackFuture<V, E>> completionCallback;
+    /**
+     * The outcome of this future: <code>null</code> while the future is pending, {@link #CANCELLED}, a {@link Failure}
+     * or otherwise the result.
+     */
+    private volatile Object outcome;
 
-    @Override
-    public final synchronized boolean cancel(boolean mayInterruptIfRunning) {
-        if (isDone()) {
-            return false;
-        }
+    /**
+     * The stack of completions to run once this future is done, or {@link #DONE}.
+     */
+    private volatile Completion completions;
 
-        cancelled = true;
+    /**
+     * The result of this future, as set by subclasses before invoking {@link #maybeInvokeCallbacks()}. Also set once
+     * this future completed with a result, for subclasses still reading it.
+     *
+     * @deprecated use {@link InternalSmackFuture#setResult(Object)} instead.
+     */
+    @Deprecated
+    // TODO: Remove in Smack 4.6.
+    protected V result;
 
-        if (mayInterruptIfRunning) {
-            notifyAll();
-        }
+    /**
+     * The exception of this future, as set by subclasses before invoking {@link #maybeInvokeCallbacks()}. Also set
+     * once this future completed with an exception, for subclasses still reading it.
+     *
+     * @deprecated use {@link InternalSmackFuture#setException(Exception)} instead.
+     */
+    @Deprecated
+    // TODO: Remove in Smack 4.6.
+    protected E exception;
 
-        return true;
+    @Override
+    public final boolean cancel(boolean mayInterruptIfRunning) {
+        return complete(CANCELLED);
     }
 
     @Override
-    public final synchronized boolean isCancelled() {
-        return cancelled;
+    public final boolean isCancelled() {
+        return outcome == CANCELLED;
     }
 
     @Override
-    public final synchronized boolean isDone() {
-        return result != null || exception != null || cancelled;
+    public final boolean isDone() {
+        return outcome != null;
     }
 
-    public final synchronized boolean wasSuccessful() {
-        return result != null;
+    public final boolean wasSuccessful() {
+        return isResult(outcome);
     }
 
     @Override
-    public CallbackRecipient<V, E> onSuccess(SuccessCallback<V> successCallback) {
-        this.successCallback = successCallback;
-        maybeInvokeCallbacks();
+    public CallbackRecipient<V, E> onSuccess(final SuccessCallback<V> successCallback) {
+        addCompletion(new Runnable() {
+            @Override
+            public void run() {
+                final V result = getIfAvailable();
+                if (result == null) {
+                    return;
+                }
+                AbstractXMPPConnection.asyncGo(new Runnable() {
+                    @Override
+                    public void run() {
+                        successCallback.onSuccess(result);
+                    }
+                });
+            }
+        });
         return this;
     }
 
     @Override
-    public CallbackRecipient<V, E> onError(ExceptionCallback<E> exceptionCallback) {
-        this.exceptionCallback = exceptionCallback;
-        maybeInvokeCallbacks();
+    public CallbackRecipient<V, E> onError(final ExceptionCallback<E> exceptionCallback) {
+        addCompletion(new Runnable() {
+            @Override
+            public void run() {
+                final E exception = getExceptionIfAvailable();
+                if (exception == null) {
+                    return;
+                }
+                AbstractXMPPConnection.asyncGo(new Runnable() {
+                    @Override
+                    public void run() {
+                        exceptionCallback.processException(exception);
+                    }
+                });
+            }
+        });
         return this;
     }
 
-    public void onCompletion(Consumer<SmackFuture<V, E>> completionCallback) {
-        this.completionCallback = completionCallback;
-        maybeInvokeCallbacks();
+    /**
+     * Register a callback which is invoked once this future is done, that is, once it completed with a result or an
+     * exception, or got cancelled. The callback is invoked synchronously by the thread completing the future, or, if
+     * the future is already done, by the calling thread. Hence the callback should not perform blocking operations.
+     *
+     * @param completionCallback the completion callback.
+     */
+    public void onCompletion(final Consumer<SmackFuture<V, E>> completionCallback) {
+        addCompletion(new Runnable() {
+            @Override
+            public void run() {
+                completionCallback.accept(SmackFuture.this);
+            }
+        });
     }
 
-    private V getOrThrowExecutionException() throws ExecutionException {
-        assert result != null || exception != null || cancelled;
-        if (result != null) {
-            return result;
-        }
-        if (exception != null) {
-            throw new ExecutionException(exception);
+    /**
+     * Returns a new future which is completed with the result of applying the given function to the result of this
+     * future. If this future completes exceptionally, or if the function throws a runtime exception, then the
+     * returned future is completed with that exception. If this future gets cancelled, then the returned future is
+     * cancelled as well.
+     *
+     * @param <R> the type of the result of the returned future.
+     * @param function the function applied to the result of this future, must not return <code>null</code>.
+     * @return a future for the result of the function.
+     * @since 4.5
+     */
+    public final <R> SmackFuture<R, Exception> map(final Function<R, ? super V> function) {
+        final InternalSmackFuture<R, Exception> future = new InternalSmackFuture<>();
+        addCompletion(new Runnable() {
+            @Override
+            public void run() {
+                if (!forwardFailureOrCancellation(future)) {
+                    return;
+                }
+                R mappedResult;
+                try {
+                    mappedResult = function.apply(getIfAvailable());
+                } catch (RuntimeException e) {
+                    future.setException(e);
+                    return;
+                }
+                future.setResult(mappedResult);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns a new future which is completed with the result of the future returned by the given function, which is
+     * invoked with the result of this future once it is available. This allows to chain asynchronous operations,
+     * where an operation depends on the result of a previous one, without blocking a thread.
+     *
+     * @param <R> the type of the result of the returned future.
+     * @param function the function returning the future of the subsequent operation.
+     * @return a future for the result of the subsequent operation.
+     * @since 4.5
+     */
+    public final <R> SmackFuture<R, Exception> flatMap(
+                    final Function<? extends SmackFuture<R, ? extends Exception>, ? super V> function) {
+        final InternalSmackFuture<R, Exception> future = new InternalSmackFuture<>();
+        addCompletion(new Runnable() {
+            @Override
+            public void run() {
+                if (!forwardFailureOrCancellation(future)) {
+                    return;
+                }
+                final SmackFuture<R, ? extends Exception> nextFuture;
+                try {
+                    nextFuture = function.apply(getIfAvailable());
+                } catch (RuntimeException e) {
+                    future.setException(e);
+                    return;
+                }
+                nextFuture.addCompletion(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (nextFuture.forwardFailureOrCancellation(future)) {
+                            future.setResult(nextFuture.getIfAvailable());
+                        }
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns a new future which is completed with the result of applying the given function to the results of this
+     * and the other future, once both are available. If either future completes exceptionally or gets cancelled, then
+     * the returned future does so as well.
+     *
+     * @param <U> the type of the result of the other future.
+     * @param <R> the type of the result of the returned future.
+     * @param other the other future.
+     * @param function the function combining both results, must not return <code>null</code>.
+     * @return a future for the combined result.
+     * @since 4.5
+     */
+    public final <U, R> SmackFuture<R, Exception> combine(final SmackFuture<U, ? extends Exception> other,
+                    final BiFunction<R, ? super V, ? super U> function) {
+        return flatMap(new Function<SmackFuture<R, Exception>, V>() {
+            @Override
+            public SmackFuture<R, Exception> apply(final V result) {
+                return other.map(new Function<R, U>() {
+                    @Override
+                    public R apply(U otherResult) {
+                        return function.apply(result, otherResult);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns a new future which is completed with the list of the results of the given futures, in the same order,
+     * once all of them completed. If any of the futures completes exceptionally or gets cancelled, then the returned
+     * future does so as well, without waiting for the remaining futures.
+     *
+     * @param <V> the common type of the results.
+     * @param futures the futures.
+     * @return a future for the list of results.
+     * @since 4.5
+     */
+    public static <V> SmackFuture<List<V>, Exception> allOf(final List<? extends SmackFuture<? extends V, ?>> futures) {
+        final InternalSmackFuture<List<V>, Exception> future = new InternalSmackFuture<>();
+        if (futures.isEmpty()) {
+            future.setResult(Collections.<V>emptyList());
+            return future;
         }
 
-        assert cancelled;
-        throw new CancellationException();
+        final AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (final SmackFuture<? extends V, ?> subFuture : futures) {
+            subFuture.addCompletion(new Runnable() {
+                @Override
+                public void run() {
+                    if (!subFuture.forwardFailureOrCancellation(future)) {
+                        return;
+                    }
+                    if (remaining.decrementAndGet() > 0) {
+                        return;
+                    }
+                    List<V> results = new ArrayList<>(futures.size());
+                    for (SmackFuture<? extends V, ?> completedFuture : futures) {
+                        results.add(completedFuture.getIfAvailable());
+                    }
+                    future.setResult(results);
+                }
+            });
+        }
+        return future;
     }
 
     @Override
-    public final synchronized V get() throws InterruptedException, ExecutionException {
-        while (result == null && exception == null && !cancelled) {
+    public final V get() throws InterruptedException, ExecutionException {
+        while (!isDone()) {
             futureWait();
         }
 
         return getOrThrowExecutionException();
     }
 
-    public final synchronized V getOrThrow() throws E, InterruptedException {
-        while (result == null && exception == null && !cancelled) {
+    public final V getOrThrow() throws E, InterruptedException {
+        while (!isDone()) {
             futureWait();
         }
 
+        E exception = getExceptionIfAvailable();
         if (exception != null) {
             throw exception;
         }
 
-        if (cancelled) {
+        if (isCancelled()) {
             throw new CancellationException();
         }
 
+        V result = getIfAvailable();
         assert result != null;
         return result;
     }
 
     @Override
-    public final synchronized V get(long timeout, TimeUnit unit)
+    public final V get(long timeout, TimeUnit unit)
                     throws InterruptedException, ExecutionException, TimeoutException {
-        final long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
-        while (result != null && exception != null) {
-            final long waitTimeRemaining = deadline - System.currentTimeMillis();
-            if (waitTimeRemaining > 0) {
-                futureWait(waitTimeRemaining);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isDone()) {
+            final long waitTimeRemaining = deadline - System.nanoTime();
+            if (waitTimeRemaining <= 0) {
+                throw new TimeoutException();
             }
-        }
-
-        if (cancelled) {
-            throw new CancellationException();
-        }
-
-        if (result == null || exception == null) {
-            throw new TimeoutException();
+            // Round up, as a wait time of zero means "wait indefinitely".
+            futureWait(TimeUnit.NANOSECONDS.toMillis(waitTimeRemaining) + 1);
         }
 
         return getOrThrowExecutionException();
     }
 
+    @SuppressWarnings("unchecked")
     public V getIfAvailable() {
-        return result;
+        Object outcome = this.outcome;
+        if (!isResult(outcome)) {
+            return null;
+        }
+        return (V) outcome;
     }
 
+    @SuppressWarnings("unchecked")
     public E getExceptionIfAvailable() {
-        return exception;
+        Object outcome = this.outcome;
+        if (!(outcome instanceof Failure)) {
+            return null;
+        }
+        return (E) ((Failure) outcome).exception;
+    }
+
+    private V getOrThrowExecutionException() throws ExecutionException {
+        assert isDone();
+        V result = getIfAvailable();
+        if (result != null) {
+            return result;
+        }
+        E exception = getExceptionIfAvailable();
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+
+        assert isCancelled();
+        throw new CancellationException();
     }
 
-    private boolean callbacksInvoked;
+    private static boolean isResult(Object outcome) {
+        return outcome != null && outcome != CANCELLED && !(outcome instanceof Failure);
+    }
 
-    protected final synchronized void maybeInvokeCallbacks() {
-        if (cancelled || callbacksInvoked) {
-            return;
+    /**
+     * Complete this future with the given outcome, unless it is already done.
+     *
+     * @param newOutcome the outcome.
+     * @return <code>true</code> if this future was completed by this call, <code>false</code> otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean complete(Object newOutcome) {
+        if (!OUTCOME.compareAndSet(this, null, newOutcome)) {
+            return false;
         }
 
-        if ((result != null || exception != null) && completionCallback != null) {
-            callbacksInvoked = true;
-            completionCallback.accept(this);
+        // Keep the deprecated fields in sync with the outcome. They are written before the completions are run, and
+        // waiting threads are unparked, below.
+        if (newOutcome instanceof Failure) {
+            exception = (E) ((Failure) newOutcome).exception;
+        } else if (newOutcome != CANCELLED) {
+            result = (V) newOutcome;
         }
 
-        if (result != null && successCallback != null) {
-            callbacksInvoked = true;
-            AbstractXMPPConnection.asyncGo(new Runnable() {
-                @Override
-                public void run() {
-                    successCallback.onSuccess(result);
+        Completion head = COMPLETIONS.getAndSet(this, DONE);
+
+        // Waiters may concurrently unlink themselves from the stack, hence the stack is only read here. The actions
+        // are stacked in reverse registration order.
+        List<Runnable> actions = null;
+        for (Completion completion = head; completion != null; completion = completion.next) {
+            if (completion instanceof Waiter) {
+                Thread thread = ((Waiter) completion).thread;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
                 }
-            });
+                continue;
+            }
+            if (actions == null) {
+                actions = new ArrayList<>();
+            }
+            actions.add(completion.action);
         }
-        else if (exception != null && exceptionCallback != null) {
-            callbacksInvoked = true;
-            AbstractXMPPConnection.asyncGo(new Runnable() {
-                @Override
-                public void run() {
-                    exceptionCallback.processException(exception);
+
+        if (actions != null) {
+            for (int i = actions.size() - 1; i >= 0; i--) {
+                runCompletion(actions.get(i));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of registered completions, including waiting threads, of this pending future. Used in tests.
+     *
+     * @return the number of registered completions.
+     */
+    int getCompletionCount() {
+        int count = 0;
+        Completion completion = completions;
+        while (completion != null && completion != DONE) {
+            count++;
+            completion = completion.next;
+        }
+        return count;
+    }
+
+    private void addCompletion(Runnable action) {
+        if (!push(new Completion(action))) {
+            runCompletion(action);
+        }
+    }
+
+    /**
+     * Push the given completion on the completion stack.
+     *
+     * @param completion the completion.
+     * @return <code>true</code> if the completion was pushed, <code>false</code> if this future is already done.
+     */
+    private boolean push(Completion completion) {
+        Completion head;
+        do {
+            head = completions;
+            if (head == DONE) {
+                return false;
+            }
+            completion.next = head;
+        } while (!COMPLETIONS.compareAndSet(this, head, completion));
+        return true;
+    }
+
+    /**
+     * Unlink the given waiter, and every other waiter which returned in the meantime, from the completion stack. This
+     * ensures that the stack does not grow with every wait of a pending future, e.g. when {@link #get(long, TimeUnit)}
+     * returns spuriously or is invoked repeatedly.
+     *
+     * @param waiter the waiter to remove.
+     */
+    private void removeWaiter(Waiter waiter) {
+        waiter.thread = null;
+        retry:
+        while (true) {
+            Completion predecessor = null;
+            Completion current = completions;
+            while (current != null && current != DONE) {
+                Completion successor = current.next;
+                if (!(current instanceof Waiter) || ((Waiter) current).thread != null) {
+                    predecessor = current;
+                } else if (predecessor != null) {
+                    predecessor.next = successor;
+                    if (predecessor instanceof Waiter && ((Waiter) predecessor).thread == null) {
+                        // The predecessor got removed concurrently, start over.
+                        continue retry;
+                    }
+                } else if (!COMPLETIONS.compareAndSet(this, current, successor)) {
+                    continue retry;
                 }
-            });
+                current = successor;
+            }
+            return;
+        }
+    }
+
+    private static void runCompletion(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Completion callback threw exception", e);
+        }
+    }
+
+    /**
+     * Forward the failure or the cancellation of this done future to the given future.
+     *
+     * @param future the future to forward to.
+     * @return <code>true</code> if this future completed with a result, <code>false</code> otherwise.
+     */
+    private boolean forwardFailureOrCancellation(InternalSmackFuture<?, Exception> future) {
+        Object outcome = this.outcome;
+        if (outcome == CANCELLED) {
+            future.cancel(false);
+            return false;
+        }
+        if (outcome instanceof Failure) {
+            future.setException(((Failure) outcome).exception);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Complete this future with the {@link #exception} or the {@link #result} set by a subclass, if any.
+     *
+     * @deprecated use {@link InternalSmackFuture#setResult(Object)} or
+     *             {@link InternalSmackFuture#setException(Exception)} instead.
+     */
+    @Deprecated
+    // TODO: Remove in Smack 4.6.
+    protected final void maybeInvokeCallbacks() {
+        if (exception != null) {
+            complete(new Failure(exception));
+        } else if (result != null) {
+            complete(result);
         }
     }
 
@@ -206,24 +573,80 @@ public abstract class SmackFuture<V, E extends Exception> implements Future<V>,
         futureWait(0);
     }
 
-    @SuppressWarnings("WaitNotInLoop")
+    /**
+     * Wait until this future is done, the given timeout elapsed, or the calling thread is interrupted. This method may
+     * also return spuriously, hence callers must check if the future is done.
+     *
+     * @param timeout the maximum time to wait in milliseconds, or <code>0</code> to wait indefinitely.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
     protected void futureWait(long timeout) throws InterruptedException {
-        wait(timeout);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (isDone()) {
+            return;
+        }
+
+        final Waiter waiter = new Waiter(Thread.currentThread());
+        if (!push(waiter)) {
+            return;
+        }
+
+        try {
+            if (timeout == 0) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeout));
+            }
+        } finally {
+            removeWaiter(waiter);
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
     }
 
-    public static class InternalSmackFuture<V, E extends Exception> extends SmackFuture<V, E> {
-        public final synchronized void setResult(V result) {
-            this.result = result;
-            this.notifyAll();
+    private static class Completion {
+        private final Runnable action;
 
-            maybeInvokeCallbacks();
+        private volatile Completion next;
+
+        private Completion(Runnable action) {
+            this.action = action;
         }
+    }
 
-        public final synchronized void setException(E exception) {
+    /**
+     * A thread waiting for this future to be done. The thread is set to <code>null</code> once the waiter returned.
+     */
+    private static final class Waiter extends Completion {
+        private volatile Thread thread;
+
+        private Waiter(Thread thread) {
+            super(null);
+            this.thread = thread;
+        }
+    }
+
+    private static final class Failure {
+        private final Exception exception;
+
+        private Failure(Exception exception) {
             this.exception = exception;
-            this.notifyAll();
+        }
+    }
+
+    public static class InternalSmackFuture<V, E extends Exception> extends SmackFuture<V, E> {
+        public final void setResult(V result) {
+            Objects.requireNonNull(result, "The result must not be null");
+            super.complete(result);
+        }
 
-            maybeInvokeCallbacks();
+        public final void setException(E exception) {
+            Objects.requireNonNull(exception, "The exception must not be null");
+            super.complete(new Failure(exception));
         }
     }
 
@@ -301,20 +724,18 @@ public abstract class SmackFuture<V, E extends Exception> implements Future<V>,
         protected abstract void handleStanza(Stanza stanza);
 
         @Override
-        public final synchronized void processException(E exception) {
+        public final void processException(E exception) {
             if (!isNonFatalException(exception)) {
-                this.exception = exception;
-                this.notifyAll();
-
-                maybeInvokeCallbacks();
+                setException(exception);
             }
         }
 
         /**
-         * Wrapper method for {@link #handleStanza(Stanza)}. Note that this method is <code>synchronized</code>.
+         * Wrapper method for {@link #handleStanza(Stanza)}. Note that this method may be invoked concurrently, only the
+         * first outcome set by {@link #handleStanza(Stanza)} takes effect.
          */
         @Override
-        public final synchronized void processStanza(Stanza stanza) {
+        public final void processStanza(Stanza stanza) {
             handleStanza(stanza);
         }
     }
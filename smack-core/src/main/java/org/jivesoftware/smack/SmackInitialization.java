@@ -26,6 +26,9 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jivesoftware.smack.bind2.Bind2;
+import org.jivesoftware.smack.bind2.Bind2BoundProvider;
+import org.jivesoftware.smack.bind2.Bind2FeatureProvider;
 import org.jivesoftware.smack.bind2.Bind2ModuleDescriptor;
 import org.jivesoftware.smack.compress.provider.CompressedProvider;
 import org.jivesoftware.smack.compress.provider.FailureProvider;
@@ -33,8 +36,15 @@ import org.jivesoftware.smack.compression.CompressionModuleDescriptor;
 import org.jivesoftware.smack.compression.Java7ZlibInputOutputStream;
 import org.jivesoftware.smack.compression.XmppCompressionManager;
 import org.jivesoftware.smack.compression.zlib.ZlibXmppCompressionFactory;
+import org.jivesoftware.smack.fast.Fast;
+import org.jivesoftware.smack.fast.FastFeatureProvider;
+import org.jivesoftware.smack.fast.FastTokenProvider;
 import org.jivesoftware.smack.initializer.SmackInitializer;
+import org.jivesoftware.smack.isr.InstResumedProvider;
+import org.jivesoftware.smack.isr.InstantStreamResumption;
+import org.jivesoftware.smack.isr.InstantStreamResumptionFailedProvider;
 import org.jivesoftware.smack.isr.InstantStreamResumptionModuleDescriptor;
+import org.jivesoftware.smack.isr.InstantStreamResumptionProvider;
 import org.jivesoftware.smack.packet.Bind;
 import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.provider.BindIQProvider;
@@ -42,15 +52,21 @@ import org.jivesoftware.smack.provider.BodyElementProvider;
 import org.jivesoftware.smack.provider.MessageSubjectElementProvider;
 import org.jivesoftware.smack.provider.MessageThreadElementProvider;
 import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.provider.Sasl2AuthenticationProvider;
+import org.jivesoftware.smack.provider.Sasl2ChallengeProvider;
+import org.jivesoftware.smack.provider.Sasl2FailureProvider;
+import org.jivesoftware.smack.provider.Sasl2SuccessProvider;
 import org.jivesoftware.smack.provider.SaslChallengeProvider;
 import org.jivesoftware.smack.provider.SaslFailureProvider;
 import org.jivesoftware.smack.provider.SaslSuccessProvider;
 import org.jivesoftware.smack.provider.TlsFailureProvider;
 import org.jivesoftware.smack.provider.TlsProceedProvider;
+import org.jivesoftware.smack.sasl.core.HtSha256NoneMechanism;
 import org.jivesoftware.smack.sasl.core.SASLAnonymous;
 import org.jivesoftware.smack.sasl.core.SASLXOauth2Mechanism;
 import org.jivesoftware.smack.sasl.core.SCRAMSHA1Mechanism;
 import org.jivesoftware.smack.sasl.core.ScramSha1PlusMechanism;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
 import org.jivesoftware.smack.util.CloseableUtil;
 import org.jivesoftware.smack.util.FileUtils;
 import org.jivesoftware.smack.util.PacketParserUtils;
@@ -128,6 +144,7 @@ public final class SmackInitialization {
         SASLAuthentication.registerSASLMechanism(new ScramSha1PlusMechanism());
         SASLAuthentication.registerSASLMechanism(new SASLXOauth2Mechanism());
         SASLAuthentication.registerSASLMechanism(new SASLAnonymous());
+        SASLAuthentication.registerSASLMechanism(new HtSha256NoneMechanism());
 
         ProviderManager.addIQProvider(Bind.ELEMENT, Bind.NAMESPACE, new BindIQProvider());
         ProviderManager.addExtensionProvider(Message.Body.ELEMENT, Message.Body.NAMESPACE, new BodyElementProvider());
@@ -142,6 +159,21 @@ public final class SmackInitialization {
         ProviderManager.addNonzaProvider(CompressedProvider.INSTANCE);
         ProviderManager.addNonzaProvider(FailureProvider.INSTANCE);
 
+        ProviderManager.addNonzaProvider(Sasl2ChallengeProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(Sasl2SuccessProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(Sasl2FailureProvider.INSTANCE);
+        ProviderManager.addStreamFeatureProvider(Sasl2Nonza.Authentication.ELEMENT, Sasl2Nonza.NAMESPACE,
+                        Sasl2AuthenticationProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Bind2.Feature.ELEMENT, Bind2.NAMESPACE, Bind2FeatureProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Bind2.Bound.ELEMENT, Bind2.NAMESPACE, Bind2BoundProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Fast.Feature.ELEMENT, Fast.NAMESPACE, FastFeatureProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Fast.Token.ELEMENT, Fast.NAMESPACE, FastTokenProvider.INSTANCE);
+
+        ProviderManager.addNonzaProvider(InstResumedProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(InstantStreamResumptionFailedProvider.INSTANCE);
+        ProviderManager.addStreamFeatureProvider(InstantStreamResumption.Feature.ELEMENT,
+                        InstantStreamResumption.NAMESPACE, InstantStreamResumptionProvider.INSTANCE);
+
         SmackConfiguration.addModule(Bind2ModuleDescriptor.class);
         SmackConfiguration.addModule(CompressionModuleDescriptor.class);
         SmackConfiguration.addModule(InstantStreamResumptionModuleDescriptor.class);
@@ -40,6 +40,8 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jivesoftware.smack.metrics.SmackMetrics;
+
 /**
  * The SmackReactor for non-blocking I/O.
  * <p>
@@ -369,12 +371,20 @@ public class SmackReactor {
     }
 
     private static void handleSelectedKeys(Collection<SelectionKey> selectedKeys) {
+        SmackMetrics metrics = SmackConfiguration.getMetrics();
+        final boolean metricsEnabled = metrics.isEnabled();
+        final long startNanos = metricsEnabled ? System.nanoTime() : 0;
+
         for (SelectionKey selectionKey : selectedKeys) {
             SelectableChannel channel = selectionKey.channel();
             SelectionKeyAttachment selectionKeyAttachment = (SelectionKeyAttachment) selectionKey.attachment();
             ChannelSelectedCallback channelSelectedCallback = selectionKeyAttachment.channelSelectedCallback;
             channelSelectedCallback.onChannelSelected(channel, selectionKey);
         }
+
+        if (metricsEnabled) {
+            metrics.histogram(SmackMetrics.REACTOR_LOOP_LATENCY).recordNanosSince(startNanos);
+        }
     }
 
     public interface ChannelSelectedCallback {
@@ -0,0 +1,353 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.packet.Stanza;
+
+/**
+ * Publishes the incoming stanzas matching a stanza filter to subscribers, honoring the demand signalled by the
+ * subscribers. The interfaces mirror the ones of the Reactive Streams specification, as
+ * <code>java.util.concurrent.Flow</code> is not available on all platforms supported by Smack.
+ * <p>
+ * Unlike a {@link StanzaCollector}, a publisher never drops stanzas. Instead, every subscription buffers the stanzas
+ * for which there is no demand yet, and once the buffer of a subscription reaches the configured buffer size, the
+ * publisher asks the connection to suspend reading from the network until the subscriber caught up. Connections which
+ * read from a dedicated thread, like XMPPTCPConnection, pause that thread, while connections driven by the
+ * {@link SmackReactor} stop being interested in the readability of their channel. As data which was already read from
+ * the network is still processed, the buffer may exceed the configured size by the stanzas contained in that data.
+ * Note that suspending the reading of a connection also delays the processing of all other incoming stanzas and
+ * stream elements. If the transport of the connection does not support suspending the reading, then the buffer is
+ * unbounded.
+ * </p>
+ * <p>
+ * Subscribers are signalled sequentially, but not necessarily always by the same thread. Subscribers must not block
+ * for an extended period of time. Make sure to {@link #close()} the publisher once it is no longer needed.
+ * </p>
+ *
+ * @see XMPPConnection#createStanzaPublisher(StanzaFilter)
+ * @since 4.5
+ */
+public final class StanzaPublisher implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(StanzaPublisher.class.getName());
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final AbstractXMPPConnection connection;
+
+    private final StanzaFilter stanzaFilter;
+
+    private final int bufferSize;
+
+    private final Collection<StanzaSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile boolean closed;
+
+    StanzaPublisher(AbstractXMPPConnection connection, StanzaFilter stanzaFilter, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive");
+        }
+        this.connection = connection;
+        this.stanzaFilter = stanzaFilter;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Subscribe to the stanzas of this publisher. The subscriber will receive the stanzas which match the filter of
+     * this publisher and are received after this method was invoked.
+     *
+     * @param subscriber the subscriber.
+     */
+    public void subscribe(Subscriber subscriber) {
+        StanzaSubscription subscription = new StanzaSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+            return;
+        }
+        subscriptions.add(subscription);
+    }
+
+    public StanzaFilter getStanzaFilter() {
+        return stanzaFilter;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Close this publisher. The subscribers will receive the stanzas which are already buffered, followed by the
+     * completion signal. If the publisher suspended the reading of the connection, then the reading is resumed
+     * immediately.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        connection.removeStanzaPublisher(this);
+        for (StanzaSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * Process an incoming stanza. Invoked by the connection's incoming processing thread, hence this method must not
+     * invoke any user code.
+     *
+     * @param stanza the incoming stanza.
+     */
+    void processStanza(Stanza stanza) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        if (stanzaFilter != null && !stanzaFilter.accept(stanza)) {
+            return;
+        }
+        for (StanzaSubscription subscription : subscriptions) {
+            subscription.offer(stanza);
+        }
+    }
+
+    /**
+     * A subscriber of a {@link StanzaPublisher}.
+     */
+    public interface Subscriber {
+        /**
+         * Invoked once, before any other method, with the subscription which is used to signal demand.
+         *
+         * @param subscription the subscription.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Invoked with the next stanza, but only if there is outstanding demand.
+         *
+         * @param stanza the stanza.
+         */
+        void onNext(Stanza stanza);
+
+        /**
+         * Invoked if the subscription failed, no further methods will be invoked.
+         *
+         * @param throwable the reason of the failure.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Invoked once the publisher was closed and all buffered stanzas have been delivered, no further methods will
+         * be invoked.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The subscription of a {@link Subscriber} to a {@link StanzaPublisher}.
+     */
+    public interface Subscription {
+        /**
+         * Signal demand for the given number of additional stanzas.
+         *
+         * @param n the number of additional stanzas, must be positive.
+         */
+        void request(long n);
+
+        /**
+         * Cancel the subscription. Stanzas which are still buffered will be discarded.
+         */
+        void cancel();
+    }
+
+    private final class StanzaSubscription implements Subscription {
+
+        private final Subscriber subscriber;
+
+        private final Queue<Stanza> buffer = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The number of stanzas in the buffer, as {@link ConcurrentLinkedQueue#size()} is not a constant time
+         * operation.
+         */
+        private final AtomicInteger bufferedCount = new AtomicInteger();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        /**
+         * The number of drain requests. Only the thread incrementing this from zero performs the drain, which ensures
+         * that the subscriber is signalled sequentially.
+         */
+        private final AtomicInteger drainRequests = new AtomicInteger();
+
+        private final AtomicBoolean readingSuspended = new AtomicBoolean();
+
+        private volatile boolean cancelled;
+
+        private volatile boolean completed;
+
+        private volatile Throwable failure;
+
+        private boolean terminated;
+
+        private StanzaSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void offer(Stanza stanza) {
+            if (cancelled) {
+                return;
+            }
+            buffer.add(stanza);
+            int buffered = bufferedCount.incrementAndGet();
+            if (buffered >= bufferSize && readingSuspended.compareAndSet(false, true)) {
+                connection.suspendReading();
+                // The publisher may have been closed concurrently, in which case complete() possibly did not see the
+                // suspension.
+                if (completed) {
+                    resumeReading();
+                }
+            }
+            // Always drain, even without demand, so that a drain concurrent to the suspension above resumes the
+            // reading if the buffer has been emptied in the meantime.
+            drain();
+        }
+
+        private void complete() {
+            completed = true;
+            // A closed publisher receives no further stanzas, hence there is no reason to keep the reading of the
+            // connection suspended until the subscriber drained the remaining buffered stanzas.
+            resumeReading();
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Reactive Streams specification rule 3.9.
+                failure = new IllegalArgumentException("The number of requested stanzas must be positive, but was " + n);
+                cancel();
+                return;
+            }
+
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!requested.compareAndSet(current, next));
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            subscriptions.remove(this);
+            drain();
+        }
+
+        private void drain() {
+            if (drainRequests.getAndIncrement() != 0) {
+                return;
+            }
+            AbstractXMPPConnection.asyncGo(this::drainLoop);
+        }
+
+        private void drainLoop() {
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    buffer.clear();
+                    bufferedCount.set(0);
+                    maybeResumeReading();
+                    Throwable error = failure;
+                    if (error != null && !terminated) {
+                        terminated = true;
+                        subscriber.onError(error);
+                    }
+                } else {
+                    deliverBufferedStanzas();
+                    maybeResumeReading();
+                    if (completed && buffer.isEmpty() && !terminated) {
+                        terminated = true;
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+                missed = drainRequests.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliverBufferedStanzas() {
+            final long demand = requested.get();
+            long delivered = 0;
+            while (delivered != demand && !cancelled) {
+                Stanza stanza = buffer.poll();
+                if (stanza == null) {
+                    break;
+                }
+                bufferedCount.decrementAndGet();
+                delivered++;
+                try {
+                    subscriber.onNext(stanza);
+                } catch (RuntimeException e) {
+                    // Reactive Streams specification rule 2.13: consider the subscription as cancelled.
+                    LOGGER.log(Level.WARNING, "Subscriber " + subscriber + " threw exception, cancelling subscription", e);
+                    cancel();
+                }
+            }
+            if (delivered > 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-delivered);
+            }
+        }
+
+        private void maybeResumeReading() {
+            if (bufferedCount.get() > bufferSize / 2) {
+                return;
+            }
+            resumeReading();
+        }
+
+        private void resumeReading() {
+            if (readingSuspended.compareAndSet(true, false)) {
+                connection.resumeReading();
+            }
+        }
+    }
+}
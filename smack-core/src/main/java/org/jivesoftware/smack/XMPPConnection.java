@@ -388,6 +388,29 @@ public interface XMPPConnection {
      */
     void removeStanzaCollector(StanzaCollector collector);
 
+    /**
+     * Creates a new stanza publisher for this connection, using the {@link StanzaPublisher#DEFAULT_BUFFER_SIZE default
+     * buffer size}. See {@link #createStanzaPublisher(StanzaFilter, int)}.
+     *
+     * @param stanzaFilter the stanza filter to use, or <code>null</code> to publish all stanzas.
+     * @return a new stanza publisher.
+     * @since 4.5
+     */
+    StanzaPublisher createStanzaPublisher(StanzaFilter stanzaFilter);
+
+    /**
+     * Creates a new stanza publisher for this connection. A stanza publisher delivers the matching incoming stanzas
+     * to its subscribers according to their demand. If a subscriber does not keep up, then the reading of incoming
+     * data is suspended instead of dropping stanzas. Please make sure to close the publisher when it is no longer
+     * required.
+     *
+     * @param stanzaFilter the stanza filter to use, or <code>null</code> to publish all stanzas.
+     * @param bufferSize the number of stanzas buffered per subscription before the reading is suspended.
+     * @return a new stanza publisher.
+     * @since 4.5
+     */
+    StanzaPublisher createStanzaPublisher(StanzaFilter stanzaFilter, int bufferSize);
+
     /**
      * Registers a stanza listener with this connection. The listener will be invoked when a (matching) incoming stanza
      * is received. The stanza filter determines which stanzas will be delivered to the listener. It is guaranteed that
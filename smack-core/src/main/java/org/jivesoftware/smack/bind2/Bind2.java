@@ -0,0 +1,196 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.util.XmppElementUtil;
+
+/**
+ * Elements of Bind 2 (XEP-0386), which are exchanged as inline elements of the SASL2 (XEP-0388) authentication.
+ *
+ * @see <a href="https://xmpp.org/extensions/xep-0386.html">XEP-0386: Bind 2</a>
+ * @since 4.5
+ */
+public final class Bind2 {
+
+    public static final String NAMESPACE = "urn:xmpp:bind:0";
+
+    private Bind2() {
+    }
+
+    /**
+     * The Bind 2 inline feature of the SASL2 stream feature, announcing the features which can be enabled as part of
+     * the resource binding.
+     */
+    public static final class Feature implements ExtensionElement {
+        public static final String ELEMENT = "bind";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final Set<String> inlineFeatures;
+
+        public Feature(Set<String> inlineFeatures) {
+            this.inlineFeatures = Collections.unmodifiableSet(inlineFeatures);
+        }
+
+        public Set<String> getInlineFeatures() {
+            return inlineFeatures;
+        }
+
+        public boolean supportsInlineFeature(String var) {
+            return inlineFeatures.contains(var);
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            if (inlineFeatures.isEmpty()) {
+                return xml.closeEmptyElement();
+            }
+            xml.rightAngleBracket();
+            xml.openElement("inline");
+            for (String inlineFeature : inlineFeatures) {
+                xml.halfOpenElement("feature").attribute("var", inlineFeature).closeEmptyElement();
+            }
+            xml.closeElement("inline");
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * The Bind 2 request, send as inline element of the SASL2 authenticate nonza. It contains the requests of the
+     * features which should be enabled as part of the resource binding.
+     */
+    public static final class Request implements ExtensionElement {
+        public static final String ELEMENT = "bind";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String tag;
+
+        private final List<XmlElement> inlineRequests;
+
+        public Request(String tag, List<XmlElement> inlineRequests) {
+            this.tag = tag;
+            this.inlineRequests = Collections.unmodifiableList(inlineRequests);
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public List<XmlElement> getInlineRequests() {
+            return inlineRequests;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            if (tag == null && inlineRequests.isEmpty()) {
+                return xml.closeEmptyElement();
+            }
+            xml.rightAngleBracket();
+            xml.optElement("tag", tag);
+            xml.append(inlineRequests);
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * The Bind 2 response, contained in the SASL2 success nonza. It contains the responses of the features which have
+     * been enabled as part of the resource binding.
+     */
+    public static final class Bound implements ExtensionElement {
+        public static final String ELEMENT = "bound";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final List<XmlElement> inlineResponses;
+
+        public Bound(List<XmlElement> inlineResponses) {
+            this.inlineResponses = Collections.unmodifiableList(inlineResponses);
+        }
+
+        public List<XmlElement> getInlineResponses() {
+            return inlineResponses;
+        }
+
+        public <E extends XmlElement> E getInlineResponse(Class<E> inlineResponseClass) {
+            QName qname = XmppElementUtil.getQNameFor(inlineResponseClass);
+            return getInlineResponse(qname, inlineResponseClass);
+        }
+
+        public <E extends XmlElement> E getInlineResponse(QName qname, Class<E> inlineResponseClass) {
+            for (XmlElement inlineResponse : inlineResponses) {
+                if (inlineResponse.getQName().equals(qname)) {
+                    return inlineResponseClass.cast(inlineResponse);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            if (inlineResponses.isEmpty()) {
+                return xml.closeEmptyElement();
+            }
+            xml.rightAngleBracket();
+            xml.append(inlineResponses);
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2;
+
+import org.jivesoftware.smack.packet.XmlElement;
+
+/**
+ * A feature which can be enabled inline as part of the Bind 2 resource binding, for example Message Carbons
+ * (XEP-0280), Client State Indication (XEP-0352), or Stream Management (XEP-0198). Inline features are registered with
+ * the {@link Bind2Module} of a connection.
+ *
+ * @since 4.5
+ */
+public interface Bind2InlineFeature {
+
+    /**
+     * The feature 'var' as announced by the service as inline feature of Bind 2. Typically this is the namespace of
+     * the feature.
+     *
+     * @return the feature 'var'.
+     */
+    String getFeatureVar();
+
+    /**
+     * Get the request which will be included in the Bind 2 request, or <code>null</code> if the feature should not be
+     * enabled as part of this resource binding.
+     *
+     * @return the request or <code>null</code>.
+     */
+    XmlElement getInlineRequest();
+
+    /**
+     * Invoked after the resource was bound, if the request of this inline feature was included in the Bind 2
+     * request.
+     *
+     * @param bound the Bind 2 response, which may contain the response to the inline request.
+     */
+    void onBound(Bind2.Bound bound);
+}
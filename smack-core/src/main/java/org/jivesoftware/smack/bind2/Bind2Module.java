@@ -16,26 +16,153 @@
  */
 package org.jivesoftware.smack.bind2;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.SmackException;
+import org.jivesoftware.smack.SmackException.SmackMessageException;
+import org.jivesoftware.smack.SmackException.SmackWrappedException;
+import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedAndResourceBoundStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.ConnectedButUnauthenticatedStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.SaslAuthenticationStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModule;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
 import org.jivesoftware.smack.c2s.internal.WalkStateGraphContext;
+import org.jivesoftware.smack.fast.Fast;
+import org.jivesoftware.smack.fast.FastToken;
+import org.jivesoftware.smack.fsm.LoginContext;
 import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.sasl.SASLErrorException;
+import org.jivesoftware.smack.sasl.SaslNonzaFactory;
+import org.jivesoftware.smack.sasl.core.HtSha256NoneMechanism;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.util.Consumer;
+import org.jivesoftware.smack.util.Objects;
+
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Resourcepart;
+import org.jxmpp.stringprep.XmppStringprepException;
 
+/**
+ * Connection module for Bind 2 (XEP-0386) on top of the Extensible SASL Profile (XEP-0388). If the service supports it,
+ * authentication and resource binding are performed in a single exchange, which also includes the requests of the
+ * registered {@link Bind2InlineFeature}s. This avoids the stream restart after authentication, the separate resource
+ * binding and the separate enabling of features like Message Carbons, each costing at least one round trip.
+ */
 public class Bind2Module extends ModularXmppClientToServerConnectionModule<Bind2ModuleDescriptor> {
 
+    private static final Logger LOGGER = Logger.getLogger(Bind2Module.class.getName());
+
+    public static final String DEFAULT_TAG = "Smack";
+
+    private final CopyOnWriteArrayList<Bind2InlineFeature> inlineFeatures = new CopyOnWriteArrayList<>();
+
+    private String tag = DEFAULT_TAG;
+
+    private Sasl2Nonza.UserAgent userAgent;
+
+    private boolean useFast = true;
+
+    private volatile FastToken fastToken;
+
+    private Consumer<FastToken> fastTokenConsumer;
+
     protected Bind2Module(Bind2ModuleDescriptor moduleDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
         super(moduleDescriptor, connectionInternal);
     }
 
+    /**
+     * Add a feature which should be enabled inline as part of the resource binding, if it is supported by the
+     * service. Adding an already added inline feature has no effect.
+     *
+     * @param inlineFeature the inline feature.
+     * @return <code>true</code> if the inline feature was added, <code>false</code> if it was already added.
+     */
+    public boolean addInlineFeature(Bind2InlineFeature inlineFeature) {
+        return inlineFeatures.addIfAbsent(inlineFeature);
+    }
+
+    public boolean removeInlineFeature(Bind2InlineFeature inlineFeature) {
+        return inlineFeatures.remove(inlineFeature);
+    }
+
+    /**
+     * Set the tag identifying the client software, which the service uses to generate the resource. Defaults to
+     * {@value #DEFAULT_TAG}.
+     *
+     * @param tag the tag, or <code>null</code> to omit the tag.
+     */
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Set the optional user agent information included in the authentication request.
+     *
+     * @param userAgent the user agent, or <code>null</code>.
+     */
+    public void setUserAgent(Sasl2Nonza.UserAgent userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Enable or disable the use of Fast Authentication Streamlining Tokens (XEP-0484). If enabled, which is the
+     * default, and supported by the service, then a token is requested when authenticating, which is used instead of
+     * the password for subsequent authentications. This avoids the expensive key derivation of password based
+     * mechanisms like SCRAM on every reconnection.
+     *
+     * @param useFast <code>true</code> to use FAST.
+     */
+    public void setFastEnabled(boolean useFast) {
+        this.useFast = useFast;
+    }
+
+    /**
+     * Get the current FAST token, which will be used for the next authentication.
+     *
+     * @return the current FAST token or <code>null</code>.
+     */
+    public FastToken getFastToken() {
+        return fastToken;
+    }
+
+    /**
+     * Set the FAST token to use for the next authentication, for example a token persisted by a previous instance of
+     * the application.
+     *
+     * @param fastToken the FAST token or <code>null</code>.
+     */
+    public void setFastToken(FastToken fastToken) {
+        this.fastToken = fastToken;
+    }
+
+    /**
+     * Set a consumer which is invoked whenever the service issued a new FAST token. As tokens are rotated, this can be
+     * used to persist the current token.
+     *
+     * @param fastTokenConsumer the consumer or <code>null</code>.
+     */
+    public void setFastTokenConsumer(Consumer<FastToken> fastTokenConsumer) {
+        this.fastTokenConsumer = fastTokenConsumer;
+    }
+
     public static final class Bind2StateDescriptor extends StateDescriptor {
         private Bind2StateDescriptor() {
-            super(Bind2State.class, 386, StateDescriptor.Property.notImplemented);
+            super(Bind2State.class, 386);
 
             addPredeccessor(ConnectedButUnauthenticatedStateDescriptor.class);
             addSuccessor(AuthenticatedAndResourceBoundStateDescriptor.class);
@@ -50,7 +177,11 @@ public class Bind2Module extends ModularXmppClientToServerConnectionModule<Bind2
         }
     }
 
-    private static final class Bind2State extends State {
+    private final class Bind2State extends State {
+
+        private Sasl2Nonza.Authentication sasl2Feature;
+
+        private Bind2.Feature bind2Feature;
 
         private Bind2State(Bind2StateDescriptor bind2StateDescriptor,
                         ModularXmppClientToServerConnectionInternal connectionInternal) {
@@ -59,14 +190,180 @@ public class Bind2Module extends ModularXmppClientToServerConnectionModule<Bind2
 
         @Override
         public StateTransitionResult.TransitionImpossible isTransitionToPossible(WalkStateGraphContext walkStateGraphContext) {
-            return new StateTransitionResult.TransitionImpossibleBecauseNotImplemented(stateDescriptor);
+            sasl2Feature = connectionInternal.connection.getFeature(Sasl2Nonza.Authentication.class);
+            if (sasl2Feature == null) {
+                return new StateTransitionResult.TransitionImpossibleReason("SASL2 (XEP-0388) not announced by service");
+            }
+
+            bind2Feature = sasl2Feature.getInlineFeature(Bind2.Feature.class);
+            if (bind2Feature == null) {
+                return new StateTransitionResult.TransitionImpossibleReason(
+                                "Bind 2 (XEP-0386) not announced as SASL2 inline feature by service");
+            }
+
+            return null;
         }
 
         @Override
-        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext) {
-            throw new IllegalStateException("Bind2 not implemented");
+        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext)
+                        throws IOException, SmackException, InterruptedException, XMPPException {
+            List<Bind2InlineFeature> requestedInlineFeatures = new ArrayList<>(inlineFeatures.size());
+            List<XmlElement> inlineRequests = new ArrayList<>(inlineFeatures.size());
+            for (Bind2InlineFeature inlineFeature : inlineFeatures) {
+                if (!bind2Feature.supportsInlineFeature(inlineFeature.getFeatureVar())) {
+                    continue;
+                }
+
+                XmlElement inlineRequest = inlineFeature.getInlineRequest();
+                if (inlineRequest == null) {
+                    continue;
+                }
+
+                requestedInlineFeatures.add(inlineFeature);
+                inlineRequests.add(inlineRequest);
+            }
+
+            Bind2.Request bindRequest = new Bind2.Request(tag, inlineRequests);
+            LoginContext loginContext = walkStateGraphContext.getLoginContext();
+
+            Fast.Feature fastFeature = null;
+            if (useFast && connectionInternal.connection.getConfiguration().isEnabledSaslMechanism(
+                            HtSha256NoneMechanism.NAME)) {
+                fastFeature = sasl2Feature.getInlineFeature(Fast.Feature.class);
+            }
+
+            Sasl2Nonza.Success success = null;
+            String requestedTokenMechanism = null;
+            FastToken token = fastToken;
+            if (fastFeature != null && token != null) {
+                if (token.isExpired() || !fastFeature.getMechanisms().contains(token.getMechanism())) {
+                    fastToken = null;
+                } else {
+                    // Request a fresh token on every use, so that the token is rotated.
+                    requestedTokenMechanism = token.getMechanism();
+                    List<XmlElement> saslInlineRequests = Arrays.asList(bindRequest, Fast.Authentication.INSTANCE,
+                                    new Fast.RequestToken(requestedTokenMechanism));
+                    try {
+                        success = authenticate(loginContext.username, token.getToken(),
+                                        Collections.singletonList(token.getMechanism()), true, saslInlineRequests);
+                    } catch (SASLErrorException e) {
+                        LOGGER.log(Level.FINE, "FAST token rejected by service, falling back to password", e);
+                        fastToken = null;
+                        requestedTokenMechanism = null;
+                    }
+                }
+            }
+
+            if (success == null) {
+                List<XmlElement> saslInlineRequests = new ArrayList<>(2);
+                saslInlineRequests.add(bindRequest);
+                if (fastFeature != null && fastFeature.getMechanisms().contains(HtSha256NoneMechanism.NAME)) {
+                    requestedTokenMechanism = HtSha256NoneMechanism.NAME;
+                    saslInlineRequests.add(new Fast.RequestToken(requestedTokenMechanism));
+                }
+                success = authenticate(loginContext.username, loginContext.password, sasl2Feature.getMechanisms(),
+                                false, saslInlineRequests);
+            }
+
+            Fast.Token newToken = success.getExtension(Fast.Token.class);
+            if (newToken != null && requestedTokenMechanism != null) {
+                FastToken newFastToken = new FastToken(requestedTokenMechanism, newToken.getToken(),
+                                newToken.getExpiry());
+                fastToken = newFastToken;
+                Consumer<FastToken> fastTokenConsumer = Bind2Module.this.fastTokenConsumer;
+                if (fastTokenConsumer != null) {
+                    fastTokenConsumer.accept(newFastToken);
+                }
+            }
+
+            EntityFullJid boundAddress;
+            try {
+                Jid authorizationIdentifier = JidCreate.from(success.getAuthorizationIdentifier());
+                boundAddress = authorizationIdentifier.asEntityFullJidIfPossible();
+            } catch (XmppStringprepException e) {
+                throw new SmackWrappedException("Service returned invalid authorization identifier", e);
+            }
+            if (boundAddress == null) {
+                throw new SmackMessageException("Service did not bind a resource, authorization identifier: "
+                                + success.getAuthorizationIdentifier());
+            }
+
+            connectionInternal.onResourceBound(boundAddress);
+
+            Bind2.Bound bound = success.getExtension(Bind2.Bound.class);
+            if (bound == null) {
+                bound = new Bind2.Bound(Collections.emptyList());
+            }
+            List<String> enabledInlineFeatures = new ArrayList<>(requestedInlineFeatures.size());
+            for (Bind2InlineFeature inlineFeature : requestedInlineFeatures) {
+                inlineFeature.onBound(bound);
+                enabledInlineFeatures.add(inlineFeature.getFeatureVar());
+            }
+
+            String saslMechanism = connectionInternal.connection.getUsedSaslMechansism();
+            return new Bind2SuccessResult(boundAddress.getResourcepart(), saslMechanism, enabledInlineFeatures);
         }
 
+        private Sasl2Nonza.Success authenticate(String username, String password, List<String> mechanisms,
+                        boolean tokenAuthentication, List<XmlElement> saslInlineRequests)
+                        throws SmackException, XMPPException, IOException, InterruptedException {
+            SaslNonzaFactory saslNonzaFactory = new Sasl2NonzaFactory(userAgent, saslInlineRequests);
+            Nonza successNonza = connectionInternal.authenticate(username, password, mechanisms, tokenAuthentication,
+                            saslNonzaFactory);
+            return (Sasl2Nonza.Success) successNonza;
+        }
+
+        @Override
+        public void resetState() {
+            sasl2Feature = null;
+            bind2Feature = null;
+        }
+    }
+
+    private static final class Sasl2NonzaFactory implements SaslNonzaFactory {
+        private final Sasl2Nonza.UserAgent userAgent;
+        private final List<XmlElement> inlineRequests;
+
+        private Sasl2NonzaFactory(Sasl2Nonza.UserAgent userAgent, List<XmlElement> inlineRequests) {
+            this.userAgent = userAgent;
+            this.inlineRequests = inlineRequests;
+        }
+
+        @Override
+        public Nonza createAuthenticationNonza(String mechanism, String initialResponse) {
+            return new Sasl2Nonza.Authenticate(mechanism, initialResponse, userAgent, inlineRequests);
+        }
+
+        @Override
+        public Nonza createResponseNonza(String response) {
+            return new Sasl2Nonza.Response(response);
+        }
+    }
+
+    public static final class Bind2SuccessResult extends StateTransitionResult.Success {
+        private final Resourcepart resource;
+        private final String saslMechanismName;
+        private final List<String> inlineFeatures;
+
+        private Bind2SuccessResult(Resourcepart resource, String saslMechanismName, List<String> inlineFeatures) {
+            super("Authenticated using " + saslMechanismName + " and bound resource '" + resource
+                            + "' with inline features " + inlineFeatures);
+            this.resource = Objects.requireNonNull(resource);
+            this.saslMechanismName = saslMechanismName;
+            this.inlineFeatures = Collections.unmodifiableList(inlineFeatures);
+        }
+
+        public Resourcepart getResource() {
+            return resource;
+        }
+
+        public String getSaslMechanismName() {
+            return saslMechanismName;
+        }
+
+        public List<String> getInlineFeatures() {
+            return inlineFeatures;
+        }
     }
 
     public Bind2State constructBind2State(Bind2StateDescriptor bind2StateDescriptor,
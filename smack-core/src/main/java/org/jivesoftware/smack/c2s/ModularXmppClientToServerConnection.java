@@ -75,6 +75,7 @@ import org.jivesoftware.smack.packet.XmlEnvironment;
 import org.jivesoftware.smack.parsing.SmackParsingException;
 import org.jivesoftware.smack.sasl.SASLErrorException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.sasl.SaslNonzaFactory;
 import org.jivesoftware.smack.util.ArrayBlockingQueueWithShutdown;
 import org.jivesoftware.smack.util.ExtendedAppendable;
 import org.jivesoftware.smack.util.PacketParserUtils;
@@ -84,6 +85,7 @@ import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
 import org.jxmpp.jid.DomainBareJid;
+import org.jxmpp.jid.EntityFullJid;
 import org.jxmpp.jid.parts.Resourcepart;
 import org.jxmpp.util.XmppStringUtils;
 
@@ -181,6 +183,11 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                 ModularXmppClientToServerConnection.this.parseAndProcessElement(wrappedCompleteElement);
             }
 
+            @Override
+            public void parseAndProcessElement(XmlPullParser parser) {
+                ModularXmppClientToServerConnection.this.parseAndProcessElement(parser);
+            }
+
             @Override
             public void notifyConnectionError(Exception e) {
                 ModularXmppClientToServerConnection.this.notifyConnectionError(e);
@@ -273,12 +280,33 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                 ModularXmppClientToServerConnection.this.compressionEnabled = compressionEnabled;
             }
 
+            @Override
+            public Nonza authenticate(String username, String password, List<String> serverMechanisms,
+                            boolean tokenAuthentication, SaslNonzaFactory saslNonzaFactory)
+                            throws SmackException, XMPPException, IOException, InterruptedException {
+                return ModularXmppClientToServerConnection.this.authenticate(username, password, config.getAuthzid(),
+                                getSSLSession(), serverMechanisms, tokenAuthentication, saslNonzaFactory);
+            }
+
+            @Override
+            public void onResourceBound(EntityFullJid boundAddress) {
+                setBoundAddress(boundAddress);
+                streamResumed = false;
+                lastFeaturesReceived = true;
+                ModularXmppClientToServerConnection.this.notifyWaitingThreads();
+            }
+
             @Override
             public void setTransport(XmppClientToServerTransport xmppTransport) {
                 ModularXmppClientToServerConnection.this.activeTransport = xmppTransport;
                 ModularXmppClientToServerConnection.this.connected = true;
             }
 
+            @Override
+            public boolean isReadingSuspended() {
+                return ModularXmppClientToServerConnection.this.isReadingSuspended();
+            }
+
         };
 
         // Construct the modules from the module descriptor. We do this before constructing the state graph, as the
@@ -503,6 +531,7 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
         }
 
         outgoingElementsQueue.put(element);
+        recordOutgoingQueueDepth(outgoingElementsQueue);
         transport.notifyAboutNewOutgoingElements();
     }
 
@@ -517,10 +546,20 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
         if (!enqueued) {
             throw new OutgoingQueueFullException();
         }
+        recordOutgoingQueueDepth(outgoingElementsQueue);
 
         transport.notifyAboutNewOutgoingElements();
     }
 
+    @Override
+    protected void onReadingResumed() {
+        final XmppClientToServerTransport transport = activeTransport;
+        if (transport == null) {
+            return;
+        }
+        transport.onReadingResumed();
+    }
+
     @Override
     protected void shutdown() {
         shutdown(false);
@@ -570,12 +609,22 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
     }
 
     private void parseAndProcessElement(String element) {
+        XmlPullParser parser;
         try {
-            XmlPullParser parser = PacketParserUtils.getParserFor(element);
+            parser = PacketParserUtils.getParserFor(element);
 
             // Skip the enclosing stream open what is guaranteed to be there.
             parser.next();
+        } catch (XmlPullParserException | IOException e) {
+            notifyConnectionError(e);
+            return;
+        }
 
+        parseAndProcessElement(parser);
+    }
+
+    private void parseAndProcessElement(XmlPullParser parser) {
+        try {
             XmlPullParser.Event event = parser.getEventType();
             outerloop: while (true) {
                 switch (event) {
@@ -52,6 +52,14 @@ public abstract class XmppClientToServerTransport {
 
     protected abstract void notifyAboutNewOutgoingElements();
 
+    /**
+     * Notify the transport that the reading of incoming data is no longer suspended. Transports which honor
+     * {@link ModularXmppClientToServerConnectionInternal#isReadingSuspended()} should override this method to
+     * continue reading.
+     */
+    protected void onReadingResumed() {
+    }
+
     public abstract SSLSession getSslSession();
 
     public boolean isTransportSecured() {
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Queue;
 
@@ -39,12 +40,15 @@ import org.jivesoftware.smack.internal.SmackTlsContext;
 import org.jivesoftware.smack.packet.Nonza;
 import org.jivesoftware.smack.packet.TopLevelStreamElement;
 import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.sasl.SaslNonzaFactory;
 import org.jivesoftware.smack.util.Consumer;
 import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.util.Supplier;
 import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
+import org.jxmpp.jid.EntityFullJid;
+
 public abstract class ModularXmppClientToServerConnectionInternal {
 
     private final SmackReactor reactor;
@@ -86,6 +90,17 @@ public abstract class ModularXmppClientToServerConnectionInternal {
     // of type string. But would this also work for BOSH or WebSocket?
     public abstract void parseAndProcessElement(String wrappedCompleteIncomingElement);
 
+    /**
+     * Parse and process a top level element using the given parser, which must be positioned at the start tag of the
+     * element. Unlike {@link #parseAndProcessElement(String)}, the element does not need to be wrapped in the stream
+     * open, as the XML environment established by the last stream open is used for parsing. This allows transports
+     * which receive every top level element on its own, like WebSocket, to avoid re-assembling the wrapped element.
+     *
+     * @param parser the parser positioned at the start tag of the top level element.
+     * @since 4.5
+     */
+    public abstract void parseAndProcessElement(XmlPullParser parser);
+
     public abstract void notifyConnectionError(Exception e);
 
     public final String onStreamOpen(String streamOpen) {
@@ -133,6 +148,35 @@ public abstract class ModularXmppClientToServerConnectionInternal {
 
     public abstract void setCompressionEnabled(boolean compressionEnabled);
 
+    /**
+     * Perform SASL authentication using the given SASL profile, without initiating a new stream afterwards.
+     *
+     * @param username the username that is authenticating with the server.
+     * @param password the password to send to the server.
+     * @param serverMechanisms the SASL mechanisms announced by the server.
+     * @param tokenAuthentication <code>true</code> if the password is a token obtained from the service, e.g., via
+     *        Fast Authentication Streamlining Tokens (XEP-0484).
+     * @param saslNonzaFactory the factory creating the nonzas of the SASL exchange.
+     * @return the nonza signaling the successful authentication.
+     * @throws SmackException if Smack detected an exceptional situation.
+     * @throws XMPPException if an XMPP protocol error was received.
+     * @throws IOException if an I/O error occurred.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @since 4.5
+     */
+    public abstract Nonza authenticate(String username, String password, List<String> serverMechanisms,
+                    boolean tokenAuthentication, SaslNonzaFactory saslNonzaFactory)
+                    throws SmackException, XMPPException, IOException, InterruptedException;
+
+    /**
+     * Notify the connection that a resource has been bound by means other than RFC 6120 resource binding, e.g., as
+     * part of the authentication exchange.
+     *
+     * @param boundAddress the full JID of the bound resource.
+     * @since 4.5
+     */
+    public abstract void onResourceBound(EntityFullJid boundAddress);
+
     /**
      * Set the active transport (TCP, BOSH, WebSocket, …) to be used for the XMPP connection. Also marks the connection
      * as connected.
@@ -140,4 +184,14 @@ public abstract class ModularXmppClientToServerConnectionInternal {
      * @param xmppTransport the active transport.
      */
     public abstract void setTransport(XmppClientToServerTransport xmppTransport);
+
+    /**
+     * Check if the reading of incoming data should be suspended, because a stanza publisher applies backpressure.
+     * Transports should stop reading from the network while this returns <code>true</code>. Once the reading is
+     * resumed, the transport's {@link XmppClientToServerTransport#onReadingResumed()} method is invoked.
+     *
+     * @return <code>true</code> if the reading of incoming data should be suspended.
+     * @since 4.5
+     */
+    public abstract boolean isReadingSuspended();
 }
@@ -0,0 +1,191 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+/**
+ * The elements of Fast Authentication Streamlining Tokens (XEP-0484).
+ *
+ * @see <a href="https://xmpp.org/extensions/xep-0484.html">XEP-0484: Fast Authentication Streamlining Tokens</a>
+ * @since 4.5
+ */
+public final class Fast {
+
+    public static final String NAMESPACE = "urn:xmpp:fast:0";
+
+    private Fast() {
+    }
+
+    /**
+     * The FAST inline feature of the SASL2 stream feature, announcing the token mechanisms supported by the service.
+     */
+    public static final class Feature implements ExtensionElement {
+        public static final String ELEMENT = "fast";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final List<String> mechanisms;
+
+        public Feature(List<String> mechanisms) {
+            this.mechanisms = Collections.unmodifiableList(mechanisms);
+        }
+
+        public List<String> getMechanisms() {
+            return mechanisms;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.rightAngleBracket();
+            for (String mechanism : mechanisms) {
+                xml.element("mechanism", mechanism);
+            }
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * Signals the service that the client authenticates using a FAST token. Included in the SASL2 authenticate nonza.
+     */
+    public static final class Authentication implements ExtensionElement {
+        public static final String ELEMENT = "fast";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        public static final Authentication INSTANCE = new Authentication();
+
+        private Authentication() {
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.closeEmptyElement();
+            return xml;
+        }
+    }
+
+    /**
+     * Request a new token from the service. Included in the SASL2 authenticate nonza.
+     */
+    public static final class RequestToken implements ExtensionElement {
+        public static final String ELEMENT = "request-token";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String mechanism;
+
+        public RequestToken(String mechanism) {
+            this.mechanism = StringUtils.requireNotNullNorEmpty(mechanism, "The token mechanism must be set");
+        }
+
+        public String getMechanism() {
+            return mechanism;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.attribute("mechanism", mechanism);
+            xml.closeEmptyElement();
+            return xml;
+        }
+    }
+
+    /**
+     * A token issued by the service, contained in the SASL2 success nonza.
+     */
+    public static final class Token implements ExtensionElement {
+        public static final String ELEMENT = "token";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String token;
+        private final Date expiry;
+
+        public Token(String token, Date expiry) {
+            this.token = StringUtils.requireNotNullNorEmpty(token, "The token must be set");
+            this.expiry = Objects.requireNonNull(expiry, "The token expiry must be set");
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public Date getExpiry() {
+            return expiry;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.attribute("expiry", expiry);
+            xml.attribute("token", token);
+            xml.closeEmptyElement();
+            return xml;
+        }
+    }
+}
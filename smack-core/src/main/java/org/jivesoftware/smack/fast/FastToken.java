@@ -0,0 +1,64 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast;
+
+import java.util.Date;
+
+import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.StringUtils;
+
+/**
+ * A FAST token obtained from the service, together with the mechanism it is to be used with. Applications may
+ * persist the token, so that it can be used for the authentication of subsequent connections. Note that the token is
+ * a credential and should be protected like a password.
+ *
+ * @since 4.5
+ */
+public final class FastToken {
+
+    private final String mechanism;
+    private final String token;
+    private final Date expiry;
+
+    public FastToken(String mechanism, String token, Date expiry) {
+        this.mechanism = StringUtils.requireNotNullNorEmpty(mechanism, "The token mechanism must be set");
+        this.token = StringUtils.requireNotNullNorEmpty(token, "The token must be set");
+        this.expiry = Objects.requireNonNull(expiry, "The token expiry must be set");
+    }
+
+    public String getMechanism() {
+        return mechanism;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Date getExpiry() {
+        return expiry;
+    }
+
+    public boolean isExpired() {
+        return expiry.getTime() <= System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        // Do not leak the token into logs.
+        return "FastToken(" + mechanism + ", expires " + expiry + ')';
+    }
+}
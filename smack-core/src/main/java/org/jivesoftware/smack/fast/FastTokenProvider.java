@@ -0,0 +1,45 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Date;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.util.ParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+public final class FastTokenProvider extends ExtensionElementProvider<Fast.Token> {
+
+    public static final FastTokenProvider INSTANCE = new FastTokenProvider();
+
+    private FastTokenProvider() {
+    }
+
+    @Override
+    public Fast.Token parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+                    throws XmlPullParserException, IOException, ParseException {
+        String token = parser.getAttributeValue("token");
+        Date expiry = ParserUtils.getDateFromXep82String(parser.getAttributeValue("expiry"));
+        ParserUtils.forwardToEndTagOfDepth(parser, initialDepth);
+        return new Fast.Token(token, expiry);
+    }
+
+}
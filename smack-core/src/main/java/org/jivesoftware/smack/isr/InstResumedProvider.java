@@ -0,0 +1,65 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.isr;
+
+import java.io.IOException;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.provider.NonzaProvider;
+import org.jivesoftware.smack.util.ParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+public final class InstResumedProvider extends NonzaProvider<InstantStreamResumption.InstResumed> {
+
+    public static final InstResumedProvider INSTANCE = new InstResumedProvider();
+
+    private InstResumedProvider() {
+    }
+
+    @Override
+    public InstantStreamResumption.InstResumed parse(XmlPullParser parser, int initialDepth,
+                    XmlEnvironment xmlEnvironment) throws XmlPullParserException, IOException, SmackParsingException {
+        String key = parser.getAttributeValue("key");
+        Long handledCount = ParserUtils.getLongAttribute(parser, "h");
+        if (handledCount == null) {
+            throw new SmackParsingException.RequiredAttributeMissingException("h");
+        }
+
+        String hmac = null;
+        outerloop: while (true) {
+            XmlPullParser.TagEvent eventType = parser.nextTag();
+            switch (eventType) {
+            case START_ELEMENT:
+                if (parser.getName().equals("hash")
+                                && InstantStreamResumption.HASHES_NAMESPACE.equals(parser.getNamespace())) {
+                    hmac = parser.nextText();
+                }
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            }
+        }
+
+        return new InstantStreamResumption.InstResumed(key, handledCount, hmac);
+    }
+
+}
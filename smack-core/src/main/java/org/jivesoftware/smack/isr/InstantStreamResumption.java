@@ -0,0 +1,358 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.isr;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.MAC;
+import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.util.stringencoder.Base64;
+
+/**
+ * The elements of Instant Stream Resumption (XEP-0397).
+ *
+ * @see <a href="https://xmpp.org/extensions/xep-0397.html">XEP-0397: Instant Stream Resumption</a>
+ * @since 4.5
+ */
+public final class InstantStreamResumption {
+
+    public static final String NAMESPACE = "urn:xmpp:isr:0";
+
+    /**
+     * The namespace of the hash element (XEP-0300) used to transport the HMACs.
+     */
+    public static final String HASHES_NAMESPACE = "urn:xmpp:hashes:2";
+
+    /**
+     * The only HMAC algorithm currently supported by Smack.
+     */
+    public static final String HMAC_ALGORITHM = "sha-256";
+
+    private static final byte[] INITIATOR = "Initiator".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] RESPONDER = "Responder".getBytes(StandardCharsets.UTF_8);
+
+    private InstantStreamResumption() {
+    }
+
+    static byte[] hmac(String key, byte[] input) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        try {
+            return MAC.hmacsha256(keyBytes, input);
+        } catch (InvalidKeyException e) {
+            // Should never happen, as every non-empty byte array is a valid HMAC key.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The stream feature announcing support for Instant Stream Resumption.
+     */
+    public static final class Feature implements ExtensionElement {
+        public static final String ELEMENT = "isr";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        public static final Feature INSTANCE = new Feature();
+
+        private Feature() {
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.closeEmptyElement();
+            return xml;
+        }
+    }
+
+    /**
+     * The request to enable Instant Stream Resumption, included in the Stream Management (XEP-0198) enable nonza.
+     */
+    public static final class Enable implements ExtensionElement {
+        public static final String ELEMENT = "isr-enable";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        public static final Enable INSTANCE = new Enable();
+
+        private Enable() {
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.closeEmptyElement();
+            return xml;
+        }
+    }
+
+    /**
+     * The response to {@link Enable}, included in the Stream Management (XEP-0198) enabled nonza. It carries the key
+     * used to authenticate a later instant resumption.
+     */
+    public static final class Enabled implements ExtensionElement {
+        public static final String ELEMENT = "isr-enabled";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String key;
+        private final String location;
+
+        public Enabled(String key, String location) {
+            this.key = StringUtils.requireNotNullNorEmpty(key, "The ISR key must be set");
+            this.location = location;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get the optional location where the service prefers the client to reconnect to for instant resumption.
+         *
+         * @return the location or <code>null</code>.
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.attribute("key", key);
+            xml.optAttribute("location", location);
+            xml.closeEmptyElement();
+            return xml;
+        }
+    }
+
+    /**
+     * A nonza authenticated by a HMAC over the key obtained when enabling or last using Instant Stream Resumption.
+     */
+    public abstract static class HmacNonza implements Nonza {
+        private final long handledCount;
+        private final String hmac;
+
+        private HmacNonza(long handledCount, String hmac) {
+            this.handledCount = handledCount;
+            this.hmac = StringUtils.requireNotNullNorEmpty(hmac, "The HMAC must be set");
+        }
+
+        /**
+         * Get the number of stanzas handled by the sender of this nonza, i.e., the 'h' value of Stream Management.
+         *
+         * @return the number of handled stanzas.
+         */
+        public final long getHandledCount() {
+            return handledCount;
+        }
+
+        /**
+         * Get the Base64 encoded HMAC.
+         *
+         * @return the Base64 encoded HMAC.
+         */
+        public final String getHmac() {
+            return hmac;
+        }
+
+        @Override
+        public final String getNamespace() {
+            return NAMESPACE;
+        }
+
+        protected abstract void addAttributes(XmlStringBuilder xml);
+
+        @Override
+        public final XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            addAttributes(xml);
+            xml.attribute("h", handledCount);
+            xml.rightAngleBracket();
+            xml.openElement("hmac");
+            xml.halfOpenElement("hash").xmlnsAttribute(HASHES_NAMESPACE).attribute("algo", HMAC_ALGORITHM);
+            xml.rightAngleBracket();
+            xml.append(hmac);
+            xml.closeElement("hash");
+            xml.closeElement("hmac");
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * The nonza requesting the instant resumption of a previous stream.
+     */
+    public static final class InstResume extends HmacNonza {
+        public static final String ELEMENT = "inst-resume";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String previd;
+
+        public InstResume(String previd, long handledCount, String hmac) {
+            super(handledCount, hmac);
+            this.previd = StringUtils.requireNotNullNorEmpty(previd, "The previous stream ID must be set");
+        }
+
+        public String getPrevId() {
+            return previd;
+        }
+
+        /**
+         * Create the request to instantly resume the given stream, authenticated by the given key.
+         *
+         * @param previd the Stream Management ID of the stream to resume.
+         * @param handledCount the number of stanzas handled by the client.
+         * @param key the key obtained when enabling or last using Instant Stream Resumption.
+         * @return the request to instantly resume the stream.
+         */
+        public static InstResume create(String previd, long handledCount, String key) {
+            String hmac = Base64.encodeToString(hmac(key, INITIATOR));
+            return new InstResume(previd, handledCount, hmac);
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        protected void addAttributes(XmlStringBuilder xml) {
+            xml.attribute("previd", previd);
+        }
+    }
+
+    /**
+     * The nonza signaling the successful instant resumption. It carries the key to be used for the next instant
+     * resumption, as every key can only be used once.
+     */
+    public static final class InstResumed extends HmacNonza {
+        public static final String ELEMENT = "inst-resumed";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String key;
+
+        public InstResumed(String key, long handledCount, String hmac) {
+            super(handledCount, hmac);
+            this.key = StringUtils.requireNotNullNorEmpty(key, "The ISR key must be set");
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Check if this nonza was authenticated by the given key, i.e., if the service knows the key used for the
+         * instant resumption. The HMACs are compared in constant time.
+         *
+         * @param key the key used for the instant resumption.
+         * @return <code>true</code> if the HMAC of this nonza matches the given key.
+         */
+        public boolean isAuthenticatedBy(String key) {
+            byte[] expectedHmac = hmac(key, RESPONDER);
+            byte[] actualHmac = Base64.decode(getHmac());
+            return MessageDigest.isEqual(expectedHmac, actualHmac);
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        protected void addAttributes(XmlStringBuilder xml) {
+            xml.attribute("key", key);
+        }
+    }
+
+    /**
+     * The nonza signaling that the instant resumption failed. The client is then expected to authenticate as usual.
+     */
+    public static final class Failed implements Nonza {
+        public static final String ELEMENT = "failed";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final Long handledCount;
+
+        public Failed(Long handledCount) {
+            this.handledCount = handledCount;
+        }
+
+        /**
+         * Get the number of stanzas handled by the service, if known.
+         *
+         * @return the number of handled stanzas or <code>null</code>.
+         */
+        public Long getHandledCount() {
+            return handledCount;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.optAttribute("h", handledCount);
+            xml.closeEmptyElement();
+            return xml;
+        }
+    }
+}
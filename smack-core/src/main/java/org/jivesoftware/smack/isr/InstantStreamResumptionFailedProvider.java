@@ -0,0 +1,42 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.isr;
+
+import java.io.IOException;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.provider.NonzaProvider;
+import org.jivesoftware.smack.util.ParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+public final class InstantStreamResumptionFailedProvider extends NonzaProvider<InstantStreamResumption.Failed> {
+
+    public static final InstantStreamResumptionFailedProvider INSTANCE = new InstantStreamResumptionFailedProvider();
+
+    private InstantStreamResumptionFailedProvider() {
+    }
+
+    @Override
+    public InstantStreamResumption.Failed parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+                    throws XmlPullParserException, IOException {
+        Long handledCount = ParserUtils.getLongAttribute(parser, "h");
+        ParserUtils.forwardToEndTagOfDepth(parser, initialDepth);
+        return new InstantStreamResumption.Failed(handledCount);
+    }
+
+}
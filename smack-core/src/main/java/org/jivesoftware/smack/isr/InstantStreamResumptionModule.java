@@ -26,6 +26,15 @@ import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
 
+/**
+ * Connection module for Instant Stream Resumption (XEP-0397).
+ * <p>
+ * Instant Stream Resumption builds upon the resumption of Stream Management (XEP-0198), which the modular connection
+ * does not implement yet. Without it, there is neither a resumption key to obtain nor a queue of unacknowledged
+ * stanzas to resend after a resumption. Hence the state is not implemented so far. Instant Stream Resumption is
+ * available with the XMPPTCPConnection of smack-tcp, which implements Stream Management.
+ * </p>
+ */
 public class InstantStreamResumptionModule extends ModularXmppClientToServerConnectionModule<InstantStreamResumptionModuleDescriptor> {
 
     protected InstantStreamResumptionModule(InstantStreamResumptionModuleDescriptor instantStreamResumptionModuleDescriptor,
@@ -0,0 +1,45 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.isr;
+
+import java.io.IOException;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.util.ParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+/**
+ * Provider for the Instant Stream Resumption stream feature. The <code>isr-enabled</code> element is parsed as part of
+ * the Stream Management (XEP-0198) enabled nonza.
+ */
+public final class InstantStreamResumptionProvider extends ExtensionElementProvider<InstantStreamResumption.Feature> {
+
+    public static final InstantStreamResumptionProvider INSTANCE = new InstantStreamResumptionProvider();
+
+    private InstantStreamResumptionProvider() {
+    }
+
+    @Override
+    public InstantStreamResumption.Feature parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+                    throws XmlPullParserException, IOException {
+        ParserUtils.forwardToEndTagOfDepth(parser, initialDepth);
+        return InstantStreamResumption.Feature.INSTANCE;
+    }
+
+}
@@ -0,0 +1,40 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+/**
+ * A monotonically increasing counter.
+ *
+ * @since 4.5
+ */
+public interface Counter {
+
+    /**
+     * Increment the counter by one.
+     */
+    default void increment() {
+        add(1);
+    }
+
+    /**
+     * Add the given, non-negative, amount to the counter.
+     *
+     * @param amount the amount to add.
+     */
+    void add(long amount);
+
+}
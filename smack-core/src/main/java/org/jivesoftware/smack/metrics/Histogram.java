@@ -0,0 +1,42 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+/**
+ * A histogram recording the distribution of values, e.g. latencies in nanoseconds or queue depths.
+ *
+ * @since 4.5
+ */
+public interface Histogram {
+
+    /**
+     * Record the given value. Negative values are recorded as zero.
+     *
+     * @param value the value to record.
+     */
+    void record(long value);
+
+    /**
+     * Record the time elapsed since the given timestamp, as obtained by {@link System#nanoTime()}, in nanoseconds.
+     *
+     * @param startNanos the start timestamp in nanoseconds.
+     */
+    default void recordNanosSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+}
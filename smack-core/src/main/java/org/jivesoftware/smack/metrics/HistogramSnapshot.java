@@ -0,0 +1,125 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+/**
+ * An immutable snapshot of a {@link LogLinearHistogram}.
+ *
+ * @since 4.5
+ */
+public final class HistogramSnapshot {
+
+    private final long[] bucketCounts;
+
+    private final long count;
+
+    private final long sum;
+
+    private final long min;
+
+    private final long max;
+
+    HistogramSnapshot(long[] bucketCounts, long count, long sum, long min, long max) {
+        this.bucketCounts = bucketCounts;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        if (count == 0) {
+            return 0;
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * Get the value at the given percentile. The returned value is the highest value which is equivalent to the
+     * recorded values in the bucket containing the percentile, capped by the maximum recorded value.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the value at the given percentile, or 0 if no values were recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, but was " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long countAtPercentile = (long) Math.ceil(percentile / 100 * count);
+        if (countAtPercentile < 1) {
+            countAtPercentile = 1;
+        }
+
+        long cumulativeCount = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            cumulativeCount += bucketCounts[i];
+            if (cumulativeCount >= countAtPercentile) {
+                long value = LogLinearHistogram.highestValueOf(i);
+                return Math.max(min, Math.min(value, max));
+            }
+        }
+        return max;
+    }
+
+    public long getP50() {
+        return getValueAtPercentile(50);
+    }
+
+    public long getP90() {
+        return getValueAtPercentile(90);
+    }
+
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count
+                        + " min=" + min
+                        + " mean=" + Math.round(getMean())
+                        + " p50=" + getP50()
+                        + " p90=" + getP90()
+                        + " p99=" + getP99()
+                        + " p999=" + getP999()
+                        + " max=" + max;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.util.Supplier;
+
+/**
+ * A {@link SmackMetrics} implementation which collects the metrics in memory. Use {@link #snapshot()} to obtain the
+ * current values, e.g. to render them on a dashboard or to export them periodically.
+ *
+ * @since 4.5
+ */
+public class InMemorySmackMetrics implements SmackMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(InMemorySmackMetrics.class.getName());
+
+    private final ConcurrentMap<String, InMemoryCounter> counters = new ConcurrentHashMap<>();
+
+    private final Map<String, Supplier<Long>> gauges = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LogLinearHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        InMemoryCounter counter = counters.get(name);
+        if (counter != null) {
+            return counter;
+        }
+        counter = new InMemoryCounter();
+        InMemoryCounter previous = counters.putIfAbsent(name, counter);
+        if (previous != null) {
+            return previous;
+        }
+        return counter;
+    }
+
+    @Override
+    public void gauge(String name, Supplier<Long> valueSupplier) {
+        gauges.put(name, valueSupplier);
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        LogLinearHistogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        histogram = new LogLinearHistogram();
+        LogLinearHistogram previous = histograms.putIfAbsent(name, histogram);
+        if (previous != null) {
+            return previous;
+        }
+        return histogram;
+    }
+
+    /**
+     * Take a snapshot of all metrics collected so far.
+     *
+     * @return a snapshot of the metrics.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Map.Entry<String, InMemoryCounter> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().value.get());
+        }
+
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        for (Map.Entry<String, Supplier<Long>> entry : gauges.entrySet()) {
+            Long value;
+            try {
+                value = entry.getValue().get();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not obtain value of gauge " + entry.getKey(), e);
+                continue;
+            }
+            if (value != null) {
+                gaugeValues.put(entry.getKey(), value);
+            }
+        }
+
+        Map<String, HistogramSnapshot> histogramSnapshots = new TreeMap<>();
+        for (Map.Entry<String, LogLinearHistogram> entry : histograms.entrySet()) {
+            histogramSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        return new MetricsSnapshot(counterValues, gaugeValues, histogramSnapshots);
+    }
+
+    /**
+     * Reset all counters and histograms. Registered gauges are retained.
+     */
+    public void reset() {
+        for (InMemoryCounter counter : counters.values()) {
+            counter.value.set(0);
+        }
+        for (LogLinearHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    private static final class InMemoryCounter implements Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        @Override
+        public void add(long amount) {
+            value.addAndGet(amount);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram with log-linear buckets, similar to HdrHistogram. Values smaller than {@value #SUB_BUCKET_COUNT}
+ * are recorded exactly. Larger values are recorded in buckets whose width grows with the magnitude of the value, so
+ * that the relative error of a reported value is at most 1/{@value #HALF_SUB_BUCKET_COUNT}, i.e., about 6%. The full
+ * range of non-negative long values is covered with a fixed amount of memory.
+ *
+ * @since 4.5
+ */
+public final class LogLinearHistogram implements Histogram {
+
+    static final int SUB_BUCKET_BITS = 5;
+
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+    // The largest shift is reached for Long.MAX_VALUE, whose highest set bit is bit 62.
+    private static final int MAX_SHIFT = 62 - (SUB_BUCKET_BITS - 1);
+
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + MAX_SHIFT * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    @Override
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        buckets.incrementAndGet(bucketIndexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMin;
+        while (value < (currentMin = min.get())) {
+            if (min.compareAndSet(currentMin, value)) {
+                break;
+            }
+        }
+        long currentMax;
+        while (value > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reset this histogram. Values recorded concurrently with the reset may or may not be retained.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * Take a snapshot of this histogram. Since recording is not synchronized with taking the snapshot, the snapshot
+     * may be slightly inconsistent if values are recorded concurrently.
+     *
+     * @return a snapshot of this histogram.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long bucketCountsTotal = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucketCount = buckets.get(i);
+            bucketCounts[i] = bucketCount;
+            bucketCountsTotal += bucketCount;
+        }
+        if (bucketCountsTotal == 0) {
+            return new HistogramSnapshot(bucketCounts, 0, 0, 0, 0);
+        }
+        return new HistogramSnapshot(bucketCounts, bucketCountsTotal, sum.get(), min.get(), max.get());
+    }
+
+    static int bucketIndexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestValueOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        int offset = bucketIndex - SUB_BUCKET_COUNT;
+        int shift = offset / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = offset % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return subBucket << shift;
+    }
+
+    static long highestValueOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        if (bucketIndex == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return lowestValueOf(bucketIndex + 1) - 1;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the metrics collected by {@link InMemorySmackMetrics}. The maps are sorted by metric name.
+ *
+ * @since 4.5
+ */
+public final class MetricsSnapshot {
+
+    private final Map<String, Long> counters;
+
+    private final Map<String, Long> gauges;
+
+    private final Map<String, HistogramSnapshot> histograms;
+
+    MetricsSnapshot(Map<String, Long> counters, Map<String, Long> gauges, Map<String, HistogramSnapshot> histograms) {
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * Get the value of the counter with the given name.
+     *
+     * @param name the name of the counter.
+     * @return the value of the counter, or 0 if there is no such counter.
+     */
+    public long getCounter(String name) {
+        Long value = counters.get(name);
+        if (value == null) {
+            return 0;
+        }
+        return value;
+    }
+
+    public HistogramSnapshot getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : gauges.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, HistogramSnapshot> entry : histograms.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+}
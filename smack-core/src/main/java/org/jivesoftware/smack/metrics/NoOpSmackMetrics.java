@@ -0,0 +1,56 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import org.jivesoftware.smack.util.Supplier;
+
+/**
+ * A {@link SmackMetrics} implementation which discards all metrics. This is the default.
+ *
+ * @since 4.5
+ */
+public final class NoOpSmackMetrics implements SmackMetrics {
+
+    public static final NoOpSmackMetrics INSTANCE = new NoOpSmackMetrics();
+
+    private static final Counter NO_OP_COUNTER = amount -> { };
+
+    private static final Histogram NO_OP_HISTOGRAM = value -> { };
+
+    private NoOpSmackMetrics() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return NO_OP_COUNTER;
+    }
+
+    @Override
+    public void gauge(String name, Supplier<Long> valueSupplier) {
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return NO_OP_HISTOGRAM;
+    }
+
+}
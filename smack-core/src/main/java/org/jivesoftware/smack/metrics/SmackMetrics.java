@@ -0,0 +1,113 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import org.jivesoftware.smack.util.Supplier;
+
+/**
+ * The metrics SPI of Smack. Implementations are expected to return the same metric instance for the same name and
+ * to be thread-safe, as metrics are reported from multiple threads, including the connection's reader and writer
+ * threads. Hence, implementations should also be cheap to invoke.
+ * <p>
+ * Latencies are recorded in nanoseconds.
+ * </p>
+ *
+ * @see org.jivesoftware.smack.SmackConfiguration#setMetrics(SmackMetrics)
+ * @since 4.5
+ */
+public interface SmackMetrics {
+
+    /**
+     * Counter of the stanzas received by all connections.
+     */
+    String STANZAS_IN = "smack.stanzas.in";
+
+    /**
+     * Counter of the stanzas send by all connections.
+     */
+    String STANZAS_OUT = "smack.stanzas.out";
+
+    /**
+     * Prefix of the IQ round-trip time histograms. The namespace of the IQ request's child element is appended.
+     */
+    String IQ_RTT_PREFIX = "smack.iq.rtt.";
+
+    /**
+     * Histogram of the execution time of stanza listeners.
+     */
+    String LISTENER_EXECUTION_TIME = "smack.listener.execution";
+
+    /**
+     * Histogram of the depth of outgoing queues at the time an element is enqueued.
+     */
+    String OUTGOING_QUEUE_DEPTH = "smack.outgoing.queue.depth";
+
+    /**
+     * Histogram of the time a reactor thread spends handling selected keys, i.e., the time between two
+     * select operations excluding the time spent blocking in select.
+     */
+    String REACTOR_LOOP_LATENCY = "smack.reactor.loop";
+
+    /**
+     * Check if this metrics instance actually collects metrics. Callers may use this to avoid the costs of
+     * obtaining timestamps if metrics are not collected.
+     *
+     * @return <code>true</code> if metrics are collected.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Get the counter with the given name, creating it if necessary.
+     *
+     * @param name the name of the counter.
+     * @return the counter.
+     */
+    Counter counter(String name);
+
+    /**
+     * Register a gauge with the given name. The supplier is queried whenever the gauge's value is required. A
+     * previously registered gauge with the same name is replaced.
+     *
+     * @param name the name of the gauge.
+     * @param valueSupplier the supplier of the gauge's value.
+     */
+    void gauge(String name, Supplier<Long> valueSupplier);
+
+    /**
+     * Get the histogram with the given name, creating it if necessary.
+     *
+     * @param name the name of the histogram.
+     * @return the histogram.
+     */
+    Histogram histogram(String name);
+
+    /**
+     * Get the name of the IQ round-trip time histogram for IQ requests with the given child element namespace.
+     *
+     * @param namespace the namespace of the IQ request's child element, may be <code>null</code>.
+     * @return the name of the histogram.
+     */
+    static String iqRoundTripTimeName(String namespace) {
+        if (namespace == null) {
+            namespace = "none";
+        }
+        return IQ_RTT_PREFIX + namespace;
+    }
+
+}
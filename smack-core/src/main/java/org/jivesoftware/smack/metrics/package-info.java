@@ -0,0 +1,24 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Smack's metrics SPI. Connections report counters, gauges and histograms to the {@link SmackMetrics} instance set via
+ * {@link org.jivesoftware.smack.SmackConfiguration#setMetrics(SmackMetrics)}. By default, metrics are not collected.
+ * Use {@link InMemorySmackMetrics} to collect metrics in memory and obtain snapshots of them, or implement
+ * {@link SmackMetrics} to bridge to the metrics library of your choice.
+ */
+package org.jivesoftware.smack.metrics;
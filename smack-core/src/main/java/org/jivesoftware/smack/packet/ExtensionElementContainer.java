@@ -0,0 +1,385 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.util.MultiMap;
+import org.jivesoftware.smack.util.XmppElementUtil;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+/**
+ * The container of the extension elements of a stanza. Most stanzas carry only a handful of extension elements, hence
+ * they are held in two arrays of keys and elements. The arrays are only allocated once the first element is added.
+ * Only once the number of elements exceeds {@link #MAX_INLINE_SIZE}, the container is promoted to a hash based
+ * {@link MultiMap}.
+ * <p>
+ * The container provides the same ordering semantics as the {@link MultiMap} it replaces: Elements are ordered by the
+ * insertion order of their qualified name, and elements with the same qualified name are ordered by their insertion
+ * order. That is, in inline mode, the elements with the same qualified name are always kept adjacent.
+ * </p>
+ * <p>
+ * Note that this class is not thread-safe. {@link Stanza} synchronizes on its container.
+ * </p>
+ */
+final class ExtensionElementContainer {
+
+    private static final Logger LOGGER = Logger.getLogger(ExtensionElementContainer.class.getName());
+
+    static final int MAX_INLINE_SIZE = 8;
+
+    private static final int INITIAL_INLINE_CAPACITY = 4;
+
+    private QName[] keys;
+
+    private XmlElement[] elements;
+
+    private int size;
+
+    /**
+     * The hash based multi map, once this container got promoted. If set, {@link #keys} and {@link #elements} are no
+     * longer used.
+     */
+    private MultiMap<QName, XmlElement> multiMap;
+
+    ExtensionElementContainer() {
+    }
+
+    private ExtensionElementContainer(ExtensionElementContainer other) {
+        if (other.multiMap != null) {
+            multiMap = other.multiMap.clone();
+        } else if (other.size > 0) {
+            keys = Arrays.copyOf(other.keys, other.size);
+            elements = Arrays.copyOf(other.elements, other.size);
+            size = other.size;
+        }
+    }
+
+    int size() {
+        if (multiMap != null) {
+            return multiMap.size();
+        }
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void put(QName key, XmlElement element) {
+        if (multiMap != null) {
+            multiMap.put(key, element);
+            return;
+        }
+
+        if (size == MAX_INLINE_SIZE) {
+            promote();
+            multiMap.put(key, element);
+            return;
+        }
+
+        if (keys == null) {
+            keys = new QName[INITIAL_INLINE_CAPACITY];
+            elements = new XmlElement[INITIAL_INLINE_CAPACITY];
+        } else if (size == keys.length) {
+            int newCapacity = Math.min(keys.length * 2, MAX_INLINE_SIZE);
+            keys = Arrays.copyOf(keys, newCapacity);
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+
+        // Keep the elements with the same qualified name adjacent, by inserting the new element after the last one
+        // with the same name.
+        int insertionIndex = size;
+        for (int i = size - 1; i >= 0; i--) {
+            if (keys[i].equals(key)) {
+                insertionIndex = i + 1;
+                break;
+            }
+        }
+        if (insertionIndex < size) {
+            System.arraycopy(keys, insertionIndex, keys, insertionIndex + 1, size - insertionIndex);
+            System.arraycopy(elements, insertionIndex, elements, insertionIndex + 1, size - insertionIndex);
+        }
+        keys[insertionIndex] = key;
+        elements[insertionIndex] = element;
+        size++;
+    }
+
+    private void promote() {
+        multiMap = new MultiMap<>(MAX_INLINE_SIZE * 2);
+        for (int i = 0; i < size; i++) {
+            multiMap.put(keys[i], elements[i]);
+        }
+        keys = null;
+        elements = null;
+        size = 0;
+    }
+
+    boolean containsKey(QName key) {
+        if (multiMap != null) {
+            return multiMap.containsKey(key);
+        }
+        return indexOf(key) >= 0;
+    }
+
+    private int indexOf(QName key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    XmlElement getFirst(QName key) {
+        if (multiMap != null) {
+            return multiMap.getFirst(key);
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        return elements[index];
+    }
+
+    /**
+     * Get all elements with the given qualified name. Unlike {@link MultiMap#getAll(Object)}, the returned list is
+     * not backed by this container.
+     *
+     * @param key the qualified name.
+     * @return a new list of all elements with the given qualified name, or the empty list.
+     */
+    List<XmlElement> getAll(QName key) {
+        if (multiMap != null) {
+            List<XmlElement> all = multiMap.getAll(key);
+            if (all.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(all);
+        }
+
+        int index = indexOf(key);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        List<XmlElement> all = new ArrayList<>(size - index);
+        for (int i = index; i < size && keys[i].equals(key); i++) {
+            all.add(elements[i]);
+        }
+        return all;
+    }
+
+    <E extends ExtensionElement> List<E> getAll(Class<E> extensionElementClass) {
+        QName key = XmppElementUtil.getQNameFor(extensionElementClass);
+        List<XmlElement> all = getAll(key);
+        if (all.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<E> res = new ArrayList<>(all.size());
+        for (XmlElement element : all) {
+            res.add(XmppElementUtil.castOrThrow(element, extensionElementClass));
+        }
+        return res;
+    }
+
+    List<XmlElement> values() {
+        if (multiMap != null) {
+            return multiMap.values();
+        }
+        List<XmlElement> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(elements[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Remove all elements with the given qualified name.
+     *
+     * @param key the qualified name.
+     * @return the first removed element or <code>null</code>.
+     */
+    XmlElement remove(QName key) {
+        if (multiMap != null) {
+            return multiMap.remove(key);
+        }
+
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        XmlElement first = elements[index];
+        int end = index + 1;
+        while (end < size && keys[end].equals(key)) {
+            end++;
+        }
+        removeRange(index, end);
+        return first;
+    }
+
+    boolean removeOne(QName key, XmlElement element) {
+        if (multiMap != null) {
+            return multiMap.removeOne(key, element);
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key) && elements[i].equals(element)) {
+                removeRange(i, i + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeRange(int from, int to) {
+        int removed = to - from;
+        System.arraycopy(keys, to, keys, from, size - to);
+        System.arraycopy(elements, to, elements, from, size - to);
+        for (int i = size - removed; i < size; i++) {
+            keys[i] = null;
+            elements[i] = null;
+        }
+        size -= removed;
+    }
+
+    /**
+     * Replace all lazy extension elements with the given qualified name by their parsed counterpart. Elements which
+     * can not be parsed are removed, just like extension elements of presences, that fail to parse, are dropped by
+     * {@link org.jivesoftware.smack.util.PacketParserUtils#parsePresence(org.jivesoftware.smack.xml.XmlPullParser,
+     * XmlEnvironment)}.
+     *
+     * @param key the qualified name of the extension elements to resolve.
+     */
+    void resolveLazy(QName key) {
+        if (multiMap != null) {
+            resolveLazy(multiMap, key);
+            return;
+        }
+
+        for (int i = indexOf(key); i >= 0 && i < size && keys[i].equals(key);) {
+            if (resolveLazy(i)) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Replace all lazy extension elements by their parsed counterpart.
+     *
+     * @see #resolveLazy(QName)
+     */
+    void resolveAllLazy() {
+        if (multiMap != null) {
+            // Copy the key set, as resolving may remove keys.
+            for (QName key : new ArrayList<>(multiMap.keySet())) {
+                resolveLazy(multiMap, key);
+            }
+            return;
+        }
+
+        for (int i = 0; i < size;) {
+            if (resolveLazy(i)) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Resolve the element at the given index if it is a lazy extension element.
+     *
+     * @param index the index.
+     * @return <code>true</code> if there is still an element at the given index, <code>false</code> if it was removed.
+     */
+    private boolean resolveLazy(int index) {
+        XmlElement element = elements[index];
+        if (!(element instanceof LazyExtensionElement)) {
+            return true;
+        }
+
+        XmlElement parsed = parseLazy((LazyExtensionElement) element);
+        if (parsed == null) {
+            removeRange(index, index + 1);
+            return false;
+        }
+        elements[index] = parsed;
+        return true;
+    }
+
+    private static void resolveLazy(MultiMap<QName, XmlElement> multiMap, QName key) {
+        List<LazyExtensionElement> unparsable = null;
+        // Note that the list is backed by the multi map, hence setting an element here will update the map.
+        List<XmlElement> all = multiMap.getAll(key);
+        for (int i = 0; i < all.size(); i++) {
+            XmlElement element = all.get(i);
+            if (!(element instanceof LazyExtensionElement)) {
+                continue;
+            }
+
+            LazyExtensionElement lazyExtensionElement = (LazyExtensionElement) element;
+            XmlElement parsed = parseLazy(lazyExtensionElement);
+            if (parsed == null) {
+                if (unparsable == null) {
+                    unparsable = new ArrayList<>(1);
+                }
+                unparsable.add(lazyExtensionElement);
+            } else {
+                all.set(i, parsed);
+            }
+        }
+
+        if (unparsable == null) {
+            return;
+        }
+        for (LazyExtensionElement lazyExtensionElement : unparsable) {
+            multiMap.removeOne(key, lazyExtensionElement);
+        }
+    }
+
+    private static XmlElement parseLazy(LazyExtensionElement lazyExtensionElement) {
+        try {
+            return lazyExtensionElement.parse();
+        } catch (XmlPullParserException | IOException | SmackParsingException e) {
+            LOGGER.log(Level.WARNING, "Failed to parse lazy extension element " + lazyExtensionElement, e);
+            return null;
+        }
+    }
+
+    MultiMap<QName, XmlElement> toMultiMap() {
+        if (multiMap != null) {
+            return multiMap.clone();
+        }
+        MultiMap<QName, XmlElement> res = new MultiMap<>();
+        for (int i = 0; i < size; i++) {
+            res.put(keys[i], elements[i]);
+        }
+        return res;
+    }
+
+    ExtensionElementContainer copy() {
+        return new ExtensionElementContainer(this);
+    }
+}
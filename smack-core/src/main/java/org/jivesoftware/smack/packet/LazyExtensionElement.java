@@ -0,0 +1,99 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.io.IOException;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+/**
+ * An extension element which has not been parsed yet. Instances of this class are created by
+ * {@link PacketParserUtils} if lazy extension element parsing is enabled via
+ * {@link org.jivesoftware.smack.SmackConfiguration#setLazyExtensionElementParsing(boolean)}. They retain the raw XML of
+ * the element, which is only handed to the responsible provider once the element is accessed via one of the
+ * {@code getExtension(…)} methods of {@link Stanza} or {@link StanzaBuilder}. Extension elements which are never read,
+ * are never handed to their provider.
+ * <p>
+ * Note that the raw XML is not a slice of the input, but is re-serialized from the parser events by
+ * {@link PacketParserUtils#parseElement(XmlPullParser, boolean)}. Hence the element is still fully tokenized when the
+ * stanza is parsed, and only the provider invocation and the creation of the resulting objects is deferred. Reading the
+ * element later on tokenizes the raw XML a second time.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class LazyExtensionElement implements XmlElement {
+
+    private final QName qname;
+
+    private final String rawXml;
+
+    private final XmlEnvironment outerXmlEnvironment;
+
+    public LazyExtensionElement(QName qname, String rawXml, XmlEnvironment outerXmlEnvironment) {
+        this.qname = qname;
+        this.rawXml = rawXml;
+        this.outerXmlEnvironment = outerXmlEnvironment;
+    }
+
+    @Override
+    public String getElementName() {
+        return qname.getLocalPart();
+    }
+
+    @Override
+    public String getNamespace() {
+        return qname.getNamespaceURI();
+    }
+
+    @Override
+    public QName getQName() {
+        return qname;
+    }
+
+    public String getRawXml() {
+        return rawXml;
+    }
+
+    /**
+     * Parse the retained raw XML with the provider registered for the qualified name of this element.
+     *
+     * @return the parsed extension element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     * @throws SmackParsingException if the Smack parser (provider) encountered invalid input.
+     */
+    public XmlElement parse() throws XmlPullParserException, IOException, SmackParsingException {
+        XmlPullParser parser = PacketParserUtils.getParserFor(rawXml);
+        return PacketParserUtils.parseExtensionElement(getElementName(), getNamespace(), parser, outerXmlEnvironment);
+    }
+
+    @Override
+    public CharSequence toXML(XmlEnvironment xmlEnvironment) {
+        return rawXml;
+    }
+
+    @Override
+    public String toString() {
+        return rawXml;
+    }
+}
@@ -131,8 +131,8 @@ public final class Message extends MessageOrPresence<MessageBuilder>
             appendErrorIfExists(buf);
         }
 
-        // Add extension elements, if any are defined.
-        buf.append(getExtensions());
+        // Add extension elements, if any are defined. Lazy extension elements are serialized from their raw XML.
+        buf.append(getExtensionsForSerialization());
 
         buf.closeElement(ELEMENT);
         return buf;
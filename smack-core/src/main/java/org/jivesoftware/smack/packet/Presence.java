@@ -220,7 +220,8 @@ public final class Presence extends MessageOrPresence<PresenceBuilder>
             buf.attribute("type", type);
         }
 
-        List<XmlElement> extensions = getExtensions();
+        // Lazy extension elements are serialized from their raw XML, without parsing them.
+        List<XmlElement> extensions = getExtensionsForSerialization();
         if (status == null
                         && priority == null
                         && (mode == null || mode == Mode.available)
@@ -64,7 +64,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     protected static final String DEFAULT_LANGUAGE =
             java.util.Locale.getDefault().getLanguage().toLowerCase(Locale.US);
 
-    private final MultiMap<QName, XmlElement> extensionElements;
+    private final ExtensionElementContainer extensionElements;
 
     // Assume that all stanzas Smack handles are in the client namespace, since Smack is an XMPP client library. We can
     // change this behavior later if it is required.
@@ -90,7 +90,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     protected String language;
 
     protected Stanza() {
-        extensionElements = new MultiMap<>();
+        extensionElements = new ExtensionElementContainer();
         usedStanzaIdSource = null;
         id = StandardStanzaIdSource.DEFAULT.getNewStanzaId();
     }
@@ -115,7 +115,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
 
         language = stanzaBuilder.language;
 
-        extensionElements = stanzaBuilder.extensionElements.clone();
+        extensionElements = stanzaBuilder.extensionElements.copy();
     }
 
     protected Stanza(Stanza p) {
@@ -126,7 +126,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
         from = p.getFrom();
         error = p.error;
 
-        extensionElements = p.extensionElements.clone();
+        extensionElements = p.extensionElements.copy();
     }
 
     @Override
@@ -247,18 +247,40 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     @Override
     public final List<XmlElement> getExtensions() {
         synchronized (extensionElements) {
+            extensionElements.resolveAllLazy();
             // No need to create a new list, values() will already create a new one for us
             return extensionElements.values();
         }
     }
 
+    /**
+     * Get the extension elements for serialization. Unlike {@link #getExtensions()}, this does not resolve lazy
+     * extension elements, as those are serialized from their raw XML.
+     *
+     * @return a new list of the extension elements, which may include {@link LazyExtensionElement}s.
+     */
+    final List<XmlElement> getExtensionsForSerialization() {
+        synchronized (extensionElements) {
+            return extensionElements.values();
+        }
+    }
+
+    /**
+     * Get a copy of the extension elements keyed by their qualified name. Like {@link #getExtensions()}, this resolves
+     * all lazy extension elements first, hence the returned map never contains a {@link LazyExtensionElement}.
+     *
+     * @return a new multi map of the extension elements.
+     */
     public final MultiMap<QName, XmlElement> getExtensionsMap() {
-        return cloneExtensionsMap();
+        synchronized (extensionElements) {
+            extensionElements.resolveAllLazy();
+            return extensionElements.toMultiMap();
+        }
     }
 
-    final MultiMap<QName, XmlElement> cloneExtensionsMap() {
+    final ExtensionElementContainer copyExtensionElements() {
         synchronized (extensionElements) {
-            return extensionElements.clone();
+            return extensionElements.copy();
         }
     }
 
@@ -284,6 +306,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     public final List<XmlElement> getExtensions(QName qname) {
         List<XmlElement> res;
         synchronized (extensionElements) {
+            extensionElements.resolveLazy(qname);
             res = extensionElements.getAll(qname);
         }
         return Collections.unmodifiableList(res);
@@ -292,7 +315,8 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     @Override
     public final <E extends ExtensionElement> List<E> getExtensions(Class<E> extensionElementClass) {
         synchronized (extensionElements) {
-            return XmppElementUtil.getElementsFrom(extensionElements, extensionElementClass);
+            extensionElements.resolveLazy(XmppElementUtil.getQNameFor(extensionElementClass));
+            return extensionElements.getAll(extensionElementClass);
         }
     }
 
@@ -338,6 +362,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     @Override
     public final XmlElement getExtension(QName qname) {
         synchronized (extensionElements) {
+            extensionElements.resolveLazy(qname);
             return extensionElements.getFirst(qname);
         }
     }
@@ -414,6 +439,9 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
         }
         QName key = new QName(namespace, elementName);
         synchronized (extensionElements) {
+            // Resolve lazy extension elements first, so that this agrees with getExtension(), which drops the elements
+            // that fail to parse.
+            extensionElements.resolveLazy(key);
             return extensionElements.containsKey(key);
         }
     }
@@ -423,7 +451,17 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     public final boolean hasExtension(String namespace) {
         synchronized (extensionElements) {
             for (XmlElement packetExtension : extensionElements.values()) {
-                if (packetExtension.getNamespace().equals(namespace)) {
+                if (!packetExtension.getNamespace().equals(namespace)) {
+                    continue;
+                }
+                if (!(packetExtension instanceof LazyExtensionElement)) {
+                    return true;
+                }
+
+                // Resolve the lazy extension element, as it is dropped if it fails to parse.
+                QName qname = packetExtension.getQName();
+                extensionElements.resolveLazy(qname);
+                if (extensionElements.containsKey(qname)) {
                     return true;
                 }
             }
@@ -442,6 +480,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     public final XmlElement removeExtension(String elementName, String namespace) {
         QName key = new QName(namespace, elementName);
         synchronized (extensionElements) {
+            extensionElements.resolveLazy(key);
             return extensionElements.remove(key);
         }
     }
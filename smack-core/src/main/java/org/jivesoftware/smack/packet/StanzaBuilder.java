@@ -23,7 +23,6 @@ import javax.xml.namespace.QName;
 
 import org.jivesoftware.smack.packet.id.StanzaIdSource;
 import org.jivesoftware.smack.util.Function;
-import org.jivesoftware.smack.util.MultiMap;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.ToStringUtil;
 import org.jivesoftware.smack.util.XmppElementUtil;
@@ -44,7 +43,7 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
 
     String language;
 
-    MultiMap<QName, XmlElement> extensionElements = new MultiMap<>();
+    ExtensionElementContainer extensionElements = new ExtensionElementContainer();
 
     protected StanzaBuilder(StanzaBuilder<?> other) {
         stanzaIdSource = other.stanzaIdSource;
@@ -54,7 +53,7 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
         from = other.from;
         stanzaError = other.stanzaError;
         language = other.language;
-        extensionElements = other.extensionElements.clone();
+        extensionElements = other.extensionElements.copy();
     }
 
     protected StanzaBuilder(StanzaIdSource stanzaIdSource) {
@@ -83,7 +82,7 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
         stanzaError = stanza.getError();
         language = stanza.getLanguage();
 
-        extensionElements = stanza.cloneExtensionsMap();
+        extensionElements = stanza.copyExtensionElements();
     }
 
     /**
@@ -192,8 +191,7 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
 
     public final B removeExtension(ExtensionElement extension) {
         QName key = extension.getQName();
-        List<XmlElement> list = extensionElements.getAll(key);
-        list.remove(extension);
+        extensionElements.removeOne(key, extension);
         return getThis();
     }
 
@@ -228,22 +226,26 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
 
     @Override
     public final XmlElement getExtension(QName qname) {
+        extensionElements.resolveLazy(qname);
         return extensionElements.getFirst(qname);
     }
 
     @Override
     public final List<XmlElement> getExtensions() {
+        extensionElements.resolveAllLazy();
         return extensionElements.values();
     }
 
     @Override
     public final List<XmlElement> getExtensions(QName qname) {
+        extensionElements.resolveLazy(qname);
         return extensionElements.getAll(qname);
     }
 
     @Override
     public final <E extends ExtensionElement> List<E> getExtensions(Class<E> extensionElementClass) {
-        return XmppElementUtil.getElementsFrom(extensionElements, extensionElementClass);
+        extensionElements.resolveLazy(XmppElementUtil.getQNameFor(extensionElementClass));
+        return extensionElements.getAll(extensionElementClass);
     }
 
     public final boolean willBuildStanzaWithId() {
@@ -0,0 +1,95 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A registry of providers, keyed by the namespace and the element name of the XML element they are able to parse. As
+ * the registry is organized as a map of maps, looking up a provider does not require to construct a {@link QName}
+ * key, which makes the lookup in the parse path allocation-free.
+ *
+ * @param <P> the type of the providers.
+ */
+final class ProviderRegistry<P> {
+
+    // Namespace → element name → provider. There are usually only a few element names per namespace.
+    private final ConcurrentMap<String, Map<String, P>> providers = new ConcurrentHashMap<>();
+
+    P get(String elementName, String namespace) {
+        if (elementName == null) {
+            return null;
+        }
+        if (namespace == null) {
+            namespace = "";
+        }
+
+        Map<String, P> elementProviders = providers.get(namespace);
+        if (elementProviders == null) {
+            return null;
+        }
+        return elementProviders.get(elementName);
+    }
+
+    P get(QName qname) {
+        return get(qname.getLocalPart(), qname.getNamespaceURI());
+    }
+
+    P put(String elementName, String namespace, P provider) {
+        Map<String, P> elementProviders = providers.get(namespace);
+        if (elementProviders == null) {
+            elementProviders = new ConcurrentHashMap<>(4);
+            Map<String, P> previous = providers.putIfAbsent(namespace, elementProviders);
+            if (previous != null) {
+                elementProviders = previous;
+            }
+        }
+        return elementProviders.put(elementName, provider);
+    }
+
+    P put(QName qname, P provider) {
+        return put(qname.getLocalPart(), qname.getNamespaceURI(), provider);
+    }
+
+    P remove(String elementName, String namespace) {
+        Map<String, P> elementProviders = providers.get(namespace);
+        if (elementProviders == null) {
+            return null;
+        }
+        // Note that we do not remove the map of the namespace once it becomes empty, as this would race with put().
+        // The number of namespaces is bounded by the number of known providers anyway.
+        return elementProviders.remove(elementName);
+    }
+
+    P remove(QName qname) {
+        return remove(qname.getLocalPart(), qname.getNamespaceURI());
+    }
+
+    List<P> values() {
+        List<P> values = new ArrayList<>();
+        for (Map<String, P> elementProviders : providers.values()) {
+            values.addAll(elementProviders.values());
+        }
+        return values;
+    }
+}
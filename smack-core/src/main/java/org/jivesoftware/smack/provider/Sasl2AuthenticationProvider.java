@@ -0,0 +1,83 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+/**
+ * Provider for the SASL2 (XEP-0388) stream feature.
+ *
+ * @since 4.5
+ */
+public final class Sasl2AuthenticationProvider extends ExtensionElementProvider<ExtensionElement> {
+
+    public static final Sasl2AuthenticationProvider INSTANCE = new Sasl2AuthenticationProvider();
+
+    private Sasl2AuthenticationProvider() {
+    }
+
+    @Override
+    public Sasl2Nonza.Authentication parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+                    throws IOException, XmlPullParserException, SmackParsingException {
+        List<String> mechanisms = new ArrayList<>();
+        List<XmlElement> inlineFeatures = new ArrayList<>();
+        boolean inInline = false;
+        outerloop: while (true) {
+            XmlPullParser.TagEvent eventType = parser.nextTag();
+            switch (eventType) {
+            case START_ELEMENT:
+                String name = parser.getName();
+                if (parser.getDepth() == initialDepth + 1) {
+                    switch (name) {
+                    case "mechanism":
+                        mechanisms.add(parser.nextText());
+                        break;
+                    case "inline":
+                        inInline = true;
+                        break;
+                    default:
+                        inInline = false;
+                        break;
+                    }
+                } else if (inInline && parser.getDepth() == initialDepth + 2) {
+                    XmlElement inlineFeature = PacketParserUtils.parseExtensionElement(name, parser.getNamespace(),
+                                    parser, xmlEnvironment);
+                    inlineFeatures.add(inlineFeature);
+                }
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            }
+        }
+        return new Sasl2Nonza.Authentication(mechanisms, inlineFeatures);
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+public final class Sasl2SuccessProvider extends NonzaProvider<Sasl2Nonza.Success> {
+
+    public static final Sasl2SuccessProvider INSTANCE = new Sasl2SuccessProvider();
+
+    private Sasl2SuccessProvider() {
+    }
+
+    @Override
+    public Sasl2Nonza.Success parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+                    throws IOException, XmlPullParserException, SmackParsingException {
+        String additionalData = null;
+        String authorizationIdentifier = null;
+        List<XmlElement> extensions = new ArrayList<>();
+        outerloop: while (true) {
+            XmlPullParser.TagEvent eventType = parser.nextTag();
+            switch (eventType) {
+            case START_ELEMENT:
+                String name = parser.getName();
+                String namespace = parser.getNamespace();
+                if (Sasl2Nonza.NAMESPACE.equals(namespace) && name.equals("additional-data")) {
+                    additionalData = parser.nextText();
+                } else if (Sasl2Nonza.NAMESPACE.equals(namespace) && name.equals("authorization-identifier")) {
+                    authorizationIdentifier = parser.nextText();
+                } else {
+                    XmlElement extension = PacketParserUtils.parseExtensionElement(name, namespace, parser,
+                                    xmlEnvironment);
+                    extensions.add(extension);
+                }
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            }
+        }
+        return new Sasl2Nonza.Success(additionalData, authorizationIdentifier, extensions);
+    }
+
+}
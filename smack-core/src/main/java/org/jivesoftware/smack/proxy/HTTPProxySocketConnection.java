@@ -48,7 +48,9 @@ class HTTPProxySocketConnection implements ProxySocketConnection {
         String proxyhost = proxy.getProxyAddress();
         int proxyPort = proxy.getProxyPort();
         socket.connect(new InetSocketAddress(proxyhost, proxyPort));
-        String hostport = "CONNECT " + host + ":" + port;
+        // IPv6 address literals must be enclosed in square brackets, see RFC 3986 § 3.2.2.
+        String authority = host.indexOf(':') >= 0 ? "[" + host + "]:" + port : host + ":" + port;
+        String hostport = "CONNECT " + authority;
         String proxyLine;
         String username = proxy.getProxyUsername();
         if (username == null) {
@@ -59,7 +61,7 @@ class HTTPProxySocketConnection implements ProxySocketConnection {
             proxyLine = "\r\nProxy-Authorization: Basic " + Base64.encode(username + ":" + password);
         }
         socket.getOutputStream().write((hostport + " HTTP/1.1\r\nHost: "
-            + host + ":" + port + proxyLine + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            + authority + proxyLine + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
 
         InputStream in = socket.getInputStream();
         StringBuilder got = new StringBuilder(100);
@@ -27,8 +27,7 @@ import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.SmackException.SmackSaslException;
 import org.jivesoftware.smack.XMPPConnection;
-import org.jivesoftware.smack.sasl.packet.SaslNonza.AuthMechanism;
-import org.jivesoftware.smack.sasl.packet.SaslNonza.Response;
+import org.jivesoftware.smack.util.Objects;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base64;
 
@@ -105,6 +104,8 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
      */
     protected SSLSession sslSession;
 
+    private SaslNonzaFactory saslNonzaFactory = SaslNonzaFactory.RFC6120;
+
     /**
      * Builds and sends the <code>auth</code> stanza to the server. Note that this method of
      * authentication is not recommended, since it is very inflexible. Use
@@ -169,6 +170,16 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
         authenticate();
     }
 
+    /**
+     * Set the factory used to create the nonzas of the SASL exchange. Defaults to {@link SaslNonzaFactory#RFC6120}.
+     *
+     * @param saslNonzaFactory the SASL nonza factory.
+     * @since 4.5
+     */
+    public final void setSaslNonzaFactory(SaslNonzaFactory saslNonzaFactory) {
+        this.saslNonzaFactory = Objects.requireNonNull(saslNonzaFactory, "The SASL nonza factory must not be null");
+    }
+
     protected void authenticateInternal() throws SmackSaslException {
     }
 
@@ -213,7 +224,7 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
             authenticationText = "=";
         }
         // Send the authentication to the server
-        connection.sendNonza(new AuthMechanism(getName(), authenticationText));
+        connection.sendNonza(saslNonzaFactory.createAuthenticationNonza(getName(), authenticationText));
     }
 
     /**
@@ -243,16 +254,13 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
             return;
         }
 
-        Response responseStanza;
-        if (response == null) {
-            responseStanza = new Response();
-        }
-        else {
-            responseStanza = new Response(Base64.encodeToString(response));
+        String responseText = null;
+        if (response != null) {
+            responseText = Base64.encodeToString(response);
         }
 
         // Send the authentication to the server
-        connection.sendNonza(responseStanza);
+        connection.sendNonza(saslNonzaFactory.createResponseNonza(responseText));
     }
 
     /**
@@ -315,6 +323,17 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
         return true;
     }
 
+    /**
+     * Check if this mechanism authenticates with a token issued by the service, instead of the user's password. Such
+     * mechanisms are only selected when authenticating with a token, as otherwise the password would be used as token.
+     *
+     * @return <code>true</code> if this mechanism authenticates with a token.
+     * @since 4.5
+     */
+    public boolean isTokenBased() {
+        return false;
+    }
+
     public boolean isAuthenticationSuccessful() {
         return authenticationSuccessful;
     }
@@ -0,0 +1,65 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl;
+
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.sasl.packet.SaslNonza;
+
+/**
+ * Creates the nonzas send by a {@link SASLMechanism} during the SASL exchange. This allows the same SASL mechanism
+ * implementations to be used with different SASL profiles, like the one of RFC 6120 and Extensible SASL Profile
+ * (XEP-0388).
+ *
+ * @since 4.5
+ */
+public interface SaslNonzaFactory {
+
+    /**
+     * The SASL profile as specified in RFC 6120 § 6.
+     */
+    SaslNonzaFactory RFC6120 = new SaslNonzaFactory() {
+        @Override
+        public Nonza createAuthenticationNonza(String mechanism, String initialResponse) {
+            return new SaslNonza.AuthMechanism(mechanism, initialResponse);
+        }
+
+        @Override
+        public Nonza createResponseNonza(String response) {
+            if (response == null) {
+                return new SaslNonza.Response();
+            }
+            return new SaslNonza.Response(response);
+        }
+    };
+
+    /**
+     * Create the nonza initiating the SASL exchange.
+     *
+     * @param mechanism the name of the SASL mechanism.
+     * @param initialResponse the Base64 encoded initial response, or "=" if the initial response is empty.
+     * @return the nonza initiating the SASL exchange.
+     */
+    Nonza createAuthenticationNonza(String mechanism, String initialResponse);
+
+    /**
+     * Create the nonza responding to a challenge of the server.
+     *
+     * @param response the Base64 encoded response, or <code>null</code>.
+     * @return the nonza responding to the challenge.
+     */
+    Nonza createResponseNonza(String response);
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.core;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+
+import javax.security.auth.callback.CallbackHandler;
+
+import org.jivesoftware.smack.SmackException.SmackSaslException;
+import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.util.ByteUtils;
+import org.jivesoftware.smack.util.MAC;
+
+/**
+ * The HT-SHA-256-NONE SASL mechanism, used to authenticate with a token obtained via Fast Authentication
+ * Streamlining Tokens (XEP-0484). The password given to this mechanism is used as token. Since the token is a high
+ * entropy secret, this mechanism requires only a single HMAC computation instead of an expensive key derivation like
+ * SCRAM's.
+ *
+ * @see <a href="https://xmpp.org/extensions/xep-0484.html">XEP-0484: Fast Authentication Streamlining Tokens</a>
+ * @since 4.5
+ */
+public class HtSha256NoneMechanism extends SASLMechanism {
+
+    public static final String NAME = "HT-SHA-256-NONE";
+
+    private static final byte[] INITIATOR = toBytes("Initiator");
+
+    private static final byte[] RESPONDER = toBytes("Responder");
+
+    private boolean serverVerified;
+
+    @Override
+    protected void authenticateInternal(CallbackHandler cbh) {
+        throw new UnsupportedOperationException("CallbackHandler not supported");
+    }
+
+    @Override
+    protected byte[] getAuthenticationText() throws SmackSaslException {
+        // initial-response := authcid NUL HMAC(token, "Initiator" || cb-data), where cb-data is empty for 'NONE'.
+        byte[] initiatorHashedToken = hmac(INITIATOR);
+        return ByteUtils.concat(toBytes(authenticationId + '\u0000'), initiatorHashedToken);
+    }
+
+    @Override
+    protected byte[] evaluateChallenge(byte[] challenge) throws SmackSaslException {
+        // The only data the service sends is the additional data with success, which proves that the service knows
+        // the token too.
+        byte[] responderHashedToken = hmac(RESPONDER);
+        if (!MessageDigest.isEqual(responderHashedToken, challenge)) {
+            throw new SmackSaslException("Service failed to prove the possession of the token");
+        }
+        serverVerified = true;
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getPriority() {
+        return 1000;
+    }
+
+    @Override
+    public boolean isTokenBased() {
+        return true;
+    }
+
+    @Override
+    protected HtSha256NoneMechanism newInstance() {
+        return new HtSha256NoneMechanism();
+    }
+
+    @Override
+    protected void checkIfSuccessfulOrThrow() throws SmackSaslException {
+        if (!serverVerified) {
+            throw new SmackSaslException(NAME + " is missing valid server response");
+        }
+    }
+
+    private byte[] hmac(byte[] input) throws SmackSaslException {
+        try {
+            return MAC.hmacsha256(toBytes(password), input);
+        } catch (InvalidKeyException e) {
+            throw new SmackSaslException(NAME + " Exception", e);
+        }
+    }
+}
@@ -18,6 +18,8 @@ package org.jivesoftware.smack.sasl.core;
 
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,13 +31,11 @@ import javax.security.auth.callback.CallbackHandler;
 import org.jivesoftware.smack.SmackException.SmackSaslException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
 import org.jivesoftware.smack.util.ByteUtils;
+import org.jivesoftware.smack.util.ConcurrentLruCache;
 import org.jivesoftware.smack.util.SHA1;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base64;
 
-import org.jxmpp.util.cache.Cache;
-import org.jxmpp.util.cache.LruCache;
-
 public abstract class ScramMechanism extends SASLMechanism {
 
     private static final int RANDOM_ASCII_BYTE_COUNT = 32;
@@ -50,7 +50,50 @@ public abstract class ScramMechanism extends SASLMechanism {
         }
     };
 
-    private static final Cache<String, Keys> CACHE = new LruCache<String, Keys>(10);
+    public static final int DEFAULT_KEY_CACHE_SIZE = 10;
+
+    private static final ConcurrentLruCache<String, Keys> CACHE = new ConcurrentLruCache<>(DEFAULT_KEY_CACHE_SIZE);
+
+    private static volatile boolean keyCacheEnabled = true;
+
+    /**
+     * Set the maximum number of derived SCRAM keys which are cached. Deriving the keys requires an expensive key
+     * derivation function with typically thousands of iterations, which is avoided on re-authentication if the
+     * service announces the same salt and iteration count again. Applications handling many accounts, for example
+     * gateways, may want to increase the cache size. A size of zero disables the cache.
+     * <p>
+     * The cache is not keyed by the plaintext password, but by a digest over the password, the authentication
+     * identity, the salt, the iteration count and the mechanism. Note however that the cached keys are sufficient to
+     * authenticate against the service that issued the salt, and hence should be considered as sensitive as the
+     * password.
+     * </p>
+     *
+     * @param keyCacheSize the maximum number of cached keys.
+     * @since 4.5
+     */
+    public static void setKeyCacheSize(int keyCacheSize) {
+        if (keyCacheSize < 0) {
+            throw new IllegalArgumentException("The key cache size must not be negative");
+        }
+
+        if (keyCacheSize == 0) {
+            keyCacheEnabled = false;
+            CACHE.clear();
+            return;
+        }
+
+        CACHE.setMaxCacheSize(keyCacheSize);
+        keyCacheEnabled = true;
+    }
+
+    /**
+     * Remove all cached SCRAM keys.
+     *
+     * @since 4.5
+     */
+    public static void clearKeyCache() {
+        CACHE.clear();
+    }
 
     private final ScramHmac scramHmac;
 
@@ -168,9 +211,9 @@ public abstract class ScramMechanism extends SASLMechanism {
             // as it is likely that the server is going to advertise the same salt value upon reauthentication."
             // Note that we also mangle the mechanism's name into the cache key, since the cache is used by multiple
             // mechanisms.
-            final String cacheKey = password + ',' + salt + ',' + getName();
+            final String cacheKey = keyCacheEnabled ? cacheKey(salt, iterations) : null;
             byte[] serverKey, clientKey;
-            Keys keys = CACHE.lookup(cacheKey);
+            Keys keys = cacheKey != null ? CACHE.lookup(cacheKey) : null;
             if (keys == null) {
                 // SaltedPassword := Hi(Normalize(password), salt, i)
                 byte[] saltedPassword = hi(saslPrep(password), Base64.decode(salt), iterations);
@@ -181,8 +224,10 @@ public abstract class ScramMechanism extends SASLMechanism {
                 // ClientKey := HMAC(SaltedPassword, "Client Key")
                 clientKey = hmac(saltedPassword, CLIENT_KEY_BYTES);
 
-                keys = new Keys(clientKey, serverKey);
-                CACHE.put(cacheKey, keys);
+                if (cacheKey != null) {
+                    keys = new Keys(clientKey, serverKey);
+                    CACHE.put(cacheKey, keys);
+                }
             }
             else {
                 serverKey = keys.serverKey;
@@ -220,6 +265,35 @@ public abstract class ScramMechanism extends SASLMechanism {
         return null;
     }
 
+    /**
+     * Compute the key for the SCRAM keys cache. The key is a digest, so that the cache does not retain the plaintext
+     * password.
+     *
+     * @param salt the Base64 encoded salt.
+     * @param iterations the iteration count.
+     * @return the cache key.
+     */
+    private String cacheKey(String salt, int iterations) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        final byte[] separator = new byte[] { 0 };
+        sha256.update(toBytes(getName()));
+        sha256.update(separator);
+        sha256.update(toBytes(authenticationId));
+        sha256.update(separator);
+        sha256.update(toBytes(salt));
+        sha256.update(separator);
+        sha256.update(toBytes(Integer.toString(iterations)));
+        sha256.update(separator);
+        sha256.update(toBytes(password));
+        return Base64.encodeToString(sha256.digest());
+    }
+
     private String getGS2Header() {
         String authzidPortion = "";
         if (authorizationId != null) {
@@ -0,0 +1,379 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.packet;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.util.XmppElementUtil;
+
+/**
+ * Nonzas of the Extensible SASL Profile (XEP-0388), also known as SASL2.
+ *
+ * @see <a href="https://xmpp.org/extensions/xep-0388.html">XEP-0388: Extensible SASL Profile</a>
+ * @since 4.5
+ */
+public interface Sasl2Nonza extends Nonza {
+    String NAMESPACE = "urn:xmpp:sasl:2";
+
+    @Override
+    default String getNamespace() {
+        return NAMESPACE;
+    }
+
+    /**
+     * The SASL2 stream feature, announcing the available SASL mechanisms and the features which can be negotiated
+     * inline, i.e., as part of the authentication exchange.
+     */
+    final class Authentication implements ExtensionElement {
+        public static final String ELEMENT = "authentication";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final List<String> mechanisms;
+
+        private final List<XmlElement> inlineFeatures;
+
+        public Authentication(List<String> mechanisms, List<XmlElement> inlineFeatures) {
+            this.mechanisms = Collections.unmodifiableList(mechanisms);
+            this.inlineFeatures = Collections.unmodifiableList(inlineFeatures);
+        }
+
+        public List<String> getMechanisms() {
+            return mechanisms;
+        }
+
+        public List<XmlElement> getInlineFeatures() {
+            return inlineFeatures;
+        }
+
+        public <F extends XmlElement> F getInlineFeature(Class<F> inlineFeatureClass) {
+            QName qname = XmppElementUtil.getQNameFor(inlineFeatureClass);
+            for (XmlElement inlineFeature : inlineFeatures) {
+                if (inlineFeature.getQName().equals(qname)) {
+                    return inlineFeatureClass.cast(inlineFeature);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.rightAngleBracket();
+            for (String mechanism : mechanisms) {
+                xml.element("mechanism", mechanism);
+            }
+            if (!inlineFeatures.isEmpty()) {
+                xml.openElement("inline");
+                xml.append(inlineFeatures);
+                xml.closeElement("inline");
+            }
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * The user agent information send as part of the {@link Authenticate} nonza.
+     */
+    final class UserAgent implements XmlElement {
+        public static final String ELEMENT = "user-agent";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String id;
+        private final String software;
+        private final String device;
+
+        public UserAgent(String id, String software, String device) {
+            this.id = id;
+            this.software = software;
+            this.device = device;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getSoftware() {
+            return software;
+        }
+
+        public String getDevice() {
+            return device;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.optAttribute("id", id);
+            if (software == null && device == null) {
+                return xml.closeEmptyElement();
+            }
+            xml.rightAngleBracket();
+            xml.optElement("software", software);
+            xml.optElement("device", device);
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * Initiating SASL2 authentication by selecting a mechanism, optionally including the requests of inline features.
+     */
+    final class Authenticate implements Sasl2Nonza {
+        public static final String ELEMENT = "authenticate";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String mechanism;
+        private final String initialResponse;
+        private final UserAgent userAgent;
+        private final List<XmlElement> inlineRequests;
+
+        public Authenticate(String mechanism, String initialResponse, UserAgent userAgent,
+                        List<XmlElement> inlineRequests) {
+            this.mechanism = Objects.requireNonNull(mechanism, "SASL mechanism shouldn't be null.");
+            this.initialResponse = StringUtils.returnIfNotEmptyTrimmed(initialResponse);
+            this.userAgent = userAgent;
+            this.inlineRequests = Collections.unmodifiableList(inlineRequests);
+        }
+
+        public String getMechanism() {
+            return mechanism;
+        }
+
+        public String getInitialResponse() {
+            return initialResponse;
+        }
+
+        public UserAgent getUserAgent() {
+            return userAgent;
+        }
+
+        public List<XmlElement> getInlineRequests() {
+            return inlineRequests;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.attribute("mechanism", mechanism).rightAngleBracket();
+            xml.optElement("initial-response", initialResponse);
+            xml.optAppend(userAgent);
+            xml.append(inlineRequests);
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * A SASL2 challenge stream element.
+     */
+    final class Challenge implements Sasl2Nonza {
+        public static final String ELEMENT = "challenge";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String data;
+
+        public Challenge(String data) {
+            this.data = StringUtils.returnIfNotEmptyTrimmed(data);
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.optTextChild(data, this);
+            return xml;
+        }
+    }
+
+    /**
+     * A SASL2 response stream element.
+     */
+    final class Response implements Sasl2Nonza {
+        public static final String ELEMENT = "response";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String data;
+
+        public Response(String data) {
+            this.data = StringUtils.returnIfNotEmptyTrimmed(data);
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.optTextChild(data, this);
+            return xml;
+        }
+    }
+
+    /**
+     * A SASL2 success stream element. Besides the optional additional data for the SASL layer, it contains the
+     * authorization identifier, which is the full JID if a resource was bound inline, and the responses of the inline
+     * features.
+     */
+    final class Success implements Sasl2Nonza {
+        public static final String ELEMENT = "success";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String additionalData;
+        private final String authorizationIdentifier;
+        private final List<XmlElement> extensions;
+
+        public Success(String additionalData, String authorizationIdentifier, List<XmlElement> extensions) {
+            this.additionalData = StringUtils.returnIfNotEmptyTrimmed(additionalData);
+            this.authorizationIdentifier = StringUtils.requireNotNullNorEmpty(authorizationIdentifier,
+                            "The authorization identifier must be set");
+            this.extensions = Collections.unmodifiableList(extensions);
+        }
+
+        /**
+         * Returns additional data for the SASL layer or <code>null</code>.
+         *
+         * @return additional data or <code>null</code>
+         */
+        public String getAdditionalData() {
+            return additionalData;
+        }
+
+        public String getAuthorizationIdentifier() {
+            return authorizationIdentifier;
+        }
+
+        public List<XmlElement> getExtensions() {
+            return extensions;
+        }
+
+        public <E extends XmlElement> E getExtension(Class<E> extensionClass) {
+            QName qname = XmppElementUtil.getQNameFor(extensionClass);
+            for (XmlElement extension : extensions) {
+                if (extension.getQName().equals(qname)) {
+                    return extensionClass.cast(extension);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.rightAngleBracket();
+            xml.optElement("additional-data", additionalData);
+            xml.element("authorization-identifier", authorizationIdentifier);
+            xml.append(extensions);
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+
+    /**
+     * A SASL2 failure stream element. The failure condition is qualified by the namespace of RFC 6120 SASL.
+     */
+    final class Failure implements Sasl2Nonza {
+        public static final String ELEMENT = "failure";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final SaslNonza.SASLFailure saslFailure;
+
+        public Failure(String condition, Map<String, String> descriptiveTexts) {
+            saslFailure = new SaslNonza.SASLFailure(condition, descriptiveTexts);
+        }
+
+        /**
+         * Get the SASL failure, which can be used to create a {@link org.jivesoftware.smack.sasl.SASLErrorException}.
+         *
+         * @return the SASL failure.
+         */
+        public SaslNonza.SASLFailure getSaslFailure() {
+            return saslFailure;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.rightAngleBracket();
+            xml.halfOpenElement(saslFailure.getSASLErrorString()).xmlnsAttribute(SaslNonza.NAMESPACE)
+                .closeEmptyElement();
+            xml.optElement("text", saslFailure.getDescriptiveText());
+            xml.closeElement(this);
+            return xml;
+        }
+    }
+}
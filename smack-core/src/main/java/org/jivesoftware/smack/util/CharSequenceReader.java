@@ -0,0 +1,103 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.io.Reader;
+
+/**
+ * A {@link Reader} reading from a {@link CharSequence} without copying it into a {@link String} first. The character
+ * sequence must not be modified while it is read.
+ *
+ * @since 4.5
+ */
+public final class CharSequenceReader extends Reader {
+
+    private final CharSequence charSequence;
+
+    private final int length;
+
+    private int position;
+
+    private int mark;
+
+    public CharSequenceReader(CharSequence charSequence) {
+        this.charSequence = Objects.requireNonNull(charSequence);
+        this.length = charSequence.length();
+    }
+
+    @Override
+    public int read() {
+        if (position >= length) {
+            return -1;
+        }
+        return charSequence.charAt(position++);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+
+        int count = Math.min(len, length - position);
+        if (charSequence instanceof String) {
+            ((String) charSequence).getChars(position, position + count, cbuf, off);
+        } else if (charSequence instanceof StringBuilder) {
+            ((StringBuilder) charSequence).getChars(position, position + count, cbuf, off);
+        } else {
+            for (int i = 0; i < count; i++) {
+                cbuf[off + i] = charSequence.charAt(position + i);
+            }
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.min(Math.max(n, 0), length - position);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() {
+        return true;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        mark = position;
+    }
+
+    @Override
+    public void reset() {
+        position = mark;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jxmpp.util.cache.Cache;
+
+/**
+ * A bounded cache which can be used concurrently without a global lock. Lookups are lock-free, and only the eviction
+ * of entries, once the cache exceeds its maximum size, is performed by a single thread at a time.
+ * <p>
+ * The cache approximates a least recently used (LRU) eviction policy by using the second-chance (CLOCK) algorithm:
+ * Entries are queued in insertion order, and an entry which was looked up since it was last considered for eviction
+ * is given a second chance instead of being evicted. As a consequence, the cache may briefly hold more entries than
+ * its maximum size while concurrent insertions are taking place.
+ * </p>
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ */
+public class ConcurrentLruCache<K, V> implements Cache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<>();
+
+    private final Queue<Entry<K, V>> evictionQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The size of {@link #evictionQueue}, which includes stale entries of removed mappings.
+     */
+    private final AtomicInteger evictionQueueSize = new AtomicInteger();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private volatile int maxCacheSize;
+
+    public ConcurrentLruCache(int maxCacheSize) {
+        if (maxCacheSize < 1) {
+            throw new IllegalArgumentException("maxCacheSize must be at least 1");
+        }
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(value, "value must not be null");
+
+        while (true) {
+            Entry<K, V> entry = map.get(key);
+            if (entry == null) {
+                entry = new Entry<>(key, value);
+                Entry<K, V> previousEntry = map.putIfAbsent(key, entry);
+                if (previousEntry == null) {
+                    evictionQueue.add(entry);
+                    evictionQueueSize.incrementAndGet();
+
+                    evictIfRequired();
+
+                    return null;
+                }
+                entry = previousEntry;
+            }
+
+            V previous = entry.value;
+            entry.value = value;
+            entry.referenced = true;
+
+            // The entry could have been evicted or removed concurrently, before the new value was set. In this case,
+            // the new value would be lost, hence retry.
+            if (map.get(key) == entry) {
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public V lookup(K key) {
+        Entry<K, V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        // Avoid the volatile write if the entry is already marked as referenced.
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    public V remove(K key) {
+        Entry<K, V> entry = map.remove(key);
+        if (entry == null) {
+            return null;
+        }
+
+        // The entry stays in the eviction queue and will be discarded as stale. Trigger a cleanup in case the queue
+        // grew too large because of removed entries.
+        evictIfRequired();
+
+        return entry.value;
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            // Clear the eviction queue before the map: an entry which is concurrently put into the map after it was
+            // cleared is added to the eviction queue only afterwards, and hence remains subject to eviction.
+            while (evictionQueue.poll() != null) {
+                evictionQueueSize.decrementAndGet();
+            }
+            map.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    @Override
+    public void setMaxCacheSize(int maxCacheSize) {
+        if (maxCacheSize < 1) {
+            throw new IllegalArgumentException("maxCacheSize must be at least 1");
+        }
+        this.maxCacheSize = maxCacheSize;
+        evictIfRequired();
+    }
+
+    private boolean evictionRequired() {
+        int maxCacheSize = this.maxCacheSize;
+        // Stale entries of removed mappings are only discarded when they reach the head of the eviction queue. Bound
+        // the queue so that those do not accumulate.
+        return map.size() > maxCacheSize || evictionQueueSize.get() > 2 * maxCacheSize;
+    }
+
+    private void evictIfRequired() {
+        if (!evictionRequired()) {
+            return;
+        }
+
+        // If another thread is already evicting, then there is no need for us to wait for it.
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            while (evictionRequired()) {
+                Entry<K, V> entry = evictionQueue.poll();
+                if (entry == null) {
+                    break;
+                }
+                evictionQueueSize.decrementAndGet();
+
+                if (map.get(entry.key) != entry) {
+                    // The mapping of this entry was removed or replaced.
+                    continue;
+                }
+
+                if (map.size() > maxCacheSize && !entry.referenced) {
+                    map.remove(entry.key, entry);
+                    continue;
+                }
+
+                // Give the entry a second chance.
+                entry.referenced = false;
+                evictionQueue.add(entry);
+                evictionQueueSize.incrementAndGet();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private volatile V value;
+        private volatile boolean referenced;
+
+        private Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -33,7 +33,30 @@ public class LazyStringBuilder implements Appendable, CharSequence {
     }
 
     public LazyStringBuilder() {
-        list = new ArrayList<>(20);
+        this(20);
+    }
+
+    LazyStringBuilder(int initialCapacity) {
+        list = new ArrayList<>(initialCapacity);
+    }
+
+    /**
+     * Single character Strings of the ASCII range. Builders of XML append a lot of single characters like '&lt;', '&gt;'
+     * and '\'', which hence do not require the allocation of a new String.
+     */
+    private static final String[] ASCII_STRINGS = new String[128];
+
+    static {
+        for (int i = 0; i < ASCII_STRINGS.length; i++) {
+            ASCII_STRINGS[i] = String.valueOf((char) i);
+        }
+    }
+
+    static String charToString(char c) {
+        if (c < ASCII_STRINGS.length) {
+            return ASCII_STRINGS[c];
+        }
+        return Character.toString(c);
     }
 
     public LazyStringBuilder append(LazyStringBuilder lsb) {
@@ -60,7 +83,7 @@ public class LazyStringBuilder implements Appendable, CharSequence {
 
     @Override
     public LazyStringBuilder append(char c) {
-        list.add(Character.toString(c));
+        list.add(charToString(c));
         invalidateCache();
         return this;
     }
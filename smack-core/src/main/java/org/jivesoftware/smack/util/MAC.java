@@ -26,11 +26,16 @@ public class MAC {
 
     public static final String HMACSHA1 = "HmacSHA1";
 
+    public static final String HMACSHA256 = "HmacSHA256";
+
     private static Mac HMAC_SHA1;
 
+    private static Mac HMAC_SHA256;
+
     static {
         try {
             HMAC_SHA1 = Mac.getInstance(HMACSHA1);
+            HMAC_SHA256 = Mac.getInstance(HMACSHA256);
         }
         catch (NoSuchAlgorithmException e) {
             // Smack won't be able to function normally if this exception is thrown, wrap it into
@@ -50,5 +55,15 @@ public class MAC {
         return hmacsha1(key, input);
     }
 
+    public static synchronized byte[] hmacsha256(SecretKeySpec key, byte[] input) throws InvalidKeyException {
+        HMAC_SHA256.init(key);
+        return HMAC_SHA256.doFinal(input);
+    }
+
+    public static byte[] hmacsha256(byte[] keyBytes, byte[] input) throws InvalidKeyException {
+        SecretKeySpec key = new SecretKeySpec(keyBytes, HMACSHA256);
+        return hmacsha256(key, input);
+    }
+
 
 }
@@ -30,12 +30,16 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.SmackConfiguration;
 import org.jivesoftware.smack.compress.packet.Compress;
 import org.jivesoftware.smack.packet.EmptyResultIQ;
 import org.jivesoftware.smack.packet.ErrorIQ;
 import org.jivesoftware.smack.packet.ExtensionElement;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.IqData;
+import org.jivesoftware.smack.packet.LazyExtensionElement;
 import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.packet.MessageBuilder;
 import org.jivesoftware.smack.packet.Presence;
@@ -183,7 +187,7 @@ public class PacketParserUtils {
                     message.setError(parseError(parser, messageXmlEnvironment));
                     break;
                  default:
-                     XmlElement extensionElement = parseExtensionElement(elementName, namespace, parser, messageXmlEnvironment);
+                     XmlElement extensionElement = parseStanzaExtensionElement(elementName, namespace, parser, messageXmlEnvironment);
                     message.addExtension(extensionElement);
                     break;
                 }
@@ -474,7 +478,7 @@ public class PacketParserUtils {
                     // Be extra robust: Skip PacketExtensions that cause Exceptions, instead of
                     // failing completely here. See SMACK-390 for more information.
                     try {
-                        XmlElement extensionElement = parseExtensionElement(elementName, namespace, parser, presenceXmlEnvironment);
+                        XmlElement extensionElement = parseStanzaExtensionElement(elementName, namespace, parser, presenceXmlEnvironment);
                         presence.addExtension(extensionElement);
                     } catch (Exception e) {
                         LOGGER.log(Level.WARNING, "Failed to parse extension element in Presence stanza: " + presence, e);
@@ -845,6 +849,38 @@ public class PacketParserUtils {
         return StandardExtensionElementProvider.INSTANCE.parse(parser, outerXmlEnvironment);
     }
 
+    /**
+     * Parses an extension element lazily. That is, the extension element is retained as raw XML and only parsed by its
+     * provider once it is accessed.
+     *
+     * @param elementName the XML element name of the extension element.
+     * @param namespace the XML namespace of the stanza extension.
+     * @param parser the XML parser, positioned at the starting element of the extension.
+     * @param outerXmlEnvironment the outer XML environment (optional).
+     *
+     * @return a lazy extension element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     * @see SmackConfiguration#setLazyExtensionElementParsing(boolean)
+     * @since 4.5
+     */
+    public static LazyExtensionElement parseLazyExtensionElement(String elementName, String namespace,
+                    XmlPullParser parser, XmlEnvironment outerXmlEnvironment) throws XmlPullParserException, IOException {
+        ParserUtils.assertAtStartTag(parser);
+        QName qname = new QName(namespace, elementName);
+        // Include the namespaces of nested elements, so that the raw XML can be parsed standalone later on.
+        String rawXml = parseElement(parser, true).toString();
+        return new LazyExtensionElement(qname, rawXml, outerXmlEnvironment);
+    }
+
+    private static XmlElement parseStanzaExtensionElement(String elementName, String namespace, XmlPullParser parser,
+                    XmlEnvironment outerXmlEnvironment) throws XmlPullParserException, IOException, SmackParsingException {
+        if (SmackConfiguration.isLazyExtensionElementParsingEnabled()) {
+            return parseLazyExtensionElement(elementName, namespace, parser, outerXmlEnvironment);
+        }
+        return parseExtensionElement(elementName, namespace, parser, outerXmlEnvironment);
+    }
+
     public static StartTls parseStartTlsFeature(XmlPullParser parser)
                     throws XmlPullParserException, IOException {
         ParserUtils.assertAtStartTag(parser);
@@ -101,6 +101,10 @@ public class StringUtils {
     /**
      * Escapes all necessary characters in the CharSequence so that it can be used
      * in an XML doc.
+     * <p>
+     * The input is first scanned for a character which needs to be escaped. As most inputs do not contain any such
+     * character, the input is returned unchanged in this case, without allocating a new buffer.
+     * </p>
      *
      * @param input the CharSequence to escape.
      * @return the string with appropriate characters escaped.
@@ -110,104 +114,117 @@ public class StringUtils {
             return null;
         }
         final int len = input.length();
-        final StringBuilder out = new StringBuilder((int) (len * 1.3));
-        CharSequence toAppend;
-        char ch;
-        int last = 0;
+
+        String toAppend = null;
         int i = 0;
-        while (i < len) {
-            toAppend = null;
-            ch = input.charAt(i);
-            switch (xmlEscapeMode) {
-            case safe:
-                switch (ch) {
-                case '<':
-                    toAppend = LT_ENCODE;
-                    break;
-                case '>':
-                    toAppend = GT_ENCODE;
-                    break;
-                case '&':
-                    toAppend = AMP_ENCODE;
-                    break;
-                case '"':
-                    toAppend = QUOTE_ENCODE;
-                    break;
-                case '\'':
-                    toAppend = APOS_ENCODE;
-                    break;
-                default:
-                    break;
-                }
-                break;
-            case forAttribute:
-                // No need to escape '>' for attributes.
-                switch (ch) {
-                case '<':
-                    toAppend = LT_ENCODE;
-                    break;
-                case '&':
-                    toAppend = AMP_ENCODE;
-                    break;
-                case '"':
-                    toAppend = QUOTE_ENCODE;
-                    break;
-                case '\'':
-                    toAppend = APOS_ENCODE;
-                    break;
-                default:
-                    break;
-                }
-                break;
-            case forAttributeApos:
-                // No need to escape '>' and '"' for attributes using '\'' as quote.
-                switch (ch) {
-                case '<':
-                    toAppend = LT_ENCODE;
-                    break;
-                case '&':
-                    toAppend = AMP_ENCODE;
-                    break;
-                case '\'':
-                    toAppend = APOS_ENCODE;
-                    break;
-                default:
-                    break;
-                }
-                break;
-            case forText:
-                // No need to escape '"', '\'', and '>' for text.
-                switch (ch) {
-                case '<':
-                    toAppend = LT_ENCODE;
-                    break;
-                case '&':
-                    toAppend = AMP_ENCODE;
-                    break;
-                default:
-                    break;
-                }
-                break;
-            }
+        for (; i < len; i++) {
+            toAppend = escapeForXml(input.charAt(i), xmlEscapeMode);
             if (toAppend != null) {
-                if (i > last) {
-                    out.append(input, last, i);
-                }
-                out.append(toAppend);
-                last = ++i;
-            } else {
-                i++;
+                break;
             }
         }
-        if (last == 0) {
+        if (toAppend == null) {
+            // Fast path: Nothing to escape.
             return input;
         }
-        if (i > last) {
-            out.append(input, last, i);
+
+        // Every escape sequence adds at least three characters.
+        final StringBuilder out = new StringBuilder(len + 12);
+        out.append(input, 0, i).append(toAppend);
+        int last = ++i;
+        for (; i < len; i++) {
+            toAppend = escapeForXml(input.charAt(i), xmlEscapeMode);
+            if (toAppend == null) {
+                continue;
+            }
+            if (i > last) {
+                out.append(input, last, i);
+            }
+            out.append(toAppend);
+            last = i + 1;
+        }
+        if (len > last) {
+            out.append(input, last, len);
         }
         return out;
     }
 
+    private static String escapeForXml(final char ch, final XmlEscapeMode xmlEscapeMode) {
+        String toAppend = null;
+        switch (xmlEscapeMode) {
+        case safe:
+            switch (ch) {
+            case '<':
+                toAppend = LT_ENCODE;
+                break;
+            case '>':
+                toAppend = GT_ENCODE;
+                break;
+            case '&':
+                toAppend = AMP_ENCODE;
+                break;
+            case '"':
+                toAppend = QUOTE_ENCODE;
+                break;
+            case '\'':
+                toAppend = APOS_ENCODE;
+                break;
+            default:
+                break;
+            }
+            break;
+        case forAttribute:
+            // No need to escape '>' for attributes.
+            switch (ch) {
+            case '<':
+                toAppend = LT_ENCODE;
+                break;
+            case '&':
+                toAppend = AMP_ENCODE;
+                break;
+            case '"':
+                toAppend = QUOTE_ENCODE;
+                break;
+            case '\'':
+                toAppend = APOS_ENCODE;
+                break;
+            default:
+                break;
+            }
+            break;
+        case forAttributeApos:
+            // No need to escape '>' and '"' for attributes using '\'' as quote.
+            switch (ch) {
+            case '<':
+                toAppend = LT_ENCODE;
+                break;
+            case '&':
+                toAppend = AMP_ENCODE;
+                break;
+            case '\'':
+                toAppend = APOS_ENCODE;
+                break;
+            default:
+                break;
+            }
+            break;
+        case forText:
+            // No need to escape '"', '\'', and '>' for text.
+            switch (ch) {
+            case '<':
+                toAppend = LT_ENCODE;
+                break;
+            case '&':
+                toAppend = AMP_ENCODE;
+                break;
+            default:
+                break;
+            }
+            break;
+        }
+        return toAppend;
+    }
+
     /**
      * Hashes a String using the SHA-1 algorithm and returns the result as a
      * String of hexadecimal numbers. This method is synchronized to avoid
@@ -16,6 +16,7 @@
  */
 package org.jivesoftware.smack.util;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -57,9 +58,37 @@ public class XmlStringBuilder implements Appendable, CharSequence, Element {
         this(element.getElementName(), element.getNamespace(), element.getLanguage(), enclosingXmlEnvironment);
     }
 
-    @SuppressWarnings("this-escape")
     public XmlStringBuilder(String elementName, String xmlNs, String xmlLang, XmlEnvironment enclosingXmlEnvironment) {
-        sb = new LazyStringBuilder();
+        this(new LazyStringBuilder(), elementName, xmlNs, xmlLang, enclosingXmlEnvironment);
+    }
+
+    /**
+     * Construct a new builder which does not accumulate the XML, but instead streams it directly to the given target.
+     * This avoids building the list of chunks a builder usually holds, and the final copy of all chunks into a single
+     * String, e.g. when the XML is written to a {@link Writer}.
+     * <p>
+     * The returned builder can not be used as {@link CharSequence}, i.e., {@link #length()} and friends will throw an
+     * {@link UnsupportedOperationException}. As the methods of this builder can not throw an {@link IOException}, an
+     * I/O error on the target will be recorded and all subsequent output will be discarded. Use {@link #flush()} to
+     * check for such errors, once the XML was build. Note that only the output of this builder is streamed. Nested
+     * elements added via {@link #append(Element)} are still serialized by their own {@code toXML()}, before their
+     * chunks are streamed to the target.
+     * </p>
+     *
+     * @param target the target to stream the XML to.
+     * @param element the root element of the XML.
+     * @param enclosingXmlEnvironment the enclosing XML environment, may be <code>null</code>.
+     * @since 4.5
+     */
+    public XmlStringBuilder(Appendable target, XmlElement element, XmlEnvironment enclosingXmlEnvironment) {
+        this(new DirectSink(target, enclosingXmlEnvironment), element.getElementName(), element.getNamespace(),
+                        element.getLanguage(), enclosingXmlEnvironment);
+    }
+
+    @SuppressWarnings("this-escape")
+    private XmlStringBuilder(LazyStringBuilder sb, String elementName, String xmlNs, String xmlLang,
+                    XmlEnvironment enclosingXmlEnvironment) {
+        this.sb = sb;
         halfOpenElement(elementName);
 
         if (enclosingXmlEnvironment == null) {
@@ -687,6 +716,127 @@ public class XmlStringBuilder implements Appendable, CharSequence, Element {
         return toString().hashCode();
     }
 
+    /**
+     * Check if the XML was streamed successfully, and flush the target if it is {@link Flushable}. This is a no-op if
+     * this builder does not stream to a target.
+     *
+     * @throws IOException if an I/O error occurred while streaming the XML to the target.
+     * @since 4.5
+     * @see #XmlStringBuilder(Appendable, XmlElement, XmlEnvironment)
+     */
+    public void flush() throws IOException {
+        if (!(sb instanceof DirectSink)) {
+            return;
+        }
+        DirectSink directSink = (DirectSink) sb;
+        if (directSink.ioException != null) {
+            throw directSink.ioException;
+        }
+        if (directSink.target instanceof Flushable) {
+            ((Flushable) directSink.target).flush();
+        }
+    }
+
+    /**
+     * A sink, which, instead of collecting the chunks, directly appends them to a target. The {@link XmlNsAttribute}s
+     * are handled like {@link #appendXmlTo(Consumer, XmlEnvironment)} does.
+     */
+    private static final class DirectSink extends LazyStringBuilder {
+
+        private final Appendable target;
+
+        private XmlEnvironment xmlEnvironment;
+
+        private IOException ioException;
+
+        private DirectSink(Appendable target, XmlEnvironment enclosingXmlEnvironment) {
+            super(0);
+            this.target = Objects.requireNonNull(target);
+            if (enclosingXmlEnvironment == null) {
+                enclosingXmlEnvironment = XmlEnvironment.EMPTY;
+            }
+            this.xmlEnvironment = enclosingXmlEnvironment;
+        }
+
+        private void write(CharSequence csq) {
+            if (ioException != null) {
+                return;
+            }
+            try {
+                target.append(csq);
+            } catch (IOException e) {
+                ioException = e;
+            }
+        }
+
+        @Override
+        public DirectSink append(LazyStringBuilder lsb) {
+            for (CharSequence csq : lsb.getAsList()) {
+                append(csq);
+            }
+            return this;
+        }
+
+        @Override
+        public DirectSink append(CharSequence csq) {
+            if (csq instanceof XmlStringBuilder) {
+                XmlStringBuilder xmlStringBuilder = (XmlStringBuilder) csq;
+                xmlStringBuilder.appendXmlTo(this::write, xmlEnvironment);
+            } else if (csq instanceof XmlNsAttribute) {
+                XmlNsAttribute xmlNsAttribute = (XmlNsAttribute) csq;
+                if (!xmlNsAttribute.value.equals(xmlEnvironment.getEffectiveNamespace())) {
+                    write(xmlNsAttribute);
+                    xmlEnvironment = new XmlEnvironment(xmlNsAttribute.value);
+                }
+            } else {
+                write(csq);
+            }
+            return this;
+        }
+
+        @Override
+        public DirectSink append(CharSequence csq, int start, int end) {
+            write(csq.subSequence(start, end));
+            return this;
+        }
+
+        @Override
+        public DirectSink append(char c) {
+            write(charToString(c));
+            return this;
+        }
+
+        @Override
+        public int length() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public char charAt(int index) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return "XmlStringBuilder streaming to " + target;
+        }
+
+        @Override
+        public StringBuilder safeToStringBuilder() {
+            return new StringBuilder(toString());
+        }
+
+        @Override
+        public List<CharSequence> getAsList() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private static final class WrappedIoException extends RuntimeException {
 
         private static final long serialVersionUID = 1L;
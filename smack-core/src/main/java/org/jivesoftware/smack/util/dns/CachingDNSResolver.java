@@ -0,0 +1,467 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util.dns;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
+import org.jivesoftware.smack.util.Async;
+import org.jivesoftware.smack.util.ConcurrentLruCache;
+import org.jivesoftware.smack.util.DNSUtil;
+import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.Supplier;
+import org.jivesoftware.smack.util.ToStringUtil;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
+
+import org.minidns.dnsname.DnsName;
+import org.minidns.record.SRV;
+
+/**
+ * A DNS resolver which caches the results of another DNS resolver, honoring the time to live (TTL) of the results.
+ * <p>
+ * Every connection attempt performs SRV and A/AAAA lookups. If many connections to the same XMPP service are
+ * established, for example when they reconnect after a network outage, then caching the lookup results avoids
+ * repeated queries and the latency associated with them. This resolver can decorate every other {@link DNSResolver}:
+ * </p>
+ * <pre>{@code
+ * // After the DNS resolver was set up, e.g. by MiniDnsResolver.setup()
+ * CachingDNSResolver.setup();
+ * }</pre>
+ * <p>
+ * The TTL of a result is used if the decorated resolver reports it, otherwise the {@link #setDefaultTtl(long, TimeUnit)
+ * default TTL} is used. TTLs are limited to the {@link #setMaxTtl(long, TimeUnit) maximum TTL}. Failed lookups are
+ * cached for the {@link #setNegativeTtl(long, TimeUnit) negative TTL}. Once a successful result expired, it is still
+ * served for the {@link #setStaleWhileRevalidate(long, TimeUnit) stale-while-revalidate} period, while it is refreshed
+ * in the background. Concurrent lookups of the same name which are not answered from the cache are coalesced into a
+ * single lookup.
+ * </p>
+ *
+ * @since 4.5
+ */
+public class CachingDNSResolver extends DNSResolver {
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    public static final long DEFAULT_MAX_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    public static final long DEFAULT_STALE_WHILE_REVALIDATE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    public static final int DEFAULT_MAX_CACHE_SIZE = 512;
+
+    private final DNSResolver resolver;
+
+    private final Supplier<Long> clock;
+
+    private final ConcurrentLruCache<Key, Entry<?>> cache;
+
+    private final ConcurrentHashMap<Key, FutureTask<Entry<?>>> inFlightLookups = new ConcurrentHashMap<>();
+
+    private volatile long defaultTtlMillis = DEFAULT_TTL_MILLIS;
+
+    private volatile long maxTtlMillis = DEFAULT_MAX_TTL_MILLIS;
+
+    private volatile long negativeTtlMillis = DEFAULT_NEGATIVE_TTL_MILLIS;
+
+    private volatile long staleWhileRevalidateMillis = DEFAULT_STALE_WHILE_REVALIDATE_MILLIS;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalescedLookups = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+
+    public CachingDNSResolver(DNSResolver resolver) {
+        this(resolver, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public CachingDNSResolver(DNSResolver resolver, int maxCacheSize) {
+        this(resolver, maxCacheSize, () -> System.currentTimeMillis());
+    }
+
+    CachingDNSResolver(DNSResolver resolver, int maxCacheSize, Supplier<Long> clock) {
+        super(Objects.requireNonNull(resolver, "The DNS resolver to cache must not be null").supportsDnssec());
+        if (resolver instanceof CachingDNSResolver) {
+            throw new IllegalArgumentException("The DNS resolver is already caching");
+        }
+        this.resolver = resolver;
+        this.cache = new ConcurrentLruCache<>(maxCacheSize);
+        this.clock = clock;
+    }
+
+    /**
+     * Decorate the currently configured DNS resolver with a caching DNS resolver. Does nothing if the currently
+     * configured resolver is already caching.
+     *
+     * @return the caching DNS resolver now used by Smack.
+     * @throws IllegalStateException if no DNS resolver is configured.
+     */
+    public static CachingDNSResolver setup() {
+        DNSResolver current = DNSUtil.getDNSResolver();
+        if (current == null) {
+            throw new IllegalStateException("No DNS resolver configured in Smack");
+        }
+        if (current instanceof CachingDNSResolver) {
+            return (CachingDNSResolver) current;
+        }
+        CachingDNSResolver cachingDnsResolver = new CachingDNSResolver(current);
+        DNSUtil.setDNSResolver(cachingDnsResolver);
+        return cachingDnsResolver;
+    }
+
+    public DNSResolver getDecoratedResolver() {
+        return resolver;
+    }
+
+    /**
+     * Set the TTL used for successful results whose TTL is not reported by the decorated resolver.
+     *
+     * @param ttl the default TTL.
+     * @param unit the time unit of the TTL.
+     */
+    public void setDefaultTtl(long ttl, TimeUnit unit) {
+        defaultTtlMillis = toMillis(ttl, unit);
+    }
+
+    /**
+     * Set the maximum TTL. Results are never cached for longer than this, regardless of their TTL.
+     *
+     * @param ttl the maximum TTL.
+     * @param unit the time unit of the TTL.
+     */
+    public void setMaxTtl(long ttl, TimeUnit unit) {
+        maxTtlMillis = toMillis(ttl, unit);
+    }
+
+    /**
+     * Set the TTL of failed lookups. A value of zero disables negative caching.
+     *
+     * @param ttl the TTL of failed lookups.
+     * @param unit the time unit of the TTL.
+     */
+    public void setNegativeTtl(long ttl, TimeUnit unit) {
+        negativeTtlMillis = toMillis(ttl, unit);
+    }
+
+    /**
+     * Set the period for which an expired successful result is still served, while it is refreshed in the background.
+     * A value of zero disables serving stale results.
+     *
+     * @param period the stale-while-revalidate period.
+     * @param unit the time unit of the period.
+     */
+    public void setStaleWhileRevalidate(long period, TimeUnit unit) {
+        staleWhileRevalidateMillis = toMillis(period, unit);
+    }
+
+    public void setMaxCacheSize(int maxCacheSize) {
+        cache.setMaxCacheSize(maxCacheSize);
+    }
+
+    /**
+     * Remove all cached results.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    protected Collection<SRV> lookupSrvRecords0(DnsName name, List<RemoteConnectionEndpointLookupFailure> lookupFailures,
+                    DnssecMode dnssecMode) {
+        return lookup(new Key(RecordType.SRV, name, dnssecMode), lookupFailures,
+                        failures -> resolver.lookupSrvRecordsWithTtl0(name, failures, dnssecMode));
+    }
+
+    @Override
+    protected TtlResult<Collection<SRV>> lookupSrvRecordsWithTtl0(DnsName name,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+        return new TtlResult<>(lookupSrvRecords0(name, lookupFailures, dnssecMode), TtlResult.UNKNOWN_TTL);
+    }
+
+    @Override
+    protected List<InetAddress> lookupHostAddress0(DnsName name, List<RemoteConnectionEndpointLookupFailure> lookupFailures,
+                    DnssecMode dnssecMode) {
+        return lookup(new Key(RecordType.HOST_ADDRESS, name, dnssecMode), lookupFailures,
+                        failures -> resolver.lookupHostAddressWithTtl0(name, failures, dnssecMode));
+    }
+
+    @Override
+    protected TtlResult<List<InetAddress>> lookupHostAddressWithTtl0(DnsName name,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+        return new TtlResult<>(lookupHostAddress0(name, lookupFailures, dnssecMode), TtlResult.UNKNOWN_TTL);
+    }
+
+    private interface Lookup<T> {
+        TtlResult<T> lookup(List<RemoteConnectionEndpointLookupFailure> lookupFailures);
+    }
+
+    private <T> T lookup(Key key, List<RemoteConnectionEndpointLookupFailure> lookupFailures, Lookup<T> lookup) {
+        final long now = clock.get();
+
+        @SuppressWarnings("unchecked")
+        Entry<T> entry = (Entry<T>) cache.lookup(key);
+        if (entry != null) {
+            if (now < entry.expiresAt) {
+                if (entry.result == null) {
+                    negativeHits.incrementAndGet();
+                } else {
+                    hits.incrementAndGet();
+                }
+                return entry.resultFor(lookupFailures);
+            }
+
+            if (now < entry.staleUntil) {
+                staleHits.incrementAndGet();
+                if (entry.refreshing.compareAndSet(false, true)) {
+                    backgroundRefreshes.incrementAndGet();
+                    FutureTask<Entry<?>> task = startLookup(key, lookup);
+                    if (task != null) {
+                        Async.go(task, "DNS cache refresh of " + key.name);
+                    }
+                }
+                return entry.resultFor(lookupFailures);
+            }
+        }
+
+        misses.incrementAndGet();
+
+        FutureTask<Entry<?>> task = startLookup(key, lookup);
+        if (task != null) {
+            // We are the thread which registered the lookup, hence perform it in this thread.
+            task.run();
+        } else {
+            coalescedLookups.incrementAndGet();
+            task = inFlightLookups.get(key);
+            if (task == null) {
+                // The concurrent lookup finished in the meantime, retry.
+                return lookup(key, lookupFailures, lookup);
+            }
+        }
+
+        Entry<?> lookedUpEntry;
+        try {
+            lookedUpEntry = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lookupFailures.add(new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(key.name, e));
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AssertionError(cause);
+        }
+
+        @SuppressWarnings("unchecked")
+        Entry<T> typedEntry = (Entry<T>) lookedUpEntry;
+        return typedEntry.resultFor(lookupFailures);
+    }
+
+    /**
+     * Register a lookup task for the given key. Returns <code>null</code> if there is already a lookup in flight for
+     * the key, otherwise the caller is responsible for running the returned task.
+     */
+    private <T> FutureTask<Entry<?>> startLookup(Key key, Lookup<T> lookup) {
+        FutureTask<Entry<?>> task = new FutureTask<>(() -> {
+            try {
+                List<RemoteConnectionEndpointLookupFailure> failures = new ArrayList<>(2);
+                TtlResult<T> ttlResult = lookup.lookup(failures);
+                Entry<T> newEntry = newEntry(ttlResult, failures);
+                if (newEntry.result == null) {
+                    // Keep serving a stale result if refreshing it failed.
+                    Entry<?> existingEntry = cache.lookup(key);
+                    if (existingEntry != null && existingEntry.result != null
+                                    && newEntry.createdAt < existingEntry.staleUntil) {
+                        return existingEntry;
+                    }
+                }
+                if (newEntry.expiresAt > newEntry.createdAt) {
+                    cache.put(key, newEntry);
+                } else {
+                    cache.remove(key);
+                }
+                return newEntry;
+            } finally {
+                inFlightLookups.remove(key);
+            }
+        });
+
+        if (inFlightLookups.putIfAbsent(key, task) != null) {
+            return null;
+        }
+        return task;
+    }
+
+    private <T> Entry<T> newEntry(TtlResult<T> ttlResult, List<RemoteConnectionEndpointLookupFailure> failures) {
+        final long now = clock.get();
+        T result = ttlResult.getResult();
+
+        long ttlMillis;
+        long staleMillis;
+        if (result == null) {
+            ttlMillis = negativeTtlMillis;
+            staleMillis = 0;
+        } else {
+            long ttlSeconds = ttlResult.getTtlSeconds();
+            if (ttlSeconds < 0) {
+                ttlMillis = defaultTtlMillis;
+            } else {
+                ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+            }
+            ttlMillis = Math.min(ttlMillis, maxTtlMillis);
+            staleMillis = staleWhileRevalidateMillis;
+        }
+
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            LOGGER.finest("Caching DNS lookup result " + result + " for " + ttlMillis + "ms");
+        }
+
+        return new Entry<>(result, failures, now, now + ttlMillis, now + ttlMillis + staleMillis);
+    }
+
+    private static long toMillis(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        return unit.toMillis(duration);
+    }
+
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    private enum RecordType {
+        SRV,
+        HOST_ADDRESS,
+    }
+
+    private static final class Key {
+        private final RecordType recordType;
+        private final DnsName name;
+        private final DnssecMode dnssecMode;
+        private final int hashCode;
+
+        private Key(RecordType recordType, DnsName name, DnssecMode dnssecMode) {
+            this.recordType = recordType;
+            this.name = name;
+            this.dnssecMode = dnssecMode;
+            this.hashCode = ((recordType.hashCode() * 31) + name.hashCode()) * 31 + dnssecMode.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            return recordType == otherKey.recordType && dnssecMode == otherKey.dnssecMode && name.equals(otherKey.name);
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T result;
+        private final List<RemoteConnectionEndpointLookupFailure> lookupFailures;
+        private final long createdAt;
+        private final long expiresAt;
+        private final long staleUntil;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(T result, List<RemoteConnectionEndpointLookupFailure> lookupFailures, long createdAt,
+                        long expiresAt, long staleUntil) {
+            this.result = result;
+            if (lookupFailures.isEmpty()) {
+                this.lookupFailures = Collections.emptyList();
+            } else {
+                this.lookupFailures = Collections.unmodifiableList(lookupFailures);
+            }
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+
+        private T resultFor(List<RemoteConnectionEndpointLookupFailure> lookupFailures) {
+            lookupFailures.addAll(this.lookupFailures);
+            return result;
+        }
+    }
+
+    public static final class Stats {
+        public final long hits;
+        public final long negativeHits;
+        public final long staleHits;
+        public final long misses;
+        public final long coalescedLookups;
+        public final long backgroundRefreshes;
+        public final int cacheSize;
+
+        private Stats(CachingDNSResolver resolver) {
+            hits = resolver.hits.get();
+            negativeHits = resolver.negativeHits.get();
+            staleHits = resolver.staleHits.get();
+            misses = resolver.misses.get();
+            coalescedLookups = resolver.coalescedLookups.get();
+            backgroundRefreshes = resolver.backgroundRefreshes.get();
+            cacheSize = resolver.cache.size();
+        }
+
+        private transient String toStringCache;
+
+        @Override
+        public String toString() {
+            if (toStringCache != null) {
+                return toStringCache;
+            }
+
+            toStringCache = ToStringUtil.builderFor(Stats.class)
+                .addValue("hits", hits)
+                .addValue("negativeHits", negativeHits)
+                .addValue("staleHits", staleHits)
+                .addValue("misses", misses)
+                .addValue("coalescedLookups", coalescedLookups)
+                .addValue("backgroundRefreshes", backgroundRefreshes)
+                .addValue("cacheSize", cacheSize)
+                .build();
+
+            return toStringCache;
+        }
+    }
+}
@@ -18,13 +18,20 @@ package org.jivesoftware.smack.util.dns;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
+import org.jivesoftware.smack.util.Async;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
 
 import org.minidns.dnsname.DnsName;
@@ -38,12 +45,37 @@ public abstract class DNSResolver {
 
     protected static final Logger LOGGER = Logger.getLogger(DNSResolver.class.getName());
 
+    private static final int MAX_LOOKUP_THREADS = 4;
+
+    /**
+     * The executor performing parallel DNS lookups. It uses at most {@value #MAX_LOOKUP_THREADS} threads, which are
+     * shared by all resolvers. If all of them are busy, then the lookup is performed in the submitting thread. This
+     * bounds the number of threads, e.g. during a reconnection storm, and avoids deadlocks caused by lookups that
+     * wait for lookups they submitted themselves.
+     */
+    private static final ThreadPoolExecutor LOOKUP_EXECUTOR = new ThreadPoolExecutor(0, MAX_LOOKUP_THREADS, 30,
+                    TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), runnable -> {
+                        Thread thread = Async.daemonThreadFrom(runnable);
+                        thread.setName("Smack DNS Lookup");
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+
     private final boolean supportsDnssec;
 
     protected DNSResolver(boolean supportsDnssec) {
         this.supportsDnssec = supportsDnssec;
     }
 
+    /**
+     * Check if this resolver supports DNSSEC.
+     *
+     * @return <code>true</code> if this resolver supports DNSSEC.
+     * @since 4.5
+     */
+    public final boolean supportsDnssec() {
+        return supportsDnssec;
+    }
+
     /**
      * Gets a list of service records for the specified service.
      *
@@ -61,12 +93,99 @@ public abstract class DNSResolver {
     protected abstract Collection<SRV> lookupSrvRecords0(DnsName name,
                     List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode);
 
+    /**
+     * Like {@link #lookupSrvRecords0(DnsName, List, DnssecMode)}, but additionally reports the time to live of the
+     * result. The default implementation reports an unknown time to live. Concrete DNS resolver implementations which
+     * have access to the TTL of the resource records should override this.
+     *
+     * @param name The symbolic name of the service.
+     * @param lookupFailures list of exceptions that occurred during lookup.
+     * @param dnssecMode security mode.
+     * @return the SRV records, which may be <code>null</code>, together with their time to live.
+     * @since 4.5
+     */
+    protected TtlResult<Collection<SRV>> lookupSrvRecordsWithTtl0(DnsName name,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+        return new TtlResult<>(lookupSrvRecords0(name, lookupFailures, dnssecMode), TtlResult.UNKNOWN_TTL);
+    }
+
     public final List<InetAddress> lookupHostAddress(DnsName name,
                     List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
         checkIfDnssecRequestedAndSupported(dnssecMode);
         return lookupHostAddress0(name, lookupFailures, dnssecMode);
     }
 
+    /**
+     * Lookup the IP addresses of multiple host names in parallel. The returned list contains the result of
+     * {@link #lookupHostAddress(DnsName, List, DnssecMode)} for every given name, in the same order as the names.
+     * Lookup failures are added to <code>lookupFailures</code> in the order of the names, too.
+     *
+     * @param names the DNS names to lookup.
+     * @param lookupFailures list of exceptions that occurred during lookup.
+     * @param dnssecMode security mode.
+     * @return a list of results, where every result is either <code>null</code>, empty or non-empty.
+     * @since 4.5
+     */
+    public final List<List<InetAddress>> lookupHostAddresses(List<DnsName> names,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+        checkIfDnssecRequestedAndSupported(dnssecMode);
+
+        final int nameCount = names.size();
+        List<List<InetAddress>> results = new ArrayList<>(nameCount);
+        if (nameCount == 0) {
+            return results;
+        }
+
+        List<FutureTask<List<InetAddress>>> tasks = new ArrayList<>(nameCount - 1);
+        List<List<RemoteConnectionEndpointLookupFailure>> taskLookupFailures = new ArrayList<>(nameCount - 1);
+        // Perform the first lookup in the calling thread, all other lookups are performed in parallel.
+        for (DnsName name : names.subList(1, nameCount)) {
+            List<RemoteConnectionEndpointLookupFailure> failures = new ArrayList<>(2);
+            FutureTask<List<InetAddress>> task = new FutureTask<>(() -> lookupHostAddress0(name, failures, dnssecMode));
+            executeLookup(task);
+            tasks.add(task);
+            taskLookupFailures.add(failures);
+        }
+
+        results.add(lookupHostAddress0(names.get(0), lookupFailures, dnssecMode));
+
+        for (int i = 0; i < tasks.size(); i++) {
+            DnsName name = names.get(i + 1);
+            List<InetAddress> result;
+            try {
+                result = tasks.get(i).get();
+                lookupFailures.addAll(taskLookupFailures.get(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lookupFailures.add(new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(name, e));
+                result = null;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new AssertionError(cause);
+            }
+            results.add(result);
+        }
+
+        return results;
+    }
+
+    /**
+     * Execute the given DNS lookup in parallel to the calling thread, if one of the shared lookup threads is
+     * available. Otherwise the lookup is performed in the calling thread before this method returns.
+     *
+     * @param lookup the DNS lookup, typically a {@link FutureTask}.
+     * @since 4.5
+     */
+    protected static void executeLookup(Runnable lookup) {
+        LOOKUP_EXECUTOR.execute(lookup);
+    }
+
     /**
      * Lookup the IP addresses of a given host name. Returns <code>null</code> if there was an error, in which the error
      * reason will be added in form of a <code>HostAddress</code> to <code>failedAddresses</code>. Returns a empty list
@@ -99,6 +218,22 @@ public abstract class DNSResolver {
         return Arrays.asList(inetAddressArray);
     }
 
+    /**
+     * Like {@link #lookupHostAddress0(DnsName, List, DnssecMode)}, but additionally reports the time to live of the
+     * result. The default implementation reports an unknown time to live. Concrete DNS resolver implementations which
+     * have access to the TTL of the resource records should override this.
+     *
+     * @param name the DNS name to lookup
+     * @param lookupFailures list of exceptions that occurred during lookup.
+     * @param dnssecMode the selected DNSSEC mode
+     * @return the host addresses, which may be <code>null</code>, together with their time to live.
+     * @since 4.5
+     */
+    protected TtlResult<List<InetAddress>> lookupHostAddressWithTtl0(DnsName name,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+        return new TtlResult<>(lookupHostAddress0(name, lookupFailures, dnssecMode), TtlResult.UNKNOWN_TTL);
+    }
+
     protected static boolean shouldContinue(CharSequence name, CharSequence hostname, List<InetAddress> hostAddresses) {
         if (hostAddresses == null) {
             return true;
@@ -120,4 +255,43 @@ public abstract class DNSResolver {
             throw new UnsupportedOperationException("This resolver does not support DNSSEC");
         }
     }
+
+    /**
+     * The result of a DNS lookup together with its time to live.
+     *
+     * @param <T> the type of the result.
+     * @since 4.5
+     */
+    public static final class TtlResult<T> {
+        /**
+         * Signals that the time to live of the result is not known.
+         */
+        public static final long UNKNOWN_TTL = -1;
+
+        private final T result;
+        private final long ttlSeconds;
+
+        public TtlResult(T result, long ttlSeconds) {
+            this.result = result;
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        /**
+         * Get the result of the lookup, which may be <code>null</code> if the lookup failed.
+         *
+         * @return the result or <code>null</code>.
+         */
+        public T getResult() {
+            return result;
+        }
+
+        /**
+         * Get the time to live of the result in seconds, or {@link #UNKNOWN_TTL}.
+         *
+         * @return the time to live in seconds.
+         */
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+    }
 }
@@ -47,6 +47,21 @@ public interface RemoteConnectionEndpoint {
             inetSocketAddress = new InetSocketAddress(inetAddress, port.intValue());
         }
 
+        /**
+         * Create a coupling of the given endpoint with its unresolved host and port, e.g. for connections via a proxy
+         * which resolves the host itself.
+         *
+         * @param connectionEndpoint the remote connection endpoint.
+         * @since 4.5
+         */
+        public InetSocketAddressCoupling(RCE connectionEndpoint) {
+            this.connectionEndpoint = connectionEndpoint;
+
+            UInt16 port = connectionEndpoint.getPort();
+            inetSocketAddress = InetSocketAddress.createUnresolved(connectionEndpoint.getHost().toString(),
+                            port.intValue());
+        }
+
         public RCE getRemoteConnectionEndpoint() {
             return connectionEndpoint;
         }
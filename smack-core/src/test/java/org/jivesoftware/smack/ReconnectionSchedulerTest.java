@@ -0,0 +1,120 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+public class ReconnectionSchedulerTest {
+
+    @Test
+    public void concurrencyIsLimitedAndQueuedAttemptsAreOrderedByPriorityTest() throws InterruptedException {
+        ReconnectionScheduler scheduler = new ReconnectionScheduler(1);
+
+        CountDownLatch blockingAttemptStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlockingAttempt = new CountDownLatch(1);
+        TestAttempt blockingAttempt = new TestAttempt(0, () -> {
+            blockingAttemptStarted.countDown();
+            try {
+                releaseBlockingAttempt.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+        scheduler.schedule(blockingAttempt, 0);
+        assertTrue(blockingAttemptStarted.await(5, TimeUnit.SECONDS));
+
+        List<Integer> performedPriorities = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrentAttempts = new AtomicInteger();
+        AtomicInteger maxConcurrentAttempts = new AtomicInteger();
+        CountDownLatch queuedAttemptsPerformed = new CountDownLatch(3);
+        for (int priority : new int[] {1, 10, 5}) {
+            TestAttempt attempt = new TestAttempt(priority, () -> {
+                int concurrent = concurrentAttempts.incrementAndGet();
+                maxConcurrentAttempts.accumulateAndGet(concurrent, Math::max);
+                performedPriorities.add(priority);
+                concurrentAttempts.decrementAndGet();
+                queuedAttemptsPerformed.countDown();
+            });
+            scheduler.schedule(attempt, 0);
+        }
+
+        waitFor(() -> scheduler.getQueuedAttemptCount() == 3);
+        assertEquals(1, scheduler.getRunningAttemptCount());
+
+        releaseBlockingAttempt.countDown();
+        assertTrue(queuedAttemptsPerformed.await(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(10, 5, 1), performedPriorities);
+        assertEquals(1, maxConcurrentAttempts.get());
+    }
+
+    @Test
+    public void cancelledAttemptIsNotPerformedTest() throws InterruptedException {
+        ReconnectionScheduler scheduler = new ReconnectionScheduler(1);
+
+        AtomicInteger performed = new AtomicInteger();
+        TestAttempt attempt = new TestAttempt(0, performed::incrementAndGet);
+        scheduler.schedule(attempt, 200);
+        assertTrue(scheduler.cancel(attempt));
+        assertFalse(scheduler.cancel(attempt));
+
+        Thread.sleep(400);
+        assertEquals(0, performed.get());
+        assertEquals(0, scheduler.getQueuedAttemptCount());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class TestAttempt extends ReconnectionScheduler.Attempt {
+        private final int priority;
+        private final Runnable runnable;
+
+        private TestAttempt(int priority, Runnable runnable) {
+            this.priority = priority;
+            this.runnable = runnable;
+        }
+
+        @Override
+        protected int getPriority() {
+            return priority;
+        }
+
+        @Override
+        protected void perform() {
+            runnable.run();
+        }
+    }
+}
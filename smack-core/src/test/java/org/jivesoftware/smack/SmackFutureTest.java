@@ -16,13 +16,21 @@
  */
 package org.jivesoftware.smack;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jivesoftware.smack.SmackFuture.InternalProcessStanzaSmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
 import org.jivesoftware.smack.SmackFuture.SimpleInternalProcessStanzaSmackFuture;
 import org.jivesoftware.smack.packet.Stanza;
 
@@ -54,4 +62,131 @@ public class SmackFutureTest {
 
         future.get(5, TimeUnit.SECONDS);
     }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecatedFieldsAreInSyncTest() {
+        InternalSmackFuture<String, Exception> future = new InternalSmackFuture<>();
+        future.setResult("result");
+        assertEquals("result", future.result);
+        assertNull(future.exception);
+
+        InternalSmackFuture<String, Exception> failedFuture = new InternalSmackFuture<>();
+        Exception exception = new Exception("Test Exception");
+        failedFuture.setException(exception);
+        assertSame(exception, failedFuture.exception);
+        assertNull(failedFuture.result);
+    }
+
+    @Test
+    public void mapSmackFutureTest() throws InterruptedException, ExecutionException {
+        InternalSmackFuture<String, Exception> future = new InternalSmackFuture<>();
+        SmackFuture<Integer, Exception> mappedFuture = future.map(s -> s.length());
+
+        future.setResult("smack");
+
+        assertEquals(Integer.valueOf(5), mappedFuture.get());
+    }
+
+    @Test
+    public void flatMapSmackFuturePropagatesExceptionTest() throws InterruptedException {
+        InternalSmackFuture<String, Exception> future = new InternalSmackFuture<>();
+        InternalSmackFuture<Integer, Exception> nextFuture = new InternalSmackFuture<>();
+        SmackFuture<Integer, Exception> chainedFuture = future.flatMap(s -> nextFuture);
+
+        future.setResult("smack");
+        Exception exception = new Exception();
+        nextFuture.setException(exception);
+
+        try {
+            chainedFuture.get();
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+            return;
+        }
+        throw new AssertionError("Expected ExecutionException");
+    }
+
+    @Test
+    public void combineAndAllOfSmackFutureTest() throws InterruptedException, ExecutionException {
+        InternalSmackFuture<Integer, Exception> first = new InternalSmackFuture<>();
+        InternalSmackFuture<Integer, Exception> second = new InternalSmackFuture<>();
+        SmackFuture<Integer, Exception> combinedFuture = first.combine(second, (a, b) -> a + b);
+        SmackFuture<List<Integer>, Exception> allOfFuture = SmackFuture.allOf(Arrays.asList(first, second));
+
+        second.setResult(2);
+        first.setResult(1);
+
+        assertEquals(Integer.valueOf(3), combinedFuture.get());
+        assertEquals(Arrays.asList(1, 2), allOfFuture.get());
+    }
+
+    @Test
+    public void cancellationIsPropagatedTest() {
+        InternalSmackFuture<String, Exception> future = new InternalSmackFuture<>();
+        SmackFuture<Integer, Exception> mappedFuture = future.map(s -> s.length());
+
+        assertTrue(future.cancel(false));
+
+        assertTrue(mappedFuture.isCancelled());
+    }
+
+    @Test
+    public void timedOutWaitersAreUnlinkedTest() throws InterruptedException, ExecutionException {
+        InternalSmackFuture<Boolean, Exception> future = new InternalSmackFuture<>();
+        AtomicInteger completionCallbackInvocations = new AtomicInteger();
+        future.onCompletion(f -> completionCallbackInvocations.incrementAndGet());
+
+        for (int i = 0; i < 1000; i++) {
+            try {
+                future.get(1, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Expected.
+            }
+        }
+
+        // Only the completion callback remains, the waiters of the timed out get() invocations are gone.
+        assertEquals(1, future.getCompletionCount());
+
+        future.setResult(true);
+        assertTrue(future.get());
+        assertEquals(1, completionCallbackInvocations.get());
+    }
+
+    @Test
+    public void allWaitersAreWokenTest() throws InterruptedException {
+        InternalSmackFuture<Boolean, Exception> future = new InternalSmackFuture<>();
+        int waiterCount = 8;
+        CountDownLatch waitersDone = new CountDownLatch(waiterCount);
+        for (int i = 0; i < waiterCount; i++) {
+            Thread waiter = new Thread(() -> {
+                try {
+                    future.get();
+                    waitersDone.countDown();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            waiter.setDaemon(true);
+            waiter.start();
+        }
+
+        future.setResult(true);
+
+        assertTrue(waitersDone.await(5, TimeUnit.SECONDS));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void deprecatedMaybeInvokeCallbacksTest() throws InterruptedException, ExecutionException {
+        SmackFuture<Boolean, Exception> future = new SmackFuture<Boolean, Exception>() {
+            {
+                result = true;
+                maybeInvokeCallbacks();
+            }
+        };
+
+        assertTrue(future.isDone());
+        assertTrue(future.get());
+    }
 }
@@ -0,0 +1,138 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.junit.jupiter.api.Test;
+
+public class StanzaPublisherTest {
+
+    @Test
+    public void stanzasAreOnlyDeliveredOnDemandTest() throws InterruptedException {
+        DummyConnection connection = new DummyConnection();
+        StanzaPublisher publisher = connection.createStanzaPublisher(StanzaTypeFilter.MESSAGE, 4);
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i < 3; i++) {
+            connection.processStanza(StanzaBuilder.buildMessage(Integer.toString(i)).build());
+        }
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.request(2, 2);
+        assertEquals("0", subscriber.received.get(0).getStanzaId());
+        assertEquals("1", subscriber.received.get(1).getStanzaId());
+
+        subscriber.request(1, 3);
+        assertEquals("2", subscriber.received.get(2).getStanzaId());
+
+        publisher.close();
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readingIsSuspendedWhileBufferIsFullTest() throws InterruptedException {
+        DummyConnection connection = new DummyConnection();
+        StanzaPublisher publisher = connection.createStanzaPublisher(StanzaTypeFilter.MESSAGE, 4);
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i < 4; i++) {
+            connection.processStanza(StanzaBuilder.buildMessage(Integer.toString(i)).build());
+        }
+        assertTrue(connection.isReadingSuspended());
+
+        // Draining the buffer to half of its size resumes the reading.
+        subscriber.request(2, 2);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connection.isReadingSuspended() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(connection.isReadingSuspended());
+
+        subscriber.subscription.cancel();
+        publisher.close();
+    }
+
+    @Test
+    public void closeResumesSuspendedReadingTest() throws InterruptedException {
+        DummyConnection connection = new DummyConnection();
+        StanzaPublisher publisher = connection.createStanzaPublisher(StanzaTypeFilter.MESSAGE, 4);
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i < 4; i++) {
+            connection.processStanza(StanzaBuilder.buildMessage(Integer.toString(i)).build());
+        }
+        assertTrue(connection.isReadingSuspended());
+
+        // Closing must resume the reading, even though the buffered stanzas were not requested yet.
+        publisher.close();
+        assertFalse(connection.isReadingSuspended());
+
+        // The buffered stanzas are still delivered on demand, followed by the completion.
+        subscriber.request(4, 4);
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertFalse(connection.isReadingSuspended());
+    }
+
+    private static final class TestSubscriber implements StanzaPublisher.Subscriber {
+        private final List<Stanza> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private StanzaPublisher.Subscription subscription;
+
+        private void request(long n, int expectedReceived) throws InterruptedException {
+            subscription.request(n);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < expectedReceived && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(expectedReceived, received.size());
+        }
+
+        @Override
+        public void onSubscribe(StanzaPublisher.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Stanza stanza) {
+            received.add(stanza);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedAndResourceBoundStateDescriptor;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedButUnboundStateDescriptor;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.ConnectedButUnauthenticatedStateDescriptor;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.ResourceBindingStateDescriptor;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.SaslAuthenticationStateDescriptor;
+import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
+import org.jivesoftware.smack.c2s.internal.WalkStateGraphContext;
+import org.jivesoftware.smack.fsm.State;
+import org.jivesoftware.smack.fsm.StateDescriptor;
+import org.jivesoftware.smack.fsm.StateDescriptorGraph;
+import org.jivesoftware.smack.fsm.StateDescriptorGraph.GraphVertex;
+import org.jivesoftware.smack.fsm.StateTransitionResult;
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.sasl.SaslNonzaFactory;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.mockito.invocation.Invocation;
+
+public class Bind2ModuleTest extends SmackTestSuite {
+
+    private static final String INLINE_FEATURE_VAR = "urn:example:inline";
+
+    private static final StandardExtensionElement INLINE_REQUEST = StandardExtensionElement.builder("enable",
+                    INLINE_FEATURE_VAR).build();
+
+    /**
+     * The methods of the connection and its internal API which wait for a response of the service, i.e., which cost at
+     * least one round trip.
+     */
+    private static final Set<String> ROUND_TRIP_METHODS = new HashSet<>(Arrays.asList(
+                    "authenticate",
+                    "newStreamOpenWaitForFeaturesSequence",
+                    "waitForFeaturesReceived",
+                    "sendAndWaitForResponse",
+                    "sendIqRequestAndWaitForResponse",
+                    "createStanzaCollectorAndSend"));
+
+    private ModularXmppClientToServerConnection connection;
+
+    private ModularXmppClientToServerConnectionInternal connectionInternal;
+
+    private Bind2Module bind2Module;
+
+    private GraphVertex<StateDescriptor> stateDescriptorGraph;
+
+    private final List<Sasl2Nonza.Authenticate> sentAuthentications = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws ReflectiveOperationException {
+        connection = mock(ModularXmppClientToServerConnection.class);
+        connectionInternal = mock(ModularXmppClientToServerConnectionInternal.class,
+                        withSettings().useConstructor(connection, null, null, null));
+        bind2Module = new Bind2Module(new Bind2ModuleDescriptor(), connectionInternal);
+        bind2Module.setFastEnabled(false);
+        doReturn(bind2Module).when(connection).getConnectionModuleFor(Bind2ModuleDescriptor.class);
+        doReturn("PLAIN").when(connection).getUsedSaslMechansism();
+
+        stateDescriptorGraph = StateDescriptorGraph.constructStateDescriptorGraph(
+                        Collections.singleton(Bind2Module.Bind2StateDescriptor.class), false);
+    }
+
+    @Test
+    public void stateDescriptorTest() {
+        Bind2Module.Bind2StateDescriptor bind2StateDescriptor = getStateDescriptor(
+                        Bind2Module.Bind2StateDescriptor.class);
+
+        assertEquals("XEP-0386", bind2StateDescriptor.getReference());
+        assertEquals(Collections.singleton(ConnectedButUnauthenticatedStateDescriptor.class),
+                        bind2StateDescriptor.getPredeccessors());
+        assertEquals(Collections.singleton(AuthenticatedAndResourceBoundStateDescriptor.class),
+                        bind2StateDescriptor.getSuccessors());
+        assertTrue(bind2StateDescriptor.getSubordinates().contains(SaslAuthenticationStateDescriptor.class));
+        assertFalse(bind2StateDescriptor.isNotImplemented());
+        assertFalse(bind2StateDescriptor.isFinalState());
+
+        State state = bind2StateDescriptor.constructState(connectionInternal);
+        assertSame(bind2StateDescriptor, state.getStateDescriptor());
+    }
+
+    @Test
+    public void bind2TakesPrecedenceOverClassicLoginTest() {
+        GraphVertex<StateDescriptor> connectedButUnauthenticated = getVertex(
+                        ConnectedButUnauthenticatedStateDescriptor.class);
+        List<GraphVertex<StateDescriptor>> successors = connectedButUnauthenticated.getOutgoingEdges();
+        List<Class<? extends StateDescriptor>> successorClasses = new ArrayList<>(successors.size());
+        for (GraphVertex<StateDescriptor> successor : successors) {
+            successorClasses.add(successor.getElement().getClass());
+        }
+
+        int bind2Index = successorClasses.indexOf(Bind2Module.Bind2StateDescriptor.class);
+        int saslIndex = successorClasses.indexOf(SaslAuthenticationStateDescriptor.class);
+        assertTrue(bind2Index >= 0);
+        assertTrue(saslIndex >= 0);
+        assertTrue(bind2Index < saslIndex, "Bind2 must be attempted before SASL: " + successorClasses);
+    }
+
+    @Test
+    public void bind2SkipsIntermediateStatesOfClassicLoginTest() {
+        // Classic login: ConnectedButUnauthenticated -> SaslAuthentication -> AuthenticatedButUnbound ->
+        // ResourceBinding -> AuthenticatedAndResourceBound.
+        List<Class<? extends StateDescriptor>> classicWalk = Arrays.asList(
+                        ConnectedButUnauthenticatedStateDescriptor.class,
+                        SaslAuthenticationStateDescriptor.class,
+                        AuthenticatedButUnboundStateDescriptor.class,
+                        ResourceBindingStateDescriptor.class,
+                        AuthenticatedAndResourceBoundStateDescriptor.class);
+        assertTrue(isWalk(classicWalk));
+
+        List<Class<? extends StateDescriptor>> bind2Walk = Arrays.asList(
+                        ConnectedButUnauthenticatedStateDescriptor.class,
+                        Bind2Module.Bind2StateDescriptor.class,
+                        AuthenticatedAndResourceBoundStateDescriptor.class);
+        assertTrue(isWalk(bind2Walk));
+    }
+
+    @Test
+    public void transitionImpossibleWithoutSasl2Test() throws Exception {
+        State state = constructBind2State();
+
+        assertNotNull(state.isTransitionToPossible(createWalkContext()));
+    }
+
+    @Test
+    public void transitionImpossibleWithoutBind2InlineFeatureTest() throws Exception {
+        announceSasl2(Collections.emptyList());
+        State state = constructBind2State();
+
+        assertNotNull(state.isTransitionToPossible(createWalkContext()));
+    }
+
+    @Test
+    public void loginInSingleRoundTripTest() throws Exception {
+        announceSasl2(Collections.singletonList(new Bind2.Feature(Collections.singleton(INLINE_FEATURE_VAR))));
+        RecordingInlineFeature inlineFeature = new RecordingInlineFeature(INLINE_FEATURE_VAR);
+        bind2Module.addInlineFeature(inlineFeature);
+        EntityFullJid boundAddress = JidCreate.entityFullFrom("user@example.org/Smack.4711");
+        respondWithSuccess(boundAddress, INLINE_REQUEST);
+
+        State state = constructBind2State();
+        WalkStateGraphContext walkStateGraphContext = createWalkContext();
+        assertNull(state.isTransitionToPossible(walkStateGraphContext));
+        StateTransitionResult.AttemptResult result = state.transitionInto(walkStateGraphContext);
+
+        Bind2Module.Bind2SuccessResult successResult = (Bind2Module.Bind2SuccessResult) result;
+        assertEquals(boundAddress.getResourcepart(), successResult.getResource());
+        assertEquals(Collections.singletonList(INLINE_FEATURE_VAR), successResult.getInlineFeatures());
+        verify(connectionInternal).onResourceBound(boundAddress);
+
+        // Authentication, resource binding and the inline feature took a single round trip. The classic login requires
+        // at least three: the SASL exchange, the stream restart and the resource binding IQ, plus one more for every
+        // feature which needs to be enabled afterwards.
+        assertEquals(1, countRoundTrips());
+
+        assertEquals(1, sentAuthentications.size());
+        Bind2.Request bindRequest = getBindRequest(sentAuthentications.get(0));
+        assertEquals(Bind2Module.DEFAULT_TAG, bindRequest.getTag());
+        assertEquals(Collections.singletonList(INLINE_REQUEST), bindRequest.getInlineRequests());
+
+        assertEquals(1, inlineFeature.boundCount);
+        assertEquals(INLINE_REQUEST, inlineFeature.bound.getInlineResponses().get(0));
+    }
+
+    @Test
+    public void unsupportedInlineFeatureIsNotRequestedTest() throws Exception {
+        announceSasl2(Collections.singletonList(new Bind2.Feature(Collections.emptySet())));
+        RecordingInlineFeature inlineFeature = new RecordingInlineFeature(INLINE_FEATURE_VAR);
+        bind2Module.addInlineFeature(inlineFeature);
+        respondWithSuccess(JidCreate.entityFullFrom("user@example.org/Smack.4711"));
+
+        State state = constructBind2State();
+        WalkStateGraphContext walkStateGraphContext = createWalkContext();
+        assertNull(state.isTransitionToPossible(walkStateGraphContext));
+        Bind2Module.Bind2SuccessResult result = (Bind2Module.Bind2SuccessResult) state.transitionInto(
+                        walkStateGraphContext);
+
+        assertTrue(result.getInlineFeatures().isEmpty());
+        assertTrue(getBindRequest(sentAuthentications.get(0)).getInlineRequests().isEmpty());
+        assertEquals(0, inlineFeature.boundCount);
+    }
+
+    @Test
+    public void inlineFeatureIsAddedOnlyOnceTest() throws Exception {
+        announceSasl2(Collections.singletonList(new Bind2.Feature(Collections.singleton(INLINE_FEATURE_VAR))));
+        RecordingInlineFeature inlineFeature = new RecordingInlineFeature(INLINE_FEATURE_VAR);
+        assertTrue(bind2Module.addInlineFeature(inlineFeature));
+        assertFalse(bind2Module.addInlineFeature(inlineFeature));
+        respondWithSuccess(JidCreate.entityFullFrom("user@example.org/Smack.4711"));
+
+        State state = constructBind2State();
+        WalkStateGraphContext walkStateGraphContext = createWalkContext();
+        assertNull(state.isTransitionToPossible(walkStateGraphContext));
+        state.transitionInto(walkStateGraphContext);
+
+        assertEquals(Collections.singletonList(INLINE_REQUEST),
+                        getBindRequest(sentAuthentications.get(0)).getInlineRequests());
+        assertEquals(1, inlineFeature.boundCount);
+    }
+
+    private void announceSasl2(List<XmlElement> inlineFeatures) {
+        Sasl2Nonza.Authentication sasl2Feature = new Sasl2Nonza.Authentication(Collections.singletonList("PLAIN"),
+                        inlineFeatures);
+        doReturn(sasl2Feature).when(connection).getFeature(Sasl2Nonza.Authentication.class);
+    }
+
+    private void respondWithSuccess(EntityFullJid boundAddress, XmlElement... inlineResponses) throws Exception {
+        doAnswer(invocation -> {
+            SaslNonzaFactory saslNonzaFactory = invocation.getArgument(3);
+            Nonza authenticate = saslNonzaFactory.createAuthenticationNonza("PLAIN", "AHVzZXIAc2VjcmV0");
+            sentAuthentications.add((Sasl2Nonza.Authenticate) authenticate);
+
+            List<XmlElement> extensions = Collections.singletonList(new Bind2.Bound(Arrays.asList(inlineResponses)));
+            return new Sasl2Nonza.Success(null, boundAddress.toString(), extensions);
+        }).when(connectionInternal).authenticate(anyString(), anyString(), anyList(), any());
+    }
+
+    private State constructBind2State() {
+        return getStateDescriptor(Bind2Module.Bind2StateDescriptor.class).constructState(connectionInternal);
+    }
+
+    private static WalkStateGraphContext createWalkContext() {
+        return WalkStateGraphContext.builder(ConnectedButUnauthenticatedStateDescriptor.class,
+                        AuthenticatedAndResourceBoundStateDescriptor.class)
+                        .withLoginContext("user", "secret", null)
+                        .build();
+    }
+
+    private int countRoundTrips() {
+        int roundTrips = 0;
+        for (Object mock : new Object[] { connection, connectionInternal }) {
+            for (Invocation invocation : mockingDetails(mock).getInvocations()) {
+                if (ROUND_TRIP_METHODS.contains(invocation.getMethod().getName())) {
+                    roundTrips++;
+                }
+            }
+        }
+        return roundTrips;
+    }
+
+    private static Bind2.Request getBindRequest(Sasl2Nonza.Authenticate authenticate) {
+        for (XmlElement inlineRequest : authenticate.getInlineRequests()) {
+            if (inlineRequest instanceof Bind2.Request) {
+                return (Bind2.Request) inlineRequest;
+            }
+        }
+        throw new AssertionError("No Bind 2 request in " + authenticate.toXML());
+    }
+
+    private boolean isWalk(List<Class<? extends StateDescriptor>> walk) {
+        for (int i = 0; i < walk.size() - 1; i++) {
+            boolean edgeFound = false;
+            for (GraphVertex<StateDescriptor> successor : getVertex(walk.get(i)).getOutgoingEdges()) {
+                if (successor.getElement().getClass() == walk.get(i + 1)) {
+                    edgeFound = true;
+                    break;
+                }
+            }
+            if (!edgeFound) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <SD extends StateDescriptor> SD getStateDescriptor(Class<SD> stateDescriptorClass) {
+        return stateDescriptorClass.cast(getVertex(stateDescriptorClass).getElement());
+    }
+
+    private GraphVertex<StateDescriptor> getVertex(Class<? extends StateDescriptor> stateDescriptorClass) {
+        Set<GraphVertex<StateDescriptor>> visited = new HashSet<>();
+        Queue<GraphVertex<StateDescriptor>> queue = new ArrayDeque<>();
+        queue.add(stateDescriptorGraph);
+        while (!queue.isEmpty()) {
+            GraphVertex<StateDescriptor> vertex = queue.remove();
+            if (!visited.add(vertex)) {
+                continue;
+            }
+            if (vertex.getElement().getClass() == stateDescriptorClass) {
+                return vertex;
+            }
+            queue.addAll(vertex.getOutgoingEdges());
+        }
+        throw new AssertionError("No " + stateDescriptorClass + " in state descriptor graph");
+    }
+
+    private static final class RecordingInlineFeature implements Bind2InlineFeature {
+        private final String featureVar;
+
+        private int boundCount;
+
+        private Bind2.Bound bound;
+
+        private RecordingInlineFeature(String featureVar) {
+            this.featureVar = featureVar;
+        }
+
+        @Override
+        public String getFeatureVar() {
+            return featureVar;
+        }
+
+        @Override
+        public XmlElement getInlineRequest() {
+            return INLINE_REQUEST;
+        }
+
+        @Override
+        public void onBound(Bind2.Bound bound) {
+            boundCount++;
+            this.bound = bound;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.isr;
+
+import static org.jivesoftware.smack.test.util.XmlAssertUtil.assertXmlSimilar;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.test.util.SmackTestUtil;
+import org.jivesoftware.smack.util.stringencoder.Base64;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class InstantStreamResumptionTest extends SmackTestSuite {
+
+    @Test
+    public void instResumeTest() {
+        InstantStreamResumption.InstResume instResume = new InstantStreamResumption.InstResume("some-long-sm-id", 42,
+                        "aGVsbG8=");
+        final String expected =
+                        "<inst-resume xmlns='urn:xmpp:isr:0' previd='some-long-sm-id' h='42'>"
+                        + "<hmac>"
+                        + "<hash xmlns='urn:xmpp:hashes:2' algo='sha-256'>aGVsbG8=</hash>"
+                        + "</hmac>"
+                        + "</inst-resume>";
+        assertXmlSimilar(expected, instResume.toXML());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseInstResumedTest(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        final String instResumedString =
+                        "<inst-resumed xmlns='urn:xmpp:isr:0' key='006b1a29-c549-41c7-a12c-2a931822f8c0' h='21'>"
+                        + "<hmac>"
+                        + "<hash xmlns='urn:xmpp:hashes:2' algo='sha-256'>aGVsbG8=</hash>"
+                        + "</hmac>"
+                        + "</inst-resumed>";
+        InstantStreamResumption.InstResumed instResumed = SmackTestUtil.parse(instResumedString,
+                        InstResumedProvider.class, parserKind);
+
+        assertEquals("006b1a29-c549-41c7-a12c-2a931822f8c0", instResumed.getKey());
+        assertEquals(21, instResumed.getHandledCount());
+        assertEquals("aGVsbG8=", instResumed.getHmac());
+        assertXmlSimilar(instResumedString, instResumed.toXML());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseFailedTest(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        InstantStreamResumption.Failed failed = SmackTestUtil.parse("<failed xmlns='urn:xmpp:isr:0'/>",
+                        InstantStreamResumptionFailedProvider.class, parserKind);
+        assertNull(failed.getHandledCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseFeatureTest(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        InstantStreamResumption.Feature feature = SmackTestUtil.parse("<isr xmlns='urn:xmpp:isr:0'/>",
+                        InstantStreamResumptionProvider.class, parserKind);
+        assertSame(InstantStreamResumption.Feature.INSTANCE, feature);
+    }
+
+    @Test
+    public void hmacTest() {
+        // RFC 4231 test case 2.
+        byte[] hmac = InstantStreamResumption.hmac("Jefe",
+                        "what do ya want for nothing?".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(Base64.decode("W9zBRr9gdU5qBCQmCJV1x1oAPwidJzmDnexYuWTsOEM="), hmac);
+    }
+
+    @Test
+    public void hmacRoundTripTest() {
+        final String key = "006b1a29-c549-41c7-a12c-2a931822f8c0";
+        InstantStreamResumption.InstResume instResume = InstantStreamResumption.InstResume.create("some-long-sm-id", 42,
+                        key);
+        assertEquals(Base64.encodeToString(InstantStreamResumption.hmac(key,
+                        "Initiator".getBytes(StandardCharsets.UTF_8))), instResume.getHmac());
+
+        String responderHmac = Base64.encodeToString(InstantStreamResumption.hmac(key,
+                        "Responder".getBytes(StandardCharsets.UTF_8)));
+        InstantStreamResumption.InstResumed instResumed = new InstantStreamResumption.InstResumed("next-key", 21,
+                        responderHmac);
+        assertTrue(instResumed.isAuthenticatedBy(key));
+        assertFalse(instResumed.isAuthenticatedBy("another-key"));
+
+        // The initiator HMAC must not be accepted as responder HMAC.
+        instResumed = new InstantStreamResumption.InstResumed("next-key", 21, instResume.getHmac());
+        assertFalse(instResumed.isAuthenticatedBy(key));
+    }
+}
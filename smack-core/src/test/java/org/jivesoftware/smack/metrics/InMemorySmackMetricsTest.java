@@ -0,0 +1,90 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class InMemorySmackMetricsTest {
+
+    @Test
+    public void countersAndGaugesTest() {
+        InMemorySmackMetrics metrics = new InMemorySmackMetrics();
+        assertSame(metrics.counter("foo"), metrics.counter("foo"));
+
+        metrics.counter("foo").increment();
+        metrics.counter("foo").add(41);
+        metrics.gauge("bar", () -> 23L);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(42, snapshot.getCounter("foo"));
+        assertEquals(0, snapshot.getCounter("unknown"));
+        assertEquals(23L, snapshot.getGauges().get("bar"));
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getCounter("foo"));
+    }
+
+    @Test
+    public void bucketBoundariesTest() {
+        for (int i = 0; i < LogLinearHistogram.BUCKET_COUNT; i++) {
+            long lowest = LogLinearHistogram.lowestValueOf(i);
+            long highest = LogLinearHistogram.highestValueOf(i);
+            assertEquals(i, LogLinearHistogram.bucketIndexOf(lowest));
+            assertEquals(i, LogLinearHistogram.bucketIndexOf(highest));
+        }
+        assertEquals(LogLinearHistogram.BUCKET_COUNT - 1, LogLinearHistogram.bucketIndexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void histogramPercentilesTest() {
+        InMemorySmackMetrics metrics = new InMemorySmackMetrics();
+        Histogram histogram = metrics.histogram("latency");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        HistogramSnapshot snapshot = metrics.snapshot().getHistogram("latency");
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMin());
+        assertEquals(1000000, snapshot.getMax());
+        assertEquals(500500, snapshot.getMean(), 0.001);
+        assertWithinRelativeError(500000, snapshot.getP50());
+        assertWithinRelativeError(900000, snapshot.getP90());
+        assertWithinRelativeError(990000, snapshot.getP99());
+        assertEquals(1000000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void emptyHistogramTest() {
+        InMemorySmackMetrics metrics = new InMemorySmackMetrics();
+        metrics.histogram("empty");
+        HistogramSnapshot snapshot = metrics.snapshot().getHistogram("empty");
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getP99());
+    }
+
+    private static void assertWithinRelativeError(long expected, long actual) {
+        double relativeError = Math.abs(actual - expected) / (double) expected;
+        assertTrue(relativeError <= 1.0 / LogLinearHistogram.HALF_SUB_BUCKET_COUNT,
+                        "Expected " + expected + " but got " + actual);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.util.MultiMap;
+
+import org.junit.jupiter.api.Test;
+
+public class ExtensionElementContainerTest {
+
+    private static final String NAMESPACE = "urn:example:container";
+
+    @Test
+    public void elementsWithSameNameAreAdjacentTest() {
+        XmlElement a1 = element("a");
+        XmlElement b1 = element("b");
+        XmlElement a2 = element("a");
+
+        ExtensionElementContainer container = new ExtensionElementContainer();
+        put(container, a1, b1, a2);
+
+        assertEquals(Arrays.asList(a1, a2, b1), container.values());
+        assertEquals(Arrays.asList(a1, a2), container.getAll(a1.getQName()));
+        assertSame(a1, container.getFirst(a1.getQName()));
+        assertEquals(container.values(), container.toMultiMap().values());
+    }
+
+    @Test
+    public void orderingIsPreservedOnPromotionTest() {
+        ExtensionElementContainer container = new ExtensionElementContainer();
+        MultiMap<QName, XmlElement> multiMap = new MultiMap<>();
+        for (int i = 0; i < ExtensionElementContainer.MAX_INLINE_SIZE * 2; i++) {
+            XmlElement element = element("e" + (i % 3));
+            container.put(element.getQName(), element);
+            multiMap.put(element.getQName(), element);
+            assertEquals(multiMap.values(), container.values());
+        }
+    }
+
+    @Test
+    public void removeTest() {
+        XmlElement a1 = element("a");
+        XmlElement b1 = element("b");
+        XmlElement a2 = element("a");
+        XmlElement c1 = element("c");
+
+        ExtensionElementContainer container = new ExtensionElementContainer();
+        put(container, a1, b1, a2, c1);
+
+        assertTrue(container.removeOne(b1.getQName(), b1));
+        assertFalse(container.containsKey(b1.getQName()));
+        assertFalse(container.removeOne(b1.getQName(), b1));
+
+        assertSame(a1, container.remove(a1.getQName()));
+        assertNull(container.remove(a1.getQName()));
+        assertEquals(Arrays.asList(c1), container.values());
+    }
+
+    @Test
+    public void copyIsIndependentTest() {
+        XmlElement a1 = element("a");
+        XmlElement b1 = element("b");
+
+        ExtensionElementContainer container = new ExtensionElementContainer();
+        put(container, a1);
+        ExtensionElementContainer copy = container.copy();
+        put(copy, b1);
+
+        assertEquals(1, container.size());
+        assertEquals(2, copy.size());
+    }
+
+    private static void put(ExtensionElementContainer container, XmlElement... elements) {
+        for (XmlElement element : elements) {
+            container.put(element.getQName(), element);
+        }
+    }
+
+    private static XmlElement element(String name) {
+        return StandardExtensionElement.builder(name, NAMESPACE).build();
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import static org.jivesoftware.smack.test.util.XmlAssertUtil.assertXmlSimilar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LazyExtensionElementTest extends SmackTestSuite {
+
+    private static final String NAMESPACE = "urn:example:lazy";
+
+    private static final QName COUNTED = new QName(NAMESPACE, "counted");
+
+    private static final QName BROKEN = new QName(NAMESPACE, "broken");
+
+    private static final String MESSAGE = "<message xmlns='jabber:client' from='room@muc.example.org/juliet' type='groupchat'>"
+                    + "<body>Hello</body>"
+                    + "<counted xmlns='urn:example:lazy'><nested>text</nested></counted>"
+                    + "<broken xmlns='urn:example:lazy'/>"
+                    + "</message>";
+
+    private final AtomicInteger parseInvocations = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        SmackConfiguration.setLazyExtensionElementParsing(true);
+        ProviderManager.addExtensionProvider(COUNTED.getLocalPart(), NAMESPACE,
+                        new ExtensionElementProvider<ExtensionElement>() {
+            @Override
+            public ExtensionElement parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+                            throws XmlPullParserException, IOException {
+                parseInvocations.incrementAndGet();
+                return StandardExtensionElement.builder(COUNTED.getLocalPart(), NAMESPACE).build();
+            }
+        });
+        ProviderManager.addExtensionProvider(BROKEN.getLocalPart(), NAMESPACE,
+                        new ExtensionElementProvider<ExtensionElement>() {
+            @Override
+            public ExtensionElement parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+                            throws IOException {
+                throw new IOException("Test Exception");
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SmackConfiguration.setLazyExtensionElementParsing(false);
+        ProviderManager.removeExtensionProvider(COUNTED.getLocalPart(), NAMESPACE);
+        ProviderManager.removeExtensionProvider(BROKEN.getLocalPart(), NAMESPACE);
+    }
+
+    @Test
+    public void extensionElementIsOnlyParsedOnAccessTest() throws Exception {
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+        assertEquals(0, parseInvocations.get());
+        assertTrue(message.hasExtension(COUNTED.getLocalPart(), NAMESPACE));
+
+        XmlElement counted = message.getExtension(COUNTED);
+        assertTrue(counted instanceof StandardExtensionElement);
+        assertEquals(1, parseInvocations.get());
+
+        // The parsed element replaces the lazy one, hence subsequent accesses do not parse again.
+        message.getExtension(COUNTED);
+        assertEquals(1, parseInvocations.get());
+    }
+
+    @Test
+    public void lazyExtensionElementRetainsRawXmlTest() throws Exception {
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+
+        LazyExtensionElement lazyExtensionElement = (LazyExtensionElement) getFirstForSerialization(message, COUNTED);
+        assertXmlSimilar("<counted xmlns='urn:example:lazy'><nested>text</nested></counted>",
+                        lazyExtensionElement.toXML());
+        assertEquals("Hello", message.getBody());
+    }
+
+    @Test
+    public void unparsableExtensionElementIsDroppedTest() throws Exception {
+        // In eager mode, the message would have been rejected.
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+
+        assertNull(message.getExtension(BROKEN));
+        assertEquals(2, message.getExtensions().size());
+    }
+
+    @Test
+    public void hasExtensionAgreesWithGetExtensionTest() throws Exception {
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+        assertFalse(message.hasExtension(BROKEN.getLocalPart(), NAMESPACE));
+        assertFalse(message.hasExtension(BROKEN));
+        assertNull(message.getExtension(BROKEN));
+        assertTrue(message.hasExtension(COUNTED.getLocalPart(), NAMESPACE));
+        assertNotNull(message.getExtension(COUNTED));
+
+        Message brokenOnly = PacketParserUtils.parseStanza("<message xmlns='jabber:client' from='juliet@example.org/balcony'>"
+                        + "<broken xmlns='urn:example:lazy'/>"
+                        + "</message>");
+        assertFalse(brokenOnly.hasExtension(NAMESPACE));
+        assertTrue(brokenOnly.getExtensions().isEmpty());
+    }
+
+    @Test
+    public void serializationDoesNotParseTest() throws Exception {
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+
+        assertXmlSimilar(MESSAGE, message.toXML());
+        assertEquals(0, parseInvocations.get());
+        assertTrue(getFirstForSerialization(message, COUNTED) instanceof LazyExtensionElement);
+
+        String presenceXml = "<presence xmlns='jabber:client' from='room@muc.example.org/juliet'>"
+                        + "<counted xmlns='urn:example:lazy'><nested>text</nested></counted>"
+                        + "</presence>";
+        Presence presence = PacketParserUtils.parseStanza(presenceXml);
+        assertXmlSimilar(presenceXml, presence.toXML());
+        assertEquals(0, parseInvocations.get());
+    }
+
+    private static XmlElement getFirstForSerialization(Stanza stanza, QName qname) {
+        for (XmlElement element : stanza.getExtensionsForSerialization()) {
+            if (element.getQName().equals(qname)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void getExtensionsMapResolvesLazyExtensionElementsTest() throws Exception {
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+
+        XmlElement counted = message.getExtensionsMap().getFirst(COUNTED);
+        assertTrue(counted instanceof StandardExtensionElement);
+        assertEquals(1, parseInvocations.get());
+        assertNull(message.getExtensionsMap().getFirst(BROKEN));
+    }
+}
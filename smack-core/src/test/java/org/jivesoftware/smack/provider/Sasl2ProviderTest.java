@@ -0,0 +1,140 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import static org.jivesoftware.smack.test.util.XmlAssertUtil.assertXmlSimilar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jivesoftware.smack.bind2.Bind2;
+import org.jivesoftware.smack.fast.Fast;
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.sasl.SASLError;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.test.util.SmackTestUtil;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class Sasl2ProviderTest extends SmackTestSuite {
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseAuthenticationFeature(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        final String authenticationString =
+                        "<authentication xmlns='urn:xmpp:sasl:2'>"
+                        + "<mechanism>SCRAM-SHA-1</mechanism>"
+                        + "<mechanism>PLAIN</mechanism>"
+                        + "<inline>"
+                        + "<bind xmlns='urn:xmpp:bind:0'>"
+                        + "<inline>"
+                        + "<feature var='urn:xmpp:carbons:2'/>"
+                        + "<feature var='urn:xmpp:csi:0'/>"
+                        + "</inline>"
+                        + "</bind>"
+                        + "<fast xmlns='urn:xmpp:fast:0'>"
+                        + "<mechanism>HT-SHA-256-NONE</mechanism>"
+                        + "</fast>"
+                        + "</inline>"
+                        + "</authentication>";
+        ExtensionElement element = SmackTestUtil.parse(authenticationString, Sasl2AuthenticationProvider.class,
+                        parserKind);
+        Sasl2Nonza.Authentication authentication = (Sasl2Nonza.Authentication) element;
+
+        assertEquals(Arrays.asList("SCRAM-SHA-1", "PLAIN"), authentication.getMechanisms());
+        Bind2.Feature bind2Feature = authentication.getInlineFeature(Bind2.Feature.class);
+        assertNotNull(bind2Feature);
+        assertTrue(bind2Feature.supportsInlineFeature("urn:xmpp:carbons:2"));
+        assertTrue(bind2Feature.supportsInlineFeature("urn:xmpp:csi:0"));
+        assertFalse(bind2Feature.supportsInlineFeature("urn:xmpp:sm:3"));
+
+        Fast.Feature fastFeature = authentication.getInlineFeature(Fast.Feature.class);
+        assertEquals(Collections.singletonList("HT-SHA-256-NONE"), fastFeature.getMechanisms());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseSuccessWithBound(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        final String successString =
+                        "<success xmlns='urn:xmpp:sasl:2'>"
+                        + "<additional-data>dj1wTk5ERlZFUXh1WHhDb1NFaVc4R0VaKzFSU289</additional-data>"
+                        + "<authorization-identifier>juliet@montague.example/Smack.5d8f</authorization-identifier>"
+                        + "<bound xmlns='urn:xmpp:bind:0'/>"
+                        + "<token xmlns='urn:xmpp:fast:0' expiry='2020-03-12T14:36:15.000Z' token='WXZzciBwYmFmdmZnZiBqdmd1IGp2eXFhcmZm'/>"
+                        + "</success>";
+        Sasl2Nonza.Success success = SmackTestUtil.parse(successString, Sasl2SuccessProvider.class, parserKind);
+
+        assertEquals("dj1wTk5ERlZFUXh1WHhDb1NFaVc4R0VaKzFSU289", success.getAdditionalData());
+        assertEquals("juliet@montague.example/Smack.5d8f", success.getAuthorizationIdentifier());
+        assertNotNull(success.getExtension(Bind2.Bound.class));
+        Fast.Token token = success.getExtension(Fast.Token.class);
+        assertEquals("WXZzciBwYmFmdmZnZiBqdmd1IGp2eXFhcmZm", token.getToken());
+        assertXmlSimilar(successString, success.toXML());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseFailure(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        final String failureString =
+                        "<failure xmlns='urn:xmpp:sasl:2'>"
+                        + "<aborted xmlns='urn:ietf:params:xml:ns:xmpp-sasl'/>"
+                        + "<text>This is a terrible example.</text>"
+                        + "</failure>";
+        Sasl2Nonza.Failure failure = SmackTestUtil.parse(failureString, Sasl2FailureProvider.class, parserKind);
+
+        assertEquals(SASLError.aborted, failure.getSaslFailure().getSASLError());
+        assertEquals("This is a terrible example.", failure.getSaslFailure().getDescriptiveText());
+    }
+
+    @Test
+    public void authenticateWithInlineBindRequest() {
+        StandardExtensionElement enableCarbons = StandardExtensionElement.builder("enable", "urn:xmpp:carbons:2")
+                        .build();
+        Bind2.Request bindRequest = new Bind2.Request("AwesomeXMPP", Collections.singletonList(enableCarbons));
+        Sasl2Nonza.Authenticate authenticate = new Sasl2Nonza.Authenticate("SCRAM-SHA-1",
+                        "biwsbj11c2VyLHI9ck9wck5HZndFYmVSV2diTkVrcU8=",
+                        new Sasl2Nonza.UserAgent("d4565fa7-4d72-4749-b3d3-740edbf87770", "AwesomeXMPP", null),
+                        Collections.singletonList(bindRequest));
+
+        final String expected =
+                        "<authenticate xmlns='urn:xmpp:sasl:2' mechanism='SCRAM-SHA-1'>"
+                        + "<initial-response>biwsbj11c2VyLHI9ck9wck5HZndFYmVSV2diTkVrcU8=</initial-response>"
+                        + "<user-agent id='d4565fa7-4d72-4749-b3d3-740edbf87770'>"
+                        + "<software>AwesomeXMPP</software>"
+                        + "</user-agent>"
+                        + "<bind xmlns='urn:xmpp:bind:0'>"
+                        + "<tag>AwesomeXMPP</tag>"
+                        + "<enable xmlns='urn:xmpp:carbons:2'/>"
+                        + "</bind>"
+                        + "</authenticate>";
+        assertXmlSimilar(expected, authenticate.toXML());
+    }
+}
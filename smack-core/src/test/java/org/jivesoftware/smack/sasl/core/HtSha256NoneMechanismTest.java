@@ -0,0 +1,73 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.SmackException;
+import org.jivesoftware.smack.SmackException.SmackSaslException;
+import org.jivesoftware.smack.sasl.packet.SaslNonza.AuthMechanism;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.stringencoder.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.JidTestUtil;
+
+public class HtSha256NoneMechanismTest extends SmackTestSuite {
+
+    private static final String USERNAME = "juliet";
+    private static final String TOKEN = "s3cr3tt0k3n";
+    private static final String INITIAL_RESPONSE = "anVsaWV0AOpr7+8gKP3z+7McoZOF+Xw/Go03PYaDGNRJQTLvSYaE";
+    private static final String ADDITIONAL_DATA = "QUpLv0lKW9va6Pf11SbdjuuFWeiMysSdgRVtemHNHfA=";
+
+    @Test
+    public void testHtSha256NoneMechanism() throws SmackException, InterruptedException {
+        HtSha256NoneMechanism mech = authenticate();
+
+        mech.challengeReceived(ADDITIONAL_DATA, true);
+        mech.checkIfSuccessfulOrThrow();
+    }
+
+    @Test
+    public void testInvalidServerProofIsRejected() throws SmackException, InterruptedException {
+        HtSha256NoneMechanism mech = authenticate();
+
+        String invalidAdditionalData = Base64.encode("not the proof");
+        assertThrows(SmackSaslException.class, () -> mech.challengeReceived(invalidAdditionalData, true));
+    }
+
+    @Test
+    public void testMissingServerProofIsRejected() throws SmackException, InterruptedException {
+        HtSha256NoneMechanism mech = authenticate();
+
+        assertThrows(SmackSaslException.class, () -> mech.checkIfSuccessfulOrThrow());
+    }
+
+    private static HtSha256NoneMechanism authenticate() throws SmackException, InterruptedException {
+        DummyConnection con = new DummyConnection();
+        HtSha256NoneMechanism mech = (HtSha256NoneMechanism) new HtSha256NoneMechanism().instanceForAuthentication(con,
+                        con.getConfiguration());
+
+        mech.authenticate(USERNAME, "unused", JidTestUtil.DOMAIN_BARE_JID_1, TOKEN, null, null);
+        AuthMechanism authMechanism = con.getSentPacket();
+        assertEquals(HtSha256NoneMechanism.NAME, authMechanism.getMechanism());
+        assertEquals(INITIAL_RESPONSE, authMechanism.getAuthenticationText());
+        return mech;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.junit.jupiter.api.Test;
+
+public class CharSequenceReaderTest {
+
+    private static final String MESSAGE = "<message xmlns='jabber:client' to='romeo@example.net'><body>Hi</body></message>";
+
+    @Test
+    public void readsAllCharactersTest() {
+        CharSequenceReader reader = new CharSequenceReader(CharBuffer.wrap(MESSAGE));
+
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[7];
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            sb.append(buffer, 0, read);
+        }
+        assertEquals(MESSAGE, sb.toString());
+        assertEquals(-1, reader.read());
+    }
+
+    @Test
+    public void parseFromStringBuilderTest() throws XmlPullParserException, IOException {
+        StringBuilder sb = new StringBuilder(MESSAGE);
+        XmlPullParser parser = PacketParserUtils.getParserFor(new CharSequenceReader(sb));
+        assertEquals(Message.ELEMENT, parser.getName());
+        assertEquals("romeo@example.net", parser.getAttributeValue("to"));
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentLruCacheTest {
+
+    @Test
+    public void putAndLookupTest() {
+        ConcurrentLruCache<String, Integer> cache = new ConcurrentLruCache<>(10);
+        assertNull(cache.put("one", 1));
+        assertEquals(1, cache.lookup("one"));
+
+        assertEquals(1, cache.put("one", 2));
+        assertEquals(2, cache.lookup("one"));
+        assertEquals(1, cache.size());
+
+        assertEquals(2, cache.remove("one"));
+        assertNull(cache.lookup("one"));
+    }
+
+    @Test
+    public void evictsNotRecentlyUsedEntriesTest() {
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(3);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+
+        // Reference the oldest entry, so that it gets a second chance.
+        cache.lookup(1);
+
+        cache.put(4, 4);
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.lookup(1));
+        assertNull(cache.lookup(2));
+        assertEquals(3, cache.lookup(3));
+        assertEquals(4, cache.lookup(4));
+    }
+
+    @Test
+    public void removedEntriesDoNotAccumulateTest() {
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(5);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+            cache.remove(i);
+        }
+        cache.put(1000, 1000);
+
+        assertEquals(1, cache.size());
+        assertEquals(1000, cache.lookup(1000));
+    }
+
+    @Test
+    public void shrinkingMaxCacheSizeEvictsTest() {
+        ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+
+        cache.setMaxCacheSize(10);
+
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    public void concurrentPutsKeepCacheBoundedTest() throws InterruptedException {
+        final ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(4);
+        final int threadCount = 4;
+        final int iterations = 10000;
+        List<Thread> threads = new ArrayList<>(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int threadId = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    // Update a key of this thread, while the new keys of all threads cause constant evictions.
+                    cache.put(threadId, i);
+                    cache.put(threadCount + threadId * iterations + i, i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // A thread skips the eviction if another thread is evicting, hence the cache may exceed its maximum size by at
+        // most one entry per thread.
+        assertTrue(cache.size() <= 4 + threadCount);
+    }
+
+    @Test
+    public void clearDuringConcurrentPutsKeepsCacheBoundedTest() throws InterruptedException {
+        final ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(10);
+        Thread putter = new Thread(() -> {
+            for (int i = 0; i < 100000; i++) {
+                cache.put(i, i);
+            }
+        });
+        putter.start();
+        while (putter.isAlive()) {
+            cache.clear();
+        }
+        putter.join();
+
+        // Entries which were put while the cache was cleared must still be subject to eviction.
+        for (int i = -1; i > -100; i--) {
+            cache.put(i, i);
+        }
+        assertEquals(10, cache.size());
+    }
+}
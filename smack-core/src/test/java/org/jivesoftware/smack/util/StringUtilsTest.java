@@ -19,6 +19,7 @@ package org.jivesoftware.smack.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.charset.StandardCharsets;
@@ -67,6 +68,19 @@ public class StringUtilsTest  {
         assertCharSequenceEquals("It&apos;s a good day today", StringUtils.escapeForXml(input));
     }
 
+    @Test
+    public void testEscapeForXmlReturnsCleanInputUnchanged() {
+        String input = "Art thou not Romeo, and a Montague?";
+        assertSame(input, StringUtils.escapeForXml(input));
+        assertSame(input, StringUtils.escapeForXmlAttributeApos(input));
+        assertSame(input, StringUtils.escapeForXmlText(input));
+
+        // Characters before and after the first one which needs to be escaped must be retained.
+        assertCharSequenceEquals("a \"b\" &lt;c> &amp; d", StringUtils.escapeForXmlText("a \"b\" <c> & d"));
+        assertCharSequenceEquals("tail &lt;", StringUtils.escapeForXmlText("tail <"));
+        assertCharSequenceEquals("&amp;&amp; head", StringUtils.escapeForXmlText("&& head"));
+    }
+
     public static void assertCharSequenceEquals(CharSequence expected, CharSequence actual) {
         assertEquals(expected.toString(), actual.toString());
     }
@@ -16,6 +16,8 @@
  */
 package org.jivesoftware.smack.util;
 
+import java.io.IOException;
+
 import org.jivesoftware.smack.packet.StandardExtensionElement;
 import org.jivesoftware.smack.packet.XmlEnvironment;
 import org.jivesoftware.smack.test.util.XmlAssertUtil;
@@ -44,4 +46,24 @@ public class XmlStringBuilderTest {
 
         XmlAssertUtil.assertXmlSimilar(expectedXml, actualXmlTwo);
     }
+
+    @Test
+    public void directModeProducesSameXmlTest() throws IOException {
+        StandardExtensionElement inner = StandardExtensionElement.builder("inner", "inner-namespace")
+                        .addAttribute("attr", "a'b")
+                        .setText("Romeo & Juliet")
+                        .build();
+        StandardExtensionElement outer = StandardExtensionElement.builder("outer", "outer-namespace")
+                        .addElement(inner)
+                        .build();
+
+        StringBuilder target = new StringBuilder();
+        XmlStringBuilder direct = new XmlStringBuilder(target, outer, XmlEnvironment.EMPTY);
+        direct.rightAngleBracket();
+        direct.append(inner);
+        direct.closeElement(outer);
+        direct.flush();
+
+        XmlAssertUtil.assertXmlSimilar(outer.toXML(XmlEnvironment.EMPTY), target);
+    }
 }
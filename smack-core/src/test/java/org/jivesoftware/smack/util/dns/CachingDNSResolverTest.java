@@ -0,0 +1,184 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util.dns;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
+
+import org.junit.jupiter.api.Test;
+import org.minidns.dnsname.DnsName;
+import org.minidns.record.SRV;
+
+public class CachingDNSResolverTest {
+
+    private static final DnsName NAME = DnsName.from("xmpp.example.org");
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    public void positiveResultIsCachedForItsTtlTest() {
+        StubResolver stub = new StubResolver(60);
+        CachingDNSResolver resolver = new CachingDNSResolver(stub, 10, () -> now.get());
+        resolver.setStaleWhileRevalidate(0, TimeUnit.SECONDS);
+
+        assertEquals(stub.addresses, lookup(resolver));
+        assertEquals(stub.addresses, lookup(resolver));
+        assertEquals(1, stub.hostLookups.get());
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(61));
+        assertEquals(stub.addresses, lookup(resolver));
+        assertEquals(2, stub.hostLookups.get());
+
+        CachingDNSResolver.Stats stats = resolver.getStats();
+        assertEquals(1, stats.hits);
+        assertEquals(2, stats.misses);
+    }
+
+    @Test
+    public void unknownTtlUsesDefaultTtlTest() {
+        StubResolver stub = new StubResolver(DNSResolver.TtlResult.UNKNOWN_TTL);
+        CachingDNSResolver resolver = new CachingDNSResolver(stub, 10, () -> now.get());
+        resolver.setDefaultTtl(10, TimeUnit.SECONDS);
+        resolver.setStaleWhileRevalidate(0, TimeUnit.SECONDS);
+
+        lookup(resolver);
+        now.addAndGet(TimeUnit.SECONDS.toMillis(9));
+        lookup(resolver);
+        assertEquals(1, stub.hostLookups.get());
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(2));
+        lookup(resolver);
+        assertEquals(2, stub.hostLookups.get());
+    }
+
+    @Test
+    public void negativeResultIsCachedTest() {
+        StubResolver stub = new StubResolver(60);
+        stub.fail = true;
+        CachingDNSResolver resolver = new CachingDNSResolver(stub, 10, () -> now.get());
+        resolver.setNegativeTtl(5, TimeUnit.SECONDS);
+
+        List<RemoteConnectionEndpointLookupFailure> lookupFailures = new ArrayList<>();
+        assertNull(resolver.lookupHostAddress(NAME, lookupFailures, DnssecMode.disabled));
+        assertEquals(1, lookupFailures.size());
+
+        // The cached failure must be reported to subsequent callers as well.
+        lookupFailures.clear();
+        assertNull(resolver.lookupHostAddress(NAME, lookupFailures, DnssecMode.disabled));
+        assertEquals(1, lookupFailures.size());
+        assertEquals(1, stub.hostLookups.get());
+        assertEquals(1, resolver.getStats().negativeHits);
+
+        stub.fail = false;
+        now.addAndGet(TimeUnit.SECONDS.toMillis(6));
+        assertEquals(stub.addresses, lookup(resolver));
+        assertEquals(2, stub.hostLookups.get());
+    }
+
+    @Test
+    public void staleResultIsServedWhileRevalidatingTest() throws InterruptedException {
+        StubResolver stub = new StubResolver(60);
+        CachingDNSResolver resolver = new CachingDNSResolver(stub, 10, () -> now.get());
+        resolver.setStaleWhileRevalidate(30, TimeUnit.SECONDS);
+
+        lookup(resolver);
+        now.addAndGet(TimeUnit.SECONDS.toMillis(70));
+
+        // The stale result is served immediately, while it is refreshed in the background.
+        assertEquals(stub.addresses, lookup(resolver));
+        assertEquals(1, resolver.getStats().staleHits);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stub.hostLookups.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, stub.hostLookups.get());
+        assertEquals(1, resolver.getStats().backgroundRefreshes);
+    }
+
+    @Test
+    public void srvAndHostLookupsAreCachedSeparatelyTest() {
+        StubResolver stub = new StubResolver(60);
+        CachingDNSResolver resolver = new CachingDNSResolver(stub, 10, () -> now.get());
+
+        List<RemoteConnectionEndpointLookupFailure> lookupFailures = new ArrayList<>();
+        Collection<SRV> srvRecords = resolver.lookupSrvRecords(NAME, lookupFailures, DnssecMode.disabled);
+        assertEquals(1, srvRecords.size());
+        resolver.lookupSrvRecords(NAME, lookupFailures, DnssecMode.disabled);
+        lookup(resolver);
+
+        assertEquals(1, stub.srvLookups.get());
+        assertEquals(1, stub.hostLookups.get());
+        assertTrue(lookupFailures.isEmpty());
+    }
+
+    private static List<InetAddress> lookup(CachingDNSResolver resolver) {
+        List<RemoteConnectionEndpointLookupFailure> lookupFailures = new ArrayList<>();
+        return resolver.lookupHostAddress(NAME, lookupFailures, DnssecMode.disabled);
+    }
+
+    private static final class StubResolver extends DNSResolver {
+        private final long ttl;
+        private final List<InetAddress> addresses = Collections.singletonList(InetAddress.getLoopbackAddress());
+        private final AtomicInteger hostLookups = new AtomicInteger();
+        private final AtomicInteger srvLookups = new AtomicInteger();
+        private volatile boolean fail;
+
+        private StubResolver(long ttl) {
+            super(false);
+            this.ttl = ttl;
+        }
+
+        @Override
+        protected Collection<SRV> lookupSrvRecords0(DnsName name,
+                        List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+            return lookupSrvRecordsWithTtl0(name, lookupFailures, dnssecMode).getResult();
+        }
+
+        @Override
+        protected TtlResult<Collection<SRV>> lookupSrvRecordsWithTtl0(DnsName name,
+                        List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+            srvLookups.incrementAndGet();
+            return new TtlResult<>(Collections.singletonList(new SRV(0, 0, 5222, "xmpp.example.org")), ttl);
+        }
+
+        @Override
+        protected TtlResult<List<InetAddress>> lookupHostAddressWithTtl0(DnsName name,
+                        List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+            hostLookups.incrementAndGet();
+            if (fail) {
+                lookupFailures.add(new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(name,
+                                new Exception("Lookup failed")));
+                return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
+            }
+            return new TtlResult<>(addresses, ttl);
+        }
+    }
+}
@@ -36,6 +36,11 @@ import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
 import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.bind2.Bind2;
+import org.jivesoftware.smack.bind2.Bind2InlineFeature;
+import org.jivesoftware.smack.bind2.Bind2Module;
+import org.jivesoftware.smack.bind2.Bind2ModuleDescriptor;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
 import org.jivesoftware.smack.filter.AndFilter;
 import org.jivesoftware.smack.filter.FromMatchesFilter;
 import org.jivesoftware.smack.filter.OrFilter;
@@ -44,7 +49,9 @@ import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.filter.StanzaTypeFilter;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
 import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.util.ExceptionCallback;
 import org.jivesoftware.smack.util.SuccessCallback;
 
@@ -102,11 +109,20 @@ public final class CarbonManager extends Manager {
                     );
                     // @formatter:on
 
+    private static final StandardExtensionElement INLINE_ENABLE_REQUEST = StandardExtensionElement.builder(
+                    Carbon.Enable.ELEMENT, CarbonExtension.NAMESPACE).build();
+
     private final Set<CarbonCopyReceivedListener> listeners = new CopyOnWriteArraySet<>();
 
     private volatile boolean enabled_state = false;
     private volatile boolean enabledByDefault = ENABLED_BY_DEFAULT;
 
+    /**
+     * Set if carbons got enabled inline as part of the resource binding (XEP-0386 § 4.2), in which case there is no
+     * need to enable them explicitly once the connection got authenticated.
+     */
+    private volatile boolean enabledInline;
+
     private final StanzaListener carbonsListener;
 
     private final AsyncButOrdered<BareJid> carbonsListenerAsyncButOrdered = new AsyncButOrdered<>();
@@ -161,6 +177,12 @@ public final class CarbonManager extends Manager {
                 if (!resumed) {
                     // Non-resumed XMPP sessions always start with disabled carbons
                     enabled_state = false;
+                    if (enabledInline) {
+                        enabledInline = false;
+                        enabled_state = true;
+                        addCarbonsListener(connection);
+                        return;
+                    }
                     try {
                         if (shouldCarbonsBeEnabled() && isSupportedByServer()) {
                             setCarbonsEnabled(true);
@@ -174,6 +196,33 @@ public final class CarbonManager extends Manager {
         });
 
         addCarbonsListener(connection);
+
+        if (connection instanceof ModularXmppClientToServerConnection) {
+            ModularXmppClientToServerConnection modularConnection = (ModularXmppClientToServerConnection) connection;
+            Bind2Module bind2Module = modularConnection.getConnectionModuleFor(Bind2ModuleDescriptor.class);
+            if (bind2Module != null) {
+                bind2Module.addInlineFeature(new Bind2InlineFeature() {
+                    @Override
+                    public String getFeatureVar() {
+                        return CarbonExtension.NAMESPACE;
+                    }
+
+                    @Override
+                    public XmlElement getInlineRequest() {
+                        enabledInline = false;
+                        if (!shouldCarbonsBeEnabled()) {
+                            return null;
+                        }
+                        return INLINE_ENABLE_REQUEST;
+                    }
+
+                    @Override
+                    public void onBound(Bind2.Bound bound) {
+                        enabledInline = true;
+                    }
+                });
+            }
+        }
     }
 
     private void addCarbonsListener(XMPPConnection connection) {
@@ -18,6 +18,12 @@ package org.jivesoftware.smackx.csi;
 
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.bind2.Bind2;
+import org.jivesoftware.smack.bind2.Bind2InlineFeature;
+import org.jivesoftware.smack.bind2.Bind2Module;
+import org.jivesoftware.smack.bind2.Bind2ModuleDescriptor;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.packet.XmlElement;
 
 import org.jivesoftware.smackx.csi.packet.ClientStateIndication;
 
@@ -29,6 +35,23 @@ import org.jivesoftware.smackx.csi.packet.ClientStateIndication;
  */
 public class ClientStateIndicationManager {
 
+    private static final Bind2InlineFeature INACTIVE_ON_BIND = new Bind2InlineFeature() {
+        @Override
+        public String getFeatureVar() {
+            return ClientStateIndication.NAMESPACE;
+        }
+
+        @Override
+        public XmlElement getInlineRequest() {
+            return ClientStateIndication.Inactive.INSTANCE;
+        }
+
+        @Override
+        public void onBound(Bind2.Bound bound) {
+            // The service does not acknowledge the client state indication.
+        }
+    };
+
     public static void active(XMPPConnection connection) throws NotConnectedException, InterruptedException {
         throwIaeIfNotSupported(connection);
         connection.sendNonza(ClientStateIndication.Active.INSTANCE);
@@ -39,6 +62,26 @@ public class ClientStateIndicationManager {
         connection.sendNonza(ClientStateIndication.Inactive.INSTANCE);
     }
 
+    /**
+     * Indicate that the client is inactive right from the start of the session, by including the indication in the
+     * inline resource binding (XEP-0386) of the given connection. This saves a separate nonza, and ensures that the
+     * service does not flush any stanzas to the client before it learns about the client's state. Invoking this method
+     * more than once has no further effect.
+     *
+     * @param connection the connection.
+     * @return <code>true</code> if the connection supports inline resource binding and the indication is registered.
+     * @since 4.5
+     */
+    public static boolean inactiveOnBind(ModularXmppClientToServerConnection connection) {
+        Bind2Module bind2Module = connection.getConnectionModuleFor(Bind2ModuleDescriptor.class);
+        if (bind2Module == null) {
+            return false;
+        }
+
+        bind2Module.addInlineFeature(INACTIVE_ON_BIND);
+        return true;
+    }
+
     public static boolean isSupported(XMPPConnection connection) {
         return connection.hasFeature(ClientStateIndication.Feature.ELEMENT, ClientStateIndication.NAMESPACE);
     }
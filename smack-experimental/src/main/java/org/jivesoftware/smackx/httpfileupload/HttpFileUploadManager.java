@@ -41,6 +41,8 @@ import org.jivesoftware.smack.ConnectionCreationListener;
 import org.jivesoftware.smack.ConnectionListener;
 import org.jivesoftware.smack.Manager;
 import org.jivesoftware.smack.SmackException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
 import org.jivesoftware.smack.XMPPException;
@@ -399,6 +401,62 @@ public final class HttpFileUploadManager extends Manager {
             }
         }
 
+        SlotRequest slotRequest = createSlotRequest(uploadService, filename, fileSize, contentType);
+        return connection.sendIqRequestAndWaitForResponse(slotRequest);
+    }
+
+    /**
+     * Asynchronously request a new upload slot with optional content type from the default or a custom upload
+     * service. If a custom upload service is given, which is not the default one, then its disco#info is retrieved
+     * asynchronously before the slot is requested.
+     *
+     * @param filename name of file to be uploaded
+     * @param fileSize file size in bytes.
+     * @param contentType file content-type or null
+     * @param uploadServiceAddress the address of the upload service to use or null for default one
+     * @return a future for the file upload Slot.
+     * @see #requestSlot(String, long, String, DomainBareJid)
+     * @since 4.5
+     */
+    public SmackFuture<Slot, Exception> requestSlotAsync(final String filename, final long fileSize,
+                    final String contentType, final DomainBareJid uploadServiceAddress) {
+        final UploadService defaultUploadService = this.defaultUploadService;
+
+        if (uploadServiceAddress == null) {
+            return requestSlotAsync(defaultUploadService, filename, fileSize, contentType);
+        }
+        if (defaultUploadService != null && defaultUploadService.getAddress().equals(uploadServiceAddress)) {
+            // Avoid performing a service discovery if we already know about the given service.
+            return requestSlotAsync(defaultUploadService, filename, fileSize, contentType);
+        }
+
+        ServiceDiscoveryManager serviceDiscoveryManager = ServiceDiscoveryManager.getInstanceFor(connection());
+        return serviceDiscoveryManager.discoverInfoAsync(uploadServiceAddress, null).flatMap(discoverInfo -> {
+            if (!containsHttpFileUploadNamespace(discoverInfo)) {
+                throw new IllegalArgumentException("There is no HTTP upload service running at the given address '"
+                                + uploadServiceAddress + '\'');
+            }
+            UploadService uploadService = uploadServiceFrom(discoverInfo);
+            return requestSlotAsync(uploadService, filename, fileSize, contentType);
+        });
+    }
+
+    private SmackFuture<Slot, Exception> requestSlotAsync(UploadService uploadService, String filename, long fileSize,
+                    String contentType) {
+        SlotRequest slotRequest;
+        try {
+            slotRequest = createSlotRequest(uploadService, filename, fileSize, contentType);
+        } catch (SmackException.SmackMessageException | IllegalArgumentException e) {
+            InternalSmackFuture<Slot, Exception> future = new InternalSmackFuture<>();
+            future.setException(e);
+            return future;
+        }
+
+        return connection().sendIqRequestAsync(slotRequest).map(response -> (Slot) response);
+    }
+
+    private static SlotRequest createSlotRequest(UploadService uploadService, String filename, long fileSize,
+                    String contentType) throws SmackException.SmackMessageException {
         if (uploadService == null) {
             throw new SmackException.SmackMessageException("No upload service specified and also none discovered.");
         }
@@ -408,19 +466,14 @@ public final class HttpFileUploadManager extends Manager {
                             "Requested file size " + fileSize + " is greater than max allowed size " + uploadService.getMaxFileSize());
         }
 
-        SlotRequest slotRequest;
         switch (uploadService.getVersion()) {
         case v0_3:
-            slotRequest = new SlotRequest(uploadService.getAddress(), filename, fileSize, contentType);
-            break;
+            return new SlotRequest(uploadService.getAddress(), filename, fileSize, contentType);
         case v0_2:
-            slotRequest = new SlotRequest_V0_2(uploadService.getAddress(), filename, fileSize, contentType);
-            break;
+            return new SlotRequest_V0_2(uploadService.getAddress(), filename, fileSize, contentType);
         default:
             throw new AssertionError();
         }
-
-        return connection.sendIqRequestAndWaitForResponse(slotRequest);
     }
 
     public void setTlsContext(SSLContext tlsContext) {
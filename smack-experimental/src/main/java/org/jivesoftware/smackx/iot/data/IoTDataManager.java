@@ -17,25 +17,38 @@
 package org.jivesoftware.smackx.iot.data;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jivesoftware.smack.AsyncButOrdered;
 import org.jivesoftware.smack.ConnectionCreationListener;
+import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
 import org.jivesoftware.smack.StanzaCollector;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.filter.AndFilter;
+import org.jivesoftware.smack.filter.StanzaExtensionFilter;
 import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
 import org.jivesoftware.smack.iqrequest.IQRequestHandler.Mode;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.Stanza;
 
 import org.jivesoftware.smackx.iot.IoTManager;
 import org.jivesoftware.smackx.iot.Thing;
@@ -60,6 +73,9 @@ public final class IoTDataManager extends IoTManager {
 
     private static final Map<XMPPConnection, IoTDataManager> INSTANCES = new WeakHashMap<>();
 
+    private static final StanzaFilter IOT_FIELDS_FILTER = new AndFilter(StanzaTypeFilter.MESSAGE,
+                    new StanzaExtensionFilter(IoTFieldsExtension.ELEMENT, IoTFieldsExtension.NAMESPACE));
+
     // Ensure a IoTDataManager exists for every connection.
     static {
         XMPPConnectionRegistry.addConnectionCreationListener(new ConnectionCreationListener() {
@@ -90,8 +106,17 @@ public final class IoTDataManager extends IoTManager {
 
     private final Map<NodeInfo, Thing> things = new ConcurrentHashMap<>();
 
+    /**
+     * The momentary read-outs started via {@link #requestMomentaryValuesReadOut(Collection, int,
+     * MomentaryReadOutListener)} which are not yet done, keyed by their sequence number.
+     */
+    private final ConcurrentMap<Integer, PendingReadOut> pendingReadOuts = new ConcurrentHashMap<>();
+
+    private final AsyncButOrdered<PendingReadOut> asyncButOrdered = new AsyncButOrdered<>();
+
     private IoTDataManager(XMPPConnection connection) {
         super(connection);
+        connection.addSyncStanzaListener(this::processFieldsMessage, IOT_FIELDS_FILTER);
         connection.registerIQRequestHandler(new IoTIqRequestHandler(IoTDataRequest.ELEMENT,
                         IoTDataRequest.NAMESPACE, IQ.Type.get, Mode.async) {
             @Override
@@ -211,4 +236,181 @@ public final class IoTDataManager extends IoTManager {
 
         return res;
     }
+
+    /**
+     * Read out the momentary values of multiple things concurrently. At most <code>maxConcurrentReadOuts</code>
+     * read-outs are in progress at any time, the next read-out is started as soon as a previous one is done. The
+     * fields are passed to the given listener as soon as a data message arrives, instead of being collected until the
+     * read-out is done.
+     * <p>
+     * This method does not block. The returned future is completed once all read-outs are done or failed, with the
+     * number of successful read-outs as result. Cancelling the future prevents further read-outs from being started,
+     * but read-outs which are already in progress will still be reported to the listener.
+     * </p>
+     *
+     * @param things the full JIDs of the things to read data from.
+     * @param maxConcurrentReadOuts the maximum number of concurrent read-outs.
+     * @param listener the listener which is notified about the results.
+     * @return a future for the number of successful read-outs.
+     * @since 4.5
+     */
+    public SmackFuture<Integer, Exception> requestMomentaryValuesReadOut(Collection<EntityFullJid> things,
+                    int maxConcurrentReadOuts, MomentaryReadOutListener listener) {
+        if (maxConcurrentReadOuts <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent read-outs must be positive");
+        }
+        BulkReadOut bulkReadOut = new BulkReadOut(things, listener);
+        if (things.isEmpty()) {
+            bulkReadOut.future.setResult(0);
+            return bulkReadOut.future;
+        }
+        int initialReadOuts = Math.min(maxConcurrentReadOuts, things.size());
+        for (int i = 0; i < initialReadOuts; i++) {
+            bulkReadOut.startNextReadOut();
+        }
+        return bulkReadOut.future;
+    }
+
+    private void processFieldsMessage(Stanza stanza) {
+        final IoTFieldsExtension fields = IoTFieldsExtension.from((Message) stanza);
+        final int seqNr = fields.getSequenceNr();
+        final PendingReadOut pendingReadOut = pendingReadOuts.get(seqNr);
+        if (pendingReadOut == null || !pendingReadOut.thing.equals(stanza.getFrom())) {
+            return;
+        }
+
+        final boolean done = fields.isDone();
+        if (done && !pendingReadOuts.remove(seqNr, pendingReadOut)) {
+            // The read-out already failed, e.g. because it timed out.
+            return;
+        }
+
+        asyncButOrdered.performAsyncButOrdered(pendingReadOut, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pendingReadOut.bulkReadOut.listener.onFields(pendingReadOut.thing, fields);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Momentary read-out listener threw exception", e);
+                }
+                if (done) {
+                    pendingReadOut.finished(null);
+                }
+            }
+        });
+    }
+
+    private final class BulkReadOut {
+        private final Queue<EntityFullJid> remainingThings;
+        private final MomentaryReadOutListener listener;
+        private final AtomicInteger outstandingReadOuts;
+        private final AtomicInteger successfulReadOuts = new AtomicInteger();
+        private final InternalSmackFuture<Integer, Exception> future = new InternalSmackFuture<>();
+
+        private BulkReadOut(Collection<EntityFullJid> things, MomentaryReadOutListener listener) {
+            this.remainingThings = new ConcurrentLinkedQueue<>(things);
+            this.listener = listener;
+            this.outstandingReadOuts = new AtomicInteger(things.size());
+        }
+
+        private void startNextReadOut() {
+            if (future.isCancelled()) {
+                // Account for the read-outs which will now never be started.
+                while (remainingThings.poll() != null) {
+                    outstandingReadOuts.decrementAndGet();
+                }
+                return;
+            }
+
+            EntityFullJid thing = remainingThings.poll();
+            if (thing == null) {
+                return;
+            }
+
+            final int seqNr = nextSeqNr.incrementAndGet();
+            final PendingReadOut pendingReadOut = new PendingReadOut(thing, seqNr, this);
+            pendingReadOuts.put(seqNr, pendingReadOut);
+
+            IoTDataRequest iotDataRequest = new IoTDataRequest(seqNr, true);
+            iotDataRequest.setTo(thing);
+            connection().sendIqRequestAsync(iotDataRequest).onCompletion(f -> {
+                if (f.wasSuccessful()) {
+                    pendingReadOut.readOutAccepted();
+                } else if (f.isCancelled()) {
+                    pendingReadOut.failed(NoResponseException.newWith(connection(), "IoT read-out of " + thing));
+                } else {
+                    pendingReadOut.failed(f.getExceptionIfAvailable());
+                }
+            });
+        }
+
+        private void readOutFinished(boolean successful) {
+            if (successful) {
+                successfulReadOuts.incrementAndGet();
+            }
+            startNextReadOut();
+            if (outstandingReadOuts.decrementAndGet() == 0) {
+                future.setResult(successfulReadOuts.get());
+            }
+        }
+    }
+
+    private final class PendingReadOut {
+        private final EntityFullJid thing;
+        private final int seqNr;
+        private final BulkReadOut bulkReadOut;
+        private volatile ScheduledAction timeoutAction;
+
+        private PendingReadOut(EntityFullJid thing, int seqNr, BulkReadOut bulkReadOut) {
+            this.thing = thing;
+            this.seqNr = seqNr;
+            this.bulkReadOut = bulkReadOut;
+        }
+
+        private void readOutAccepted() {
+            timeoutAction = schedule(new Runnable() {
+                @Override
+                public void run() {
+                    failed(NoResponseException.newWith(connection(), "IoT read-out data of " + thing));
+                }
+            }, connection().getReplyTimeout(), TimeUnit.MILLISECONDS);
+
+            if (!pendingReadOuts.containsKey(seqNr)) {
+                // The read-out was done before we have seen the IQ response.
+                timeoutAction.cancel();
+            }
+        }
+
+        private void failed(final Exception exception) {
+            if (!pendingReadOuts.remove(seqNr, this)) {
+                return;
+            }
+            asyncButOrdered.performAsyncButOrdered(this, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        bulkReadOut.listener.onError(thing, exception);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Momentary read-out listener threw exception", e);
+                    }
+                    finished(exception);
+                }
+            });
+        }
+
+        private void finished(Exception exception) {
+            ScheduledAction timeoutAction = this.timeoutAction;
+            if (timeoutAction != null) {
+                timeoutAction.cancel();
+            }
+            if (exception == null) {
+                try {
+                    bulkReadOut.listener.onDone(thing);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Momentary read-out listener threw exception", e);
+                }
+            }
+            bulkReadOut.readOutFinished(exception == null);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.iot.data;
+
+import org.jivesoftware.smackx.iot.data.element.IoTFieldsExtension;
+
+import org.jxmpp.jid.EntityFullJid;
+
+/**
+ * A listener for the results of momentary read-outs of multiple things.
+ * <p>
+ * The methods of the listener are invoked in order for each individual thing, that is, all
+ * {@link #onFields(EntityFullJid, IoTFieldsExtension)} invocations happen before the final
+ * {@link #onDone(EntityFullJid)} or {@link #onError(EntityFullJid, Exception)} invocation of the same thing. But the
+ * listener may be invoked concurrently for different things.
+ * </p>
+ *
+ * @see IoTDataManager#requestMomentaryValuesReadOut(java.util.Collection, int, MomentaryReadOutListener)
+ * @since 4.5
+ */
+public interface MomentaryReadOutListener {
+
+    /**
+     * Invoked for every received data message of the read-out, as soon as it arrives.
+     *
+     * @param thing the thing which send the data.
+     * @param fields the fields of the data message.
+     */
+    void onFields(EntityFullJid thing, IoTFieldsExtension fields);
+
+    /**
+     * Invoked once the read-out of the thing is done.
+     *
+     * @param thing the thing.
+     */
+    void onDone(EntityFullJid thing);
+
+    /**
+     * Invoked if the read-out of the thing failed.
+     *
+     * @param thing the thing.
+     * @param exception the reason of the failure.
+     */
+    void onError(EntityFullJid thing, Exception exception);
+
+}
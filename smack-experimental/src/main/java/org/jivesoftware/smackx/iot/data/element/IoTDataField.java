@@ -22,6 +22,7 @@ public abstract class IoTDataField extends IoTDataExtensionElement {
 
     enum Type {
         integer("int"),
+        longType("long"),
         bool("boolean"),
         ;
 
@@ -61,6 +62,12 @@ public abstract class IoTDataField extends IoTDataExtensionElement {
 
     private String valueString;
 
+    /**
+     * Get the string representation of the value of this field. Numeric fields can be evaluated via
+     * {@link NumericField#getLongValue()} without creating the string representation.
+     *
+     * @return the string representation of the value.
+     */
     public final String getValueString() {
         if (valueString == null) {
             valueString = getValueInternal();
@@ -70,7 +77,22 @@ public abstract class IoTDataField extends IoTDataExtensionElement {
 
     protected abstract String getValueInternal();
 
-    public static class IntField extends IoTDataField {
+    /**
+     * A field with an integral numeric value. Consumers can read the value of all numeric fields via
+     * {@link #getLongValue()}, independently of the concrete field type, and without any string conversion.
+     *
+     * @since 4.5
+     */
+    public abstract static class NumericField extends IoTDataField {
+
+        protected NumericField(Type type, String name) {
+            super(type, name);
+        }
+
+        public abstract long getLongValue();
+    }
+
+    public static class IntField extends NumericField {
 
         private final int value;
 
@@ -87,6 +109,40 @@ public abstract class IoTDataField extends IoTDataExtensionElement {
         public int getValue() {
             return value;
         }
+
+        @Override
+        public long getLongValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A field with a value of type <code>long</code>.
+     *
+     * @since 4.5
+     */
+    public static class LongField extends NumericField {
+
+        private final long value;
+
+        public LongField(String name, long value) {
+            super(Type.longType, name);
+            this.value = value;
+        }
+
+        @Override
+        protected String getValueInternal() {
+            return Long.toString(value);
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public long getLongValue() {
+            return value;
+        }
     }
 
     public static class BooleanField extends IoTDataField {
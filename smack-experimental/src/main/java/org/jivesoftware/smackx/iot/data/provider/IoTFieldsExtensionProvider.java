@@ -122,6 +122,11 @@ public class IoTFieldsExtensionProvider extends ExtensionElementProvider<IoTFiel
                     field = new IoTDataField.IntField(fieldName, value);
                     }
                     break;
+                case "long": {
+                    long value = Long.parseLong(fieldValue);
+                    field = new IoTDataField.LongField(fieldName, value);
+                    }
+                    break;
                 case "boolean": {
                     boolean value = Boolean.parseBoolean(fieldValue);
                     field = new IoTDataField.BooleanField(fieldName, value);
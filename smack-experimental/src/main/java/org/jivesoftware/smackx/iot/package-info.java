@@ -84,6 +84,16 @@
  * `IoTFieldsExtension`. Note that Smack currently only supports a subset of the
  * specified data types.
  * </p>
+ * <p>
+ * To read out many things, use the non-blocking variant, which performs the
+ * read-outs concurrently, with a bounded number of read-outs in progress, and
+ * reports the fields of every data message as soon as it arrives:
+ * </p>
+ *
+ * <pre>{@code
+ * Collection<EntityFullJid> things = …
+ * iotDataManager.requestMomentaryValuesReadOut(things, 32, listener);
+ * }</pre>
  * <h2>Controlling a thing</h2>
  * <p>
  * Things can also be controlled, e.g. to turn on a light. Let's create a thing
@@ -0,0 +1,34 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.jingle_filetransfer;
+
+/**
+ * Listener for incoming Jingle File Transfer offers.
+ *
+ * @since 4.5
+ */
+public interface IncomingFileOfferListener {
+
+    /**
+     * Invoked when a remote entity offers a file. Implementations must either {@link IncomingJingleFileOffer#accept
+     * accept} or {@link IncomingJingleFileOffer#decline() decline} the offer.
+     *
+     * @param offer the incoming file offer.
+     */
+    void onIncomingFileOffer(IncomingJingleFileOffer offer);
+
+}
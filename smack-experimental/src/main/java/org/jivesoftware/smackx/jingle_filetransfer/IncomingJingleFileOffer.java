@@ -0,0 +1,254 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.jingle_filetransfer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.util.Async;
+
+import org.jivesoftware.smackx.bytestreams.BytestreamSession;
+import org.jivesoftware.smackx.hashes.HashManager;
+import org.jivesoftware.smackx.hashes.element.HashElement;
+import org.jivesoftware.smackx.jingle.JingleManager;
+import org.jivesoftware.smackx.jingle.Role;
+import org.jivesoftware.smackx.jingle.element.Jingle;
+import org.jivesoftware.smackx.jingle.element.JingleContent;
+import org.jivesoftware.smackx.jingle.element.JingleReason;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportInitiationCallback;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportManager;
+import org.jivesoftware.smackx.jingle.transports.jingle_ibb.element.JingleIBBTransport;
+import org.jivesoftware.smackx.jingle_filetransfer.element.Checksum;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransferChild;
+import org.jivesoftware.smackx.jingle_filetransfer.element.Range;
+
+
+/**
+ * An incoming Jingle File Transfer offer. The received bytes are written directly to the target file while the hash
+ * of the file is calculated. If the initiator announced the hash of the file, either as part of the offer or via a
+ * <code>&lt;checksum/&gt;</code> session-info, then the calculated hash is verified against it.
+ * <p>
+ * An interrupted transfer can be resumed by accepting a new offer of the same file with {@link #accept(File, boolean)}:
+ * the already received part of the target file is kept and only the remaining bytes are requested via a
+ * <code>&lt;range/&gt;</code> element.
+ * </p>
+ *
+ * @since 4.5
+ */
+public final class IncomingJingleFileOffer extends JingleFileTransferSession {
+
+    private static final Logger LOGGER = Logger.getLogger(IncomingJingleFileOffer.class.getName());
+
+    private File target;
+
+    private HashElement expectedHash;
+
+    private HashElement calculatedHash;
+
+    private boolean terminatedBySender;
+
+    IncomingJingleFileOffer(XMPPConnection connection, Jingle sessionInitiate, JingleFileTransferChild offeredFile,
+                    HashManager.ALGORITHM hashAlgorithm, int bufferSize) {
+        super(connection, sessionInitiate.getFrom().asFullJidOrThrow(), connection.getUser(), Role.responder,
+                        sessionInitiate.getSid(), sessionInitiate.getContents().get(0), offeredFile,
+                        offeredFile.getHash() != null ? offeredFile.getHash().getAlgorithm() : hashAlgorithm,
+                        bufferSize);
+        this.expectedHash = offeredFile.getHash();
+    }
+
+    void initTransportSession(JingleTransportManager<?> transportManager, Jingle sessionInitiate) {
+        setTransportSession(transportManager.transportSession(this));
+        transportSession.processJingle(sessionInitiate);
+    }
+
+    /**
+     * Accept the offer and write the file to the given target. An existing target file will be overwritten.
+     *
+     * @param target the file to write to.
+     * @return a future for the result of the transfer.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public SmackFuture<JingleFileTransferChild, Exception> accept(File target)
+                    throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        return accept(target, false);
+    }
+
+    /**
+     * Accept the offer and write the file to the given target. If <code>resume</code> is <code>true</code> and the
+     * target file already exists, but is smaller than the offered file, then only the missing bytes are requested
+     * from the initiator and appended to the target file.
+     *
+     * @param target the file to write to.
+     * @param resume if an interrupted transfer should be resumed.
+     * @return a future for the result of the transfer.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public SmackFuture<JingleFileTransferChild, Exception> accept(File target, boolean resume)
+                    throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        this.target = target;
+
+        JingleFileTransferChild acceptedFile = offeredFile;
+        if (resume && target.isFile() && target.length() > 0 && target.length() <= offeredFile.getSize()) {
+            offset = target.length();
+            acceptedFile = builderFrom(offeredFile).setRange(new Range(offset, null, null)).build();
+        }
+
+        JingleTransportInitiationCallback callback = new JingleTransportInitiationCallback() {
+            @Override
+            public void onSessionInitiated(BytestreamSession bytestreamSession) {
+                setBytestreamSession(bytestreamSession);
+                Async.go(() -> receive(bytestreamSession), "Jingle File Transfer " + sid + " from " + remote);
+            }
+
+            @Override
+            public void onException(Exception e) {
+                LOGGER.log(Level.WARNING, "Could not establish the bytestream for " + sid, e);
+                onTransportMethodFailed(transportSession.getNamespace());
+            }
+        };
+
+        // An in-band bytestream is opened by the initiator as soon as it receives our session-accept, hence we have to
+        // be ready for it before sending the session-accept. Other transports negotiate after the session-accept.
+        boolean awaitBeforeAccept = JingleIBBTransport.NAMESPACE_V1.equals(transportSession.getNamespace());
+        if (awaitBeforeAccept) {
+            transportSession.initiateIncomingSession(callback);
+        }
+
+        JingleContent content = getContent();
+        jutil.sendSessionAccept(remote, sid, content.getCreator(), content.getName(), content.getSenders(),
+                        createDescription(acceptedFile), transportSession.createTransport());
+
+        if (!awaitBeforeAccept) {
+            JingleManager.getThreadPool().execute(() -> transportSession.initiateIncomingSession(callback));
+        }
+        return future;
+    }
+
+    /**
+     * Decline the offer.
+     */
+    public void decline() {
+        terminate(JingleReason.Decline);
+        fail(new JingleFileTransferException.SessionTerminatedException(JingleReason.Decline));
+    }
+
+    @Override
+    protected IQ handleSessionInfo(Jingle sessionInfo) {
+        Checksum checksum = sessionInfo.getExtension(Checksum.class);
+        if (checksum != null && checksum.getFile().getHash() != null) {
+            HashElement hash = checksum.getFile().getHash();
+            synchronized (this) {
+                if (hash.getAlgorithm() == hashAlgorithm) {
+                    expectedHash = hash;
+                } else {
+                    LOGGER.log(Level.INFO, "Can not verify checksum of " + sid + " using " + hash.getAlgorithm()
+                                    + ", as " + hashAlgorithm + " is calculated");
+                }
+            }
+            tryComplete();
+        }
+        return IQ.createResultIQ(sessionInfo);
+    }
+
+    @Override
+    protected void onSessionTerminated(JingleReason reason) {
+        if (reason == null || reason.asEnum() != JingleReason.Reason.success) {
+            super.onSessionTerminated(reason);
+            return;
+        }
+
+        // The initiator has send all bytes, but we may still be receiving them.
+        synchronized (this) {
+            terminatedBySender = true;
+        }
+        tryComplete();
+    }
+
+    private void receive(BytestreamSession bytestreamSession) {
+        MessageDigest digest = HashManager.getMessageDigest(hashAlgorithm);
+        byte[] buffer = new byte[bufferSize];
+        try {
+            if (offset > 0) {
+                // Digest the bytes received by a previous transfer, so that the hash covers the whole file.
+                try (InputStream existing = new FileInputStream(target)) {
+                    copy(existing, null, offset, digest, buffer, null);
+                }
+            }
+
+            InputStream in = bytestreamSession.getInputStream();
+            try (OutputStream out = new FileOutputStream(target, offset > 0)) {
+                copy(in, out, offeredFile.getSize() - offset, digest, buffer, transferredBytes);
+            }
+        } catch (IOException e) {
+            if (!future.isDone()) {
+                terminate(JingleReason.MediaError);
+                fail(e);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            calculatedHash = createHashElement(digest);
+        }
+        tryComplete();
+    }
+
+    private void tryComplete() {
+        HashElement expected, calculated;
+        synchronized (this) {
+            if (calculatedHash == null) {
+                // Still receiving.
+                return;
+            }
+            if (expectedHash == null && !terminatedBySender) {
+                // Wait for the checksum or the session-terminate of the initiator.
+                return;
+            }
+            expected = expectedHash;
+            calculated = calculatedHash;
+        }
+
+        if (expected != null && !expected.equals(calculated)) {
+            if (!terminatedBySender) {
+                terminate(JingleReason.MediaError);
+            }
+            fail(new JingleFileTransferException.HashMismatchException(expected, calculated));
+            return;
+        }
+
+        finish(builderFrom(offeredFile).setHash(calculated).build());
+    }
+}
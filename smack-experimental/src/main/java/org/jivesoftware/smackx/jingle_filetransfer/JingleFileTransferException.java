@@ -0,0 +1,86 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.jingle_filetransfer;
+
+import org.jivesoftware.smack.SmackException;
+
+import org.jivesoftware.smackx.hashes.element.HashElement;
+import org.jivesoftware.smackx.jingle.element.JingleReason;
+
+/**
+ * Exceptions signalling the failure of a Jingle File Transfer (XEP-0234).
+ *
+ * @since 4.5
+ */
+public abstract class JingleFileTransferException extends SmackException {
+
+    private static final long serialVersionUID = 1L;
+
+    protected JingleFileTransferException(String message) {
+        super(message);
+    }
+
+    /**
+     * The Jingle session was terminated, by either party, before the file was transferred.
+     */
+    public static final class SessionTerminatedException extends JingleFileTransferException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final JingleReason reason;
+
+        public SessionTerminatedException(JingleReason reason) {
+            super("Jingle session terminated: " + (reason != null ? reason.asEnum() : "no reason given"));
+            this.reason = reason;
+        }
+
+        /**
+         * Get the reason of the session termination.
+         *
+         * @return the reason or <code>null</code>.
+         */
+        public JingleReason getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * The hash calculated over the received file does not match the hash announced by the sender.
+     */
+    public static final class HashMismatchException extends JingleFileTransferException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final HashElement expected;
+        private final HashElement calculated;
+
+        public HashMismatchException(HashElement expected, HashElement calculated) {
+            super("Hash mismatch: expected " + expected.getHashB64() + " but calculated " + calculated.getHashB64()
+                            + " (" + expected.getAlgorithm() + ')');
+            this.expected = expected;
+            this.calculated = calculated;
+        }
+
+        public HashElement getExpected() {
+            return expected;
+        }
+
+        public HashElement getCalculated() {
+            return calculated;
+        }
+    }
+}
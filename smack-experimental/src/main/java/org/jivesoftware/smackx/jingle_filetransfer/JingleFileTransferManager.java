@@ -16,20 +16,74 @@
  */
 package org.jivesoftware.smackx.jingle_filetransfer;
 
+import java.io.File;
+import java.util.List;
+import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.jivesoftware.smack.Manager;
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.NamedElement;
+import org.jivesoftware.smack.util.Objects;
+
+import org.jivesoftware.smackx.disco.ServiceDiscoveryManager;
+import org.jivesoftware.smackx.hashes.HashManager;
+import org.jivesoftware.smackx.jingle.JingleManager;
+import org.jivesoftware.smackx.jingle.JingleTransportMethodManager;
+import org.jivesoftware.smackx.jingle.JingleUtil;
+import org.jivesoftware.smackx.jingle.element.Jingle;
+import org.jivesoftware.smackx.jingle.element.JingleContentDescription;
+import org.jivesoftware.smackx.jingle.element.JingleReason;
+import org.jivesoftware.smackx.jingle.provider.JingleContentProviderManager;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportManager;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransfer;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransferChild;
+import org.jivesoftware.smackx.jingle_filetransfer.provider.JingleFileTransferProvider;
+
+import org.jxmpp.jid.FullJid;
 
 /**
  * Manager for JingleFileTransfer (XEP-0234).
+ * <p>
+ * Files are streamed through the best available Jingle transport, i.e. they are never loaded into memory as a whole.
+ * The hash of the file is calculated while streaming: the initiator announces it after the transfer via a
+ * <code>&lt;checksum/&gt;</code> session-info and the responder verifies it against the hash it calculated while
+ * receiving. Interrupted transfers can be resumed by the responder, see
+ * {@link IncomingJingleFileOffer#accept(File, boolean)}.
+ * </p>
  */
 public final class JingleFileTransferManager extends Manager {
 
+    private static final Logger LOGGER = Logger.getLogger(JingleFileTransferManager.class.getName());
+
     private static final WeakHashMap<XMPPConnection, JingleFileTransferManager> INSTANCES = new WeakHashMap<>();
 
+    static {
+        JingleContentProviderManager.addJingleContentDescriptionProvider(JingleFileTransfer.NAMESPACE_V5,
+                        new JingleFileTransferProvider());
+    }
+
+    private final Set<IncomingFileOfferListener> incomingFileOfferListeners = new CopyOnWriteArraySet<>();
+
+    private final JingleUtil jutil;
+
+    private HashManager.ALGORITHM hashAlgorithm = HashManager.ALGORITHM.SHA_256;
+
+    private int bufferSize = 8 * 1024;
+
     private JingleFileTransferManager(XMPPConnection connection) {
         super(connection);
+        jutil = new JingleUtil(connection);
+        ServiceDiscoveryManager.getInstanceFor(connection).addFeature(JingleFileTransfer.NAMESPACE_V5);
+        JingleManager.getInstanceFor(connection).registerDescriptionHandler(JingleFileTransfer.NAMESPACE_V5,
+                        this::handleFileOffer);
     }
 
     public static synchronized JingleFileTransferManager getInstanceFor(XMPPConnection connection) {
@@ -40,4 +94,114 @@ public final class JingleFileTransferManager extends Manager {
         }
         return manager;
     }
+
+    public boolean addIncomingFileOfferListener(IncomingFileOfferListener listener) {
+        return incomingFileOfferListeners.add(listener);
+    }
+
+    public boolean removeIncomingFileOfferListener(IncomingFileOfferListener listener) {
+        return incomingFileOfferListeners.remove(listener);
+    }
+
+    /**
+     * Set the hash algorithm used for outgoing transfers, and for incoming transfers whose offer does not include a
+     * hash. Defaults to SHA-256.
+     *
+     * @param hashAlgorithm the hash algorithm.
+     */
+    public void setHashAlgorithm(HashManager.ALGORITHM hashAlgorithm) {
+        this.hashAlgorithm = Objects.requireNonNull(hashAlgorithm);
+    }
+
+    public HashManager.ALGORITHM getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    /**
+     * Set the size of the buffer used to stream a file. Defaults to 8 KiB.
+     *
+     * @param bufferSize the buffer size in bytes.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public OutgoingJingleFileTransfer sendFile(FullJid recipient, File file)
+                    throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        return sendFile(recipient, file, null);
+    }
+
+    /**
+     * Offer a file to the given recipient. The returned transfer starts streaming once the recipient accepted the
+     * offer, its {@link OutgoingJingleFileTransfer#getFuture() future} can be used to await the result.
+     *
+     * @param recipient the recipient.
+     * @param file the file to send.
+     * @param description an optional description of the file.
+     * @return the outgoing file transfer.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public OutgoingJingleFileTransfer sendFile(FullJid recipient, File file, String description)
+                    throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException(file + " is not a file");
+        }
+
+        JingleFileTransferChild offeredFile = JingleFileTransferChild.getBuilder()
+                        .setFile(file)
+                        .setDescription(description)
+                        .build();
+        OutgoingJingleFileTransfer transfer = new OutgoingJingleFileTransfer(connection(), recipient,
+                        JingleManager.randomId(), file, offeredFile, hashAlgorithm, bufferSize);
+        transfer.sendOffer();
+        return transfer;
+    }
+
+    private IQ handleFileOffer(Jingle sessionInitiate) {
+        XMPPConnection connection = connection();
+        FullJid initiator = sessionInitiate.getFrom().asFullJidOrThrow();
+        String sid = sessionInitiate.getSid();
+
+        JingleContentDescription description = sessionInitiate.getContents().get(0).getDescription();
+        List<NamedElement> children = description.getJingleContentDescriptionChildren();
+        if (children.isEmpty() || !(children.get(0) instanceof JingleFileTransferChild)) {
+            connection.sendIqRequestAsync(jutil.createSessionTerminate(initiator, sid, JingleReason.FailedApplication));
+            return IQ.createResultIQ(sessionInitiate);
+        }
+
+        JingleTransportManager<?> transportManager = JingleTransportMethodManager.getTransportManager(connection,
+                        sessionInitiate);
+        if (transportManager == null) {
+            connection.sendIqRequestAsync(jutil.createSessionTerminateUnsupportedTransports(initiator, sid));
+            return IQ.createResultIQ(sessionInitiate);
+        }
+
+        IncomingJingleFileOffer offer = new IncomingJingleFileOffer(connection, sessionInitiate,
+                        (JingleFileTransferChild) children.get(0), hashAlgorithm, bufferSize);
+        offer.initTransportSession(transportManager, sessionInitiate);
+        JingleManager.getInstanceFor(connection).registerJingleSessionHandler(initiator, sid, offer);
+
+        if (incomingFileOfferListeners.isEmpty()) {
+            LOGGER.log(Level.FINE, "No listener for incoming file offer " + sid + " from " + initiator);
+            offer.decline();
+            return IQ.createResultIQ(sessionInitiate);
+        }
+
+        JingleManager.getThreadPool().execute(() -> {
+            for (IncomingFileOfferListener listener : incomingFileOfferListeners) {
+                listener.onIncomingFileOffer(offer);
+            }
+        });
+        return IQ.createResultIQ(sessionInitiate);
+    }
 }
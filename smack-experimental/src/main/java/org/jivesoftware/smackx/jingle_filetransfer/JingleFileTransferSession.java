@@ -0,0 +1,261 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.jingle_filetransfer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.packet.IQ;
+
+import org.jivesoftware.smackx.bytestreams.BytestreamSession;
+import org.jivesoftware.smackx.hashes.HashManager;
+import org.jivesoftware.smackx.hashes.element.HashElement;
+import org.jivesoftware.smackx.jingle.JingleManager;
+import org.jivesoftware.smackx.jingle.JingleSession;
+import org.jivesoftware.smackx.jingle.JingleUtil;
+import org.jivesoftware.smackx.jingle.Role;
+import org.jivesoftware.smackx.jingle.element.Jingle;
+import org.jivesoftware.smackx.jingle.element.JingleContent;
+import org.jivesoftware.smackx.jingle.element.JingleReason;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransfer;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransferChild;
+
+import org.jxmpp.jid.FullJid;
+
+/**
+ * A Jingle File Transfer (XEP-0234) session. The file is streamed through the negotiated transport, i.e. it is never
+ * held in memory as a whole, while the hash of the file is calculated on the fly.
+ *
+ * @since 4.5
+ */
+public abstract class JingleFileTransferSession extends JingleSession {
+
+    private static final Logger LOGGER = Logger.getLogger(JingleFileTransferSession.class.getName());
+
+    protected final XMPPConnection connection;
+
+    protected final JingleUtil jutil;
+
+    protected final JingleFileTransferChild offeredFile;
+
+    protected final HashManager.ALGORITHM hashAlgorithm;
+
+    protected final int bufferSize;
+
+    protected final AtomicLong transferredBytes = new AtomicLong();
+
+    protected final InternalSmackFuture<JingleFileTransferChild, Exception> future = new InternalSmackFuture<>();
+
+    protected volatile long offset;
+
+    private volatile BytestreamSession bytestreamSession;
+
+    JingleFileTransferSession(XMPPConnection connection, FullJid initiator, FullJid responder, Role role, String sid,
+                    JingleContent content, JingleFileTransferChild offeredFile, HashManager.ALGORITHM hashAlgorithm,
+                    int bufferSize) {
+        super(initiator, responder, role, sid, content != null ? Collections.singletonList(content) : null);
+        this.connection = connection;
+        this.jutil = new JingleUtil(connection);
+        this.offeredFile = offeredFile;
+        this.hashAlgorithm = hashAlgorithm;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public XMPPConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Get the metadata of the file as it was offered by the initiator.
+     *
+     * @return the offered file.
+     */
+    public JingleFileTransferChild getOfferedFile() {
+        return offeredFile;
+    }
+
+    /**
+     * Get the size of the file in bytes.
+     *
+     * @return the size of the file.
+     */
+    public long getSize() {
+        return offeredFile.getSize();
+    }
+
+    /**
+     * Get the offset at which the transfer started. This is non-zero if the transfer resumes a previous, interrupted
+     * transfer.
+     *
+     * @return the offset in bytes.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the number of bytes which went through the transport so far. Bytes before the {@link #getOffset() offset}
+     * are not included.
+     *
+     * @return the number of transferred bytes.
+     */
+    public long getTransferredBytes() {
+        return transferredBytes.get();
+    }
+
+    /**
+     * Get a future which is completed once the transfer finished. The result is the metadata of the transferred file,
+     * including the hash calculated while streaming.
+     *
+     * @return a future for the result of the transfer.
+     */
+    public SmackFuture<JingleFileTransferChild, Exception> getFuture() {
+        return future;
+    }
+
+    /**
+     * Cancel the transfer. This terminates the Jingle session and closes the underlying bytestream.
+     */
+    public void cancel() {
+        if (future.isDone()) {
+            return;
+        }
+        terminate(JingleReason.Cancel);
+        closeBytestreamSession();
+        future.cancel(false);
+    }
+
+    @Override
+    public void onTransportMethodFailed(String namespace) {
+        LOGGER.log(Level.WARNING, "Transport method " + namespace + " failed for " + getSessionId());
+        terminate(JingleReason.FailedTransport);
+        fail(new JingleFileTransferException.SessionTerminatedException(JingleReason.FailedTransport));
+    }
+
+    @Override
+    protected IQ handleSessionTerminate(Jingle sessionTerminate) {
+        onSessionTerminated(sessionTerminate.getReason());
+        return IQ.createResultIQ(sessionTerminate);
+    }
+
+    protected void onSessionTerminated(JingleReason reason) {
+        fail(new JingleFileTransferException.SessionTerminatedException(reason));
+    }
+
+    protected final void setBytestreamSession(BytestreamSession bytestreamSession) {
+        this.bytestreamSession = bytestreamSession;
+    }
+
+    protected final JingleContent getContent() {
+        return contents.get(0);
+    }
+
+    protected final JingleFileTransfer createDescription(JingleFileTransferChild file) {
+        return new JingleFileTransfer(Collections.singletonList(file));
+    }
+
+    protected static JingleFileTransferChild.Builder builderFrom(JingleFileTransferChild file) {
+        return JingleFileTransferChild.getBuilder()
+                        .setDate(file.getDate())
+                        .setDescription(file.getDescription())
+                        .setHash(file.getHash())
+                        .setMediaType(file.getMediaType())
+                        .setName(file.getName())
+                        .setSize(file.getSize())
+                        .setRange(file.getRange());
+    }
+
+    protected final HashElement createHashElement(MessageDigest digest) {
+        return HashManager.assembleHashElement(hashAlgorithm, digest.digest());
+    }
+
+    protected final void terminate(JingleReason reason) {
+        Jingle sessionTerminate = jutil.createSessionTerminate(remote, sid, reason);
+        connection.sendIqRequestAsync(sessionTerminate);
+        unregister();
+    }
+
+    protected final void finish(JingleFileTransferChild transferredFile) {
+        closeBytestreamSession();
+        unregister();
+        future.setResult(transferredFile);
+    }
+
+    protected final void fail(Exception exception) {
+        closeBytestreamSession();
+        unregister();
+        future.setException(exception);
+    }
+
+    private void unregister() {
+        JingleManager.getInstanceFor(connection).unregisterJingleSessionHandler(remote, sid, this);
+    }
+
+    private void closeBytestreamSession() {
+        BytestreamSession bytestreamSession = this.bytestreamSession;
+        if (bytestreamSession == null) {
+            return;
+        }
+        try {
+            bytestreamSession.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not close bytestream session of " + sid, e);
+        }
+    }
+
+    /**
+     * Copy exactly <code>count</code> bytes from the given input stream to the given output stream, while updating the
+     * message digest with every copied byte.
+     *
+     * @param in the input stream.
+     * @param out the output stream, may be <code>null</code> in which case the bytes are only digested.
+     * @param count the number of bytes to copy.
+     * @param digest the message digest to update.
+     * @param buffer the buffer used for copying.
+     * @param progress the counter of transferred bytes, may be <code>null</code>.
+     * @throws IOException if an I/O error occurred or if the input stream ended prematurely.
+     */
+    static void copy(InputStream in, OutputStream out, long count, MessageDigest digest, byte[] buffer,
+                    AtomicLong progress) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Stream ended " + remaining + " bytes prematurely");
+            }
+            digest.update(buffer, 0, read);
+            if (out != null) {
+                out.write(buffer, 0, read);
+            }
+            remaining -= read;
+            if (progress != null) {
+                progress.addAndGet(read);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.jingle_filetransfer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.util.Async;
+
+import org.jivesoftware.smackx.bytestreams.BytestreamSession;
+import org.jivesoftware.smackx.hashes.HashManager;
+import org.jivesoftware.smackx.hashes.element.HashElement;
+import org.jivesoftware.smackx.jingle.JingleManager;
+import org.jivesoftware.smackx.jingle.JingleTransportMethodManager;
+import org.jivesoftware.smackx.jingle.Role;
+import org.jivesoftware.smackx.jingle.element.Jingle;
+import org.jivesoftware.smackx.jingle.element.JingleContent;
+import org.jivesoftware.smackx.jingle.element.JingleContentDescription;
+import org.jivesoftware.smackx.jingle.element.JingleReason;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportInitiationCallback;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportManager;
+import org.jivesoftware.smackx.jingle_filetransfer.element.Checksum;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransferChild;
+import org.jivesoftware.smackx.jingle_filetransfer.element.Range;
+
+import org.jxmpp.jid.FullJid;
+
+/**
+ * An outgoing Jingle File Transfer, i.e. a file offered by us. If the responder accepts the offer with a
+ * <code>&lt;range/&gt;</code> element, only the bytes starting at the requested offset are send, which allows the
+ * responder to resume an interrupted transfer. Once the file was send, its hash is announced to the responder via a
+ * <code>&lt;checksum/&gt;</code> session-info.
+ *
+ * @since 4.5
+ */
+public final class OutgoingJingleFileTransfer extends JingleFileTransferSession {
+
+    private static final Logger LOGGER = Logger.getLogger(OutgoingJingleFileTransfer.class.getName());
+
+    private final File file;
+
+    OutgoingJingleFileTransfer(XMPPConnection connection, FullJid recipient, String sid, File file,
+                    JingleFileTransferChild offeredFile, HashManager.ALGORITHM hashAlgorithm, int bufferSize) {
+        super(connection, connection.getUser(), recipient, Role.initiator, sid, null, offeredFile, hashAlgorithm,
+                        bufferSize);
+        this.file = file;
+    }
+
+    /**
+     * Get the file which is transferred.
+     *
+     * @return the file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    void sendOffer() throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        JingleTransportManager<?> transportManager = JingleTransportMethodManager.getBestAvailableTransportManager(
+                        connection);
+        setTransportSession(transportManager.transportSession(this));
+
+        Jingle sessionInitiate = jutil.createSessionInitiateFileOffer(remote, sid, JingleContent.Creator.initiator,
+                        JingleManager.randomId(), createDescription(offeredFile), transportSession.createTransport());
+        contents.addAll(sessionInitiate.getContents());
+
+        JingleManager jingleManager = JingleManager.getInstanceFor(connection);
+        jingleManager.registerJingleSessionHandler(remote, sid, this);
+        try {
+            connection.sendIqRequestAndWaitForResponse(sessionInitiate);
+        } catch (NoResponseException | XMPPErrorException | NotConnectedException | InterruptedException e) {
+            jingleManager.unregisterJingleSessionHandler(remote, sid, this);
+            throw e;
+        }
+    }
+
+    @Override
+    protected IQ handleSessionAccept(Jingle sessionAccept) {
+        transportSession.processJingle(sessionAccept);
+
+        if (!sessionAccept.getContents().isEmpty()) {
+            JingleContentDescription description = sessionAccept.getContents().get(0).getDescription();
+            if (description != null && !description.getJingleContentDescriptionChildren().isEmpty()
+                            && description.getJingleContentDescriptionChildren().get(0) instanceof JingleFileTransferChild) {
+                JingleFileTransferChild acceptedFile =
+                                (JingleFileTransferChild) description.getJingleContentDescriptionChildren().get(0);
+                Range range = acceptedFile.getRange();
+                if (range != null) {
+                    offset = Math.max(0, Math.min(range.getOffset(), offeredFile.getSize()));
+                }
+            }
+        }
+
+        JingleManager.getThreadPool().execute(() -> transportSession.initiateOutgoingSession(
+                        new JingleTransportInitiationCallback() {
+            @Override
+            public void onSessionInitiated(BytestreamSession bytestreamSession) {
+                setBytestreamSession(bytestreamSession);
+                Async.go(() -> send(bytestreamSession), "Jingle File Transfer " + sid + " to " + remote);
+            }
+
+            @Override
+            public void onException(Exception e) {
+                LOGGER.log(Level.WARNING, "Could not establish the bytestream for " + sid, e);
+                onTransportMethodFailed(transportSession.getNamespace());
+            }
+        }));
+
+        return IQ.createResultIQ(sessionAccept);
+    }
+
+    private void send(BytestreamSession bytestreamSession) {
+        MessageDigest digest = HashManager.getMessageDigest(hashAlgorithm);
+        byte[] buffer = new byte[bufferSize];
+        try (InputStream in = new FileInputStream(file)) {
+            // The bytes before the offset are already present at the responder, but they are part of the file's hash.
+            copy(in, null, offset, digest, buffer, null);
+
+            OutputStream out = bytestreamSession.getOutputStream();
+            copy(in, out, offeredFile.getSize() - offset, digest, buffer, transferredBytes);
+            out.flush();
+            out.close();
+        } catch (IOException e) {
+            if (!future.isDone()) {
+                terminate(JingleReason.MediaError);
+                fail(e);
+            }
+            return;
+        }
+
+        HashElement hash = createHashElement(digest);
+        JingleFileTransferChild transferredFile = builderFrom(offeredFile).setHash(hash).build();
+
+        JingleContent content = getContent();
+        Jingle checksumInfo = jutil.createSessionPing(remote, sid);
+        checksumInfo.addExtension(new Checksum(content.getCreator(), content.getName(),
+                        JingleFileTransferChild.getBuilder().setHash(hash).build()));
+        try {
+            connection.sendIqRequestAndWaitForResponse(checksumInfo);
+        } catch (NoResponseException | XMPPErrorException | NotConnectedException e) {
+            LOGGER.log(Level.FINE, "Responder did not acknowledge the checksum of " + sid, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        terminate(JingleReason.Success);
+        finish(transferredFile);
+    }
+}
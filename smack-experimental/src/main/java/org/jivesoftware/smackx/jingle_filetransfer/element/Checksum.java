@@ -45,6 +45,18 @@ public class Checksum implements ExtensionElement {
         Objects.requireNonNull(file.getHash(), "file MUST contain at least one hash element.");
     }
 
+    public JingleContent.Creator getCreator() {
+        return creator;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JingleFileTransferChild getFile() {
+        return file;
+    }
+
     @Override
     public String getElementName() {
         return QNAME.getLocalPart();
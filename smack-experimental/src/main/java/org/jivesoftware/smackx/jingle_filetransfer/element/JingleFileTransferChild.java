@@ -43,10 +43,10 @@ public class JingleFileTransferChild implements JingleContentDescriptionChildEle
     private final HashElement hash;
     private final String mediaType;
     private final String name;
-    private final int size;
+    private final long size;
     private final Range range;
 
-    public JingleFileTransferChild(Date date, String desc, HashElement hash, String mediaType, String name, int size, Range range) {
+    public JingleFileTransferChild(Date date, String desc, HashElement hash, String mediaType, String name, long size, Range range) {
         this.date = date;
         this.desc = desc;
         this.hash = hash;
@@ -76,7 +76,7 @@ public class JingleFileTransferChild implements JingleContentDescriptionChildEle
         return name;
     }
 
-    public int getSize() {
+    public long getSize() {
         return size;
     }
 
@@ -105,7 +105,7 @@ public class JingleFileTransferChild implements JingleContentDescriptionChildEle
         sb.optElement(ELEM_NAME, name);
         sb.optElement(range);
         if (size > 0) {
-            sb.element(ELEM_SIZE, Integer.toString(size));
+            sb.element(ELEM_SIZE, Long.toString(size));
         }
         sb.optElement(hash);
         sb.closeElement(this);
@@ -122,7 +122,7 @@ public class JingleFileTransferChild implements JingleContentDescriptionChildEle
         private HashElement hash;
         private String mediaType;
         private String name;
-        private int size;
+        private long size;
         private Range range;
 
         private Builder() {
@@ -153,7 +153,7 @@ public class JingleFileTransferChild implements JingleContentDescriptionChildEle
             return this;
         }
 
-        public Builder setSize(int size) {
+        public Builder setSize(long size) {
             this.size = size;
             return this;
         }
@@ -171,7 +171,7 @@ public class JingleFileTransferChild implements JingleContentDescriptionChildEle
         public Builder setFile(File file) {
             return setDate(new Date(file.lastModified()))
                     .setName(file.getAbsolutePath().substring(file.getAbsolutePath().lastIndexOf("/") + 1))
-                    .setSize((int) file.length());
+                    .setSize(file.length());
         }
     }
 }
@@ -17,6 +17,8 @@
 package org.jivesoftware.smackx.jingle_filetransfer.element;
 
 import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.util.HashCode;
+import org.jivesoftware.smack.util.Objects;
 import org.jivesoftware.smack.util.XmlStringBuilder;
 
 import org.jivesoftware.smackx.hashes.element.HashElement;
@@ -32,7 +34,7 @@ public class Range implements XmlElement {
     public static final String ATTR_OFFSET = "offset";
     public static final String ATTR_LENGTH = "length";
 
-    private final Integer offset, length;
+    private final Long offset, length;
     private final HashElement hash;
 
     /**
@@ -46,7 +48,7 @@ public class Range implements XmlElement {
      * Create a Range element with specified length.
      * @param length length of the transmitted data in bytes.
      */
-    public Range(int length) {
+    public Range(long length) {
         this(null, length, null);
     }
 
@@ -55,7 +57,7 @@ public class Range implements XmlElement {
      * @param offset offset in bytes from the beginning of the transmitted data.
      * @param length number of bytes that shall be transferred.
      */
-    public Range(int offset, int length) {
+    public Range(long offset, long length) {
         this(offset, length, null);
     }
 
@@ -65,7 +67,7 @@ public class Range implements XmlElement {
      * @param length number of bytes that shall be transferred.
      * @param hash hash of the bytes in the specified range.
      */
-    public Range(Integer offset, Integer length, HashElement hash) {
+    public Range(Long offset, Long length, HashElement hash) {
         this.offset = offset;
         this.length = length;
         this.hash = hash;
@@ -73,18 +75,31 @@ public class Range implements XmlElement {
 
     /**
      * Return the index of the offset.
-     * This marks the begin of the specified range.
+     * This marks the begin of the specified range. If the offset was not specified, then this returns 0, which is the
+     * default offset as specified by XEP-0234.
      * @return offset TODO javadoc me please
      */
-    public int getOffset() {
+    public long getOffset() {
+        if (offset == null) {
+            return 0;
+        }
         return offset;
     }
 
+    /**
+     * Check if this range has an explicit length.
+     * @return <code>true</code> if the length was specified.
+     * @since 4.5
+     */
+    public boolean hasLength() {
+        return length != null;
+    }
+
     /**
      * Return the length of the range.
      * @return length TODO javadoc me please
      */
-    public int getLength() {
+    public long getLength() {
         return length;
     }
 
@@ -131,12 +146,17 @@ public class Range implements XmlElement {
 
         Range otherRange = (Range) other;
         return this.getOffset() == otherRange.getOffset() &&
-            this.getLength() == otherRange.getLength() &&
-            this.getHash().equals(otherRange.getHash());
+            Objects.equals(length, otherRange.length) &&
+            Objects.equals(hash, otherRange.hash);
     }
 
     @Override
     public int hashCode() {
-        return toXML().toString().hashCode();
+        // Use getOffset(), like equals() does, so that an unspecified offset and an offset of 0 yield the same hash.
+        return HashCode.builder()
+                        .append(getOffset())
+                        .append(length)
+                        .append(hash)
+                        .build();
     }
 }
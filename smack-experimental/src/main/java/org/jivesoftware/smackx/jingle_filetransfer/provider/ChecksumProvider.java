@@ -52,7 +52,7 @@ public class ChecksumProvider extends ExtensionElementProvider<Checksum> {
         boolean go = true;
         while (go) {
             XmlPullParser.TagEvent tag = parser.nextTag();
-            String n = parser.getText();
+            String n = parser.getName();
 
             switch (tag) {
             case START_ELEMENT:
@@ -64,8 +64,8 @@ public class ChecksumProvider extends ExtensionElementProvider<Checksum> {
                     case Range.ELEMENT:
                         String offset = parser.getAttributeValue(null, Range.ATTR_OFFSET);
                         String length = parser.getAttributeValue(null, Range.ATTR_LENGTH);
-                        int o = offset == null ? 0 : Integer.parseInt(offset);
-                        int l = length == null ? -1 : Integer.parseInt(length);
+                        long o = offset == null ? 0 : Long.parseLong(offset);
+                        long l = length == null ? -1 : Long.parseLong(length);
                         range = new Range(o, l);
                 }
                 break;
@@ -75,7 +75,7 @@ public class JingleFileTransferProvider
                         break;
 
                     case JingleFileTransferChild.ELEM_SIZE:
-                        builder.setSize(Integer.parseInt(parser.nextText()));
+                        builder.setSize(Long.parseLong(parser.nextText()));
                         break;
 
                     case Range.ELEMENT:
@@ -108,8 +108,8 @@ public class JingleFileTransferProvider
 
     public static Range parseRangeElement(XmlPullParser parser) throws IOException, XmlPullParserException, SmackParsingException {
         final int initialDepth = parser.getDepth();
-        final Integer offset = ParserUtils.getIntegerAttribute(parser, Range.ATTR_OFFSET);
-        final Integer length = ParserUtils.getIntegerAttribute(parser, Range.ATTR_LENGTH);
+        final Long offset = ParserUtils.getLongAttribute(parser, Range.ATTR_OFFSET);
+        final Long length = ParserUtils.getLongAttribute(parser, Range.ATTR_LENGTH);
 
         HashElement hashElement = null;
         outerloop: while (true) {
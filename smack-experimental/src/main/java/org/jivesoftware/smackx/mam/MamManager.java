@@ -32,6 +32,8 @@ import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.SmackException.NotLoggedInException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
 import org.jivesoftware.smack.StanzaCollector;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
@@ -275,17 +277,35 @@ public final class MamManager extends Manager {
         }
 
         DiscoverInfo info = serviceDiscoveryManager.discoverInfo(getArchiveAddress());
+        mamVersion = findSupportedMamVersion(info);
+        return mamVersion;
+    }
+
+    private SmackFuture<MamVersion, Exception> getSupportedMamVersionAsync() {
+        MamVersion mamVersion = this.mamVersion;
+        if (mamVersion != null) {
+            return SmackFuture.from(mamVersion);
+        }
+
+        return serviceDiscoveryManager.discoverInfoAsync(getArchiveAddress(), null).map(info -> {
+            MamVersion supportedMamVersion = findSupportedMamVersion(info);
+            if (supportedMamVersion == null) {
+                throw new UnsupportedOperationException("Message Archive Management is not supported by " + getArchiveAddress());
+            }
+            this.mamVersion = supportedMamVersion;
+            return supportedMamVersion;
+        });
+    }
 
+    private static MamVersion findSupportedMamVersion(DiscoverInfo info) {
         // Enum values are always returned the order they are declared (see https://docs.oracle.com/javase/specs/jls/se8/html/jls-8.html#jls-8.9.3).
         // We pick the first version supported by the server.
         for (MamVersion v : MamVersion.values()) {
             if (info.containsFeature(v.getNamespace())) {
-                mamVersion = v;
-                break;
+                return v;
             }
         }
-
-        return mamVersion;
+        return null;
     }
 
     private MamVersion getSupportedMamVersionOrThrow() throws XMPPErrorException, NotConnectedException, NoResponseException, InterruptedException {
@@ -535,6 +555,32 @@ public final class MamManager extends Manager {
         return queryArchive(mamQueryIQ);
     }
 
+    /**
+     * Asynchronously query the archive. Unlike {@link #queryArchive(MamQueryArgs)}, this method does not block the
+     * calling thread while the results are retrieved. Note that the whole query, including the transfer of all results
+     * of the page, has to be completed within the reply timeout of the connection.
+     *
+     * @param mamQueryArgs the query arguments.
+     * @return a future for the MAM query.
+     * @since 4.5
+     */
+    public SmackFuture<MamQuery, Exception> queryArchiveAsync(final MamQueryArgs mamQueryArgs) {
+        return getSupportedMamVersionAsync().flatMap(mamVersion -> {
+            String queryId = StringUtils.secureUniqueRandomString();
+            String node = mamQueryArgs.node;
+            DataForm dataForm = mamQueryArgs.getDataForm(mamVersion);
+
+            final MamQueryIQ mamQueryIQ = mamVersion.newElementFactory().newQueryIQ(queryId, node, dataForm);
+            mamQueryIQ.setType(IQ.Type.set);
+            mamQueryIQ.setTo(archiveAddress);
+
+            mamQueryArgs.maybeAddRsmSet(mamQueryIQ);
+
+            return queryArchivePageAsync(mamQueryIQ).map(
+                            mamQueryPage -> new MamQuery(mamQueryPage, mamQueryIQ.getNode(), DataForm.from(mamQueryIQ)));
+        });
+    }
+
     private static FormField getWithFormField(Jid withJid) {
         return FormField.builder(FORM_FIELD_WITH)
                         .setValue(withJid.toString())
@@ -616,6 +662,38 @@ public final class MamManager extends Manager {
         return new MamQueryPage(cancelledResultCollector, mamFinIQ);
     }
 
+    private SmackFuture<MamQueryPage, Exception> queryArchivePageAsync(MamQueryIQ mamQueryIq) {
+        final InternalSmackFuture<MamQueryPage, Exception> future = new InternalSmackFuture<>();
+        final XMPPConnection connection;
+        try {
+            connection = getAuthenticatedConnectionOrThrow();
+        } catch (NotLoggedInException e) {
+            future.setException(e);
+            return future;
+        }
+
+        StanzaCollector.Configuration resultCollectorConfiguration = StanzaCollector.newConfiguration()
+                .setStanzaFilter(new MamResultFilter(mamQueryIq));
+        final StanzaCollector resultCollector = connection.createStanzaCollector(resultCollectorConfiguration);
+
+        connection.sendIqRequestAsync(mamQueryIq).onCompletion(f -> {
+            resultCollector.close();
+
+            if (f.isCancelled()) {
+                future.cancel(false);
+                return;
+            }
+            IQ response = f.getIfAvailable();
+            if (response == null) {
+                future.setException(f.getExceptionIfAvailable());
+                return;
+            }
+            future.setResult(new MamQueryPage(resultCollector, (MamFinIQ) response));
+        });
+
+        return future;
+    }
+
     public final class MamQuery {
         private final String node;
         private final DataForm form;
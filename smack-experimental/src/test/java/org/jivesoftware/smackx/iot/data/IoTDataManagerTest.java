@@ -0,0 +1,336 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.iot.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
+import org.jivesoftware.smack.StanzaListener;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.StanzaError;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.jivesoftware.smackx.iot.data.element.IoTDataField;
+import org.jivesoftware.smackx.iot.data.element.IoTDataRequest;
+import org.jivesoftware.smackx.iot.data.element.IoTFieldsExtension;
+import org.jivesoftware.smackx.iot.element.NodeInfo;
+import org.jivesoftware.util.ConnectionUtils;
+import org.jivesoftware.util.Protocol;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.JidTestUtil;
+import org.jxmpp.jid.impl.JidCreate;
+import org.mockito.ArgumentCaptor;
+
+public class IoTDataManagerTest extends SmackTestSuite {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final long NO_EVENT_MILLIS = 200;
+
+    private static List<EntityFullJid> things(int count) throws Exception {
+        List<EntityFullJid> things = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            things.add(JidCreate.entityFullFrom("thing" + i + "@example.org/sensor"));
+        }
+        return things;
+    }
+
+    @Test
+    public void parallelismIsBoundedTest() throws Exception {
+        MockedThings mocked = new MockedThings(60_000);
+        RecordingListener listener = new RecordingListener();
+        List<EntityFullJid> things = things(5);
+
+        SmackFuture<Integer, Exception> future = mocked.manager.requestMomentaryValuesReadOut(things, 2, listener);
+
+        List<ReadOutRequest> inProgress = new ArrayList<>();
+        inProgress.add(mocked.nextRequest());
+        inProgress.add(mocked.nextRequest());
+        mocked.assertNoRequest();
+
+        int finished = 0;
+        while (!inProgress.isEmpty()) {
+            ReadOutRequest request = inProgress.remove(0);
+            request.accept();
+            mocked.sendFields(request, true, new IoTDataField.IntField("temperature", 21));
+            assertEquals("done " + request.thing, listener.nextTerminalEvent());
+            finished++;
+
+            // Finishing one read-out starts exactly one further read-out, as long as there are remaining things.
+            if (finished + inProgress.size() < things.size()) {
+                inProgress.add(mocked.nextRequest());
+            }
+            mocked.assertNoRequest();
+            assertTrue(inProgress.size() <= 2);
+        }
+
+        assertEquals(5, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void fieldsAreStreamedBeforeDoneTest() throws Exception {
+        MockedThings mocked = new MockedThings(60_000);
+        RecordingListener listener = new RecordingListener();
+        List<EntityFullJid> things = things(1);
+
+        SmackFuture<Integer, Exception> future = mocked.manager.requestMomentaryValuesReadOut(things, 1, listener);
+        ReadOutRequest request = mocked.nextRequest();
+        request.accept();
+
+        mocked.sendFields(request, false, new IoTDataField.IntField("temperature", 21));
+        IoTFieldsExtension fields = listener.fields.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(fields);
+        assertEquals(request.seqNr, fields.getSequenceNr());
+        assertFalse(fields.isDone());
+        assertNull(listener.terminalEvents.poll(NO_EVENT_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse(future.isDone());
+
+        mocked.sendFields(request, true, new IoTDataField.BooleanField("on", true));
+        fields = listener.fields.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(fields);
+        assertTrue(fields.isDone());
+        assertEquals("done " + request.thing, listener.nextTerminalEvent());
+
+        assertEquals(1, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void timeoutRacingDoneTest() throws Exception {
+        int thingCount = 50;
+        // A reply timeout of one millisecond lets the timeout race the done message of every read-out.
+        MockedThings mocked = new MockedThings(1);
+        RecordingListener listener = new RecordingListener();
+        List<EntityFullJid> things = things(thingCount);
+
+        SmackFuture<Integer, Exception> future = mocked.manager.requestMomentaryValuesReadOut(things, thingCount,
+                        listener);
+        for (int i = 0; i < thingCount; i++) {
+            ReadOutRequest request = mocked.nextRequest();
+            request.accept();
+            mocked.sendFields(request, true, new IoTDataField.IntField("temperature", i));
+        }
+
+        int successful = future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // Every thing is reported exactly once, either as done or as failed, and the count matches the done ones.
+        Map<String, Integer> terminalEventsPerThing = new HashMap<>();
+        int done = 0;
+        for (int i = 0; i < thingCount; i++) {
+            String event = listener.nextTerminalEvent();
+            if (event.startsWith("done ")) {
+                done++;
+            } else {
+                assertEquals("error " + NoResponseException.class.getSimpleName(),
+                                event.substring(0, event.indexOf(' ', "error ".length())));
+            }
+            terminalEventsPerThing.merge(event.substring(event.lastIndexOf(' ') + 1), 1, Integer::sum);
+        }
+        assertEquals(thingCount, terminalEventsPerThing.size());
+        assertNull(listener.terminalEvents.poll(NO_EVENT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(done, successful);
+    }
+
+    @Test
+    public void iqErrorTest() throws Exception {
+        MockedThings mocked = new MockedThings(60_000);
+        RecordingListener listener = new RecordingListener();
+        List<EntityFullJid> things = things(3);
+
+        SmackFuture<Integer, Exception> future = mocked.manager.requestMomentaryValuesReadOut(things, 1, listener);
+
+        ReadOutRequest first = mocked.nextRequest();
+        first.response.setException(new XMPPErrorException(first.request,
+                        StanzaError.getBuilder(StanzaError.Condition.item_not_found).build()));
+        assertEquals("error " + XMPPErrorException.class.getSimpleName() + " " + first.thing,
+                        listener.nextTerminalEvent());
+
+        // The failed read-out does not stop the remaining ones.
+        for (int i = 1; i < things.size(); i++) {
+            ReadOutRequest request = mocked.nextRequest();
+            request.accept();
+            mocked.sendFields(request, true, new IoTDataField.IntField("temperature", i));
+            assertEquals("done " + request.thing, listener.nextTerminalEvent());
+        }
+
+        assertEquals(2, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void cancellationStopsFurtherReadOutsTest() throws Exception {
+        MockedThings mocked = new MockedThings(60_000);
+        RecordingListener listener = new RecordingListener();
+        List<EntityFullJid> things = things(3);
+
+        SmackFuture<Integer, Exception> future = mocked.manager.requestMomentaryValuesReadOut(things, 1, listener);
+        ReadOutRequest request = mocked.nextRequest();
+
+        assertTrue(future.cancel(false));
+
+        // The read-out in progress is still reported, but no further read-out is started.
+        request.accept();
+        mocked.sendFields(request, true, new IoTDataField.IntField("temperature", 21));
+        assertEquals("done " + request.thing, listener.nextTerminalEvent());
+        mocked.assertNoRequest();
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void noThingsTest() throws Exception {
+        MockedThings mocked = new MockedThings(60_000);
+
+        SmackFuture<Integer, Exception> future = mocked.manager.requestMomentaryValuesReadOut(things(0), 1,
+                        new RecordingListener());
+
+        assertEquals(0, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+        mocked.assertNoRequest();
+    }
+
+    /**
+     * A mocked connection whose IoT read-out requests are answered by the test.
+     */
+    private static final class MockedThings {
+
+        private final XMPPConnection connection;
+
+        private final IoTDataManager manager;
+
+        private final BlockingQueue<ReadOutRequest> requests = new LinkedBlockingQueue<>();
+
+        private final List<StanzaListener> syncStanzaListeners;
+
+        private final List<StanzaFilter> syncStanzaFilters;
+
+        private MockedThings(long replyTimeout) throws Exception {
+            connection = ConnectionUtils.createMockedConnection(new Protocol(),
+                            JidTestUtil.DUMMY_AT_EXAMPLE_ORG_SLASH_DUMMYRESOURCE);
+            when(connection.getReplyTimeout()).thenReturn(replyTimeout);
+            doAnswer(invocation -> {
+                ReadOutRequest request = new ReadOutRequest(invocation.getArgument(0));
+                requests.add(request);
+                return request.response;
+            }).when(connection).sendIqRequestAsync(isA(IQ.class));
+
+            manager = IoTDataManager.getInstanceFor(connection);
+
+            ArgumentCaptor<StanzaListener> listeners = ArgumentCaptor.forClass(StanzaListener.class);
+            ArgumentCaptor<StanzaFilter> filters = ArgumentCaptor.forClass(StanzaFilter.class);
+            verify(connection, atLeastOnce()).addSyncStanzaListener(listeners.capture(), filters.capture());
+            syncStanzaListeners = listeners.getAllValues();
+            syncStanzaFilters = filters.getAllValues();
+        }
+
+        private ReadOutRequest nextRequest() throws InterruptedException {
+            ReadOutRequest request = requests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(request, "Expected a further read-out request");
+            return request;
+        }
+
+        private void assertNoRequest() throws InterruptedException {
+            assertNull(requests.poll(NO_EVENT_MILLIS, TimeUnit.MILLISECONDS), "Unexpected read-out request");
+        }
+
+        private void sendFields(ReadOutRequest request, boolean done, IoTDataField... fields) throws Exception {
+            Message message = StanzaBuilder.buildMessage()
+                            .from(request.thing)
+                            .to(connection.getUser())
+                            .addExtension(IoTFieldsExtension.buildFor(request.seqNr, done, NodeInfo.EMPTY,
+                                            Arrays.asList(fields)))
+                            .build();
+            for (int i = 0; i < syncStanzaListeners.size(); i++) {
+                if (syncStanzaFilters.get(i).accept(message)) {
+                    syncStanzaListeners.get(i).processStanza(message);
+                }
+            }
+        }
+    }
+
+    private static final class ReadOutRequest {
+
+        private final IoTDataRequest request;
+
+        private final EntityFullJid thing;
+
+        private final int seqNr;
+
+        private final InternalSmackFuture<IQ, Exception> response = new InternalSmackFuture<>();
+
+        private ReadOutRequest(IoTDataRequest request) {
+            this.request = request;
+            this.thing = request.getTo().asEntityFullJidOrThrow();
+            this.seqNr = request.getSequenceNr();
+        }
+
+        private void accept() {
+            response.setResult(IQ.createResultIQ(request));
+        }
+    }
+
+    private static final class RecordingListener implements MomentaryReadOutListener {
+
+        private final BlockingQueue<IoTFieldsExtension> fields = new LinkedBlockingQueue<>();
+
+        private final BlockingQueue<String> terminalEvents = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onFields(EntityFullJid thing, IoTFieldsExtension fields) {
+            this.fields.add(fields);
+        }
+
+        @Override
+        public void onDone(EntityFullJid thing) {
+            terminalEvents.add("done " + thing);
+        }
+
+        @Override
+        public void onError(EntityFullJid thing, Exception exception) {
+            terminalEvents.add("error " + exception.getClass().getSimpleName() + " " + thing);
+        }
+
+        private String nextTerminalEvent() throws InterruptedException {
+            String event = terminalEvents.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(event, "Expected the read-out to be done or to fail");
+            return event;
+        }
+    }
+}
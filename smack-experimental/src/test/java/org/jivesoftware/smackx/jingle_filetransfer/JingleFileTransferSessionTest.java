@@ -0,0 +1,125 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.jingle_filetransfer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.jivesoftware.smackx.hashes.HashManager;
+import org.jivesoftware.smackx.jingle_filetransfer.element.Range;
+import org.jivesoftware.smackx.jingle_filetransfer.provider.JingleFileTransferProvider;
+
+import org.junit.jupiter.api.Test;
+
+public class JingleFileTransferSessionTest extends SmackTestSuite {
+
+    private static final HashManager.ALGORITHM ALGORITHM = HashManager.ALGORITHM.SHA_256;
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void copyStreamsAndHashesTest() throws IOException {
+        byte[] file = randomBytes(100_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MessageDigest digest = HashManager.getMessageDigest(ALGORITHM);
+        AtomicLong progress = new AtomicLong();
+
+        JingleFileTransferSession.copy(new ByteArrayInputStream(file), out, file.length, digest, new byte[1000],
+                        progress);
+
+        assertArrayEquals(file, out.toByteArray());
+        assertEquals(file.length, progress.get());
+        assertArrayEquals(HashManager.hash(ALGORITHM, file), digest.digest());
+    }
+
+    @Test
+    public void resumedTransferHashCoversWholeFileTest() throws IOException {
+        byte[] file = randomBytes(10_000);
+        int offset = 3_333;
+        byte[] buffer = new byte[512];
+
+        // The sender only digests the bytes the receiver already has, and streams the remaining ones.
+        MessageDigest senderDigest = HashManager.getMessageDigest(ALGORITHM);
+        InputStream senderIn = new ByteArrayInputStream(file);
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        JingleFileTransferSession.copy(senderIn, null, offset, senderDigest, buffer, null);
+        JingleFileTransferSession.copy(senderIn, wire, file.length - offset, senderDigest, buffer, null);
+        assertEquals(file.length - offset, wire.size());
+
+        // The receiver digests its existing prefix and appends the received bytes.
+        MessageDigest receiverDigest = HashManager.getMessageDigest(ALGORITHM);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        target.write(file, 0, offset);
+        JingleFileTransferSession.copy(new ByteArrayInputStream(file, 0, offset), null, offset, receiverDigest,
+                        buffer, null);
+        JingleFileTransferSession.copy(new ByteArrayInputStream(wire.toByteArray()), target, wire.size(),
+                        receiverDigest, buffer, null);
+
+        byte[] expectedHash = HashManager.hash(ALGORITHM, file);
+        assertArrayEquals(file, target.toByteArray());
+        assertArrayEquals(expectedHash, senderDigest.digest());
+        assertArrayEquals(expectedHash, receiverDigest.digest());
+    }
+
+    @Test
+    public void prematureEndOfStreamTest() {
+        byte[] file = randomBytes(100);
+        InputStream truncated = new ByteArrayInputStream(Arrays.copyOf(file, 50));
+        assertThrows(EOFException.class, () -> JingleFileTransferSession.copy(truncated, new ByteArrayOutputStream(),
+                        file.length, HashManager.getMessageDigest(ALGORITHM), new byte[16], null));
+    }
+
+    @Test
+    public void rangeWithoutOffsetTest() {
+        Range range = new Range(null, null, null);
+        assertEquals(0, range.getOffset());
+        assertEquals(new Range(), range);
+
+        Range zeroOffsetRange = new Range(0L, null, null);
+        assertEquals(zeroOffsetRange, range);
+        assertEquals(zeroOffsetRange.hashCode(), range.hashCode());
+    }
+
+    @Test
+    public void rangeBeyondTwoGibibyteTest() throws Exception {
+        Range range = new Range(5_000_000_000L, 3_000_000_000L);
+        XmlPullParser parser = PacketParserUtils.getParserFor(range.toXML().toString());
+        Range parsedRange = JingleFileTransferProvider.parseRangeElement(parser);
+        assertEquals(5_000_000_000L, parsedRange.getOffset());
+        assertEquals(3_000_000_000L, parsedRange.getLength());
+        assertEquals(range, parsedRange);
+    }
+}
@@ -0,0 +1,434 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.jingle_filetransfer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.iqrequest.IQRequestHandler;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.PacketParserUtils;
+
+import org.jivesoftware.smackx.bytestreams.BytestreamSession;
+import org.jivesoftware.smackx.hashes.HashManager;
+import org.jivesoftware.smackx.hashes.element.HashElement;
+import org.jivesoftware.smackx.jingle.JingleSession;
+import org.jivesoftware.smackx.jingle.JingleTransportMethodManager;
+import org.jivesoftware.smackx.jingle.JingleUtil;
+import org.jivesoftware.smackx.jingle.element.Jingle;
+import org.jivesoftware.smackx.jingle.element.JingleAction;
+import org.jivesoftware.smackx.jingle.element.JingleContent;
+import org.jivesoftware.smackx.jingle.element.JingleContentTransport;
+import org.jivesoftware.smackx.jingle.element.JingleReason;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportInitiationCallback;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportManager;
+import org.jivesoftware.smackx.jingle.transports.JingleTransportSession;
+import org.jivesoftware.smackx.jingle.transports.jingle_s5b.elements.JingleS5BTransport;
+import org.jivesoftware.smackx.jingle_filetransfer.element.Checksum;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransfer;
+import org.jivesoftware.smackx.jingle_filetransfer.element.JingleFileTransferChild;
+import org.jivesoftware.smackx.jingle_filetransfer.element.Range;
+import org.jivesoftware.util.ConnectionUtils;
+import org.jivesoftware.util.Protocol;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.JidTestUtil;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Drives {@link OutgoingJingleFileTransfer} and {@link IncomingJingleFileOffer} through mocked connections. Every
+ * Jingle IQ send by one peer is serialized, parsed and handed to the Jingle request handler of the other peer, while
+ * the file itself is streamed through an in-memory transport.
+ */
+public class JingleFileTransferTest extends SmackTestSuite {
+
+    private static final EntityFullJid INITIATOR = JidTestUtil.FULL_JID_1_RESOURCE_1;
+
+    private static final EntityFullJid RESPONDER = JidTestUtil.FULL_JID_2_RESOURCE_1;
+
+    private static final HashManager.ALGORITHM ALGORITHM = HashManager.ALGORITHM.SHA_256;
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @TempDir
+    File tempDir;
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private File writeFile(String name, byte[] content) throws IOException {
+        File file = new File(tempDir, name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    public void offerAcceptAndStreamTest() throws Exception {
+        Loopback loopback = new Loopback();
+        Peer initiator = new Peer(INITIATOR, loopback);
+        Peer responder = new Peer(RESPONDER, loopback);
+        initiator.connectTo(responder);
+
+        BlockingQueue<IncomingJingleFileOffer> offers = new LinkedBlockingQueue<>();
+        JingleFileTransferManager.getInstanceFor(responder.connection).addIncomingFileOfferListener(offers::add);
+
+        byte[] content = randomBytes(100_000);
+        File file = writeFile("offered", content);
+        OutgoingJingleFileTransfer transfer = JingleFileTransferManager.getInstanceFor(initiator.connection)
+                        .sendFile(RESPONDER, file);
+
+        IncomingJingleFileOffer offer = offers.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(offer);
+        assertEquals("offered", offer.getOfferedFile().getName());
+        assertEquals(content.length, offer.getSize());
+
+        File target = new File(tempDir, "received");
+        JingleFileTransferChild received = offer.accept(target).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        JingleFileTransferChild sent = transfer.getFuture().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        HashElement expectedHash = HashManager.assembleHashElement(ALGORITHM, HashManager.hash(ALGORITHM, content));
+        assertEquals(expectedHash, sent.getHash());
+        assertEquals(expectedHash, received.getHash());
+        assertEquals(0, transfer.getOffset());
+        assertEquals(content.length, transfer.getTransferredBytes());
+        assertEquals(content.length, offer.getTransferredBytes());
+    }
+
+    @Test
+    public void resumeSendsRangeOffsetTest() throws Exception {
+        Loopback loopback = new Loopback();
+        Peer initiator = new Peer(INITIATOR, loopback);
+        Peer responder = new Peer(RESPONDER, loopback);
+        initiator.connectTo(responder);
+
+        BlockingQueue<IncomingJingleFileOffer> offers = new LinkedBlockingQueue<>();
+        JingleFileTransferManager.getInstanceFor(responder.connection).addIncomingFileOfferListener(offers::add);
+
+        byte[] content = randomBytes(100_000);
+        int offset = 40_000;
+        File file = writeFile("offered", content);
+        File target = writeFile("partial", Arrays.copyOf(content, offset));
+
+        OutgoingJingleFileTransfer transfer = JingleFileTransferManager.getInstanceFor(initiator.connection)
+                        .sendFile(RESPONDER, file);
+        IncomingJingleFileOffer offer = offers.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(offer);
+
+        JingleFileTransferChild received = offer.accept(target, true).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        transfer.getFuture().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Jingle sessionAccept = responder.getSent(JingleAction.session_accept).get(0);
+        JingleFileTransferChild acceptedFile = (JingleFileTransferChild) sessionAccept.getContents().get(0)
+                        .getDescription().getJingleContentDescriptionChildren().get(0);
+        Range range = acceptedFile.getRange();
+        assertNotNull(range);
+        assertEquals(offset, range.getOffset());
+
+        assertEquals(offset, transfer.getOffset());
+        assertEquals(content.length - offset, transfer.getTransferredBytes());
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(HashManager.assembleHashElement(ALGORITHM, HashManager.hash(ALGORITHM, content)),
+                        received.getHash());
+    }
+
+    @Test
+    public void checksumSessionInfoRoundTripTest() throws Exception {
+        Loopback loopback = new Loopback();
+        Peer initiator = new Peer(INITIATOR, loopback);
+
+        HashElement hash = HashManager.assembleHashElement(ALGORITHM, HashManager.hash(ALGORITHM, randomBytes(100)));
+        Jingle checksumInfo = new JingleUtil(initiator.connection).createSessionPing(RESPONDER, "sid");
+        checksumInfo.addExtension(new Checksum(JingleContent.Creator.initiator, "content",
+                        JingleFileTransferChild.getBuilder().setHash(hash).build()));
+
+        Jingle parsed = PacketParserUtils.parseStanza(checksumInfo.toXML().toString());
+
+        assertEquals(JingleAction.session_info, parsed.getAction());
+        Checksum checksum = parsed.getExtension(Checksum.class);
+        assertNotNull(checksum);
+        assertEquals(JingleContent.Creator.initiator, checksum.getCreator());
+        assertEquals("content", checksum.getName());
+        assertEquals(hash, checksum.getFile().getHash());
+    }
+
+    @Test
+    public void hashMismatchTerminatesWithMediaErrorTest() throws Exception {
+        Loopback loopback = new Loopback();
+        Peer initiator = new Peer(INITIATOR, loopback);
+        // The responder is not connected to the initiator, the test plays the initiator's part itself.
+        Peer responder = new Peer(RESPONDER, loopback);
+
+        BlockingQueue<IncomingJingleFileOffer> offers = new LinkedBlockingQueue<>();
+        JingleFileTransferManager.getInstanceFor(responder.connection).addIncomingFileOfferListener(offers::add);
+
+        byte[] content = randomBytes(10_000);
+        HashElement wrongHash = HashManager.assembleHashElement(ALGORITHM,
+                        HashManager.hash(ALGORITHM, "something else".getBytes(StandardCharsets.UTF_8)));
+        JingleFileTransferChild offeredFile = JingleFileTransferChild.getBuilder()
+                        .setName("offered")
+                        .setSize(content.length)
+                        .setHash(wrongHash)
+                        .build();
+        Jingle sessionInitiate = new JingleUtil(initiator.connection).createSessionInitiateFileOffer(RESPONDER, "sid",
+                        JingleContent.Creator.initiator, "content",
+                        new JingleFileTransfer(Collections.singletonList(offeredFile)),
+                        JingleS5BTransport.getBuilder().setStreamId("sid").build());
+        responder.receive(sessionInitiate);
+
+        IncomingJingleFileOffer offer = offers.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(offer);
+        SmackFuture<JingleFileTransferChild, Exception> future = offer.accept(new File(tempDir, "received"));
+
+        try (OutputStream out = loopback.out) {
+            out.write(content);
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                        () -> future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        JingleFileTransferException.HashMismatchException hashMismatch = assertInstanceOf(
+                        JingleFileTransferException.HashMismatchException.class, e.getCause());
+        assertEquals(wrongHash, hashMismatch.getExpected());
+
+        List<Jingle> sessionTerminates = responder.getSent(JingleAction.session_terminate);
+        assertEquals(1, sessionTerminates.size());
+        assertEquals(JingleReason.Reason.media_error, sessionTerminates.get(0).getReason().asEnum());
+    }
+
+    /**
+     * A peer with a mocked connection. Jingle IQs are delivered synchronously to the connected peer, if any, and are
+     * acknowledged with an empty result otherwise.
+     */
+    private static final class Peer {
+
+        private final XMPPConnection connection;
+
+        private final IQRequestHandler jingleRequestHandler;
+
+        private final List<IQ> sent = new CopyOnWriteArrayList<>();
+
+        private volatile Peer remote;
+
+        private Peer(EntityFullJid jid, Loopback loopback) throws Exception {
+            connection = ConnectionUtils.createMockedConnection(new Protocol(), jid);
+
+            Answer<IQ> deliver = invocation -> {
+                IQ request = invocation.getArgument(0);
+                sent.add(request);
+                Peer peer = remote;
+                if (peer == null) {
+                    return IQ.createResultIQ(request);
+                }
+                return peer.receive(request);
+            };
+            doAnswer(invocation -> {
+                IQ response = deliver.answer(invocation);
+                XMPPErrorException.ifHasErrorThenThrow(response);
+                return response;
+            }).when(connection).sendIqRequestAndWaitForResponse(isA(IQ.class));
+            doAnswer(invocation -> {
+                InternalSmackFuture<IQ, Exception> future = new InternalSmackFuture<>();
+                future.setResult(deliver.answer(invocation));
+                return future;
+            }).when(connection).sendIqRequestAsync(isA(IQ.class));
+
+            JingleFileTransferManager.getInstanceFor(connection);
+            // Replace the SOCKS5 transport, which Jingle prefers, with the in-memory loopback transport.
+            JingleTransportMethodManager.getInstanceFor(connection).registerTransportManager(
+                            new LoopbackTransportManager(connection, loopback));
+
+            ArgumentCaptor<IQRequestHandler> handlers = ArgumentCaptor.forClass(IQRequestHandler.class);
+            verify(connection, atLeastOnce()).registerIQRequestHandler(handlers.capture());
+            IQRequestHandler jingleRequestHandler = null;
+            for (IQRequestHandler handler : handlers.getAllValues()) {
+                if (Jingle.ELEMENT.equals(handler.getElement()) && Jingle.NAMESPACE.equals(handler.getNamespace())) {
+                    jingleRequestHandler = handler;
+                }
+            }
+            this.jingleRequestHandler = jingleRequestHandler;
+            assertNotNull(jingleRequestHandler);
+        }
+
+        private void connectTo(Peer other) {
+            remote = other;
+            other.remote = this;
+        }
+
+        private IQ receive(IQ request) throws Exception {
+            // Serialize and parse the request, so that the providers are part of the test.
+            IQ parsed = PacketParserUtils.parseStanza(request.toXML().toString());
+            return jingleRequestHandler.handleIQRequest(parsed);
+        }
+
+        private List<Jingle> getSent(JingleAction action) {
+            List<Jingle> result = new ArrayList<>();
+            for (IQ iq : sent) {
+                if (iq instanceof Jingle && ((Jingle) iq).getAction() == action) {
+                    result.add((Jingle) iq);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An in-memory pipe shared by both peers, the initiator writes to it and the responder reads from it.
+     */
+    private static final class Loopback {
+
+        private final PipedInputStream in = new PipedInputStream(64 * 1024);
+
+        private final PipedOutputStream out;
+
+        private Loopback() throws IOException {
+            out = new PipedOutputStream(in);
+        }
+    }
+
+    private static final class LoopbackTransportManager extends JingleTransportManager<JingleS5BTransport> {
+
+        private final Loopback loopback;
+
+        private LoopbackTransportManager(XMPPConnection connection, Loopback loopback) {
+            super(connection);
+            this.loopback = loopback;
+        }
+
+        @Override
+        public String getNamespace() {
+            return JingleS5BTransport.NAMESPACE_V1;
+        }
+
+        @Override
+        public JingleTransportSession<JingleS5BTransport> transportSession(JingleSession jingleSession) {
+            return new JingleTransportSession<JingleS5BTransport>(jingleSession) {
+                @Override
+                public JingleS5BTransport createTransport() {
+                    return JingleS5BTransport.getBuilder().setStreamId(jingleSession.getSessionId()).build();
+                }
+
+                @Override
+                public void setTheirProposal(JingleContentTransport transport) {
+                    theirProposal = (JingleS5BTransport) transport;
+                }
+
+                @Override
+                public void initiateOutgoingSession(JingleTransportInitiationCallback callback) {
+                    callback.onSessionInitiated(new LoopbackBytestreamSession(null, loopback.out));
+                }
+
+                @Override
+                public void initiateIncomingSession(JingleTransportInitiationCallback callback) {
+                    callback.onSessionInitiated(new LoopbackBytestreamSession(loopback.in, null));
+                }
+
+                @Override
+                public String getNamespace() {
+                    return JingleS5BTransport.NAMESPACE_V1;
+                }
+
+                @Override
+                public IQ handleTransportInfo(Jingle transportInfo) {
+                    return IQ.createResultIQ(transportInfo);
+                }
+
+                @Override
+                public JingleTransportManager<JingleS5BTransport> transportManager() {
+                    return LoopbackTransportManager.this;
+                }
+            };
+        }
+    }
+
+    private static final class LoopbackBytestreamSession implements BytestreamSession {
+
+        private final InputStream in;
+
+        private final OutputStream out;
+
+        private LoopbackBytestreamSession(InputStream in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+            if (out != null) {
+                out.close();
+            }
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return 0;
+        }
+
+        @Override
+        public void setReadTimeout(int timeout) {
+        }
+    }
+}
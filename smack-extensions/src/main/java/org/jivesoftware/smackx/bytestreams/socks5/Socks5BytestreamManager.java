@@ -21,7 +21,9 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +38,7 @@ import org.jivesoftware.smack.SmackException.FeatureNotSupportedException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.SmackException.SmackMessageException;
+import org.jivesoftware.smack.SmackFuture;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
 import org.jivesoftware.smack.XMPPException;
@@ -56,8 +59,10 @@ import org.jivesoftware.smackx.disco.packet.DiscoverItems;
 import org.jivesoftware.smackx.disco.packet.DiscoverItems.Item;
 import org.jivesoftware.smackx.filetransfer.FileTransferManager;
 
+import org.jxmpp.jid.DomainBareJid;
 import org.jxmpp.jid.EntityFullJid;
 import org.jxmpp.jid.Jid;
+import org.jxmpp.util.cache.ExpirationCache;
 
 /**
  * The Socks5BytestreamManager class handles establishing SOCKS5 Bytestreams as specified in the <a
@@ -141,6 +146,17 @@ public final class Socks5BytestreamManager extends Manager implements Bytestream
     /* blacklist of erroneous SOCKS5 proxies */
     private final Set<Jid> proxyBlacklist = Collections.synchronizedSet(new HashSet<Jid>());
 
+    /* time in milliseconds the results of the SOCKS5 proxy discovery are cached */
+    private long proxyCacheExpirationTime = 30 * 60 * 1000;
+
+    /* cache of the SOCKS5 proxies discovered on a XMPP service */
+    private volatile ExpirationCache<DomainBareJid, List<Jid>> proxyCache = new ExpirationCache<>(10,
+                    proxyCacheExpirationTime);
+
+    /* cache of the stream hosts, i.e. the network settings, of a SOCKS5 proxy */
+    private volatile ExpirationCache<Jid, List<StreamHost>> streamHostCache = new ExpirationCache<>(100,
+                    proxyCacheExpirationTime);
+
     /* remember the last proxy that worked to prioritize it */
     private Jid lastWorkingProxy;
 
@@ -288,6 +304,7 @@ public final class Socks5BytestreamManager extends Manager implements Bytestream
         // reset internal state
         this.lastWorkingProxy = null;
         this.proxyBlacklist.clear();
+        clearProxyCache();
         this.ignoredBytestreamRequests.clear();
 
         // remove manager from static managers map
@@ -354,6 +371,44 @@ public final class Socks5BytestreamManager extends Manager implements Bytestream
         this.proxyConnectionTimeout = proxyConnectionTimeout;
     }
 
+    /**
+     * Returns the time in milliseconds the discovered SOCKS5 proxies and their stream hosts are
+     * cached. Default is 30 minutes.
+     *
+     * @return the expiration time of the SOCKS5 proxy cache in milliseconds
+     * @since 4.5
+     */
+    public long getProxyCacheExpirationTime() {
+        return proxyCacheExpirationTime;
+    }
+
+    /**
+     * Sets the time in milliseconds the discovered SOCKS5 proxies and their stream hosts are
+     * cached. Setting the expiration time clears the SOCKS5 proxy cache.
+     *
+     * @param proxyCacheExpirationTime the expiration time in milliseconds, must be positive
+     * @since 4.5
+     */
+    public synchronized void setProxyCacheExpirationTime(long proxyCacheExpirationTime) {
+        if (proxyCacheExpirationTime <= 0) {
+            throw new IllegalArgumentException("The proxy cache expiration time must be positive");
+        }
+        this.proxyCacheExpirationTime = proxyCacheExpirationTime;
+        this.proxyCache = new ExpirationCache<>(10, proxyCacheExpirationTime);
+        this.streamHostCache = new ExpirationCache<>(100, proxyCacheExpirationTime);
+    }
+
+    /**
+     * Clears the cache of discovered SOCKS5 proxies and their stream hosts, so that they are
+     * determined again on the next SOCKS5 Bytestream initiation.
+     *
+     * @since 4.5
+     */
+    public void clearProxyCache() {
+        proxyCache.clear();
+        streamHostCache.clear();
+    }
+
     /**
      * Returns if the prioritization of the last working SOCKS5 proxy on successive SOCKS5
      * Bytestream connections is enabled. Default is <code>true</code>.
@@ -551,6 +606,10 @@ public final class Socks5BytestreamManager extends Manager implements Bytestream
     /**
      * Returns a list of JIDs of SOCKS5 proxies by querying the XMPP server. The SOCKS5 proxies are
      * in the same order as returned by the XMPP server.
+     * <p>
+     * The items of the XMPP server are queried concurrently and the result is cached, see
+     * {@link #setProxyCacheExpirationTime(long)}.
+     * </p>
      *
      * @return list of JIDs of SOCKS5 proxies
      * @throws XMPPErrorException if there was an error querying the XMPP server for SOCKS5 proxies
@@ -560,41 +619,64 @@ public final class Socks5BytestreamManager extends Manager implements Bytestream
      */
     public List<Jid> determineProxies() throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
         XMPPConnection connection = connection();
-        ServiceDiscoveryManager serviceDiscoveryManager = ServiceDiscoveryManager.getInstanceFor(connection);
+        DomainBareJid service = connection.getXMPPServiceDomain();
 
         List<Jid> proxies = new ArrayList<>();
 
+        List<Jid> cachedProxies = proxyCache.lookup(service);
+        if (cachedProxies != null) {
+            // skip proxies that have been blacklisted since they were discovered
+            for (Jid proxy : cachedProxies) {
+                if (!this.proxyBlacklist.contains(proxy)) {
+                    proxies.add(proxy);
+                }
+            }
+            return proxies;
+        }
+
+        ServiceDiscoveryManager serviceDiscoveryManager = ServiceDiscoveryManager.getInstanceFor(connection);
+
         // get all items from XMPP server
-        DiscoverItems discoverItems = serviceDiscoveryManager.discoverItems(connection.getXMPPServiceDomain());
+        DiscoverItems discoverItems = serviceDiscoveryManager.discoverItems(service);
 
-        // query all items if they are SOCKS5 proxies
+        // query all items concurrently if they are SOCKS5 proxies
+        Map<Jid, SmackFuture<DiscoverInfo, Exception>> proxyInfoFutures = new LinkedHashMap<>();
         for (Item item : discoverItems.getItems()) {
             // skip blacklisted servers
             if (this.proxyBlacklist.contains(item.getEntityID())) {
                 continue;
             }
+            proxyInfoFutures.put(item.getEntityID(), serviceDiscoveryManager.discoverInfoAsync(item.getEntityID(), null));
+        }
 
+        for (Map.Entry<Jid, SmackFuture<DiscoverInfo, Exception>> entry : proxyInfoFutures.entrySet()) {
+            Jid item = entry.getKey();
             DiscoverInfo proxyInfo;
             try {
-                proxyInfo = serviceDiscoveryManager.discoverInfo(item.getEntityID());
+                proxyInfo = entry.getValue().getOrThrow();
             }
-            catch (NoResponseException | XMPPErrorException e) {
+            catch (NotConnectedException | InterruptedException e) {
+                throw e;
+            }
+            catch (Exception e) {
                 // blacklist erroneous server
-                proxyBlacklist.add(item.getEntityID());
+                proxyBlacklist.add(item);
                 continue;
             }
 
             if (proxyInfo.hasIdentity("proxy", "bytestreams")) {
-                proxies.add(item.getEntityID());
+                proxies.add(item);
             } else {
                 /*
                  * server is not a SOCKS5 proxy, blacklist server to skip next time a Socks5
                  * bytestream should be established
                  */
-                this.proxyBlacklist.add(item.getEntityID());
+                this.proxyBlacklist.add(item);
             }
         }
 
+        proxyCache.put(service, Collections.unmodifiableList(new ArrayList<>(proxies)));
+
         return proxies;
     }
 
@@ -603,6 +685,9 @@ public final class Socks5BytestreamManager extends Manager implements Bytestream
      * SOCKS5 proxy JIDs. The order of the returned list is the same as the given list of JIDs
      * excluding all SOCKS5 proxies who's network settings could not be determined. If a local
      * SOCKS5 proxy is running it will be the first item in the list returned.
+     * <p>
+     * The SOCKS5 proxies whose network settings are not cached are queried concurrently.
+     * </p>
      *
      * @param proxies a list of SOCKS5 proxy JIDs
      * @return a list of stream hosts containing the IP address an the port
@@ -617,18 +702,34 @@ public final class Socks5BytestreamManager extends Manager implements Bytestream
             streamHosts.addAll(localProxies);
         }
 
-        // query SOCKS5 proxies for network settings
+        // query SOCKS5 proxies for network settings, unless they are cached
+        Map<Jid, List<StreamHost>> cachedStreamHosts = new HashMap<>();
+        Map<Jid, SmackFuture<IQ, Exception>> streamHostFutures = new HashMap<>();
         for (Jid proxy : proxies) {
-            Bytestream streamHostRequest = createStreamHostRequest(proxy);
-            try {
-                Bytestream response = connection.sendIqRequestAndWaitForResponse(
-                                streamHostRequest);
-                streamHosts.addAll(response.getStreamHosts());
+            List<StreamHost> proxyStreamHosts = streamHostCache.lookup(proxy);
+            if (proxyStreamHosts != null) {
+                cachedStreamHosts.put(proxy, proxyStreamHosts);
+                continue;
             }
-            catch (Exception e) {
-                // blacklist erroneous proxies
-                this.proxyBlacklist.add(proxy);
+            Bytestream streamHostRequest = createStreamHostRequest(proxy);
+            streamHostFutures.put(proxy, connection.sendIqRequestAsync(streamHostRequest));
+        }
+
+        for (Jid proxy : proxies) {
+            List<StreamHost> proxyStreamHosts = cachedStreamHosts.get(proxy);
+            if (proxyStreamHosts == null) {
+                try {
+                    Bytestream response = (Bytestream) streamHostFutures.get(proxy).getOrThrow();
+                    proxyStreamHosts = Collections.unmodifiableList(new ArrayList<>(response.getStreamHosts()));
+                    streamHostCache.put(proxy, proxyStreamHosts);
+                }
+                catch (Exception e) {
+                    // blacklist erroneous proxies
+                    this.proxyBlacklist.add(proxy);
+                    continue;
+                }
             }
+            streamHosts.addAll(proxyStreamHosts);
         }
 
         return streamHosts;
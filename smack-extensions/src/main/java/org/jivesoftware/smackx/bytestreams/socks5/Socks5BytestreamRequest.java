@@ -18,10 +18,14 @@ package org.jivesoftware.smackx.bytestreams.socks5;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
 
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
@@ -29,6 +33,8 @@ import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.StanzaError;
+import org.jivesoftware.smack.util.Async;
+import org.jivesoftware.smack.util.CloseableUtil;
 
 import org.jivesoftware.smackx.bytestreams.BytestreamRequest;
 import org.jivesoftware.smackx.bytestreams.socks5.Socks5Exception.CouldNotConnectToAnyProvidedSocks5Host;
@@ -47,6 +53,8 @@ import org.jxmpp.util.cache.ExpirationCache;
  */
 public class Socks5BytestreamRequest implements BytestreamRequest {
 
+    private static final Logger LOGGER = Logger.getLogger(Socks5BytestreamRequest.class.getName());
+
     /* lifetime of an Item in the blacklist */
     private static final long BLACKLIST_LIFETIME = 60 * 1000 * 120;
 
@@ -140,9 +148,10 @@ public class Socks5BytestreamRequest implements BytestreamRequest {
     /**
      * Returns the maximum timeout to connect to SOCKS5 proxies. Default is 10000ms.
      * <p>
-     * When accepting a SOCKS5 Bytestream request Smack tries to connect to all SOCKS5 proxies given
-     * by the initiator until a connection is established. This timeout divided by the number of
-     * SOCKS5 proxies determines the timeout for every connection attempt.
+     * When accepting a SOCKS5 Bytestream request Smack concurrently tries to connect to the SOCKS5
+     * proxies given by the initiator until a connection is established. Stream hosts with the same
+     * JID are tried one after another, this timeout divided by their number determines the timeout
+     * for every connection attempt.
      * <p>
      * You can set the minimum timeout for establishing a connection to one SOCKS5 proxy by invoking
      * {@link #setMinimumConnectTimeout(int)}.
@@ -159,9 +168,10 @@ public class Socks5BytestreamRequest implements BytestreamRequest {
     /**
      * Sets the maximum timeout to connect to SOCKS5 proxies. Default is 10000ms.
      * <p>
-     * When accepting a SOCKS5 Bytestream request Smack tries to connect to all SOCKS5 proxies given
-     * by the initiator until a connection is established. This timeout divided by the number of
-     * SOCKS5 proxies determines the timeout for every connection attempt.
+     * When accepting a SOCKS5 Bytestream request Smack concurrently tries to connect to the SOCKS5
+     * proxies given by the initiator until a connection is established. Stream hosts with the same
+     * JID are tried one after another, this timeout divided by their number determines the timeout
+     * for every connection attempt.
      * <p>
      * You can set the minimum timeout for establishing a connection to one SOCKS5 proxy by invoking
      * {@link #setMinimumConnectTimeout(int)}.
@@ -234,25 +244,21 @@ public class Socks5BytestreamRequest implements BytestreamRequest {
                     CouldNotConnectToAnyProvidedSocks5Host, NotConnectedException, NoSocks5StreamHostsProvided {
         Collection<StreamHost> streamHosts = this.bytestreamRequest.getStreamHosts();
 
-        Map<StreamHost, Exception> streamHostsExceptions = new HashMap<>();
         // throw exceptions if request contains no stream hosts
         if (streamHosts.size() == 0) {
-            cancelRequest(streamHostsExceptions);
+            cancelRequest(new HashMap<StreamHost, Exception>());
         }
 
-        StreamHost selectedHost = null;
-        Socket socket = null;
-
         String digest = Socks5Utils.createDigest(this.bytestreamRequest.getSessionID(),
                         this.bytestreamRequest.getFrom(), this.manager.getConnection().getUser());
 
         /*
-         * determine timeout for each connection attempt; each SOCKS5 proxy has the same amount of
-         * time so that the first does not consume the whole timeout
+         * Group the stream hosts by their JID. Stream hosts with the same JID are usually the same
+         * SOCKS5 proxy reachable under different addresses, e.g. the local proxy of the initiator,
+         * which only keeps one connection per digest. Hence those are tried one after another,
+         * while the stream hosts of different SOCKS5 proxies race against each other.
          */
-        int timeout = Math.max(getTotalConnectTimeout() / streamHosts.size(),
-                        getMinimumConnectTimeout());
-
+        Map<Jid, List<StreamHost>> streamHostGroups = new LinkedHashMap<>();
         for (StreamHost streamHost : streamHosts) {
             String address = streamHost.getAddress() + ":" + streamHost.getPort();
 
@@ -262,25 +268,51 @@ public class Socks5BytestreamRequest implements BytestreamRequest {
                 continue;
             }
 
-            // establish socket
-            try {
-
-                // build SOCKS5 client
-                final Socks5Client socks5Client = new Socks5Client(streamHost, digest);
-
-                // connect to SOCKS5 proxy with a timeout
-                socket = socks5Client.getSocket(timeout);
+            List<StreamHost> streamHostGroup = streamHostGroups.get(streamHost.getJID());
+            if (streamHostGroup == null) {
+                streamHostGroup = new ArrayList<>();
+                streamHostGroups.put(streamHost.getJID(), streamHostGroup);
+            }
+            streamHostGroup.add(streamHost);
+        }
 
-                // set selected host
-                selectedHost = streamHost;
-                break;
+        final StreamHostRace race = new StreamHostRace(streamHostGroups.size());
+        for (final List<StreamHost> streamHostGroup : streamHostGroups.values()) {
+            /*
+             * determine timeout for each connection attempt; each stream host of the SOCKS5 proxy
+             * has the same amount of time so that the first does not consume the whole timeout
+             */
+            final int timeout = Math.max(getTotalConnectTimeout() / streamHostGroup.size(),
+                            getMinimumConnectTimeout());
+
+            Async.go(new Runnable() {
+                @Override
+                public void run() {
+                    connect(streamHostGroup, digest, timeout, race);
+                }
+            }, "SOCKS5 stream host connection attempt to " + streamHostGroup.get(0).getJID());
+        }
 
+        StreamHost selectedHost;
+        Socket socket;
+        Map<StreamHost, Exception> streamHostsExceptions;
+        synchronized (race) {
+            try {
+                while (race.socket == null && race.pending > 0) {
+                    race.wait();
+                }
             }
-            catch (TimeoutException | IOException | SmackException | XMPPException e) {
-                streamHostsExceptions.put(streamHost, e);
-                incrementConnectionFailures(address);
+            catch (InterruptedException e) {
+                // close the connection of a stream host which won the race in the meantime
+                race.closeSocket();
+                throw e;
             }
-
+            finally {
+                race.finished = true;
+            }
+            selectedHost = race.selectedHost;
+            socket = race.socket;
+            streamHostsExceptions = new HashMap<>(race.exceptions);
         }
 
         // throw exception if connecting to all SOCKS5 proxies failed
@@ -290,13 +322,77 @@ public class Socks5BytestreamRequest implements BytestreamRequest {
 
         // send used-host confirmation
         Bytestream response = createUsedHostResponse(selectedHost);
-        this.manager.getConnection().sendStanza(response);
+        try {
+            this.manager.getConnection().sendStanza(response);
+        }
+        catch (NotConnectedException | InterruptedException e) {
+            CloseableUtil.maybeClose(socket, LOGGER);
+            throw e;
+        }
 
         return new Socks5BytestreamSession(socket, selectedHost.getJID().equals(
                         this.bytestreamRequest.getFrom()));
 
     }
 
+    /**
+     * Tries to connect to the given stream hosts of one SOCKS5 proxy one after another, until a
+     * connection is established or another SOCKS5 proxy won the race.
+     *
+     * @param streamHostGroup the stream hosts of one SOCKS5 proxy.
+     * @param digest the digest of the SOCKS5 Bytestream.
+     * @param timeout the timeout for every connection attempt.
+     * @param race the race of the SOCKS5 proxies.
+     */
+    private void connect(List<StreamHost> streamHostGroup, String digest, int timeout, StreamHostRace race) {
+        try {
+            for (StreamHost streamHost : streamHostGroup) {
+                synchronized (race) {
+                    if (race.finished || race.socket != null) {
+                        return;
+                    }
+                }
+
+                String address = streamHost.getAddress() + ":" + streamHost.getPort();
+                Socket socket;
+                try {
+                    // build SOCKS5 client
+                    final Socks5Client socks5Client = new Socks5Client(streamHost, digest);
+
+                    // connect to SOCKS5 proxy with a timeout
+                    socket = socks5Client.getSocket(timeout);
+                }
+                catch (TimeoutException | IOException | SmackException | XMPPException | InterruptedException e) {
+                    synchronized (race) {
+                        race.exceptions.put(streamHost, e);
+                    }
+                    incrementConnectionFailures(address);
+                    continue;
+                }
+
+                boolean selected;
+                synchronized (race) {
+                    selected = !race.finished && race.socket == null;
+                    if (selected) {
+                        race.socket = socket;
+                        race.selectedHost = streamHost;
+                    }
+                }
+                if (!selected) {
+                    // another SOCKS5 proxy was faster
+                    CloseableUtil.maybeClose(socket, LOGGER);
+                }
+                return;
+            }
+        }
+        finally {
+            synchronized (race) {
+                race.pending--;
+                race.notifyAll();
+            }
+        }
+    }
+
     /**
      * Rejects the SOCKS5 Bytestream request by sending a reject error to the initiator.
      * @throws NotConnectedException if the XMPP connection is not connected.
@@ -365,8 +461,11 @@ public class Socks5BytestreamRequest implements BytestreamRequest {
      * @param address the address the connection failure counter should be increased
      */
     private static void incrementConnectionFailures(String address) {
-        Integer count = ADDRESS_BLACKLIST.lookup(address);
-        ADDRESS_BLACKLIST.put(address, count == null ? 1 : count + 1);
+        // connection attempts to the stream hosts are made concurrently
+        synchronized (ADDRESS_BLACKLIST) {
+            Integer count = ADDRESS_BLACKLIST.lookup(address);
+            ADDRESS_BLACKLIST.put(address, count == null ? 1 : count + 1);
+        }
     }
 
     /**
@@ -380,4 +479,36 @@ public class Socks5BytestreamRequest implements BytestreamRequest {
         return count != null ? count : 0;
     }
 
+    /**
+     * The state of the concurrent connection attempts to the SOCKS5 proxies, the first established
+     * connection wins. Guarded by its own monitor.
+     */
+    private static final class StreamHostRace {
+
+        /* the stream hosts which could not be connected and their exceptions */
+        private final Map<StreamHost, Exception> exceptions = new HashMap<>();
+
+        /* the number of SOCKS5 proxies which are still tried */
+        private int pending;
+
+        /* the stream host which won the race */
+        private StreamHost selectedHost;
+
+        /* the connection to the stream host which won the race */
+        private Socket socket;
+
+        /* flag indicating that the result of the race is no longer awaited */
+        private boolean finished;
+
+        private StreamHostRace(int pending) {
+            this.pending = pending;
+        }
+
+        private void closeSocket() {
+            CloseableUtil.maybeClose(socket, LOGGER);
+            socket = null;
+            selectedHost = null;
+        }
+    }
+
 }
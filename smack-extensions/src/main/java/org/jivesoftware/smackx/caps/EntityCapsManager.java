@@ -33,7 +33,10 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.jivesoftware.smack.ConnectionCreationListener;
 import org.jivesoftware.smack.ConnectionListener;
@@ -41,6 +44,8 @@ import org.jivesoftware.smack.Manager;
 import org.jivesoftware.smack.SmackConfiguration;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
 import org.jivesoftware.smack.StanzaListener;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
@@ -55,6 +60,7 @@ import org.jivesoftware.smack.packet.PresenceBuilder;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.roster.AbstractPresenceEventListener;
 import org.jivesoftware.smack.roster.Roster;
+import org.jivesoftware.smack.util.ConcurrentLruCache;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base64;
 
@@ -75,7 +81,6 @@ import org.jivesoftware.smackx.xdata.packet.DataForm;
 import org.jxmpp.jid.DomainBareJid;
 import org.jxmpp.jid.FullJid;
 import org.jxmpp.jid.Jid;
-import org.jxmpp.util.cache.LruCache;
 
 /**
  * Manages own and others Entity Capabilities (XEP-0115).
@@ -110,6 +115,8 @@ import org.jxmpp.util.cache.LruCache;
  * EntityCapsManager mgr = EntityCapsManager.getInstanceFor(connection);
  * // Create an cache, see smackx.entitycaps.cache for pre-defined cache implementations
  * EntityCapsPersistentCache cache = new SimpleDirectoryPersistentCache(new File("/foo/cachedir"));
+ * // Or, if many different entities are encountered, use a compact cache stored in a single file
+ * // cache = new SingleFilePersistentCache(new File("/foo/caps.cache"));
  * // Set the cache
  * mgr.setPersistentCache(cache);
  * }</pre>
@@ -119,6 +126,8 @@ import org.jxmpp.util.cache.LruCache;
  */
 public final class EntityCapsManager extends Manager {
 
+    private static final Logger LOGGER = Logger.getLogger(EntityCapsManager.class.getName());
+
     public static final String NAMESPACE = CapsExtension.NAMESPACE;
     public static final String ELEMENT = CapsExtension.ELEMENT;
 
@@ -135,6 +144,8 @@ public final class EntityCapsManager extends Manager {
 
     private static boolean autoEnableEntityCaps = true;
 
+    private static boolean defaultPrefetchUnknownCaps = false;
+
     private static final Map<XMPPConnection, EntityCapsManager> instances = new WeakHashMap<>();
 
     private static final StanzaFilter PRESENCES_WITH_CAPS = new AndFilter(new StanzaTypeFilter(Presence.class), new StanzaExtensionFilter(
@@ -143,7 +154,7 @@ public final class EntityCapsManager extends Manager {
     /**
      * Map of "node + '#' + hash" to DiscoverInfo data
      */
-    static final LruCache<String, DiscoverInfo> CAPS_CACHE = new LruCache<>(1000);
+    static final ConcurrentLruCache<String, DiscoverInfo> CAPS_CACHE = new ConcurrentLruCache<>(1000);
 
     /**
      * Map of Full JID -&gt; DiscoverInfo/null. In case of c2s connection the
@@ -151,7 +162,13 @@ public final class EntityCapsManager extends Manager {
      * link-local connection the key is formed as user@host (no resource) In
      * case of a server or component the key is formed as domain
      */
-    static final LruCache<Jid, NodeVerHash> JID_TO_NODEVER_CACHE = new LruCache<>(10000);
+    static final ConcurrentLruCache<Jid, NodeVerHash> JID_TO_NODEVER_CACHE = new ConcurrentLruCache<>(10000);
+
+    /**
+     * Map of "node + '#' + hash" to the future of the currently ongoing disco#info lookup for this node. Used to
+     * ensure that at most one lookup per node is in flight, which all interested callers share.
+     */
+    private static final Map<String, SmackFuture<DiscoverInfo, Exception>> IN_FLIGHT_LOOKUPS = new ConcurrentHashMap<>();
 
     static {
         XMPPConnectionRegistry.addConnectionCreationListener(new ConnectionCreationListener() {
@@ -176,27 +193,109 @@ public final class EntityCapsManager extends Manager {
                     return info;
                 }
 
-                NodeVerHash nodeVerHash = getNodeVerHashByJid(jid);
-                if (nodeVerHash == null) {
+                info = lookupDiscoverInfoByJid(serviceDiscoveryManager, jid);
+                if (info == null) {
                     return null;
                 }
 
-                try {
-                    info = serviceDiscoveryManager.discoverInfo(jid, nodeVerHash.getNodeVer());
-                } catch (NoResponseException | XMPPErrorException | NotConnectedException | InterruptedException e) {
-                    // TODO log
+                // The result of the lookup is shared with all callers waiting for it, hence return a copy.
+                return new DiscoverInfo(info);
+            }
+
+            @Override
+            public DiscoverInfoView getDiscoverInfoViewByUser(ServiceDiscoveryManager serviceDiscoveryManager, Jid jid) {
+                DiscoverInfoView infoView = EntityCapsManager.getDiscoverInfoViewByUser(jid);
+                if (infoView != null) {
+                    return infoView;
+                }
+
+                DiscoverInfo info = lookupDiscoverInfoByJid(serviceDiscoveryManager, jid);
+                if (info == null) {
                     return null;
                 }
 
+                return info.asUnmodifiableView();
+            }
+        });
+    }
+
+    private static DiscoverInfo lookupDiscoverInfoByJid(ServiceDiscoveryManager serviceDiscoveryManager, Jid jid) {
+        NodeVerHash nodeVerHash = getNodeVerHashByJid(jid);
+        if (nodeVerHash == null) {
+            return null;
+        }
+
+        SmackFuture<DiscoverInfo, Exception> lookup = lookupDiscoverInfoByNodeVer(serviceDiscoveryManager, jid,
+                        nodeVerHash);
+        try {
+            return lookup.getOrThrow();
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not lookup disco#info of " + nodeVerHash.getNodeVer() + " via " + jid, e);
+            return null;
+        }
+    }
+
+    /**
+     * Lookup the disco#info of the given node#ver by querying the given JID. If there is already a lookup for the same
+     * node#ver in flight, then its future is returned instead of sending another request. Results which could be
+     * verified are added to the caps cache.
+     *
+     * @param serviceDiscoveryManager the service discovery manager used to send the request.
+     * @param jid the JID to query.
+     * @param nodeVerHash the node, ver and hash announced by the JID.
+     * @return a future for the disco#info of the node#ver.
+     */
+    private static SmackFuture<DiscoverInfo, Exception> lookupDiscoverInfoByNodeVer(
+                    ServiceDiscoveryManager serviceDiscoveryManager, Jid jid, NodeVerHash nodeVerHash) {
+        final String nodeVer = nodeVerHash.getNodeVer();
+        final InternalSmackFuture<DiscoverInfo, Exception> future = new InternalSmackFuture<>();
+        SmackFuture<DiscoverInfo, Exception> inFlightLookup = IN_FLIGHT_LOOKUPS.putIfAbsent(nodeVer, future);
+        if (inFlightLookup != null) {
+            return inFlightLookup;
+        }
+
+        // A lookup for the same node#ver could have completed right before we registered ours, so check the cache
+        // again before sending a request.
+        DiscoverInfo cachedInfo = lookupCachedDiscoverInfo(nodeVer);
+        if (cachedInfo != null) {
+            IN_FLIGHT_LOOKUPS.remove(nodeVer, future);
+            future.setResult(cachedInfo);
+            return future;
+        }
+
+        SmackFuture<DiscoverInfo, Exception> discoverInfoFuture;
+        try {
+            discoverInfoFuture = serviceDiscoveryManager.discoverInfoAsync(jid, nodeVer);
+        } catch (RuntimeException e) {
+            // Do not leave the lookup behind, otherwise no further lookup for this node#ver would ever be started.
+            IN_FLIGHT_LOOKUPS.remove(nodeVer, future);
+            future.setException(e);
+            return future;
+        }
+
+        discoverInfoFuture.onCompletion(f -> {
+            DiscoverInfo info = f.getIfAvailable();
+            if (info != null) {
                 if (verifyDiscoverInfoVersion(nodeVerHash.getVer(), nodeVerHash.getHash(), info)) {
-                    addDiscoverInfoByNode(nodeVerHash.getNodeVer(), info);
+                    addDiscoverInfoByNode(nodeVer, info);
                 } else {
-                    // TODO log
+                    LOGGER.warning("Could not verify disco#info of " + nodeVer + " provided by " + jid);
                 }
+            }
 
-                return info;
+            // Remove the lookup only after the result has been cached, so that no duplicate lookup is started.
+            IN_FLIGHT_LOOKUPS.remove(nodeVer, future);
+
+            if (info != null) {
+                future.setResult(info);
+            } else if (f.isCancelled()) {
+                future.cancel(false);
+            } else {
+                future.setException(f.getExceptionIfAvailable());
             }
         });
+
+        return future;
     }
 
     /**
@@ -218,7 +317,8 @@ public final class EntityCapsManager extends Manager {
      *            DiscoverInfo for the specified node.
      */
     static void addDiscoverInfoByNode(String nodeVer, DiscoverInfo info) {
-        CAPS_CACHE.put(nodeVer, info);
+        // Cache a private copy, so that the cached information can be shared without the caller being able to modify it.
+        CAPS_CACHE.put(nodeVer, new DiscoverInfo(info));
 
         if (persistentCache != null)
             persistentCache.addDiscoverInfoByNodePersistent(nodeVer, info);
@@ -262,6 +362,22 @@ public final class EntityCapsManager extends Manager {
         return getDiscoveryInfoByNodeVer(nvh.nodeVer);
     }
 
+    /**
+     * Get a read-only view of the discover info given a user name. Unlike {@link #getDiscoverInfoByUser(Jid)}, this
+     * does not create a copy of the cached information, but returns an instance shared by all callers.
+     *
+     * @param user user name (Full JID)
+     * @return the discovered info or <code>null</code>.
+     * @since 4.5
+     */
+    public static DiscoverInfoView getDiscoverInfoViewByUser(Jid user) {
+        NodeVerHash nvh = JID_TO_NODEVER_CACHE.lookup(user);
+        if (nvh == null)
+            return null;
+
+        return getDiscoverInfoViewByNodeVer(nvh.nodeVer);
+    }
+
     /**
      * Retrieve DiscoverInfo for a specific node.
      *
@@ -271,6 +387,40 @@ public final class EntityCapsManager extends Manager {
      * @return The corresponding DiscoverInfo or null if none is known.
      */
     public static DiscoverInfo getDiscoveryInfoByNodeVer(String nodeVer) {
+        DiscoverInfo info = lookupCachedDiscoverInfo(nodeVer);
+
+        // If we were able to retrieve information from one of the caches, copy it before returning
+        if (info != null)
+            info = new DiscoverInfo(info);
+
+        return info;
+    }
+
+    /**
+     * Retrieve a read-only view of the DiscoverInfo for a specific node. Unlike
+     * {@link #getDiscoveryInfoByNodeVer(String)}, this does not create a copy of the cached information, but returns
+     * an instance shared by all callers.
+     *
+     * @param nodeVer The node name (e.g. "http://psi-im.org#q07IKJEyjvHSyhy//CH0CxmKi8w=").
+     * @return The corresponding DiscoverInfo or null if none is known.
+     * @since 4.5
+     */
+    public static DiscoverInfoView getDiscoverInfoViewByNodeVer(String nodeVer) {
+        DiscoverInfo info = lookupCachedDiscoverInfo(nodeVer);
+        if (info == null) {
+            return null;
+        }
+
+        return info.asUnmodifiableView();
+    }
+
+    /**
+     * Lookup the cached DiscoverInfo for a specific node. The returned instance is shared and must not be modified.
+     *
+     * @param nodeVer the node#ver.
+     * @return the cached DiscoverInfo or <code>null</code>.
+     */
+    private static DiscoverInfo lookupCachedDiscoverInfo(String nodeVer) {
         DiscoverInfo info = CAPS_CACHE.lookup(nodeVer);
 
         // If it was not in CAPS_CACHE, try to retrieve the information from persistentCache
@@ -282,10 +432,6 @@ public final class EntityCapsManager extends Manager {
             }
         }
 
-        // If we were able to retrieve information from one of the caches, copy it before returning
-        if (info != null)
-            info = new DiscoverInfo(info);
-
         return info;
     }
 
@@ -317,18 +463,31 @@ public final class EntityCapsManager extends Manager {
         CAPS_CACHE.clear();
     }
 
-    private static void addCapsExtensionInfo(Jid from, CapsExtension capsExtension) {
+    /**
+     * Set the default for whether new EntityCapsManagers prefetch the disco#info of unknown caps as soon as they
+     * receive a presence announcing them.
+     *
+     * @param prefetchUnknownCaps <code>true</code> to prefetch unknown caps.
+     * @see #setPrefetchUnknownCaps(boolean)
+     */
+    public static void setDefaultPrefetchUnknownCaps(boolean prefetchUnknownCaps) {
+        defaultPrefetchUnknownCaps = prefetchUnknownCaps;
+    }
+
+    private static NodeVerHash addCapsExtensionInfo(Jid from, CapsExtension capsExtension) {
         String capsExtensionHash = capsExtension.getHash();
         String hashInUppercase = capsExtensionHash.toUpperCase(Locale.US);
         // SUPPORTED_HASHES uses the format of MessageDigest, which is uppercase, e.g. "SHA-1" instead of "sha-1"
         if (!SUPPORTED_HASHES.containsKey(hashInUppercase))
-            return;
+            return null;
         String hash = capsExtensionHash.toLowerCase(Locale.US);
 
         String node = capsExtension.getNode();
         String ver = capsExtension.getVer();
 
-        JID_TO_NODEVER_CACHE.put(from, new NodeVerHash(node, ver, hash));
+        NodeVerHash nodeVerHash = new NodeVerHash(node, ver, hash);
+        JID_TO_NODEVER_CACHE.put(from, nodeVerHash);
+        return nodeVerHash;
     }
 
     private final Queue<CapsVersionAndHash> lastLocalCapsVersions = new ConcurrentLinkedQueue<>();
@@ -338,6 +497,8 @@ public final class EntityCapsManager extends Manager {
     private boolean entityCapsEnabled;
     private CapsVersionAndHash currentCapsVersion;
 
+    private boolean prefetchUnknownCaps = defaultPrefetchUnknownCaps;
+
     /**
      * The entity node String used by this EntityCapsManager instance.
      */
@@ -402,7 +563,10 @@ public final class EntityCapsManager extends Manager {
 
                 CapsExtension capsExtension = CapsExtension.from(packet);
                 Jid from = packet.getFrom();
-                addCapsExtensionInfo(from, capsExtension);
+                NodeVerHash nodeVerHash = addCapsExtensionInfo(from, capsExtension);
+                if (nodeVerHash != null && prefetchUnknownCaps) {
+                    maybePrefetchDiscoverInfo(from, nodeVerHash);
+                }
             }
 
         }, PRESENCES_WITH_CAPS);
@@ -462,6 +626,28 @@ public final class EntityCapsManager extends Manager {
         return entityCapsEnabled;
     }
 
+    /**
+     * Set whether this manager should prefetch the disco#info of unknown caps as soon as it receives a presence
+     * announcing them. Prefetching results in later feature lookups being answered from the cache. Lookups for the
+     * same node#ver are only performed once, even if many entities announce it at the same time, e.g. when joining
+     * a large MUC.
+     *
+     * @param prefetchUnknownCaps <code>true</code> to prefetch unknown caps.
+     */
+    public void setPrefetchUnknownCaps(boolean prefetchUnknownCaps) {
+        this.prefetchUnknownCaps = prefetchUnknownCaps;
+    }
+
+    @SuppressWarnings("FutureReturnValueIgnored")
+    private void maybePrefetchDiscoverInfo(Jid from, NodeVerHash nodeVerHash) {
+        String nodeVer = nodeVerHash.getNodeVer();
+        if (CAPS_CACHE.lookup(nodeVer) != null || IN_FLIGHT_LOOKUPS.containsKey(nodeVer)) {
+            return;
+        }
+
+        lookupDiscoverInfoByNodeVer(sdm, from, nodeVerHash);
+    }
+
     /**
      * Remove a record telling what entity caps node a user has.
      *
@@ -0,0 +1,460 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.caps.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.util.PacketParserUtils;
+
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo.Feature;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo.Identity;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
+
+/**
+ * An EntityCapsPersistentCache which stores the Caps information of all known nodes in a single, append-only file.
+ * <p>
+ * Unlike {@link SimpleDirectoryPersistentCache}, which creates a file per node and parses the stored XML on every
+ * lookup, this cache uses a compact binary encoding: Every string, like a feature or an identity category, is only
+ * stored once in the file, and the disco#info of a node refers to the strings by their index. Only disco#info
+ * containing extensions, e.g. XEP-0128 data forms, are stored as XML. The file is read once, when the cache is first
+ * used, in order to build an in-memory index of the known nodes and the string table. The disco#info of a node is
+ * read from the file when it is looked up.
+ * </p>
+ * <p>
+ * Since the Caps information of a node never changes, the file never needs to be rewritten. If the file was
+ * truncated, e.g. because the application crashed while appending to it, then the incomplete record is discarded.
+ * </p>
+ */
+public class SingleFilePersistentCache implements EntityCapsPersistentCache {
+    private static final Logger LOGGER = Logger.getLogger(SingleFilePersistentCache.class.getName());
+
+    private static final int MAGIC = 0x534d4543; // "SMEC"
+
+    private static final byte VERSION = 1;
+
+    private static final int HEADER_LENGTH = 5;
+
+    private static final byte RECORD_TYPE_STRING = 1;
+
+    private static final byte RECORD_TYPE_ENTRY = 2;
+
+    private static final byte ENTRY_FORMAT_COMPACT = 0;
+
+    private static final byte ENTRY_FORMAT_XML = 1;
+
+    private static final String RESTORED_STANZA_ID = "caps-cache";
+
+    private final File cacheFile;
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    /**
+     * Map of node#ver to the file offset of the record containing the node's disco#info.
+     */
+    private final Map<String, Long> index = new HashMap<>();
+
+    private boolean loaded;
+
+    private long fileLength;
+
+    /**
+     * Creates a new SingleFilePersistentCache. The file will be created if it does not exist, but its parent directory
+     * must exist.
+     *
+     * @param cacheFile the file where the cache will be stored.
+     */
+    public SingleFilePersistentCache(File cacheFile) {
+        File parent = cacheFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory())
+            throw new IllegalStateException("Cache directory \"" + parent + "\" does not exist");
+        if (cacheFile.isDirectory())
+            throw new IllegalStateException("Cache file \"" + cacheFile + "\" is a directory");
+
+        this.cacheFile = cacheFile;
+    }
+
+    @Override
+    public synchronized void addDiscoverInfoByNodePersistent(String nodeVer, DiscoverInfo info) {
+        try {
+            ensureLoaded();
+            if (index.containsKey(nodeVer)) {
+                return;
+            }
+
+            ByteArrayOutputStream records = new ByteArrayOutputStream(256);
+            List<String> newStrings = new ArrayList<>();
+            byte[] entry = encodeEntry(nodeVer, info, newStrings);
+            for (String string : newStrings) {
+                writeRecord(records, RECORD_TYPE_STRING, string.getBytes(StandardCharsets.UTF_8));
+            }
+            long entryOffset = fileLength + records.size();
+            writeRecord(records, RECORD_TYPE_ENTRY, entry);
+
+            try (OutputStream out = new FileOutputStream(cacheFile, true)) {
+                records.writeTo(out);
+            }
+
+            fileLength += records.size();
+            index.put(nodeVer, entryOffset);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write disco info to " + cacheFile, e);
+            // The state of the file is unknown, so re-read it the next time.
+            resetInMemoryState();
+        }
+    }
+
+    @Override
+    public synchronized DiscoverInfo lookup(String nodeVer) {
+        try {
+            ensureLoaded();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not load " + cacheFile, e);
+            resetInMemoryState();
+            return null;
+        }
+
+        Long offset = index.get(nodeVer);
+        if (offset == null) {
+            return null;
+        }
+
+        try {
+            byte[] entry;
+            try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r")) {
+                file.seek(offset);
+                byte type = file.readByte();
+                assert type == RECORD_TYPE_ENTRY;
+                int length = readVarInt(file);
+                checkLength(length, file.length() - file.getFilePointer());
+                entry = new byte[length];
+                file.readFully(entry);
+            }
+            return decodeEntry(entry);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not restore info of " + nodeVer + " from " + cacheFile, e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void emptyCache() {
+        resetInMemoryState();
+        try {
+            writeHeader();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not empty " + cacheFile, e);
+        }
+    }
+
+    private void resetInMemoryState() {
+        strings.clear();
+        stringIds.clear();
+        index.clear();
+        loaded = false;
+    }
+
+    private void writeHeader() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.setLength(0);
+            file.writeInt(MAGIC);
+            file.writeByte(VERSION);
+        }
+        fileLength = HEADER_LENGTH;
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+
+        if (!cacheFile.isFile() || cacheFile.length() < HEADER_LENGTH) {
+            writeHeader();
+            loaded = true;
+            return;
+        }
+
+        final long fileSize = cacheFile.length();
+        long validLength = HEADER_LENGTH;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            int magic = in.readInt();
+            byte version = in.readByte();
+            if (magic != MAGIC || version != VERSION) {
+                LOGGER.warning("Discarding " + cacheFile + " as it is not a Caps cache of a supported version");
+                writeHeader();
+                loaded = true;
+                return;
+            }
+
+            int type;
+            while ((type = in.read()) >= 0) {
+                final long recordOffset = validLength;
+
+                byte[] payload;
+                try {
+                    int length = readVarInt(in);
+                    checkLength(length, fileSize - recordOffset - 1 - varIntLength(length));
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    LOGGER.log(Level.WARNING, "Discarding incomplete record at the end of " + cacheFile, e);
+                    break;
+                } catch (CorruptRecordException e) {
+                    LOGGER.log(Level.WARNING, "Discarding corrupt record at offset " + recordOffset
+                                    + " and all following records of " + cacheFile, e);
+                    break;
+                }
+
+                if (!processRecord(type, payload, recordOffset)) {
+                    LOGGER.warning("Discarding malformed record at offset " + recordOffset + " and all following records of "
+                                    + cacheFile);
+                    break;
+                }
+
+                validLength = recordOffset + 1 + varIntLength(payload.length) + payload.length;
+            }
+        }
+
+        if (validLength < cacheFile.length()) {
+            try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+                file.setLength(validLength);
+            }
+        }
+
+        fileLength = validLength;
+        loaded = true;
+    }
+
+    private boolean processRecord(int type, byte[] payload, long recordOffset) throws IOException {
+        switch (type) {
+        case RECORD_TYPE_STRING:
+            addString(new String(payload, StandardCharsets.UTF_8));
+            return true;
+        case RECORD_TYPE_ENTRY:
+            int nodeVerId;
+            try {
+                nodeVerId = readVarInt(new ByteArrayInputStream(payload));
+            } catch (IOException e) {
+                return false;
+            }
+            if (nodeVerId < 0 || nodeVerId >= strings.size()) {
+                return false;
+            }
+            index.put(strings.get(nodeVerId), recordOffset);
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private int addString(String string) {
+        int id = strings.size();
+        strings.add(string);
+        stringIds.put(string, id);
+        return id;
+    }
+
+    private int getStringId(String string, List<String> newStrings) {
+        Integer id = stringIds.get(string);
+        if (id != null) {
+            return id;
+        }
+        newStrings.add(string);
+        return addString(string);
+    }
+
+    /**
+     * Encodes an optional string as its ID incremented by one, so that 0 can denote <code>null</code>.
+     */
+    private int getOptionalStringId(String string, List<String> newStrings) {
+        if (string == null) {
+            return 0;
+        }
+        return getStringId(string, newStrings) + 1;
+    }
+
+    private String getOptionalString(int id) {
+        if (id == 0) {
+            return null;
+        }
+        return strings.get(id - 1);
+    }
+
+    private byte[] encodeEntry(String nodeVer, DiscoverInfo info, List<String> newStrings) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        writeVarInt(out, getStringId(nodeVer, newStrings));
+
+        if (!info.getExtensions().isEmpty()) {
+            // Extensions, like XEP-0128 data forms, are rare. Store the whole disco#info as XML in this case.
+            out.write(ENTRY_FORMAT_XML);
+            byte[] xml = info.toXML().toString().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, xml.length);
+            out.write(xml);
+            return out.toByteArray();
+        }
+
+        out.write(ENTRY_FORMAT_COMPACT);
+        writeVarInt(out, getOptionalStringId(info.getNode(), newStrings));
+
+        List<Identity> identities = info.getIdentities();
+        writeVarInt(out, identities.size());
+        for (Identity identity : identities) {
+            writeVarInt(out, getStringId(identity.getCategory(), newStrings));
+            writeVarInt(out, getStringId(identity.getType(), newStrings));
+            writeVarInt(out, getOptionalStringId(identity.getName(), newStrings));
+            writeVarInt(out, getOptionalStringId(identity.getLanguage(), newStrings));
+        }
+
+        List<Feature> features = info.getFeatures();
+        writeVarInt(out, features.size());
+        for (Feature feature : features) {
+            writeVarInt(out, getStringId(feature.getVar(), newStrings));
+        }
+
+        return out.toByteArray();
+    }
+
+    private DiscoverInfo decodeEntry(byte[] entry) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        // Skip the node#ver.
+        readVarInt(in);
+
+        byte format = in.readByte();
+        switch (format) {
+        case ENTRY_FORMAT_XML:
+            int xmlLength = readVarInt(in);
+            checkLength(xmlLength, in.available());
+            byte[] xml = new byte[xmlLength];
+            in.readFully(xml);
+            return PacketParserUtils.parseStanza(new String(xml, StandardCharsets.UTF_8));
+        case ENTRY_FORMAT_COMPACT:
+            break;
+        default:
+            throw new IOException("Unknown entry format " + format);
+        }
+
+        DiscoverInfoBuilder builder = DiscoverInfo.builder(RESTORED_STANZA_ID);
+        builder.ofType(IQ.Type.result);
+        builder.setNode(getOptionalString(readVarInt(in)));
+
+        int identityCount = readVarInt(in);
+        for (int i = 0; i < identityCount; i++) {
+            String category = strings.get(readVarInt(in));
+            String type = strings.get(readVarInt(in));
+            String name = getOptionalString(readVarInt(in));
+            String lang = getOptionalString(readVarInt(in));
+            builder.addIdentity(new Identity(category, type, name, lang));
+        }
+
+        int featureCount = readVarInt(in);
+        for (int i = 0; i < featureCount; i++) {
+            builder.addFeature(strings.get(readVarInt(in)));
+        }
+
+        return builder.buildWithoutValidiation();
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte type, byte[] payload) throws IOException {
+        out.write(type);
+        writeVarInt(out, payload.length);
+        out.write(payload);
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        assert value >= 0;
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            length++;
+            value >>>= 7;
+        }
+        return length;
+    }
+
+    /**
+     * Check that a length read from the file is not negative and does not exceed the number of remaining bytes, before
+     * it is used to allocate a buffer.
+     */
+    private static void checkLength(int length, long remaining) throws CorruptRecordException {
+        if (length < 0 || length > remaining) {
+            throw new CorruptRecordException("Invalid length " + length + ", only " + remaining + " bytes remaining");
+        }
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new CorruptRecordException("Malformed variable-length integer");
+    }
+
+    private static int readVarInt(RandomAccessFile file) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = file.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new CorruptRecordException("Malformed variable-length integer");
+    }
+
+    private static final class CorruptRecordException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private CorruptRecordException(String message) {
+            super(message);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.jivesoftware.smackx.disco;
 
 import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoView;
 
 import org.jxmpp.jid.Jid;
 
@@ -45,6 +46,21 @@ public abstract class DiscoInfoLookupShortcutMechanism implements Comparable<Dis
 
     public abstract DiscoverInfo getDiscoverInfoByUser(ServiceDiscoveryManager serviceDiscoveryManager, Jid jid);
 
+    /**
+     * Get a read-only view of the discovered information of the given JID. In contrast to
+     * {@link #getDiscoverInfoByUser(ServiceDiscoveryManager, Jid)}, mechanisms may return an instance that is shared
+     * between all callers, avoiding the creation of a copy per lookup. The default implementation delegates to
+     * {@link #getDiscoverInfoByUser(ServiceDiscoveryManager, Jid)}.
+     *
+     * @param serviceDiscoveryManager the service discovery manager.
+     * @param jid the JID to look up.
+     * @return the discovered information or <code>null</code>.
+     * @since 4.5
+     */
+    public DiscoverInfoView getDiscoverInfoViewByUser(ServiceDiscoveryManager serviceDiscoveryManager, Jid jid) {
+        return getDiscoverInfoByUser(serviceDiscoveryManager, jid);
+    }
+
     @Override
     public final int compareTo(DiscoInfoLookupShortcutMechanism other) {
         int ourPriority = getPriority();
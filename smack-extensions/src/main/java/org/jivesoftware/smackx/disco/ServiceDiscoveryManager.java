@@ -39,10 +39,13 @@ import org.jivesoftware.smack.Manager;
 import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackFuture;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.filter.IQReplyFilter;
 import org.jivesoftware.smack.filter.PresenceTypeFilter;
+import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.internal.AbstractStats;
 import org.jivesoftware.smack.iqrequest.AbstractIqRequestHandler;
 import org.jivesoftware.smack.iqrequest.IQRequestHandler.Mode;
@@ -58,6 +61,7 @@ import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
 import org.jivesoftware.smackx.disco.packet.DiscoverInfo.Identity;
 import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoView;
 import org.jivesoftware.smackx.disco.packet.DiscoverItems;
 import org.jivesoftware.smackx.xdata.packet.DataForm;
 
@@ -87,7 +91,14 @@ public final class ServiceDiscoveryManager extends Manager {
     private static final String DEFAULT_IDENTITY_CATEGORY = "client";
     private static final String DEFAULT_IDENTITY_TYPE = "pc";
 
-    private static final List<DiscoInfoLookupShortcutMechanism> discoInfoLookupShortcutMechanisms = new ArrayList<>(2);
+    /**
+     * The registered disco info lookup shortcut mechanisms, sorted by their priority. The list itself is never
+     * modified, instead a new list is set whenever a mechanism is added or removed. This allows lookups to iterate over
+     * the mechanisms without holding a lock.
+     */
+    private static volatile List<DiscoInfoLookupShortcutMechanism> discoInfoLookupShortcutMechanisms = Collections.emptyList();
+
+    private static final Object discoInfoLookupShortcutMechanismsLock = new Object();
 
     private static DiscoverInfo.Identity defaultIdentity = new Identity(DEFAULT_IDENTITY_CATEGORY,
             DEFAULT_IDENTITY_NAME, DEFAULT_IDENTITY_TYPE);
@@ -528,14 +539,12 @@ public final class ServiceDiscoveryManager extends Manager {
         if (entityID == null)
             return discoverInfo(null, null);
 
-        synchronized (discoInfoLookupShortcutMechanisms) {
-            for (DiscoInfoLookupShortcutMechanism discoInfoLookupShortcutMechanism : discoInfoLookupShortcutMechanisms) {
-                DiscoverInfo info = discoInfoLookupShortcutMechanism.getDiscoverInfoByUser(this, entityID);
-                if (info != null) {
-                    // We were able to retrieve the information from Entity Caps and
-                    // avoided a disco request, hurray!
-                    return info;
-                }
+        for (DiscoInfoLookupShortcutMechanism discoInfoLookupShortcutMechanism : discoInfoLookupShortcutMechanisms) {
+            DiscoverInfo info = discoInfoLookupShortcutMechanism.getDiscoverInfoByUser(this, entityID);
+            if (info != null) {
+                // We were able to retrieve the information from Entity Caps and
+                // avoided a disco request, hurray!
+                return info;
             }
         }
 
@@ -543,6 +552,34 @@ public final class ServiceDiscoveryManager extends Manager {
         return discoverInfo(entityID, null);
     }
 
+    /**
+     * Returns a read-only view of the discovered information of a given XMPP entity addressed by its JID. Unlike
+     * {@link #discoverInfo(Jid)}, the returned view may be shared with other callers, e.g. if it was retrieved from the
+     * Entity Capabilities cache, which avoids creating a copy of the information for every lookup. Use this method if
+     * you only need to query the information, for example, to check for a feature.
+     *
+     * @param entityID the address of the XMPP entity.
+     * @return a view of the discovered information.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @since 4.5
+     */
+    public DiscoverInfoView discoverInfoView(Jid entityID) throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        if (entityID == null)
+            return discoverInfo(null, null);
+
+        for (DiscoInfoLookupShortcutMechanism discoInfoLookupShortcutMechanism : discoInfoLookupShortcutMechanisms) {
+            DiscoverInfoView info = discoInfoLookupShortcutMechanism.getDiscoverInfoViewByUser(this, entityID);
+            if (info != null) {
+                return info;
+            }
+        }
+
+        return discoverInfo(entityID, null);
+    }
+
     /**
      * Returns the discovered information of a given XMPP entity addressed by its JID and
      * note attribute. Use this message only when trying to query information which is not
@@ -573,6 +610,28 @@ public final class ServiceDiscoveryManager extends Manager {
         return (DiscoverInfo) result;
     }
 
+    /**
+     * Asynchronously retrieve the discovered information of a given XMPP entity addressed by its JID and node
+     * attribute. In contrast to {@link #discoverInfo(Jid)}, this method does not consult the registered disco info
+     * lookup shortcut mechanisms, but always sends a disco#info request.
+     *
+     * @param entityID the address of the XMPP entity.
+     * @param node the optional attribute that supplements the 'jid' attribute.
+     * @return a future for the discovered information.
+     * @since 4.5
+     */
+    public SmackFuture<DiscoverInfo, Exception> discoverInfoAsync(Jid entityID, String node) {
+        XMPPConnection connection = connection();
+
+        DiscoverInfo discoInfoRequest = DiscoverInfo.builder(connection)
+                .to(entityID)
+                .setNode(node)
+                .build();
+
+        StanzaFilter replyFilter = new IQReplyFilter(discoInfoRequest, connection);
+        return connection.sendAsync(discoInfoRequest, replyFilter);
+    }
+
     /**
      * Returns the discovered items of a given XMPP entity addressed by its JID.
      *
@@ -611,6 +670,37 @@ public final class ServiceDiscoveryManager extends Manager {
         return (DiscoverItems) result;
     }
 
+    /**
+     * Asynchronously retrieve the discovered items of a given XMPP entity addressed by its JID.
+     *
+     * @param entityID the address of the XMPP entity.
+     * @return a future for the discovered items.
+     * @since 4.5
+     */
+    public SmackFuture<DiscoverItems, Exception> discoverItemsAsync(Jid entityID) {
+        return discoverItemsAsync(entityID, null);
+    }
+
+    /**
+     * Asynchronously retrieve the discovered items of a given XMPP entity addressed by its JID and node attribute.
+     *
+     * @param entityID the address of the XMPP entity.
+     * @param node the optional attribute that supplements the 'jid' attribute.
+     * @return a future for the discovered items.
+     * @since 4.5
+     */
+    public SmackFuture<DiscoverItems, Exception> discoverItemsAsync(Jid entityID, String node) {
+        XMPPConnection connection = connection();
+
+        DiscoverItems disco = new DiscoverItems();
+        disco.setType(IQ.Type.get);
+        disco.setTo(entityID);
+        disco.setNode(node);
+
+        StanzaFilter replyFilter = new IQReplyFilter(disco, connection);
+        return connection.sendAsync(disco, replyFilter);
+    }
+
     /**
      * Returns true if the server supports the given feature.
      *
@@ -693,7 +783,7 @@ public final class ServiceDiscoveryManager extends Manager {
     }
 
     public boolean supportsFeatures(Jid jid, Collection<? extends CharSequence> features) throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
-        DiscoverInfo result = discoverInfo(jid);
+        DiscoverInfoView result = discoverInfoView(jid);
         for (CharSequence feature : features) {
             if (!result.containsFeature(feature)) {
                 return false;
@@ -950,15 +1040,19 @@ public final class ServiceDiscoveryManager extends Manager {
     }
 
     public static void addDiscoInfoLookupShortcutMechanism(DiscoInfoLookupShortcutMechanism discoInfoLookupShortcutMechanism) {
-        synchronized (discoInfoLookupShortcutMechanisms) {
-            discoInfoLookupShortcutMechanisms.add(discoInfoLookupShortcutMechanism);
-            Collections.sort(discoInfoLookupShortcutMechanisms);
+        synchronized (discoInfoLookupShortcutMechanismsLock) {
+            List<DiscoInfoLookupShortcutMechanism> mechanisms = new ArrayList<>(discoInfoLookupShortcutMechanisms);
+            mechanisms.add(discoInfoLookupShortcutMechanism);
+            Collections.sort(mechanisms);
+            discoInfoLookupShortcutMechanisms = Collections.unmodifiableList(mechanisms);
         }
     }
 
     public static void removeDiscoInfoLookupShortcutMechanism(DiscoInfoLookupShortcutMechanism discoInfoLookupShortcutMechanism) {
-        synchronized (discoInfoLookupShortcutMechanisms) {
-            discoInfoLookupShortcutMechanisms.remove(discoInfoLookupShortcutMechanism);
+        synchronized (discoInfoLookupShortcutMechanismsLock) {
+            List<DiscoInfoLookupShortcutMechanism> mechanisms = new ArrayList<>(discoInfoLookupShortcutMechanisms);
+            mechanisms.remove(discoInfoLookupShortcutMechanism);
+            discoInfoLookupShortcutMechanisms = Collections.unmodifiableList(mechanisms);
         }
     }
 
@@ -47,12 +47,14 @@ public class DiscoverInfo extends IQ implements DiscoverInfoView {
     public static final String NAMESPACE = "http://jabber.org/protocol/disco#info";
 
     private final List<Feature> features = new ArrayList<>();
-    private final Set<Feature> featuresSet = new HashSet<>();
+    private final Set<String> featureVars = new HashSet<>();
     private final List<Identity> identities = new ArrayList<>();
     private final Set<String> identitiesSet = new HashSet<>();
     private String node;
     private boolean containsDuplicateFeatures;
 
+    private transient DiscoverInfoView unmodifiableView;
+
     DiscoverInfo(DiscoverInfoBuilder builder, boolean validate) {
         super(builder, ELEMENT, NAMESPACE);
 
@@ -62,7 +64,7 @@ public class DiscoverInfo extends IQ implements DiscoverInfoView {
 
 
         for (Feature feature : features) {
-            boolean featureIsNew = featuresSet.add(feature);
+            boolean featureIsNew = featureVars.add(feature.getVar());
             if (!featureIsNew) {
                 containsDuplicateFeatures = true;
             }
@@ -94,13 +96,30 @@ public class DiscoverInfo extends IQ implements DiscoverInfoView {
 
         // Copy features
         features.addAll(d.features);
-        featuresSet.addAll(d.featuresSet);
+        featureVars.addAll(d.featureVars);
 
         // Copy identities
         identities.addAll(d.identities);
         identitiesSet.addAll(d.identitiesSet);
     }
 
+    /**
+     * Get a read-only view of this DiscoverInfo. The view reflects later modifications of this DiscoverInfo, but does
+     * not allow callers to modify it, not even by casting the view back to DiscoverInfo.
+     *
+     * @return a read-only view of this DiscoverInfo.
+     * @since 4.5
+     */
+    public DiscoverInfoView asUnmodifiableView() {
+        DiscoverInfoView unmodifiableView = this.unmodifiableView;
+        if (unmodifiableView == null) {
+            // The view is stateless, so it does not matter if concurrent invocations create distinct views.
+            unmodifiableView = new UnmodifiableDiscoverInfoView(this);
+            this.unmodifiableView = unmodifiableView;
+        }
+        return unmodifiableView;
+    }
+
     @Override
     public List<Feature> getFeatures() {
         return Collections.unmodifiableList(features);
@@ -146,13 +165,15 @@ public class DiscoverInfo extends IQ implements DiscoverInfoView {
     }
 
     /**
-     * Returns true if the specified feature is part of the discovered information.
+     * Returns true if the specified feature is part of the discovered information. This is a constant time
+     * operation.
      *
      * @param feature the feature to check
      * @return true if the requests feature has been discovered
      */
+    @Override
     public boolean containsFeature(CharSequence feature) {
-        return features.contains(new Feature(feature));
+        return featureVars.contains(feature.toString());
     }
 
     public static boolean nullSafeContainsFeature(DiscoverInfo discoverInfo, CharSequence feature) {
@@ -36,6 +36,22 @@ public interface DiscoverInfoView extends IqView {
      */
     List<DiscoverInfo.Identity> getIdentities();
 
+    /**
+     * Returns true if the specified feature is part of the discovered information.
+     *
+     * @param feature the feature to check
+     * @return true if the requests feature has been discovered
+     */
+    default boolean containsFeature(CharSequence feature) {
+        String featureString = feature.toString();
+        for (DiscoverInfo.Feature discoveredFeature : getFeatures()) {
+            if (discoveredFeature.getVar().equals(featureString)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns the node attribute that supplements the 'jid' attribute. A node is merely
      * something that is associated with a JID and for which the JID can provide information.<p>
@@ -0,0 +1,118 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.disco.packet;
+
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.StanzaError;
+import org.jivesoftware.smack.packet.XmlElement;
+
+import org.jxmpp.jid.Jid;
+
+/**
+ * A read-only view of a {@link DiscoverInfo}. Unlike the DiscoverInfo itself, the view can not be cast to a mutable
+ * type, and hence can safely be shared between callers.
+ *
+ * @see DiscoverInfo#asUnmodifiableView()
+ */
+final class UnmodifiableDiscoverInfoView implements DiscoverInfoView {
+
+    private final DiscoverInfo discoverInfo;
+
+    UnmodifiableDiscoverInfoView(DiscoverInfo discoverInfo) {
+        this.discoverInfo = discoverInfo;
+    }
+
+    @Override
+    public List<DiscoverInfo.Feature> getFeatures() {
+        return discoverInfo.getFeatures();
+    }
+
+    @Override
+    public List<DiscoverInfo.Identity> getIdentities() {
+        return discoverInfo.getIdentities();
+    }
+
+    @Override
+    public boolean containsFeature(CharSequence feature) {
+        return discoverInfo.containsFeature(feature);
+    }
+
+    @Override
+    public String getNode() {
+        return discoverInfo.getNode();
+    }
+
+    @Override
+    public IQ.Type getType() {
+        return discoverInfo.getType();
+    }
+
+    @Override
+    public String getStanzaId() {
+        return discoverInfo.getStanzaId();
+    }
+
+    @Override
+    public Jid getTo() {
+        return discoverInfo.getTo();
+    }
+
+    @Override
+    public Jid getFrom() {
+        return discoverInfo.getFrom();
+    }
+
+    @Override
+    public StanzaError getError() {
+        return discoverInfo.getError();
+    }
+
+    @Override
+    public String getLanguage() {
+        return discoverInfo.getLanguage();
+    }
+
+    @Override
+    public XmlElement getExtension(QName qname) {
+        return discoverInfo.getExtension(qname);
+    }
+
+    @Override
+    public List<XmlElement> getExtensions() {
+        return discoverInfo.getExtensions();
+    }
+
+    @Override
+    public List<XmlElement> getExtensions(QName qname) {
+        return discoverInfo.getExtensions(qname);
+    }
+
+    @Override
+    public <E extends ExtensionElement> List<E> getExtensions(Class<E> extensionElementClass) {
+        return discoverInfo.getExtensions(extensionElementClass);
+    }
+
+    @Override
+    public String toString() {
+        return discoverInfo.toString();
+    }
+}
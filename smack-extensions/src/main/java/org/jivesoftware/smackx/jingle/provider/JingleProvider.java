@@ -82,7 +82,8 @@ public class JingleProvider extends IqProvider<Jingle> {
                     builder.setReason(reason);
                     break;
                 default:
-                    LOGGER.severe("Unknown Jingle element: " + tagName);
+                    // Payloads of e.g. session-info, like XEP-0234's <checksum/>, are application specific.
+                    PacketParserUtils.addExtensionElement(builder, parser, xmlEnvironment);
                     break;
                 }
                 break;
@@ -34,6 +34,7 @@ import org.jivesoftware.smack.PresenceListener;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackFuture;
 import org.jivesoftware.smack.StanzaCollector;
 import org.jivesoftware.smack.StanzaListener;
 import org.jivesoftware.smack.XMPPConnection;
@@ -836,6 +837,24 @@ public class MultiUserChat {
         return new Form(dataForm);
     }
 
+    /**
+     * Asynchronously retrieve the room's configuration form that the room's owner can use.
+     *
+     * @return a future for the Form that contains the fields to complete together with the instructions.
+     * @see #getConfigurationForm()
+     * @since 4.5
+     */
+    public SmackFuture<Form, Exception> getConfigurationFormAsync() {
+        MUCOwner iq = new MUCOwner();
+        iq.setTo(room);
+        iq.setType(IQ.Type.get);
+
+        return connection.sendIqRequestAsync(iq).map(answer -> {
+            DataForm dataForm = DataForm.from(answer, MucConfigFormManager.FORM_TYPE);
+            return new Form(dataForm);
+        });
+    }
+
     /**
      * Sends the completed configuration form to the server. The room will be configured
      * with the new settings defined in the form.
@@ -847,6 +866,24 @@ public class MultiUserChat {
      * @throws InterruptedException if the calling thread was interrupted.
      */
     public void sendConfigurationForm(FillableForm form) throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        MUCOwner iq = createConfigurationFormSubmission(form);
+        connection.sendIqRequestAndWaitForResponse(iq);
+    }
+
+    /**
+     * Asynchronously sends the completed configuration form to the server.
+     *
+     * @param form the form with the new settings.
+     * @return a future for the response of the room.
+     * @see #sendConfigurationForm(FillableForm)
+     * @since 4.5
+     */
+    public SmackFuture<IQ, Exception> sendConfigurationFormAsync(FillableForm form) {
+        MUCOwner iq = createConfigurationFormSubmission(form);
+        return connection.sendIqRequestAsync(iq);
+    }
+
+    private MUCOwner createConfigurationFormSubmission(FillableForm form) {
         final DataForm dataForm;
         if (form != null) {
             dataForm = form.getDataFormToSubmit();
@@ -859,8 +896,7 @@ public class MultiUserChat {
         iq.setTo(room);
         iq.setType(IQ.Type.set);
         iq.addExtension(dataForm);
-
-        connection.sendIqRequestAndWaitForResponse(iq);
+        return iq;
     }
 
     /**
@@ -0,0 +1,238 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.pubsub;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackException.OutgoingQueueFullException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.packet.IQ;
+
+import org.jivesoftware.smackx.pubsub.packet.PubSub;
+import org.jivesoftware.smackx.rsm.packet.RSMSet;
+import org.jivesoftware.smackx.rsm.packet.RSMSet.PageDirection;
+
+/**
+ * Iterates over the items of a {@link LeafNode}, retrieving them page by page using Result Set Management (XEP-0059).
+ * Only a single page of items is held in memory at a time, which allows to process nodes with a large number of items
+ * without materializing all of them at once. If prefetching is enabled, then the next page is requested as soon as the
+ * current page was received, so that the service's response is in flight while the current page is processed.
+ * <p>
+ * If the PubSub service does not support Result Set Management, then it will usually respond with all items in a
+ * single page, which the iterator handles gracefully. Instances of this class are not thread-safe. Use
+ * {@link #close()} to abort the iteration early, which discards a prefetched page.
+ * </p>
+ *
+ * @param <T> the type of the items.
+ * @see LeafNode#iterateItems(int)
+ * @see <a href="https://xmpp.org/extensions/xep-0060.html#subscriber-retrieve-returnsome">XEP-0060 § 6.5.4
+ *      Returning Some Items</a>
+ * @since 4.5
+ */
+public final class ItemIterator<T extends Item> implements AutoCloseable {
+
+    private final LeafNode leafNode;
+
+    private final int pageSize;
+
+    private final boolean prefetch;
+
+    private List<T> currentPage = Collections.emptyList();
+
+    private int currentPageIndex;
+
+    /**
+     * The request for the next page, or <code>null</code> if there is no next page.
+     */
+    private PubSub nextPageRequest;
+
+    /**
+     * The response future for {@link #nextPageRequest}, or <code>null</code> if the request was not yet sent.
+     */
+    private SmackFuture<IQ, Exception> nextPageResponse;
+
+    private int pagesReceived;
+
+    ItemIterator(LeafNode leafNode, int pageSize, boolean prefetch) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size must be positive");
+        }
+        this.leafNode = leafNode;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+        nextPageRequest = createPageRequest(null);
+        if (prefetch) {
+            nextPageResponse = sendRequest(nextPageRequest);
+        }
+    }
+
+    /**
+     * Check if there are more items. This may block while the next page of items is retrieved.
+     *
+     * @return <code>true</code> if there are more items.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public boolean hasNext() throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        while (currentPageIndex == currentPage.size()) {
+            if (nextPageRequest == null) {
+                return false;
+            }
+            receiveNextPage();
+        }
+        return true;
+    }
+
+    /**
+     * Get the next item. This may block while the next page of items is retrieved.
+     *
+     * @return the next item.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws NoSuchElementException if there are no more items.
+     */
+    public T next() throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.get(currentPageIndex++);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Get the number of pages received so far.
+     *
+     * @return the number of received pages.
+     */
+    public int getPagesReceived() {
+        return pagesReceived;
+    }
+
+    /**
+     * Abort the iteration. A prefetched page which is still in flight is discarded.
+     */
+    @Override
+    public void close() {
+        SmackFuture<IQ, Exception> nextPageResponse = this.nextPageResponse;
+        if (nextPageResponse != null) {
+            nextPageResponse.cancel(false);
+        }
+        this.nextPageResponse = null;
+        nextPageRequest = null;
+        currentPage = Collections.emptyList();
+        currentPageIndex = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void receiveNextPage() throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        final PubSub request = nextPageRequest;
+        final SmackFuture<IQ, Exception> response = nextPageResponse;
+        nextPageRequest = null;
+        nextPageResponse = null;
+
+        PubSub result;
+        if (response != null) {
+            result = awaitResponse(request, response);
+        } else {
+            result = getConnection().sendIqRequestAndWaitForResponse(request);
+        }
+        pagesReceived++;
+
+        ItemsExtension itemsElem = result.getExtension(PubSubElementType.ITEMS);
+        List<T> items;
+        if (itemsElem != null) {
+            items = (List<T>) itemsElem.getItems();
+        } else {
+            items = Collections.emptyList();
+        }
+        currentPage = items;
+        currentPageIndex = 0;
+
+        RSMSet rsmSet = result.getExtension(RSMSet.class);
+        if (!hasMorePages(rsmSet, items.size())) {
+            return;
+        }
+
+        nextPageRequest = createPageRequest(rsmSet.getLast());
+        if (prefetch) {
+            nextPageResponse = sendRequest(nextPageRequest);
+        }
+    }
+
+    private static boolean hasMorePages(RSMSet rsmSet, int itemCount) {
+        if (rsmSet == null || rsmSet.getLast() == null || itemCount == 0) {
+            // The service does not support RSM, or the page is empty.
+            return false;
+        }
+        int count = rsmSet.getCount();
+        int firstIndex = rsmSet.getFirstIndex();
+        if (count >= 0 && firstIndex >= 0) {
+            return firstIndex + itemCount < count;
+        }
+        // Note that a page with less items than requested does not mean that it is the last page, as the service may
+        // cap the page size. Without the count and index of the first item, only an empty page ends the iteration.
+        return true;
+    }
+
+    private PubSub createPageRequest(String after) {
+        RSMSet rsmSet;
+        if (after == null) {
+            rsmSet = new RSMSet(pageSize);
+        } else {
+            rsmSet = new RSMSet(pageSize, after, PageDirection.after);
+        }
+        PubSub request = leafNode.createPubsubPacket(IQ.Type.get, new GetItemsRequest(leafNode.getId()));
+        request.addExtension(rsmSet);
+        return request;
+    }
+
+    private SmackFuture<IQ, Exception> sendRequest(PubSub request) {
+        return getConnection().sendIqRequestAsync(request);
+    }
+
+    private PubSub awaitResponse(PubSub request, SmackFuture<IQ, Exception> response)
+                    throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        try {
+            return (PubSub) response.getOrThrow();
+        } catch (OutgoingQueueFullException e) {
+            // The request could not be sent without blocking, so send it again, this time blocking.
+            return getConnection().sendIqRequestAndWaitForResponse(request);
+        } catch (NoResponseException | XMPPErrorException | NotConnectedException | InterruptedException
+                        | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private XMPPConnection getConnection() {
+        return leafNode.pubSubManager.getConnection();
+    }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackFuture;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.XmlElement;
@@ -100,6 +101,10 @@ public class LeafNode extends Node {
      * constraints.  The user would be required to retrieve the payload
      * after the items have been retrieved via {@link #getItems()} or an
      * event, that did not include the payload.
+     * <p>
+     * If the item cache of the PubSub manager is enabled and holds all requested items, then the items are returned
+     * without querying the service.
+     * </p>
      *
      * @param ids Item ids of the items to retrieve
      * @param <T> type of the items.
@@ -110,7 +115,13 @@ public class LeafNode extends Node {
      * @throws NotConnectedException if the XMPP connection is not connected.
      * @throws InterruptedException if the calling thread was interrupted.
      */
+    @SuppressWarnings("unchecked")
     public <T extends Item> List<T> getItems(Collection<String> ids) throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        List<Item> cachedItems = pubSubManager.lookupCachedItems(getId(), ids);
+        if (cachedItems != null) {
+            return (List<T>) cachedItems;
+        }
+
         List<Item> itemList = new ArrayList<>(ids.size());
 
         for (String id : ids) {
@@ -122,17 +133,28 @@ public class LeafNode extends Node {
 
     /**
      * Get items persisted on the node, limited to the specified number.
+     * <p>
+     * If the item cache of the PubSub manager is enabled and holds at least the requested number of items, then the
+     * most recently notified items are returned without querying the service.
+     * </p>
      *
      * @param maxItems Maximum number of items to return
      * @param <T> type of the items.
      *
      * @return List of {@link Item}
+     * @see PubSubManager#enableItemCache(int, int)
      * @throws XMPPErrorException if there was an XMPP error returned.
      * @throws NoResponseException if there was no response from the server.
      * @throws NotConnectedException if the XMPP connection is not connected.
      * @throws InterruptedException if the calling thread was interrupted.
      */
+    @SuppressWarnings("unchecked")
     public <T extends Item> List<T> getItems(int maxItems) throws NoResponseException, XMPPErrorException, NotConnectedException, InterruptedException {
+        List<Item> cachedItems = pubSubManager.lookupCachedItems(getId(), maxItems);
+        if (cachedItems != null) {
+            return (List<T>) cachedItems;
+        }
+
         PubSub request = createPubsubPacket(IQ.Type.get, new GetItemsRequest(getId(), maxItems));
         return getItems(request);
     }
@@ -202,6 +224,75 @@ public class LeafNode extends Node {
         return (List<T>) itemsElem.getItems();
     }
 
+    /**
+     * Iterate over the items of the node, retrieving them in pages of the given size using Result Set Management. The
+     * next page is prefetched while the current page is processed.
+     *
+     * @param pageSize the number of items per page.
+     * @param <T> type of the items.
+     * @return an iterator over the items of the node.
+     * @see #iterateItems(int, boolean)
+     * @since 4.5
+     */
+    public <T extends Item> ItemIterator<T> iterateItems(int pageSize) {
+        return iterateItems(pageSize, true);
+    }
+
+    /**
+     * Iterate over the items of the node, retrieving them in pages of the given size using Result Set Management.
+     * Unlike {@link #getItems()}, this does not require the whole result to fit in a single stanza and in memory, which
+     * makes it suitable for nodes with a large number of items.
+     *
+     * @param pageSize the number of items per page.
+     * @param prefetch if <code>true</code>, then the next page is requested as soon as the current page was received.
+     * @param <T> type of the items.
+     * @return an iterator over the items of the node.
+     * @since 4.5
+     */
+    public <T extends Item> ItemIterator<T> iterateItems(int pageSize, boolean prefetch) {
+        return new ItemIterator<>(this, pageSize, prefetch);
+    }
+
+    /**
+     * Asynchronously get the current items stored in the node.
+     *
+     * @param <T> type of the items.
+     * @return a future for the list of {@link Item} in the node.
+     * @since 4.5
+     */
+    public <T extends Item> SmackFuture<List<T>, Exception> getItemsAsync() {
+        PubSub request = createPubsubPacket(IQ.Type.get, new GetItemsRequest(getId()));
+        return getItemsAsync(request);
+    }
+
+    /**
+     * Asynchronously get items persisted on the node, limited to the specified number.
+     *
+     * @param maxItems Maximum number of items to return
+     * @param <T> type of the items.
+     * @return a future for the list of {@link Item}.
+     * @since 4.5
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Item> SmackFuture<List<T>, Exception> getItemsAsync(int maxItems) {
+        List<Item> cachedItems = pubSubManager.lookupCachedItems(getId(), maxItems);
+        if (cachedItems != null) {
+            return SmackFuture.from((List<T>) cachedItems);
+        }
+
+        PubSub request = createPubsubPacket(IQ.Type.get, new GetItemsRequest(getId(), maxItems));
+        return getItemsAsync(request);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Item> SmackFuture<List<T>, Exception> getItemsAsync(PubSub request) {
+        return pubSubManager.getConnection().sendIqRequestAsync(request).map(response -> {
+            PubSub result = (PubSub) response;
+            ItemsExtension itemsElem = result.getExtension(PubSubElementType.ITEMS);
+            return (List<T>) itemsElem.getItems();
+        });
+    }
+
     /**
      * Publishes an event to the node.  This is an empty event
      * with no item.
@@ -330,6 +421,35 @@ public class LeafNode extends Node {
         pubSubManager.getConnection().sendIqRequestAndWaitForResponse(packet);
     }
 
+    /**
+     * Asynchronously publishes an event to the node. Same rules apply as in {@link #publish(Item)}.
+     *
+     * @param item - The item being sent
+     * @param <T> type of the items.
+     * @return a future for the response to the publish request.
+     * @since 4.5
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Item> SmackFuture<IQ, Exception> publishAsync(T item) {
+        Collection<T> items = new ArrayList<>(1);
+        items.add(item == null ? (T) new Item() : item);
+        return publishAsync(items);
+    }
+
+    /**
+     * Asynchronously publishes multiple events to the node. Same rules apply as in {@link #publish(Collection)}.
+     *
+     * @param items - The collection of {@link Item} objects being sent
+     * @param <T> type of the items.
+     * @return a future for the response to the publish request.
+     * @since 4.5
+     */
+    public <T extends Item> SmackFuture<IQ, Exception> publishAsync(Collection<T> items) {
+        PubSub packet = createPubsubPacket(IQ.Type.set, new PublishItem<>(getId(), items));
+
+        return pubSubManager.getConnection().sendIqRequestAsync(packet);
+    }
+
     /**
      * Purges the node of all items.
      *
@@ -344,6 +464,7 @@ public class LeafNode extends Node {
         PubSub request = createPubsubPacket(IQ.Type.set, new NodeExtension(PubSubElementType.PURGE_OWNER, getId()));
 
         pubSubManager.getConnection().sendIqRequestAndWaitForResponse(request);
+        pubSubManager.invalidateCachedItems(getId());
     }
 
     /**
@@ -378,5 +499,6 @@ public class LeafNode extends Node {
         }
         PubSub request = createPubsubPacket(IQ.Type.set, new ItemsExtension(ItemsExtension.ItemsElementType.retract, getId(), items));
         pubSubManager.getConnection().sendIqRequestAndWaitForResponse(request);
+        pubSubManager.invalidateCachedItems(getId());
     }
 }
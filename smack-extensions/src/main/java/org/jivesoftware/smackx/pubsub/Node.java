@@ -26,10 +26,7 @@ import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.StanzaListener;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
-import org.jivesoftware.smack.filter.FlexibleStanzaTypeFilter;
-import org.jivesoftware.smack.filter.OrFilter;
 import org.jivesoftware.smack.packet.IQ;
-import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.packet.XmlElement;
 
@@ -508,7 +505,7 @@ public abstract class Node {
     public void addItemEventListener(@SuppressWarnings("rawtypes") ItemEventListener listener) {
         StanzaListener conListener = new ItemEventTranslator(listener);
         itemEventToListenerMap.put(listener, conListener);
-        pubSubManager.getConnection().addSyncStanzaListener(conListener, new EventContentFilter(EventElementType.items.toString(), "item"));
+        pubSubManager.addNodeEventListener(getId(), PubSubManager.NodeEventType.itemPublish, conListener);
     }
 
     /**
@@ -520,7 +517,7 @@ public abstract class Node {
         StanzaListener conListener = itemEventToListenerMap.remove(listener);
 
         if (conListener != null)
-            pubSubManager.getConnection().removeSyncStanzaListener(conListener);
+            pubSubManager.removeNodeEventListener(getId(), PubSubManager.NodeEventType.itemPublish, conListener);
     }
 
     /**
@@ -532,7 +529,7 @@ public abstract class Node {
     public void addConfigurationListener(NodeConfigListener listener) {
         StanzaListener conListener = new NodeConfigTranslator(listener);
         configEventToListenerMap.put(listener, conListener);
-        pubSubManager.getConnection().addSyncStanzaListener(conListener, new EventContentFilter(EventElementType.configuration.toString()));
+        pubSubManager.addNodeEventListener(getId(), PubSubManager.NodeEventType.configuration, conListener);
     }
 
     /**
@@ -544,7 +541,7 @@ public abstract class Node {
         StanzaListener conListener = configEventToListenerMap .remove(listener);
 
         if (conListener != null)
-            pubSubManager.getConnection().removeSyncStanzaListener(conListener);
+            pubSubManager.removeNodeEventListener(getId(), PubSubManager.NodeEventType.configuration, conListener);
     }
 
     /**
@@ -556,11 +553,9 @@ public abstract class Node {
     public void addItemDeleteListener(ItemDeleteListener listener) {
         StanzaListener delListener = new ItemDeleteTranslator(listener);
         itemDeleteToListenerMap.put(listener, delListener);
-        EventContentFilter deleteItem = new EventContentFilter(EventElementType.items.toString(), "retract");
-        EventContentFilter purge = new EventContentFilter(EventElementType.purge.toString());
 
         // TODO: Use AsyncButOrdered (with Node as Key?)
-        pubSubManager.getConnection().addSyncStanzaListener(delListener, new OrFilter(deleteItem, purge));
+        pubSubManager.addNodeEventListener(getId(), PubSubManager.NodeEventType.itemDelete, delListener);
     }
 
     /**
@@ -572,7 +567,7 @@ public abstract class Node {
         StanzaListener conListener = itemDeleteToListenerMap .remove(listener);
 
         if (conListener != null)
-            pubSubManager.getConnection().removeSyncStanzaListener(conListener);
+            pubSubManager.removeNodeEventListener(getId(), PubSubManager.NodeEventType.itemDelete, conListener);
     }
 
     @Override
@@ -690,63 +685,4 @@ public abstract class Node {
             listener.handleNodeConfiguration(config);
         }
     }
-
-    /**
-     * Filter for {@link StanzaListener} to filter out events not specific to the
-     * event type expected for this node.
-     *
-     * @author Robin Collier
-     */
-    class EventContentFilter extends FlexibleStanzaTypeFilter<Message> {
-        private final String firstElement;
-        private final String secondElement;
-        private final boolean allowEmpty;
-
-        EventContentFilter(String elementName) {
-            this(elementName, null);
-        }
-
-        EventContentFilter(String firstLevelElement, String secondLevelElement) {
-            firstElement = firstLevelElement;
-            secondElement = secondLevelElement;
-            allowEmpty = firstElement.equals(EventElementType.items.toString())
-                            && "item".equals(secondLevelElement);
-        }
-
-        @Override
-        public boolean acceptSpecific(Message message) {
-            EventElement event = EventElement.from(message);
-
-            if (event == null)
-                return false;
-
-            NodeExtension embedEvent = event.getEvent();
-
-            if (embedEvent == null)
-                return false;
-
-            if (embedEvent.getElementName().equals(firstElement)) {
-                if (!embedEvent.getNode().equals(getId()))
-                    return false;
-
-                if (secondElement == null)
-                    return true;
-
-                if (embedEvent instanceof EmbeddedPacketExtension) {
-                    List<XmlElement> secondLevelList = ((EmbeddedPacketExtension) embedEvent).getExtensions();
-
-                    // XEP-0060 allows no elements on second level for notifications. See schema or
-                    // for example § 4.3:
-                    // "although event notifications MUST include an empty <items/> element;"
-                    if (allowEmpty && secondLevelList.isEmpty()) {
-                        return true;
-                    }
-
-                    if (secondLevelList.size() > 0 && secondLevelList.get(0).getElementName().equals(secondElement))
-                        return true;
-                }
-            }
-            return false;
-        }
-    }
 }
@@ -0,0 +1,177 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.pubsub;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.NamedElement;
+import org.jivesoftware.smack.util.ConcurrentLruCache;
+
+/**
+ * A bounded cache of the last items of PubSub nodes, fed by the event notifications of the nodes. For every node, the
+ * cache holds the items of the most recent notifications in publication order, hence the last <i>n</i> cached items of
+ * a node are the <i>n</i> most recently published items of that node.
+ * <p>
+ * Items of notifications without payload can not be used to serve item requests. If such a notification is
+ * received, then the cached items of the node are discarded.
+ * </p>
+ */
+final class PubSubItemCache {
+
+    private final ConcurrentLruCache<String, NodeItems> nodes;
+
+    private final int maxItemsPerNode;
+
+    PubSubItemCache(int maxNodes, int maxItemsPerNode) {
+        if (maxNodes <= 0) {
+            throw new IllegalArgumentException("The maximum number of nodes must be positive");
+        }
+        if (maxItemsPerNode <= 0) {
+            throw new IllegalArgumentException("The maximum number of items per node must be positive");
+        }
+        nodes = new ConcurrentLruCache<>(maxNodes);
+        this.maxItemsPerNode = maxItemsPerNode;
+    }
+
+    void processEvent(NodeExtension nodeEvent) {
+        final String nodeId = nodeEvent.getNode();
+        final String elementName = nodeEvent.getElementName();
+
+        if (!elementName.equals(EventElementType.items.toString())) {
+            if (elementName.equals(EventElementType.purge.toString())
+                            || elementName.equals(EventElementType.delete.toString())) {
+                nodes.remove(nodeId);
+            }
+            return;
+        }
+
+        ItemsExtension itemsExtension = (ItemsExtension) nodeEvent;
+        List<? extends NamedElement> items = itemsExtension.getItems();
+        if (items.isEmpty()) {
+            return;
+        }
+
+        NodeItems nodeItems = nodes.lookup(nodeId);
+        if (nodeItems == null) {
+            // Events are processed by a single thread, so there is no need to guard against concurrent insertions.
+            nodeItems = new NodeItems();
+            nodes.put(nodeId, nodeItems);
+        }
+
+        for (NamedElement namedElement : items) {
+            if (namedElement instanceof RetractItem) {
+                nodeItems.remove(((RetractItem) namedElement).getId());
+            } else if (namedElement instanceof PayloadItem && ((PayloadItem<?>) namedElement).getId() != null) {
+                nodeItems.add((Item) namedElement);
+            } else {
+                // A notification without payload or item ID, we can no longer serve requests for this node.
+                nodes.remove(nodeId);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lookup the most recent items of the given node.
+     *
+     * @param nodeId the ID of the node.
+     * @param maxItems the number of items.
+     * @return the <code>maxItems</code> most recent items, or <code>null</code> if the cache does not hold enough items.
+     */
+    List<Item> lookup(String nodeId, int maxItems) {
+        NodeItems nodeItems = nodes.lookup(nodeId);
+        if (nodeItems == null) {
+            return null;
+        }
+        return nodeItems.getLast(maxItems);
+    }
+
+    /**
+     * Lookup the items with the given IDs of the given node.
+     *
+     * @param nodeId the ID of the node.
+     * @param itemIds the IDs of the items.
+     * @return the items, or <code>null</code> if not all items are cached.
+     */
+    List<Item> lookup(String nodeId, Collection<String> itemIds) {
+        NodeItems nodeItems = nodes.lookup(nodeId);
+        if (nodeItems == null) {
+            return null;
+        }
+        return nodeItems.get(itemIds);
+    }
+
+    void invalidate(String nodeId) {
+        nodes.remove(nodeId);
+    }
+
+    void clear() {
+        nodes.clear();
+    }
+
+    private final class NodeItems {
+        private final LinkedHashMap<String, Item> items = new LinkedHashMap<>();
+
+        private synchronized void add(Item item) {
+            // Remove first, so that re-published items are moved to the end.
+            items.remove(item.getId());
+            items.put(item.getId(), item);
+            if (items.size() > maxItemsPerNode) {
+                Iterator<String> it = items.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+
+        private synchronized void remove(String itemId) {
+            items.remove(itemId);
+        }
+
+        private synchronized List<Item> getLast(int count) {
+            int size = items.size();
+            if (count <= 0 || count > size) {
+                return null;
+            }
+            List<Item> result = new ArrayList<>(count);
+            int skip = size - count;
+            for (Item item : items.values()) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                result.add(item);
+            }
+            return result;
+        }
+
+        private synchronized List<Item> get(Collection<String> itemIds) {
+            List<Item> result = new ArrayList<>(itemIds.size());
+            for (String itemId : itemIds) {
+                Item item = items.get(itemId);
+                if (item == null) {
+                    return null;
+                }
+                result.add(item);
+            }
+            return result;
+        }
+    }
+}
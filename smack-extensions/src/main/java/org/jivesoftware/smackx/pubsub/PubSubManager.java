@@ -16,24 +16,34 @@
  */
 package org.jivesoftware.smackx.pubsub;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
 
+import org.jivesoftware.smack.ConnectionListener;
 import org.jivesoftware.smack.Manager;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackException.NotLoggedInException;
+import org.jivesoftware.smack.StanzaListener;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.filter.AndFilter;
+import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
 import org.jivesoftware.smack.packet.EmptyResultIQ;
 import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.NamedElement;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.packet.StanzaError;
 import org.jivesoftware.smack.packet.StanzaError.Condition;
@@ -45,6 +55,7 @@ import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
 import org.jivesoftware.smackx.disco.packet.DiscoverItems;
 import org.jivesoftware.smackx.pubsub.PubSubException.NotALeafNodeException;
 import org.jivesoftware.smackx.pubsub.PubSubException.NotAPubSubNodeException;
+import org.jivesoftware.smackx.pubsub.filter.EventExtensionFilter;
 import org.jivesoftware.smackx.pubsub.form.ConfigureForm;
 import org.jivesoftware.smackx.pubsub.form.FillableConfigureForm;
 import org.jivesoftware.smackx.pubsub.packet.PubSub;
@@ -76,6 +87,8 @@ public final class PubSubManager extends Manager {
     private static final Logger LOGGER = Logger.getLogger(PubSubManager.class.getName());
     private static final Map<XMPPConnection, Map<BareJid, PubSubManager>> INSTANCES = new WeakHashMap<>();
 
+    private static final StanzaFilter EVENT_FILTER = new AndFilter(StanzaTypeFilter.MESSAGE, EventExtensionFilter.INSTANCE);
+
     /**
      * The JID of the PubSub service this manager manages.
      */
@@ -87,6 +100,15 @@ public final class PubSubManager extends Manager {
      */
     private final Map<String, Node> nodeMap = new ConcurrentHashMap<>();
 
+    /**
+     * The event listeners of the nodes of this service, keyed by node ID. A single stanza listener per manager
+     * dispatches the incoming event notifications with a lookup in this map, instead of the connection evaluating the
+     * stanza filter of every registered node listener for every event.
+     */
+    private final Map<String, NodeEventListeners> nodeEventListeners = new ConcurrentHashMap<>();
+
+    private volatile PubSubItemCache itemCache;
+
     /**
      * Get a PubSub manager for the default PubSub service of the connection.
      *
@@ -166,6 +188,21 @@ public final class PubSubManager extends Manager {
     PubSubManager(XMPPConnection connection, BareJid toAddress) {
         super(connection);
         pubSubService = toAddress;
+
+        connection.addSyncStanzaListener(this::processEvent, EVENT_FILTER);
+        connection.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void authenticated(XMPPConnection connection, boolean resumed) {
+                if (resumed) {
+                    return;
+                }
+                // We may have missed notifications while the connection was down.
+                PubSubItemCache itemCache = PubSubManager.this.itemCache;
+                if (itemCache != null) {
+                    itemCache.clear();
+                }
+            }
+        });
     }
 
     private void checkIfXmppErrorBecauseOfNotLeafNode(String nodeId, XMPPErrorException xmppErrorException)
@@ -522,6 +559,7 @@ public final class PubSubManager extends Manager {
             }
         }
         nodeMap.remove(nodeId);
+        invalidateCachedItems(nodeId);
         return res;
     }
 
@@ -621,6 +659,194 @@ public final class PubSubManager extends Manager {
         return sendPubsubPacket(pubSubService, type, Collections.singletonList(ext), ns);
     }
 
+    /**
+     * Enable the cache of the items received via event notifications. Once enabled, {@link LeafNode#getItems(int)} and
+     * {@link LeafNode#getItems(Collection)} are served locally if the requested items of the node have been received
+     * in recent notifications. This avoids a round trip to the service for entities which are subscribed to nodes
+     * with payload delivery enabled, and which often request the last items of recently notified nodes.
+     * <p>
+     * The cache is cleared whenever the connection was re-established without stream resumption, as notifications may
+     * have been missed while the connection was down.
+     * </p>
+     *
+     * @param maxNodes the maximum number of nodes for which items are cached.
+     * @param maxItemsPerNode the maximum number of items cached per node.
+     * @since 4.5
+     */
+    public void enableItemCache(int maxNodes, int maxItemsPerNode) {
+        itemCache = new PubSubItemCache(maxNodes, maxItemsPerNode);
+    }
+
+    /**
+     * Disable the cache of the items received via event notifications.
+     *
+     * @see #enableItemCache(int, int)
+     * @since 4.5
+     */
+    public void disableItemCache() {
+        itemCache = null;
+    }
+
+    List<Item> lookupCachedItems(String nodeId, int maxItems) {
+        PubSubItemCache itemCache = this.itemCache;
+        if (itemCache == null) {
+            return null;
+        }
+        return itemCache.lookup(nodeId, maxItems);
+    }
+
+    List<Item> lookupCachedItems(String nodeId, Collection<String> itemIds) {
+        PubSubItemCache itemCache = this.itemCache;
+        if (itemCache == null) {
+            return null;
+        }
+        return itemCache.lookup(nodeId, itemIds);
+    }
+
+    void invalidateCachedItems(String nodeId) {
+        PubSubItemCache itemCache = this.itemCache;
+        if (itemCache == null) {
+            return;
+        }
+        itemCache.invalidate(nodeId);
+    }
+
+    void addNodeEventListener(String nodeId, NodeEventType nodeEventType, StanzaListener listener) {
+        synchronized (nodeEventListeners) {
+            NodeEventListeners listeners = nodeEventListeners.get(nodeId);
+            if (listeners == null) {
+                listeners = new NodeEventListeners();
+                nodeEventListeners.put(nodeId, listeners);
+            }
+            listeners.get(nodeEventType).add(listener);
+        }
+    }
+
+    void removeNodeEventListener(String nodeId, NodeEventType nodeEventType, StanzaListener listener) {
+        synchronized (nodeEventListeners) {
+            NodeEventListeners listeners = nodeEventListeners.get(nodeId);
+            if (listeners == null) {
+                return;
+            }
+            listeners.get(nodeEventType).remove(listener);
+            if (listeners.isEmpty()) {
+                nodeEventListeners.remove(nodeId);
+            }
+        }
+    }
+
+    private void processEvent(Stanza stanza) throws NotConnectedException, InterruptedException, NotLoggedInException {
+        if (!isFromService(stanza)) {
+            return;
+        }
+
+        EventElement event = EventElement.from(stanza);
+        NodeExtension nodeEvent = event.getEvent();
+        if (nodeEvent == null || nodeEvent.getNode() == null) {
+            return;
+        }
+
+        PubSubItemCache itemCache = this.itemCache;
+        if (itemCache != null) {
+            itemCache.processEvent(nodeEvent);
+        }
+
+        NodeEventListeners listeners = nodeEventListeners.get(nodeEvent.getNode());
+        if (listeners == null) {
+            return;
+        }
+
+        NodeEventType nodeEventType = NodeEventType.of(nodeEvent);
+        if (nodeEventType == null) {
+            return;
+        }
+
+        for (StanzaListener listener : listeners.get(nodeEventType)) {
+            listener.processStanza(stanza);
+        }
+    }
+
+    private boolean isFromService(Stanza stanza) {
+        Jid from = stanza.getFrom();
+        if (pubSubService == null) {
+            // The user's PEP service, whose notifications are either send from the user's bare JID, or without 'from'.
+            if (from == null) {
+                return true;
+            }
+            XMPPConnection connection = connection();
+            return connection.isAuthenticated() && from.equals(connection.getUser().asBareJid());
+        }
+        return from != null && from.asBareJid().equals(pubSubService);
+    }
+
+    /**
+     * The types of node events listeners can be registered for.
+     */
+    enum NodeEventType {
+        /**
+         * Items have been published to the node.
+         */
+        itemPublish,
+
+        /**
+         * Items have been retracted from the node or the node was purged.
+         */
+        itemDelete,
+
+        /**
+         * The configuration of the node has changed.
+         */
+        configuration;
+
+        static NodeEventType of(NodeExtension nodeEvent) {
+            String elementName = nodeEvent.getElementName();
+            if (elementName.equals(EventElementType.configuration.toString())) {
+                return configuration;
+            }
+            if (elementName.equals(EventElementType.purge.toString())) {
+                return itemDelete;
+            }
+            if (!elementName.equals(EventElementType.items.toString())) {
+                return null;
+            }
+
+            List<? extends NamedElement> items = ((ItemsExtension) nodeEvent).getItems();
+            // XEP-0060 allows no elements on second level for notifications. See schema or for example § 4.3:
+            // "although event notifications MUST include an empty <items/> element;"
+            if (items.isEmpty() || items.get(0).getElementName().equals("item")) {
+                return itemPublish;
+            }
+            if (items.get(0).getElementName().equals("retract")) {
+                return itemDelete;
+            }
+            return null;
+        }
+    }
+
+    private static final class NodeEventListeners {
+        private final Set<StanzaListener> itemPublishListeners = new CopyOnWriteArraySet<>();
+        private final Set<StanzaListener> itemDeleteListeners = new CopyOnWriteArraySet<>();
+        private final Set<StanzaListener> configurationListeners = new CopyOnWriteArraySet<>();
+
+        private Set<StanzaListener> get(NodeEventType nodeEventType) {
+            switch (nodeEventType) {
+            case itemPublish:
+                return itemPublishListeners;
+            case itemDelete:
+                return itemDeleteListeners;
+            case configuration:
+                return configurationListeners;
+            default:
+                throw new AssertionError();
+            }
+        }
+
+        private boolean isEmpty() {
+            return itemPublishListeners.isEmpty() && itemDeleteListeners.isEmpty()
+                            && configurationListeners.isEmpty();
+        }
+    }
+
     XMPPConnection getConnection() {
         return connection();
     }
@@ -23,6 +23,7 @@ import org.jivesoftware.smack.ConnectionCreationListener;
 import org.jivesoftware.smack.Manager;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackFuture;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
@@ -110,6 +111,20 @@ public final class VCardManager extends Manager {
         connection().sendIqRequestAndWaitForResponse(vcard);
     }
 
+    /**
+     * Asynchronously save this vCard for the user connected by 'connection'. See {@link #saveVCard(VCard)} for the
+     * requirements of the connection.
+     *
+     * @param vcard VCard.
+     * @return a future for the response to the save request.
+     * @since 4.5
+     */
+    public SmackFuture<IQ, Exception> saveVCardAsync(VCard vcard) {
+        vcard.setTo((Jid) null);
+        vcard.setType(IQ.Type.set);
+        return connection().sendIqRequestAsync(vcard);
+    }
+
     /**
      * Load the VCard of the current user.
      *
@@ -141,6 +156,19 @@ public final class VCardManager extends Manager {
         return result;
     }
 
+    /**
+     * Asynchronously load VCard information for a given user.
+     *
+     * @param bareJid bareJid of the user, or <code>null</code> to load the VCard of the current user.
+     * @return a future for the VCard.
+     * @since 4.5
+     */
+    public SmackFuture<VCard, Exception> loadVCardAsync(EntityBareJid bareJid) {
+        VCard vcardRequest = new VCard();
+        vcardRequest.setTo(bareJid);
+        return connection().sendIqRequestAsync(vcardRequest).map(result -> (VCard) result);
+    }
+
     /**
      * Returns true if the given entity understands the vCard-XML format and allows the exchange of such.
      *
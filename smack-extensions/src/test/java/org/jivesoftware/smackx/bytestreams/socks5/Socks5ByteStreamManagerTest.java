@@ -34,6 +34,7 @@ import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 
@@ -338,11 +339,9 @@ public class Socks5ByteStreamManagerTest {
 
         /* retry to establish SOCKS5 Bytestream */
 
-        // add responses for service discovery again
+        // add response for service discovery of the target again, the proxies are cached
         protocol.addResponse(discoverInfo, Verification.correspondingSenderReceiver,
                         Verification.requestTypeGET);
-        protocol.addResponse(discoverItems, Verification.correspondingSenderReceiver,
-                        Verification.requestTypeGET);
 
         e = assertThrows(SmackException.class, () -> {
             // start SOCKS5 Bytestream
@@ -350,12 +349,60 @@ public class Socks5ByteStreamManagerTest {
         });
         /*
          * #verifyAll() tests if the number of requests and responses corresponds and should
-         * fail if the invalid proxy is queried again
+         * fail if the XMPP server or the invalid proxy is queried again
          */
         protocol.verifyAll();
         assertTrue(e.getMessage().contains("no SOCKS5 proxies available"));
     }
 
+    /**
+     * Invoking {@link Socks5BytestreamManager#determineProxies()} should query the XMPP server and
+     * its items only once, until the proxy cache is cleared.
+     *
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws SmackException if Smack detected an exceptional situation.
+     * @throws XMPPException if an XMPP protocol error was received.
+     */
+    @Test
+    public void shouldCacheProxiesUntilCacheIsCleared() throws SmackException, InterruptedException, XMPPException {
+        final Protocol protocol = new Protocol();
+        final XMPPConnection connection = ConnectionUtils.createMockedConnection(protocol, initiatorJID);
+
+        // get Socks5ByteStreamManager for connection
+        Socks5BytestreamManager byteStreamManager = Socks5BytestreamManager.getBytestreamManager(connection);
+
+        // build discover items containing a proxy item
+        DiscoverItems discoverItems = Socks5PacketUtils.createDiscoverItems(xmppServer,
+                        initiatorJID);
+        discoverItems.addItem(new Item(proxyJID));
+
+        // build discover info for proxy containing information about being a SOCKS5 proxy
+        DiscoverInfoBuilder proxyInfo = Socks5PacketUtils.createDiscoverInfo(proxyJID, initiatorJID);
+        proxyInfo.addIdentity(new Identity("proxy", proxyJID.toString(), "bytestreams"));
+        DiscoverInfo discoverInfo = proxyInfo.build();
+
+        protocol.addResponse(discoverItems, Verification.correspondingSenderReceiver,
+                        Verification.requestTypeGET);
+        protocol.addResponse(discoverInfo, Verification.correspondingSenderReceiver,
+                        Verification.requestTypeGET);
+
+        assertEquals(Collections.singletonList(proxyJID), byteStreamManager.determineProxies());
+
+        // the second invocation must not query the XMPP server again
+        assertEquals(Collections.singletonList(proxyJID), byteStreamManager.determineProxies());
+        protocol.verifyAll();
+
+        byteStreamManager.clearProxyCache();
+
+        protocol.addResponse(discoverItems, Verification.correspondingSenderReceiver,
+                        Verification.requestTypeGET);
+        protocol.addResponse(discoverInfo, Verification.correspondingSenderReceiver,
+                        Verification.requestTypeGET);
+
+        assertEquals(Collections.singletonList(proxyJID), byteStreamManager.determineProxies());
+        protocol.verifyAll();
+    }
+
     /**
      * Invoking {@link Socks5BytestreamManager#establishSession(org.jxmpp.jid.Jid, String)} should fail if the
      * target does not accept a SOCKS5 Bytestream. See <a
@@ -877,7 +924,7 @@ public class Socks5ByteStreamManagerTest {
 
         // start a local SOCKS5 proxy
         try (Socks5TestProxy socks5Proxy = new Socks5TestProxy()) {
-            createResponses(protocol, sessionID, streamHostUsedVerification1, socks5Proxy);
+            createResponses(protocol, sessionID, streamHostUsedVerification1, socks5Proxy, true);
 
             // create digest to get the socket opened by target
             String digest = Socks5Utils.createDigest(sessionID, initiatorJID, targetJID);
@@ -910,7 +957,7 @@ public class Socks5ByteStreamManagerTest {
                 }
 
             };
-            createResponses(protocol, sessionID, streamHostUsedVerification2, socks5Proxy);
+            createResponses(protocol, sessionID, streamHostUsedVerification2, socks5Proxy, false);
 
             // call the method that should be tested again
             outputStream = byteStreamManager.establishSession(targetJID, sessionID).getOutputStream();
@@ -967,7 +1014,7 @@ public class Socks5ByteStreamManagerTest {
 
         // start a local SOCKS5 proxy
         try (Socks5TestProxy socks5Proxy = new Socks5TestProxy()) {
-            createResponses(protocol, sessionID, streamHostUsedVerification, socks5Proxy);
+            createResponses(protocol, sessionID, streamHostUsedVerification, socks5Proxy, true);
 
             // create digest to get the socket opened by target
             String digest = Socks5Utils.createDigest(sessionID, initiatorJID, targetJID);
@@ -988,7 +1035,7 @@ public class Socks5ByteStreamManagerTest {
 
             protocol.verifyAll();
 
-            createResponses(protocol, sessionID, streamHostUsedVerification, socks5Proxy);
+            createResponses(protocol, sessionID, streamHostUsedVerification, socks5Proxy, false);
 
             // call the method that should be tested again
             outputStream = byteStreamManager.establishSession(targetJID, sessionID).getOutputStream();
@@ -1073,8 +1120,8 @@ public class Socks5ByteStreamManagerTest {
     }
 
     private static void createResponses(Protocol protocol, String sessionID,
-                    Verification<Bytestream, Bytestream> streamHostUsedVerification, Socks5TestProxy socks5TestProxy)
-                    throws XmppStringprepException {
+                    Verification<Bytestream, Bytestream> streamHostUsedVerification, Socks5TestProxy socks5TestProxy,
+                    boolean discoverProxies) throws XmppStringprepException {
         // build discover info that supports the SOCKS5 feature
         DiscoverInfoBuilder discoverInfo = Socks5PacketUtils.createDiscoverInfo(targetJID, initiatorJID);
         discoverInfo.addFeature(Bytestream.NAMESPACE);
@@ -1083,6 +1130,39 @@ public class Socks5ByteStreamManagerTest {
         protocol.addResponse(discoverInfo.build(), Verification.correspondingSenderReceiver,
                         Verification.requestTypeGET);
 
+        // the SOCKS5 proxies and their stream hosts are cached after the first discovery
+        if (discoverProxies) {
+            createProxyDiscoveryResponses(protocol, socks5TestProxy);
+        }
+
+        // build used stream host response
+        Bytestream streamHostUsedPacket = Socks5PacketUtils.createBytestreamResponse(targetJID,
+                        initiatorJID);
+        streamHostUsedPacket.setSessionID(sessionID);
+        streamHostUsedPacket.setUsedHost(proxyJID);
+
+        // return used stream host info as response to the bytestream initiation
+        protocol.addResponse(streamHostUsedPacket, streamHostUsedVerification,
+                        Verification.correspondingSenderReceiver, Verification.requestTypeSET);
+
+        // build response to proxy activation
+        IQ activationResponse = Socks5PacketUtils.createActivationConfirmation(proxyJID,
+                        initiatorJID);
+
+        // return proxy activation response if proxy should be activated
+        protocol.addResponse(activationResponse, new Verification<Bytestream, IQ>() {
+
+            @Override
+            public void verify(Bytestream request, IQ response) {
+                assertEquals(targetJID, request.getToActivate().getTarget());
+            }
+
+        }, Verification.correspondingSenderReceiver, Verification.requestTypeSET);
+    }
+
+    private static void createProxyDiscoveryResponses(Protocol protocol, Socks5TestProxy socks5TestProxy)
+                    throws XmppStringprepException {
+
         // build discover items containing a proxy item
         DiscoverItems discoverItems = Socks5PacketUtils.createDiscoverItems(xmppServer,
                         initiatorJID);
@@ -1135,30 +1215,6 @@ public class Socks5ByteStreamManagerTest {
         // return stream host info if it is queried
         protocol.addResponse(streamHostInfo2, Verification.correspondingSenderReceiver,
                         Verification.requestTypeGET);
-
-        // build used stream host response
-        Bytestream streamHostUsedPacket = Socks5PacketUtils.createBytestreamResponse(targetJID,
-                        initiatorJID);
-        streamHostUsedPacket.setSessionID(sessionID);
-        streamHostUsedPacket.setUsedHost(proxyJID);
-
-        // return used stream host info as response to the bytestream initiation
-        protocol.addResponse(streamHostUsedPacket, streamHostUsedVerification,
-                        Verification.correspondingSenderReceiver, Verification.requestTypeSET);
-
-        // build response to proxy activation
-        IQ activationResponse = Socks5PacketUtils.createActivationConfirmation(proxyJID,
-                        initiatorJID);
-
-        // return proxy activation response if proxy should be activated
-        protocol.addResponse(activationResponse, new Verification<Bytestream, IQ>() {
-
-            @Override
-            public void verify(Bytestream request, IQ response) {
-                assertEquals(targetJID, request.getToActivate().getTarget());
-            }
-
-        }, Verification.correspondingSenderReceiver, Verification.requestTypeSET);
     }
 
 }
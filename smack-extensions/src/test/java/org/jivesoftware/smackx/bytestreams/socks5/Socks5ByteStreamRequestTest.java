@@ -334,6 +334,68 @@ public class Socks5ByteStreamRequestTest {
         }
     }
 
+    /**
+     * The stream hosts of different SOCKS5 proxies should be connected concurrently, so that an
+     * unresponsive SOCKS5 proxy does not delay the connection to a responsive one.
+     *
+     * @throws Exception should not happen
+     */
+    @Test
+    public void shouldRaceStreamHostsOfDifferentSocks5Proxies() throws Exception {
+        final Protocol protocol = new Protocol();
+        final XMPPConnection connection = ConnectionUtils.createMockedConnection(protocol, targetJID);
+
+        // start a local SOCKS5 proxy
+        try (Socks5TestProxy socks5Proxy = new Socks5TestProxy()) {
+            // create a fake SOCKS5 proxy that doesn't respond to a request
+            ServerSocket unresponsiveSocks5Socket = NetworkUtil.getSocketOnLoopback();
+
+            try {
+                // build SOCKS5 Bytestream initialization request with the unresponsive proxy first
+                Bytestream bytestreamInitialization = Socks5PacketUtils.createBytestreamInitiation(
+                                initiatorJID, targetJID, sessionID);
+                bytestreamInitialization.addStreamHost(JidCreate.from("proxy2.xmpp-server"), proxyAddress,
+                                unresponsiveSocks5Socket.getLocalPort());
+                bytestreamInitialization.addStreamHost(proxyJID, proxyAddress, socks5Proxy.getPort());
+
+                // get SOCKS5 Bytestream manager for connection
+                Socks5BytestreamManager byteStreamManager = Socks5BytestreamManager.getBytestreamManager(connection);
+
+                // build SOCKS5 Bytestream request with the bytestream initialization
+                Socks5BytestreamRequest byteStreamRequest = new Socks5BytestreamRequest(byteStreamManager,
+                                bytestreamInitialization);
+
+                // a sequential connection attempt would wait for the unresponsive proxy to time out
+                byteStreamRequest.setTotalConnectTimeout(20000);
+                byteStreamRequest.setMinimumConnectTimeout(20000);
+
+                long start = System.currentTimeMillis();
+                InputStream inputStream = byteStreamRequest.accept().getInputStream();
+                assertTrue(System.currentTimeMillis() - start < 10000);
+
+                // create digest to get the socket opened by target
+                String digest = Socks5Utils.createDigest(sessionID, initiatorJID, targetJID);
+
+                // test stream by sending some data
+                byte[] data = new byte[] { 1, 2, 3 };
+                OutputStream outputStream = socks5Proxy.getSocket(digest).getOutputStream();
+                outputStream.write(data);
+
+                // verify that data is transferred correctly
+                byte[] result = new byte[3];
+                inputStream.read(result);
+                assertArrayEquals(data, result);
+
+                // verify that the responsive proxy was used
+                assertEquals(1, protocol.getRequests().size());
+                Stanza targetResponse = protocol.getRequests().remove(0);
+                assertEquals(proxyJID, ((Bytestream) targetResponse).getUsedHost().getJID());
+            } finally {
+                unresponsiveSocks5Socket.close();
+            }
+        }
+    }
+
     /**
      * Accepting the SOCKS5 Bytestream request should be successfully.
      *
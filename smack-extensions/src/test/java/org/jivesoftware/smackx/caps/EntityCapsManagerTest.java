@@ -17,7 +17,10 @@
 package org.jivesoftware.smackx.caps;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -25,7 +28,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
 import org.jivesoftware.smack.test.util.SmackTestSuite;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base32;
@@ -33,8 +43,10 @@ import org.jivesoftware.smack.util.stringencoder.StringEncoder;
 
 import org.jivesoftware.smackx.caps.cache.EntityCapsPersistentCache;
 import org.jivesoftware.smackx.caps.cache.SimpleDirectoryPersistentCache;
+import org.jivesoftware.smackx.caps.packet.CapsExtension;
 import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
 import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoView;
 import org.jivesoftware.smackx.xdata.FormField;
 import org.jivesoftware.smackx.xdata.TextMultiFormField;
 import org.jivesoftware.smackx.xdata.TextSingleFormField;
@@ -113,6 +125,97 @@ public class EntityCapsManagerTest extends SmackTestSuite {
         assertTrue(di.containsDuplicateIdentities());
     }
 
+    @Test
+    public void testDiscoverInfoViewIsReadOnly() throws XmppStringprepException {
+        DiscoverInfo di = createComplexSamplePacket();
+        String nodeVer = di.getNode() + "#" + EntityCapsManager.generateVerificationString(di, StringUtils.SHA1).version;
+        EntityCapsManager.addDiscoverInfoByNode(nodeVer, di);
+
+        DiscoverInfoView view = EntityCapsManager.getDiscoverInfoViewByNodeVer(nodeVer);
+        assertNotNull(view);
+        // The cached information is shared between all callers, hence it must not be possible to modify it.
+        assertFalse(view instanceof DiscoverInfo);
+        assertThrows(UnsupportedOperationException.class, () -> view.getFeatures().clear());
+        assertEquals(di.getFeatures(), view.getFeatures());
+        assertEquals(di.getIdentities(), view.getIdentities());
+        assertTrue(view.containsFeature(di.getFeatures().get(0).getVar()));
+        assertSame(view, EntityCapsManager.getDiscoverInfoViewByNodeVer(nodeVer));
+    }
+
+    @Test
+    public void testPrefetchPerformsSingleLookupPerNodeVer() throws XmppStringprepException {
+        DummyConnection connection = DummyConnection.newConnectedDummyConnection();
+        EntityCapsManager entityCapsManager = EntityCapsManager.getInstanceFor(connection);
+        entityCapsManager.setPrefetchUnknownCaps(true);
+
+        DiscoverInfo di = createComplexSamplePacket();
+        String ver = EntityCapsManager.generateVerificationString(di, StringUtils.SHA1).version;
+        String node = "http://psi-im.org/prefetch-test";
+        String nodeVer = node + "#" + ver;
+        CapsExtension caps = new CapsExtension(node, ver, "sha-1");
+
+        for (String occupant : new String[] { "romeo", "mercutio", "benvolio" }) {
+            Presence presence = StanzaBuilder.buildPresence()
+                            .from(JidCreate.from("room@muc.capulet.lit/" + occupant))
+                            .addExtension(caps)
+                            .build();
+            connection.processStanza(presence);
+        }
+
+        int lookups = 0;
+        TopLevelStreamElement sent;
+        while ((sent = connection.getSentPacket(1)) != null) {
+            if (sent instanceof DiscoverInfo && nodeVer.equals(((DiscoverInfo) sent).getNode())) {
+                lookups++;
+            }
+        }
+        assertEquals(1, lookups);
+    }
+
+    @Test
+    public void testFailedLookupIsNotLeftInFlight() throws Exception {
+        DummyConnection connection = new DummyConnection() {
+            private boolean failed;
+
+            @Override
+            public <S extends Stanza> SmackFuture<S, Exception> sendAsync(S stanza, StanzaFilter replyFilter) {
+                if (!failed && stanza instanceof DiscoverInfo) {
+                    failed = true;
+                    throw new IllegalStateException("Simulated failure to send the disco#info request");
+                }
+                return super.sendAsync(stanza, replyFilter);
+            }
+        };
+        connection.connect();
+        connection.login();
+        EntityCapsManager entityCapsManager = EntityCapsManager.getInstanceFor(connection);
+        entityCapsManager.setPrefetchUnknownCaps(true);
+
+        DiscoverInfo di = createComplexSamplePacket();
+        String ver = EntityCapsManager.generateVerificationString(di, StringUtils.SHA1).version;
+        String node = "http://psi-im.org/failed-lookup-test";
+        String nodeVer = node + "#" + ver;
+        CapsExtension caps = new CapsExtension(node, ver, "sha-1");
+
+        // The lookup triggered by the first presence fails synchronously, the second presence must trigger another.
+        for (String occupant : new String[] { "romeo", "mercutio" }) {
+            Presence presence = StanzaBuilder.buildPresence()
+                            .from(JidCreate.from("room@muc.capulet.lit/" + occupant))
+                            .addExtension(caps)
+                            .build();
+            connection.processStanza(presence);
+        }
+
+        int lookups = 0;
+        TopLevelStreamElement sent;
+        while ((sent = connection.getSentPacket(1)) != null) {
+            if (sent instanceof DiscoverInfo && nodeVer.equals(((DiscoverInfo) sent).getNode())) {
+                lookups++;
+            }
+        }
+        assertEquals(1, lookups);
+    }
+
     @SuppressWarnings("UnusedVariable")
     private static void testSimpleDirectoryCache(StringEncoder<String> stringEncoder) throws IOException {
 
@@ -0,0 +1,145 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.caps.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
+import org.jivesoftware.smackx.xdata.FormField;
+import org.jivesoftware.smackx.xdata.packet.DataForm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SingleFilePersistentCacheTest extends SmackTestSuite {
+
+    private static final String NODE_VER_PSI = "http://psi-im.org#q07IKJEyjvHSyhy//CH0CxmKi8w=";
+    private static final String NODE_VER_EXODUS = "http://exodus.jabberstudio.org#QgayPKawpkPSDYmwT/WM94uAlu0=";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void restoresCompactEntryAfterRestartTest() {
+        File cacheFile = new File(tempDir, "caps");
+        DiscoverInfo info = createDiscoverInfo(NODE_VER_EXODUS, false);
+
+        new SingleFilePersistentCache(cacheFile).addDiscoverInfoByNodePersistent(NODE_VER_EXODUS, info);
+
+        DiscoverInfo restored = new SingleFilePersistentCache(cacheFile).lookup(NODE_VER_EXODUS);
+        assertNotNull(restored);
+        assertEquals(info.getNode(), restored.getNode());
+        assertEquals(info.getIdentities(), restored.getIdentities());
+        assertEquals(info.getFeatures(), restored.getFeatures());
+    }
+
+    @Test
+    public void restoresEntryWithExtensionsTest() {
+        File cacheFile = new File(tempDir, "caps");
+        DiscoverInfo info = createDiscoverInfo(NODE_VER_PSI, true);
+
+        new SingleFilePersistentCache(cacheFile).addDiscoverInfoByNodePersistent(NODE_VER_PSI, info);
+
+        DiscoverInfo restored = new SingleFilePersistentCache(cacheFile).lookup(NODE_VER_PSI);
+        assertNotNull(restored);
+        assertEquals(info.toXML().toString(), restored.toXML().toString());
+    }
+
+    @Test
+    public void discardsIncompleteRecordTest() throws IOException {
+        File cacheFile = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(cacheFile);
+        cache.addDiscoverInfoByNodePersistent(NODE_VER_EXODUS, createDiscoverInfo(NODE_VER_EXODUS, false));
+        long lengthAfterFirstEntry = cacheFile.length();
+        cache.addDiscoverInfoByNodePersistent(NODE_VER_PSI, createDiscoverInfo(NODE_VER_PSI, false));
+
+        // Simulate a crash while the second entry was written.
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        cache = new SingleFilePersistentCache(cacheFile);
+        assertNotNull(cache.lookup(NODE_VER_EXODUS));
+        assertNull(cache.lookup(NODE_VER_PSI));
+        assertEquals(lengthAfterFirstEntry, cacheFile.length());
+
+        cache.addDiscoverInfoByNodePersistent(NODE_VER_PSI, createDiscoverInfo(NODE_VER_PSI, false));
+        assertNotNull(new SingleFilePersistentCache(cacheFile).lookup(NODE_VER_PSI));
+    }
+
+    @Test
+    public void discardsRecordWithInvalidLengthTest() throws IOException {
+        File cacheFile = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(cacheFile);
+        cache.addDiscoverInfoByNodePersistent(NODE_VER_EXODUS, createDiscoverInfo(NODE_VER_EXODUS, false));
+        long lengthAfterFirstEntry = cacheFile.length();
+
+        // Append a record claiming a payload of Integer.MAX_VALUE bytes.
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.seek(file.length());
+            file.write(new byte[] { 1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 });
+        }
+
+        cache = new SingleFilePersistentCache(cacheFile);
+        assertNotNull(cache.lookup(NODE_VER_EXODUS));
+        assertEquals(lengthAfterFirstEntry, cacheFile.length());
+    }
+
+    @Test
+    public void emptyCacheTest() {
+        File cacheFile = new File(tempDir, "caps");
+        SingleFilePersistentCache cache = new SingleFilePersistentCache(cacheFile);
+        cache.addDiscoverInfoByNodePersistent(NODE_VER_EXODUS, createDiscoverInfo(NODE_VER_EXODUS, false));
+
+        cache.emptyCache();
+
+        assertNull(cache.lookup(NODE_VER_EXODUS));
+        assertNull(new SingleFilePersistentCache(cacheFile).lookup(NODE_VER_EXODUS));
+    }
+
+    private static DiscoverInfo createDiscoverInfo(String node, boolean withDataForm) {
+        DiscoverInfoBuilder di = DiscoverInfo.builder("disco1");
+        di.ofType(IQ.Type.result);
+        di.setNode(node);
+
+        di.addIdentity(new DiscoverInfo.Identity("client", "pc", "Psi 0.11", "en"));
+        di.addIdentity(new DiscoverInfo.Identity("client", "pc", "Ψ 0.11", "el"));
+        di.addFeature("http://jabber.org/protocol/caps");
+        di.addFeature("http://jabber.org/protocol/disco#info");
+        di.addFeature("http://jabber.org/protocol/disco#items");
+        di.addFeature("http://jabber.org/protocol/muc");
+
+        if (withDataForm) {
+            DataForm.Builder df = DataForm.builder(DataForm.Type.result);
+            df.addField(FormField.hiddenBuilder("FORM_TYPE").setValue("urn:xmpp:dataforms:softwareinfo").build());
+            df.addField(FormField.builder("os").setValue("Mac").build());
+            di.addExtension(df.build());
+        }
+
+        return di.build();
+    }
+}
@@ -17,24 +17,36 @@
 package org.jivesoftware.smackx.pubsub;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import org.jivesoftware.smack.DummyConnection;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.ThreadedDummyConnection;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.test.util.SmackTestSuite;
 import org.jivesoftware.smack.test.util.TestUtils;
 import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.xml.XmlPullParser;
 
 import org.jivesoftware.smackx.pubsub.Affiliation.AffiliationNamespace;
+import org.jivesoftware.smackx.pubsub.listener.ItemEventListener;
 import org.jivesoftware.smackx.pubsub.packet.PubSub;
 import org.jivesoftware.smackx.pubsub.packet.PubSubNamespace;
+import org.jivesoftware.smackx.rsm.packet.RSMSet;
 
 import org.jivesoftware.util.ConnectionUtils;
 import org.jivesoftware.util.Protocol;
@@ -107,4 +119,148 @@ public class PubSubNodeTest extends SmackTestSuite {
         assertEquals(affiliationTwo.getJid(), JidTestUtil.BARE_JID_2);
         assertEquals(affiliationTwo.getAffiliation(), Affiliation.Type.publisher);
     }
+
+    @Test
+    public void itemEventsAreDispatchedByServiceAndNodeAndCachedTest() throws Exception {
+        DummyConnection con = new DummyConnection();
+        PubSubManager mgr = new PubSubManager(con, JidTestUtil.PUBSUB_EXAMPLE_ORG);
+        mgr.enableItemCache(10, 2);
+        LeafNode testNode = new LeafNode(mgr, "princely_musings");
+
+        BlockingQueue<ItemPublishEvent<Item>> events = new LinkedBlockingQueue<>();
+        ItemEventListener<Item> listener = events::add;
+        testNode.addItemEventListener(listener);
+
+        con.processStanza(createItemEvent("pubsub.example.org", "other_node", "a"));
+        con.processStanza(createItemEvent("pubsub.example.net", "princely_musings", "b"));
+        con.processStanza(createItemEvent("pubsub.example.org", "princely_musings", "c"));
+        con.processStanza(createItemEvent("pubsub.example.org", "princely_musings", "d"));
+
+        // Only the events of the node at the node's service are dispatched to the listener.
+        assertEquals("c", events.poll(5, TimeUnit.SECONDS).getItems().get(0).getId());
+        assertEquals("d", events.poll(5, TimeUnit.SECONDS).getItems().get(0).getId());
+        assertTrue(events.isEmpty());
+
+        // The most recent items are served from the cache, without querying the service.
+        List<Item> items = testNode.getItems(2);
+        assertEquals(2, items.size());
+        assertEquals("c", items.get(0).getId());
+        assertEquals("d", items.get(1).getId());
+        items = testNode.getItems(Collections.singletonList("d"));
+        assertEquals("d", items.get(0).getId());
+        assertEquals(0, con.getNumberOfSentPackets());
+
+        testNode.removeItemEventListener(listener);
+        con.processStanza(createItemEvent("pubsub.example.org", "princely_musings", "e"));
+        assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void iterateItemsTest() throws Exception {
+        Protocol protocol = new Protocol();
+        XMPPConnection connection = ConnectionUtils.createMockedConnection(protocol, JidTestUtil.FULL_JID_1_RESOURCE_1);
+
+        PubSubManager mgr = new PubSubManager(connection, JidTestUtil.PUBSUB_EXAMPLE_ORG);
+        LeafNode testNode = new LeafNode(mgr, "princely_musings");
+
+        protocol.addResponse(createItemsPage(testNode.getId(), 0, 3, "a", "b"));
+        protocol.addResponse(createItemsPage(testNode.getId(), 2, 3, "c"));
+
+        ItemIterator<Item> iterator = testNode.iterateItems(2, false);
+        List<String> itemIds = new ArrayList<>();
+        while (iterator.hasNext()) {
+            itemIds.add(iterator.next().getId());
+        }
+
+        assertEquals(Arrays.asList("a", "b", "c"), itemIds);
+        assertEquals(2, iterator.getPagesReceived());
+        assertEquals(2, protocol.getRequests().size());
+
+        RSMSet firstPageRequest = RSMSet.from(protocol.getRequests().get(0));
+        assertEquals(2, firstPageRequest.getMax());
+        assertNull(firstPageRequest.getAfter());
+        RSMSet secondPageRequest = RSMSet.from(protocol.getRequests().get(1));
+        assertEquals("b", secondPageRequest.getAfter());
+    }
+
+    @Test
+    public void iterateItemsPrefetchesNextPageTest() throws Exception {
+        Protocol protocol = new Protocol();
+        XMPPConnection connection = ConnectionUtils.createMockedConnection(protocol, JidTestUtil.FULL_JID_1_RESOURCE_1);
+
+        PubSubManager mgr = new PubSubManager(connection, JidTestUtil.PUBSUB_EXAMPLE_ORG);
+        LeafNode testNode = new LeafNode(mgr, "princely_musings");
+
+        protocol.addResponse(createItemsPage(testNode.getId(), 0, 3, "a", "b"));
+        protocol.addResponse(createItemsPage(testNode.getId(), 2, 3, "c"));
+
+        ItemIterator<Item> iterator = testNode.iterateItems(2);
+        // The first page is requested right away.
+        assertEquals(1, protocol.getRequests().size());
+
+        assertTrue(iterator.hasNext());
+        assertEquals("a", iterator.next().getId());
+        // The second page was requested as soon as the first one was received, before it was consumed.
+        assertEquals(2, protocol.getRequests().size());
+        assertEquals("b", RSMSet.from(protocol.getRequests().get(1)).getAfter());
+
+        assertEquals("b", iterator.next().getId());
+        assertEquals("c", iterator.next().getId());
+        assertFalse(iterator.hasNext());
+        assertEquals(2, iterator.getPagesReceived());
+        // The count announced by the service avoids requesting a third, empty, page.
+        assertEquals(2, protocol.getRequests().size());
+    }
+
+    @Test
+    public void iterateItemsWithCappedPageSizeTest() throws Exception {
+        Protocol protocol = new Protocol();
+        XMPPConnection connection = ConnectionUtils.createMockedConnection(protocol, JidTestUtil.FULL_JID_1_RESOURCE_1);
+
+        PubSubManager mgr = new PubSubManager(connection, JidTestUtil.PUBSUB_EXAMPLE_ORG);
+        LeafNode testNode = new LeafNode(mgr, "princely_musings");
+
+        // The service caps the page size to two items, and does not announce the count of items.
+        protocol.addResponse(createItemsPage(testNode.getId(), -1, -1, "a", "b"));
+        protocol.addResponse(createItemsPage(testNode.getId(), -1, -1, "c", "d"));
+        protocol.addResponse(createItemsPage(testNode.getId(), -1, -1, "e"));
+        protocol.addResponse(createItemsPage(testNode.getId(), -1, -1));
+
+        ItemIterator<Item> iterator = testNode.iterateItems(10, false);
+        List<String> itemIds = new ArrayList<>();
+        while (iterator.hasNext()) {
+            itemIds.add(iterator.next().getId());
+        }
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), itemIds);
+        assertEquals(4, iterator.getPagesReceived());
+        assertEquals(4, protocol.getRequests().size());
+        assertEquals(10, RSMSet.from(protocol.getRequests().get(1)).getMax());
+        assertEquals("b", RSMSet.from(protocol.getRequests().get(1)).getAfter());
+        assertEquals("d", RSMSet.from(protocol.getRequests().get(2)).getAfter());
+        assertEquals("e", RSMSet.from(protocol.getRequests().get(3)).getAfter());
+    }
+
+    private static PubSub createItemsPage(String nodeId, int firstIndex, int count, String... itemIds) {
+        List<Item> items = new ArrayList<>(itemIds.length);
+        for (String itemId : itemIds) {
+            items.add(new Item(itemId));
+        }
+        String first = itemIds.length > 0 ? itemIds[0] : null;
+        String last = itemIds.length > 0 ? itemIds[itemIds.length - 1] : null;
+        PubSub page = new PubSub(JidTestUtil.PUBSUB_EXAMPLE_ORG, IQ.Type.result, PubSubNamespace.basic);
+        page.addExtension(new ItemsExtension(ItemsExtension.ItemsElementType.items, nodeId, items));
+        page.addExtension(new RSMSet(null, null, count, -1, last, -1, first, firstIndex));
+        return page;
+    }
+
+    private static Message createItemEvent(String from, String nodeId, String itemId) throws Exception {
+        String xml = "<message from='" + from + "' to='francisco@denmark.lit' id='" + itemId + "'>"
+                        + "<event xmlns='http://jabber.org/protocol/pubsub#event'>"
+                        + "<items node='" + nodeId + "'>"
+                        + "<item id='" + itemId + "'>"
+                        + "<entry xmlns='http://www.w3.org/2005/Atom'><title>" + itemId + "</title></entry>"
+                        + "</item></items></event></message>";
+        return PacketParserUtils.parseStanza(xml);
+    }
 }
@@ -24,6 +24,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import org.jivesoftware.smack.SmackException;
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
 import org.jivesoftware.smack.StanzaCollector;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
@@ -140,6 +143,30 @@ public class ConnectionUtils {
         };
         when(connection.sendIqRequestAndWaitForResponse(isA(IQ.class))).thenAnswer(responseIq);
 
+        // mock asynchronous send methods, the response is determined when the request is send
+        Answer<SmackFuture<Stanza, Exception>> responseFuture = new Answer<SmackFuture<Stanza, Exception>>() {
+            @Override
+            public SmackFuture<Stanza, Exception> answer(InvocationOnMock invocation) throws Throwable {
+                InternalSmackFuture<Stanza, Exception> future = new InternalSmackFuture<>();
+                Stanza response;
+                try {
+                    response = responseIq.answer(invocation);
+                }
+                catch (Exception e) {
+                    future.setException(e);
+                    return future;
+                }
+                if (response == null) {
+                    future.setException(NoResponseException.newWith(connection, "mocked response"));
+                } else {
+                    future.setResult(response);
+                }
+                return future;
+            }
+        };
+        doAnswer(responseFuture).when(connection).sendIqRequestAsync(isA(IQ.class));
+        doAnswer(responseFuture).when(connection).sendAsync(isA(Stanza.class), isA(StanzaFilter.class));
+
         // initialize service discovery manager for this connection
         ServiceDiscoveryManager.getInstanceFor(connection);
 
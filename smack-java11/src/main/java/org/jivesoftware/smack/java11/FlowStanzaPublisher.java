@@ -0,0 +1,89 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.java11;
+
+import java.util.concurrent.Flow;
+
+import org.jivesoftware.smack.StanzaPublisher;
+import org.jivesoftware.smack.packet.Stanza;
+
+/**
+ * Adapts a {@link StanzaPublisher} to {@link Flow.Publisher}, so that incoming stanzas can be consumed by
+ * {@link Flow} based reactive libraries. The demand signalled by the {@link Flow.Subscriber} is passed through to the
+ * stanza publisher, which suspends the reading of the connection if the subscriber falls behind.
+ *
+ * @since 4.5
+ */
+public final class FlowStanzaPublisher implements Flow.Publisher<Stanza>, AutoCloseable {
+
+    private final StanzaPublisher stanzaPublisher;
+
+    public FlowStanzaPublisher(StanzaPublisher stanzaPublisher) {
+        this.stanzaPublisher = stanzaPublisher;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super Stanza> subscriber) {
+        if (subscriber == null) {
+            // Reactive Streams specification rule 1.9.
+            throw new NullPointerException("The subscriber must not be null");
+        }
+        stanzaPublisher.subscribe(new StanzaPublisher.Subscriber() {
+            @Override
+            public void onSubscribe(final StanzaPublisher.Subscription subscription) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        subscription.request(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        subscription.cancel();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(Stanza stanza) {
+                subscriber.onNext(stanza);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+
+    public StanzaPublisher getStanzaPublisher() {
+        return stanzaPublisher;
+    }
+
+    /**
+     * Close the underlying stanza publisher.
+     */
+    @Override
+    public void close() {
+        stanzaPublisher.close();
+    }
+}
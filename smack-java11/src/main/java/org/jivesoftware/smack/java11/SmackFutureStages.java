@@ -0,0 +1,107 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.java11;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import org.jivesoftware.smack.SmackFuture;
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
+
+/**
+ * Utility methods to bridge between {@link SmackFuture} and {@link CompletionStage}. Smack's core modules target
+ * Android API levels where {@link CompletionStage} is not available, hence {@link SmackFuture} can not implement it
+ * directly. Use the methods of this class to compose Smack's asynchronous operations with other
+ * {@link CompletionStage} based APIs.
+ *
+ * @since 4.5
+ */
+public final class SmackFutureStages {
+
+    private SmackFutureStages() {
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} which is completed with the outcome of the given Smack future. Cancelling the
+     * returned future cancels the given Smack future.
+     *
+     * @param <V> the type of the result.
+     * @param smackFuture the Smack future.
+     * @return a completable future reflecting the outcome of the Smack future.
+     */
+    public static <V> CompletableFuture<V> toCompletableFuture(final SmackFuture<V, ?> smackFuture) {
+        final CompletableFuture<V> completableFuture = new CompletableFuture<>();
+        smackFuture.onCompletion(f -> {
+            if (f.isCancelled()) {
+                completableFuture.cancel(false);
+                return;
+            }
+            V result = f.getIfAvailable();
+            if (result != null) {
+                completableFuture.complete(result);
+            } else {
+                completableFuture.completeExceptionally(f.getExceptionIfAvailable());
+            }
+        });
+        completableFuture.whenComplete((result, throwable) -> {
+            if (completableFuture.isCancelled()) {
+                smackFuture.cancel(false);
+            }
+        });
+        return completableFuture;
+    }
+
+    /**
+     * Returns a Smack future which is completed with the outcome of the given completion stage. As Smack futures can
+     * not hold <code>null</code> results, a stage completing with <code>null</code> results in a Smack future
+     * completed with a {@link NullPointerException}. Throwables which are not exceptions are wrapped in an
+     * {@link ExecutionException}.
+     *
+     * @param <V> the type of the result.
+     * @param completionStage the completion stage.
+     * @return a Smack future reflecting the outcome of the completion stage.
+     */
+    public static <V> SmackFuture<V, Exception> fromCompletionStage(CompletionStage<V> completionStage) {
+        final InternalSmackFuture<V, Exception> smackFuture = new InternalSmackFuture<>();
+        completionStage.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                if (result == null) {
+                    smackFuture.setException(new NullPointerException("Completion stage completed with null"));
+                } else {
+                    smackFuture.setResult(result);
+                }
+                return;
+            }
+
+            Throwable cause = throwable;
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof CancellationException) {
+                smackFuture.cancel(false);
+            } else if (cause instanceof Exception) {
+                smackFuture.setException((Exception) cause);
+            } else {
+                smackFuture.setException(new ExecutionException(cause));
+            }
+        });
+        return smackFuture;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Classes which require Java 8 or higher APIs, for example the interoperability of Smack's futures with
+ * {@link java.util.concurrent.CompletionStage}, or the adaption of Smack's stanza publishers to
+ * {@link java.util.concurrent.Flow}.
+ */
+package org.jivesoftware.smack.java11;
@@ -17,6 +17,7 @@
 package org.jivesoftware.smack.util.dns.dnsjava;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
@@ -49,8 +50,14 @@ public class DNSJavaResolver extends DNSResolver implements SmackInitializer {
     }
 
     @Override
-    protected List<SRV> lookupSrvRecords0(DnsName name, List<RemoteConnectionEndpointLookupFailure> lookupFailures,
+    protected Collection<SRV> lookupSrvRecords0(DnsName name, List<RemoteConnectionEndpointLookupFailure> lookupFailures,
                     DnssecMode dnssecMode) {
+        return lookupSrvRecordsWithTtl0(name, lookupFailures, dnssecMode).getResult();
+    }
+
+    @Override
+    protected TtlResult<Collection<SRV>> lookupSrvRecordsWithTtl0(DnsName name,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
         Lookup lookup;
         try {
             lookup = new Lookup(name.ace, Type.SRV);
@@ -59,17 +66,19 @@ public class DNSJavaResolver extends DNSResolver implements SmackInitializer {
             RemoteConnectionEndpointLookupFailure failure = new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(
                             name, e);
             lookupFailures.add(failure);
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
         }
 
         Record[] recs = lookup.run();
         if (recs == null) {
             // TODO: When does this happen? Do we want/need to record a lookup failure?
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
         }
 
         List<SRV> res = new ArrayList<>();
+        long ttl = Long.MAX_VALUE;
         for (Record record : recs) {
+            ttl = Math.min(ttl, record.getTTL());
             org.xbill.DNS.SRVRecord srvRecord = (org.xbill.DNS.SRVRecord) record;
             if (srvRecord != null && srvRecord.getTarget() != null) {
                 DnsName host = DnsName.from(srvRecord.getTarget().toString());
@@ -82,7 +91,10 @@ public class DNSJavaResolver extends DNSResolver implements SmackInitializer {
             }
         }
 
-        return res;
+        if (ttl == Long.MAX_VALUE) {
+            ttl = TtlResult.UNKNOWN_TTL;
+        }
+        return new TtlResult<>(res, ttl);
     }
 
     public static void setup() {
@@ -20,9 +20,12 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
 import org.jivesoftware.smack.initializer.SmackInitializer;
@@ -30,6 +33,7 @@ import org.jivesoftware.smack.util.DNSUtil;
 import org.jivesoftware.smack.util.dns.DNSResolver;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
 
+import org.minidns.dnsmessage.DnsMessage;
 import org.minidns.dnsmessage.DnsMessage.RESPONSE_CODE;
 import org.minidns.dnsmessage.Question;
 import org.minidns.dnsname.DnsName;
@@ -65,8 +69,14 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
     }
 
     @Override
-    protected Set<SRV> lookupSrvRecords0(final DnsName name, List<RemoteConnectionEndpointLookupFailure> lookupFailures,
+    protected Collection<SRV> lookupSrvRecords0(final DnsName name, List<RemoteConnectionEndpointLookupFailure> lookupFailures,
                     DnssecMode dnssecMode) {
+        return lookupSrvRecordsWithTtl0(name, lookupFailures, dnssecMode).getResult();
+    }
+
+    @Override
+    protected TtlResult<Collection<SRV>> lookupSrvRecordsWithTtl0(final DnsName name,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
         final ResolverApi resolver = getResolver(dnssecMode);
 
         SrvResolverResult result;
@@ -76,7 +86,7 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
             RemoteConnectionEndpointLookupFailure failure = new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(
                             name, e);
             lookupFailures.add(failure);
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
         }
 
         ResolutionUnsuccessfulException resolutionUnsuccessfulException = result.getResolutionUnsuccessfulException();
@@ -84,32 +94,66 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
             RemoteConnectionEndpointLookupFailure failure = new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(
                             name, resolutionUnsuccessfulException);
             lookupFailures.add(failure);
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
         }
 
         if (shouldAbortIfNotAuthentic(name, dnssecMode, result, lookupFailures)) {
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
         }
 
-        return result.getAnswers();
+        return new TtlResult<>(result.getAnswers(), getTtl(result));
     }
 
     @Override
     protected List<InetAddress> lookupHostAddress0(final DnsName name,
                     List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+        return lookupHostAddressWithTtl0(name, lookupFailures, dnssecMode).getResult();
+    }
+
+    @Override
+    protected TtlResult<List<InetAddress>> lookupHostAddressWithTtl0(final DnsName name,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
         final ResolverApi resolver = getResolver(dnssecMode);
 
         final ResolverResult<A> aResult;
         final ResolverResult<AAAA> aaaaResult;
 
+        // Resolve the A and AAAA resource records in parallel, so that the lookup takes only as long as the slower of
+        // both queries.
+        FutureTask<ResolverResult<AAAA>> aaaaTask = new FutureTask<>(() -> resolver.resolve(name, AAAA.class));
+        executeLookup(aaaaTask);
+
         try {
             aResult = resolver.resolve(name, A.class);
-            aaaaResult = resolver.resolve(name, AAAA.class);
+            aaaaResult = aaaaTask.get();
         } catch (IOException e) {
+            aaaaTask.cancel(true);
+            RemoteConnectionEndpointLookupFailure failure = new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(
+                            name, e);
+            lookupFailures.add(failure);
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
+        } catch (InterruptedException e) {
+            aaaaTask.cancel(true);
+            Thread.currentThread().interrupt();
             RemoteConnectionEndpointLookupFailure failure = new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(
                             name, e);
             lookupFailures.add(failure);
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                RemoteConnectionEndpointLookupFailure failure = new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(
+                                name, (IOException) cause);
+                lookupFailures.add(failure);
+                return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AssertionError(cause);
         }
 
         if (!aResult.wasSuccessful() && !aaaaResult.wasSuccessful()) {
@@ -120,12 +164,12 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
             RemoteConnectionEndpointLookupFailure failureAaaa = new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(
                             name, getExceptionFrom(aaaaResult));
             lookupFailures.add(failureAaaa);
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
         }
 
         if (shouldAbortIfNotAuthentic(name, dnssecMode, aResult, lookupFailures)
                         || shouldAbortIfNotAuthentic(name, dnssecMode, aaaaResult, lookupFailures)) {
-            return null;
+            return new TtlResult<>(null, TtlResult.UNKNOWN_TTL);
         }
 
         // TODO: Use ResolverResult.getAnswersOrEmptySet() once we updated MiniDNS.
@@ -170,7 +214,29 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
             inetAddresses.add(inetAddress);
         }
 
-        return inetAddresses;
+        return new TtlResult<>(inetAddresses, getTtl(aResult, aaaaResult));
+    }
+
+    /**
+     * Get the minimum TTL of the answers of the given successful results.
+     */
+    private static long getTtl(ResolverResult<?>... results) {
+        long ttl = Long.MAX_VALUE;
+        for (ResolverResult<?> result : results) {
+            if (!result.wasSuccessful()) {
+                continue;
+            }
+            DnsMessage answer = result.getRawAnswer();
+            if (answer == null) {
+                continue;
+            }
+            ttl = Math.min(ttl, answer.getAnswersMinTtl());
+        }
+
+        if (ttl == Long.MAX_VALUE) {
+            return TtlResult.UNKNOWN_TTL;
+        }
+        return ttl;
     }
 
     public static void setup() {
@@ -21,6 +21,7 @@ import java.util.List;
 
 import javax.xml.namespace.QName;
 
+import org.jivesoftware.smack.isr.InstantStreamResumption;
 import org.jivesoftware.smack.packet.ExtensionElement;
 import org.jivesoftware.smack.packet.Nonza;
 import org.jivesoftware.smack.packet.StanzaError;
@@ -104,16 +105,36 @@ public class StreamManagement {
 
         public static final Enable INSTANCE = new Enable();
 
+        private final boolean instantStreamResumption;
+
         private Enable() {
+            this(false);
         }
 
         public Enable(boolean resume) {
-            this.resume = resume;
+            this(resume, -1);
         }
 
         public Enable(boolean resume, int max) {
-            this(resume);
+            this(resume, max, false);
+        }
+
+        /**
+         * Construct a new 'enable' element.
+         *
+         * @param resume whether to request a resumable stream.
+         * @param max the preferred maximum resumption time in seconds, or a non-positive value if there is none.
+         * @param instantStreamResumption whether to request Instant Stream Resumption (XEP-0397).
+         * @since 4.5
+         */
+        public Enable(boolean resume, int max, boolean instantStreamResumption) {
+            this.resume = resume;
             this.max = max;
+            this.instantStreamResumption = instantStreamResumption;
+        }
+
+        public boolean isInstantStreamResumptionRequested() {
+            return instantStreamResumption;
         }
 
         @Override
@@ -121,7 +142,13 @@ public class StreamManagement {
             XmlStringBuilder xml = new XmlStringBuilder(this, enclosingNamespace);
             maybeAddResumeAttributeTo(xml);
             maybeAddMaxAttributeTo(xml);
-            xml.closeEmptyElement();
+            if (instantStreamResumption) {
+                xml.rightAngleBracket();
+                xml.append(InstantStreamResumption.Enable.INSTANCE);
+                xml.closeElement(this);
+            } else {
+                xml.closeEmptyElement();
+            }
             return xml;
         }
 
@@ -158,15 +185,33 @@ public class StreamManagement {
          */
         private final String location;
 
+        private final InstantStreamResumption.Enabled instantStreamResumption;
+
         public Enabled(String id, boolean resume) {
             this(id, resume, null, -1);
         }
 
         public Enabled(String id, boolean resume, String location, int max) {
+            this(id, resume, location, max, null);
+        }
+
+        /**
+         * Construct a new 'enabled' element.
+         *
+         * @param id the stream id.
+         * @param resume whether the stream is resumable.
+         * @param location the location where the server prefers reconnection, may be <code>null</code>.
+         * @param max the maximum resumption time in seconds, or a non-positive value if there is none.
+         * @param instantStreamResumption the Instant Stream Resumption (XEP-0397) response, may be <code>null</code>.
+         * @since 4.5
+         */
+        public Enabled(String id, boolean resume, String location, int max,
+                        InstantStreamResumption.Enabled instantStreamResumption) {
             this.id = id;
             this.resume = resume;
             this.location = location;
             this.max = max;
+            this.instantStreamResumption = instantStreamResumption;
         }
 
         public String getId() {
@@ -177,6 +222,16 @@ public class StreamManagement {
             return location;
         }
 
+        /**
+         * Get the Instant Stream Resumption (XEP-0397) response, carrying the key for the first instant resumption.
+         *
+         * @return the Instant Stream Resumption response or <code>null</code>.
+         * @since 4.5
+         */
+        public InstantStreamResumption.Enabled getInstantStreamResumption() {
+            return instantStreamResumption;
+        }
+
         @Override
         public CharSequence toXML(org.jivesoftware.smack.packet.XmlEnvironment enclosingNamespace) {
             XmlStringBuilder xml = new XmlStringBuilder(this, enclosingNamespace);
@@ -184,7 +239,13 @@ public class StreamManagement {
             maybeAddResumeAttributeTo(xml);
             xml.optAttribute("location", location);
             maybeAddMaxAttributeTo(xml);
-            xml.closeEmptyElement();
+            if (instantStreamResumption == null) {
+                xml.closeEmptyElement();
+            } else {
+                xml.rightAngleBracket();
+                xml.append(instantStreamResumption);
+                xml.closeElement(this);
+            }
             return xml;
         }
 
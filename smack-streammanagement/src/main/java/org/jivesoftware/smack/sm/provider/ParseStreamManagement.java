@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jivesoftware.smack.isr.InstantStreamResumption;
 import org.jivesoftware.smack.packet.AbstractTextElement;
 import org.jivesoftware.smack.packet.StanzaError;
 import org.jivesoftware.smack.packet.StanzaErrorTextElement;
@@ -29,6 +30,7 @@ import org.jivesoftware.smack.sm.packet.StreamManagement.Enabled;
 import org.jivesoftware.smack.sm.packet.StreamManagement.Failed;
 import org.jivesoftware.smack.sm.packet.StreamManagement.Resumed;
 import org.jivesoftware.smack.util.ParserUtils;
+import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
@@ -40,9 +42,35 @@ public class ParseStreamManagement {
         String id = parser.getAttributeValue("", "id");
         String location = parser.getAttributeValue("", "location");
         int max = ParserUtils.getIntegerAttribute(parser, "max", -1);
-        parser.next();
-        ParserUtils.assertAtEndTag(parser);
-        return new Enabled(id, resume, location, max);
+
+        final int initialDepth = parser.getDepth();
+        InstantStreamResumption.Enabled instantStreamResumption = null;
+        outerloop: while (true) {
+            XmlPullParser.Event event = parser.next();
+            switch (event) {
+            case START_ELEMENT:
+                if (InstantStreamResumption.Enabled.ELEMENT.equals(parser.getName())
+                                && InstantStreamResumption.NAMESPACE.equals(parser.getNamespace())) {
+                    String key = parser.getAttributeValue("key");
+                    String isrLocation = parser.getAttributeValue("location");
+                    // Ignore a response without key, which can not be used to instantly resume the stream.
+                    if (StringUtils.isNotEmpty(key)) {
+                        instantStreamResumption = new InstantStreamResumption.Enabled(key, isrLocation);
+                    }
+                }
+                ParserUtils.forwardToEndTagOfDepth(parser, parser.getDepth());
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            default:
+                // Catch all for incomplete switch (MissingCasesInEnumSwitch) statement.
+                break;
+            }
+        }
+        return new Enabled(id, resume, location, max, instantStreamResumption);
     }
 
     public static Failed failed(XmlPullParser parser) throws XmlPullParserException, IOException {
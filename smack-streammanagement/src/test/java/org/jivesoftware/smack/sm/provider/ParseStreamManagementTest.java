@@ -18,12 +18,14 @@ package org.jivesoftware.smack.sm.provider;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
 
+import org.jivesoftware.smack.isr.InstantStreamResumption;
 import org.jivesoftware.smack.packet.StanzaError;
 import org.jivesoftware.smack.packet.StanzaErrorTextElement;
 import org.jivesoftware.smack.sm.packet.StreamManagement;
@@ -72,6 +74,27 @@ public class ParseStreamManagementTest {
         assertEquals(enabledString, enabled.toXML().toString());
     }
 
+    @Test
+    public void testParseEnabledWithInstantStreamResumption() throws XmlPullParserException, IOException {
+        String enabledString = "<enabled xmlns='urn:xmpp:sm:3' id='some-long-sm-id' resume='true'>"
+                        + "<isr-enabled xmlns='urn:xmpp:isr:0' key='a0b9162d-0981-4c7d-9174-1f55aedd1f52'/>"
+                        + "</enabled>";
+        StreamManagement.Enabled enabled = ParseStreamManagement.enabled(PacketParserUtils.getParserFor(enabledString));
+
+        assertTrue(enabled.isResumeSet());
+        InstantStreamResumption.Enabled isrEnabled = enabled.getInstantStreamResumption();
+        assertNotNull(isrEnabled);
+        assertEquals("a0b9162d-0981-4c7d-9174-1f55aedd1f52", isrEnabled.getKey());
+        assertNull(isrEnabled.getLocation());
+    }
+
+    @Test
+    public void testEnableWithInstantStreamResumption() {
+        String enable = new StreamManagement.Enable(true, -1, true).toXML().toString();
+        assertEquals("<enable xmlns='urn:xmpp:sm:3' resume='true'><isr-enable xmlns='urn:xmpp:isr:0'/></enable>",
+                        enable);
+    }
+
     @Test
     public void testParseFailed() throws Exception {
         String failedStanza = XMLBuilder.create("failed")
@@ -17,23 +17,15 @@
 package org.jivesoftware.smack.tcp;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 import org.jivesoftware.smack.SmackException.EndpointConnectionException;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
 import org.jivesoftware.smack.tcp.XmppTcpTransportModule.EstablishingTcpConnectionState;
 import org.jivesoftware.smack.tcp.rce.Rfc6120TcpRemoteConnectionEndpoint;
-import org.jivesoftware.smack.util.Async;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpoint;
-import org.jivesoftware.smack.util.rce.RemoteConnectionException;
 
 public final class ConnectionAttemptState {
 
@@ -43,86 +35,76 @@ public final class ConnectionAttemptState {
 
     private final EstablishingTcpConnectionState establishingTcpConnectionState;
 
-    // TODO: Check if we can re-use the socket channel in case some InetSocketAddress fail to connect to.
-    final SocketChannel socketChannel;
+    private final RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, SocketChannel> racingConnector;
 
-    final List<RemoteConnectionException<?>> connectionExceptions;
-
-    EndpointConnectionException connectionException;
-    boolean connected;
-    long deadline;
-
-    final Iterator<Rfc6120TcpRemoteConnectionEndpoint> connectionEndpointIterator;
-    /** The current connection endpoint we are trying */
-    Rfc6120TcpRemoteConnectionEndpoint connectionEndpoint;
-    Iterator<? extends InetAddress> inetAddressIterator;
+    /** The socket channel of the connection attempt which won the race. */
+    SocketChannel socketChannel;
 
     ConnectionAttemptState(ModularXmppClientToServerConnectionInternal connectionInternal,
                     XmppTcpTransportModule.XmppTcpNioTransport.DiscoveredTcpEndpoints discoveredEndpoints,
-                    EstablishingTcpConnectionState establishingTcpConnectionState) throws IOException {
+                    EstablishingTcpConnectionState establishingTcpConnectionState) {
         this.connectionInternal = connectionInternal;
         this.discoveredEndpoints = discoveredEndpoints;
         this.establishingTcpConnectionState = establishingTcpConnectionState;
 
-        socketChannel = SocketChannel.open();
-        socketChannel.configureBlocking(false);
+        // TODO: Should use "connect timeout" instead of reply timeout. But first connect timeout needs to be moved from
+        // XMPPTCPConnectionConfiguration. into XMPPConnectionConfiguration.
+        long connectTimeout = connectionInternal.connection.getReplyTimeout();
+        racingConnector = new RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, SocketChannel>(
+                        discoveredEndpoints.result.discoveredRemoteConnectionEndpoints, connectTimeout) {
+            @Override
+            protected SocketChannel startConnectionAttempt(Attempt attempt) throws IOException {
+                return establishTcpConnection(attempt);
+            }
 
-        List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = discoveredEndpoints.result.discoveredRemoteConnectionEndpoints;
-        connectionEndpointIterator = endpoints.iterator();
-        connectionExceptions = new ArrayList<>(endpoints.size());
+            @Override
+            protected void onConnectionAttemptFailed(
+                            RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address,
+                            IOException exception) {
+                TcpHostEvent.ConnectionToHostFailedEvent connectionToHostFailedEvent = new TcpHostEvent.ConnectionToHostFailedEvent(
+                                establishingTcpConnectionState, address, exception);
+                connectionInternal.invokeConnectionStateMachineListener(connectionToHostFailedEvent);
+            }
+        };
     }
 
     StateTransitionResult.Failure establishTcpConnection() throws InterruptedException {
-        RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address = nextAddress();
-        establishTcpConnection(address);
-
-        synchronized (this) {
-            while (!connected && connectionException == null) {
-                final long now = System.currentTimeMillis();
-                if (now >= deadline) {
-                    return new StateTransitionResult.FailureCausedByTimeout("Timeout waiting to establish connection");
-                }
-                wait (deadline - now);
-            }
-        }
-        if (connected) {
-            assert connectionException == null;
-            // Success case: we have been able to establish a connection to one remote endpoint.
-            return null;
+        RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, SocketChannel>.Attempt winner;
+        try {
+            winner = racingConnector.race(discoveredEndpoints.result.lookupFailures);
+        } catch (EndpointConnectionException e) {
+            return new StateTransitionResult.FailureCausedByException<Exception>(e);
         }
 
-        return new StateTransitionResult.FailureCausedByException<Exception>(connectionException);
+        // Success case: we have been able to establish a connection to one remote endpoint.
+        socketChannel = winner.getConnection();
+        return null;
     }
 
-    private void establishTcpConnection(
-                    RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address) {
+    private SocketChannel establishTcpConnection(
+                    RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, SocketChannel>.Attempt attempt)
+                    throws IOException {
+        RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address = attempt.getAddress();
         TcpHostEvent.ConnectingToHostEvent connectingToHostEvent = new TcpHostEvent.ConnectingToHostEvent(
                         establishingTcpConnectionState, address);
         connectionInternal.invokeConnectionStateMachineListener(connectingToHostEvent);
 
-        final InetSocketAddress inetSocketAddress = address.getInetSocketAddress();
-        // TODO: Should use "connect timeout" instead of reply timeout. But first connect timeout needs to be moved from
-        // XMPPTCPConnectionConfiguration. into XMPPConnectionConfiguration.
-        deadline = System.currentTimeMillis() + connectionInternal.connection.getReplyTimeout();
+        // Every connection attempt requires its own socket channel, as multiple attempts may be in flight at the same
+        // time and as a socket channel is not re-usable after a failed connection attempt.
+        SocketChannel socketChannel = SocketChannel.open();
         try {
-            connected = socketChannel.connect(inetSocketAddress);
-        } catch (IOException e) {
-            onIOExceptionWhenEstablishingTcpConnection(e, address);
-            return;
-        }
+            socketChannel.configureBlocking(false);
 
-        if (connected) {
-            TcpHostEvent.ConnectedToHostEvent connectedToHostEvent = new TcpHostEvent.ConnectedToHostEvent(
-                            establishingTcpConnectionState, address, true);
-            connectionInternal.invokeConnectionStateMachineListener(connectedToHostEvent);
+            boolean connected = socketChannel.connect(address.getInetSocketAddress());
+            if (connected) {
+                TcpHostEvent.ConnectedToHostEvent connectedToHostEvent = new TcpHostEvent.ConnectedToHostEvent(
+                                establishingTcpConnectionState, address, true);
+                connectionInternal.invokeConnectionStateMachineListener(connectedToHostEvent);
 
-            synchronized (this) {
-                notifyAll();
+                attempt.succeeded(socketChannel);
+                return socketChannel;
             }
-            return;
-        }
 
-        try {
             connectionInternal.registerWithSelector(socketChannel, SelectionKey.OP_CONNECT,
                     (selectedChannel, selectedSelectionKey) -> {
                         SocketChannel selectedSocketChannel = (SocketChannel) selectedChannel;
@@ -131,12 +113,12 @@ public final class ConnectionAttemptState {
                         try {
                             finishConnected = selectedSocketChannel.finishConnect();
                         } catch (IOException e) {
-                            Async.go(() -> onIOExceptionWhenEstablishingTcpConnection(e, address));
+                            attempt.failed(e);
                             return;
                         }
 
                         if (!finishConnected) {
-                            Async.go(() -> onIOExceptionWhenEstablishingTcpConnection(new IOException("finishConnect() failed"), address));
+                            attempt.failed(new IOException("finishConnect() failed"));
                             return;
                         }
 
@@ -144,53 +126,13 @@ public final class ConnectionAttemptState {
                                         establishingTcpConnectionState, address, false);
                         connectionInternal.invokeConnectionStateMachineListener(connectedToHostEvent);
 
-                        connected = true;
-                        synchronized (ConnectionAttemptState.this) {
-                            notifyAll();
-                        }
+                        attempt.succeeded(selectedSocketChannel);
                     });
-        } catch (ClosedChannelException e) {
-            onIOExceptionWhenEstablishingTcpConnection(e, address);
-        }
-    }
-
-    private void onIOExceptionWhenEstablishingTcpConnection(IOException exception,
-                    RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> failedAddress) {
-        RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> nextInetSocketAddress = nextAddress();
-        if (nextInetSocketAddress == null) {
-            connectionException = EndpointConnectionException.from(
-                            discoveredEndpoints.result.lookupFailures, connectionExceptions);
-            synchronized (this) {
-                notifyAll();
-            }
-            return;
-        }
-
-        RemoteConnectionException<Rfc6120TcpRemoteConnectionEndpoint> rce = new RemoteConnectionException<>(
-                        failedAddress, exception);
-        connectionExceptions.add(rce);
-
-        TcpHostEvent.ConnectionToHostFailedEvent connectionToHostFailedEvent = new TcpHostEvent.ConnectionToHostFailedEvent(
-                        establishingTcpConnectionState, nextInetSocketAddress, exception);
-        connectionInternal.invokeConnectionStateMachineListener(connectionToHostFailedEvent);
-
-        establishTcpConnection(nextInetSocketAddress);
-    }
-
-    private RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> nextAddress() {
-        if (inetAddressIterator == null || !inetAddressIterator.hasNext()) {
-            if (!connectionEndpointIterator.hasNext()) {
-                return null;
-            }
-
-            connectionEndpoint = connectionEndpointIterator.next();
-            inetAddressIterator = connectionEndpoint.getInetAddresses().iterator();
-            // Every valid connection addresspoint must have a non-empty collection of inet addresses.
-            assert inetAddressIterator.hasNext();
+        } catch (IOException e) {
+            socketChannel.close();
+            throw e;
         }
 
-        InetAddress inetAddress = inetAddressIterator.next();
-
-        return new RemoteConnectionEndpoint.InetSocketAddressCoupling<>(connectionEndpoint, inetAddress);
+        return socketChannel;
     }
 }
@@ -0,0 +1,442 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.SmackException.EndpointConnectionException;
+import org.jivesoftware.smack.util.CloseableUtil;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpoint;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
+import org.jivesoftware.smack.util.rce.RemoteConnectionException;
+
+/**
+ * Establishes a connection to one of multiple remote connection endpoints by racing connection attempts against each
+ * other, as described in RFC 8305 "Happy Eyeballs Version 2".
+ * <p>
+ * The addresses of every endpoint are interleaved by address family, while the order of the endpoints, e.g. the order
+ * given by the priority and weight of the SRV resource records, is retained. Connection attempts are started one after
+ * another, separated by the connection attempt delay, or as soon as all previously started attempts failed. The first
+ * attempt that succeeds wins the race, all other attempts are aborted. This means that a single unresponsive address
+ * does no longer delay the connection establishment by a full connect timeout.
+ * </p>
+ * <p>
+ * Implementations which block a thread for every pending connection attempt, e.g. because they use blocking sockets,
+ * should limit the number of pending attempts using {@link #RacingConnector(List, long, long, int)}. Once this limit is
+ * reached, the next attempt is only started after a pending attempt failed or timed out.
+ * </p>
+ *
+ * @param <RCE> the type of the remote connection endpoints.
+ * @param <C> the type of the connection, e.g. a socket, established by a connection attempt.
+ * @see <a href="https://tools.ietf.org/html/rfc8305">RFC 8305: Happy Eyeballs Version 2: Better Connectivity Using Concurrency</a>
+ */
+public abstract class RacingConnector<RCE extends RemoteConnectionEndpoint, C extends Closeable> {
+
+    private static final Logger LOGGER = Logger.getLogger(RacingConnector.class.getName());
+
+    /**
+     * The default connection attempt delay in milliseconds, as recommended by RFC 8305 § 5.
+     */
+    public static final long DEFAULT_CONNECTION_ATTEMPT_DELAY_MILLIS = 250;
+
+    private static long defaultConnectionAttemptDelayMillis = DEFAULT_CONNECTION_ATTEMPT_DELAY_MILLIS;
+
+    /**
+     * Set the default delay, in milliseconds, between two consecutive connection attempts. A value of zero causes all
+     * connection attempts to be started at once.
+     *
+     * @param connectionAttemptDelayMillis the connection attempt delay in milliseconds.
+     */
+    public static void setDefaultConnectionAttemptDelay(long connectionAttemptDelayMillis) {
+        if (connectionAttemptDelayMillis < 0) {
+            throw new IllegalArgumentException("The connection attempt delay must not be negative");
+        }
+        defaultConnectionAttemptDelayMillis = connectionAttemptDelayMillis;
+    }
+
+    public static long getDefaultConnectionAttemptDelay() {
+        return defaultConnectionAttemptDelayMillis;
+    }
+
+    private final List<RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE>> addresses;
+
+    private final long connectionAttemptDelayMillis;
+
+    private final long connectTimeoutMillis;
+
+    private final int maxPendingAttempts;
+
+    private final List<Attempt> startedAttempts;
+
+    private final List<RemoteConnectionException<RCE>> connectionExceptions;
+
+    private Attempt winner;
+
+    private int pendingAttempts;
+
+    protected RacingConnector(List<RCE> endpoints, long connectTimeoutMillis) {
+        this(endpoints, connectTimeoutMillis, defaultConnectionAttemptDelayMillis);
+    }
+
+    protected RacingConnector(List<RCE> endpoints, long connectTimeoutMillis, long connectionAttemptDelayMillis) {
+        this(interleaveAddresses(endpoints), connectTimeoutMillis, connectionAttemptDelayMillis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Construct a new racing connector, which attempts to connect to the given addresses in the given order.
+     *
+     * @param addresses the addresses to connect to, e.g. as returned by {@link #interleaveAddresses(List)} or
+     *        {@link #unresolvedAddresses(List)}.
+     * @param connectTimeoutMillis the timeout of a single connection attempt in milliseconds.
+     * @param connectionAttemptDelayMillis the delay between two consecutive connection attempts in milliseconds.
+     * @param maxPendingAttempts the maximum number of connection attempts that are pending at the same time.
+     * @since 4.5
+     */
+    protected RacingConnector(List<RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE>> addresses,
+                    long connectTimeoutMillis, long connectionAttemptDelayMillis, int maxPendingAttempts) {
+        if (connectTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("The connect timeout must be positive");
+        }
+        if (connectionAttemptDelayMillis < 0) {
+            throw new IllegalArgumentException("The connection attempt delay must not be negative");
+        }
+        if (maxPendingAttempts <= 0) {
+            throw new IllegalArgumentException("The maximum number of pending attempts must be positive");
+        }
+        this.addresses = addresses;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.connectionAttemptDelayMillis = connectionAttemptDelayMillis;
+        this.maxPendingAttempts = maxPendingAttempts;
+        this.startedAttempts = new ArrayList<>(addresses.size());
+        this.connectionExceptions = new ArrayList<>(addresses.size());
+    }
+
+    /**
+     * Start a connection attempt to the address of the given attempt. Implementations must not block until the
+     * connection is established. Instead they must eventually signal the outcome of the attempt by invoking either
+     * {@link Attempt#succeeded(Closeable)} or {@link Attempt#failed(IOException)}, which may happen from within this
+     * method or from any other thread.
+     *
+     * @param attempt the connection attempt.
+     * @return the connection, which will be closed if the attempt loses the race.
+     * @throws IOException if the connection attempt could not be started.
+     */
+    protected abstract C startConnectionAttempt(Attempt attempt) throws IOException;
+
+    /**
+     * Invoked after a connection attempt failed. The default implementation does nothing.
+     *
+     * @param address the address of the failed connection attempt.
+     * @param exception the reason the connection attempt failed.
+     */
+    protected void onConnectionAttemptFailed(RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE> address,
+                    IOException exception) {
+    }
+
+    /**
+     * Race the connection attempts to the remote connection endpoints. Returns the winning attempt, or throws an
+     * {@link EndpointConnectionException} reporting the given lookup failures and the reasons of all failed connection
+     * attempts.
+     *
+     * @param lookupFailures the failures that occurred while looking up the remote connection endpoints.
+     * @return the winning connection attempt.
+     * @throws EndpointConnectionException if no connection could be established.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public final Attempt race(List<RemoteConnectionEndpointLookupFailure> lookupFailures)
+                    throws EndpointConnectionException, InterruptedException {
+        int nextAddressIndex = 0;
+        long nextAttemptStart = System.currentTimeMillis();
+
+        try {
+            while (true) {
+                RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE> nextAddress = null;
+
+                synchronized (this) {
+                    while (winner == null) {
+                        long now = System.currentTimeMillis();
+                        long earliestDeadline = expireAttempts(now);
+
+                        boolean moreAddresses = nextAddressIndex < addresses.size();
+                        boolean mayStartAttempt = moreAddresses && pendingAttempts < maxPendingAttempts;
+                        if (mayStartAttempt && (now >= nextAttemptStart || pendingAttempts == 0)) {
+                            nextAddress = addresses.get(nextAddressIndex++);
+                            break;
+                        }
+
+                        if (!moreAddresses && pendingAttempts == 0) {
+                            throw EndpointConnectionException.from(lookupFailures, connectionExceptions);
+                        }
+
+                        long waitUntil = earliestDeadline;
+                        if (mayStartAttempt) {
+                            waitUntil = Math.min(waitUntil, nextAttemptStart);
+                        }
+                        wait(Math.max(1, waitUntil - now));
+                    }
+
+                    if (winner != null) {
+                        return winner;
+                    }
+                }
+
+                // Start the connection attempt without holding the monitor, as starting the attempt may involve
+                // other threads which will invoke our callbacks.
+                startAttempt(nextAddress);
+                nextAttemptStart = System.currentTimeMillis() + connectionAttemptDelayMillis;
+            }
+        } finally {
+            abortLosingAttempts();
+        }
+    }
+
+    private void startAttempt(RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE> address) {
+        Attempt attempt = new Attempt(address, System.currentTimeMillis() + connectTimeoutMillis);
+        synchronized (this) {
+            startedAttempts.add(attempt);
+            pendingAttempts++;
+        }
+
+        C connection;
+        try {
+            connection = startConnectionAttempt(attempt);
+        } catch (IOException e) {
+            attempt.failed(e);
+            return;
+        }
+
+        boolean close;
+        synchronized (this) {
+            if (attempt.connection == null) {
+                attempt.connection = connection;
+            }
+            // Close the connection if the attempt already failed or lost the race while it was started.
+            close = attempt != winner && (attempt.state != AttemptState.pending || winner != null);
+        }
+        if (close) {
+            CloseableUtil.maybeClose(connection, LOGGER);
+        }
+    }
+
+    /**
+     * Fail all pending attempts whose deadline has passed. Must be called while holding the monitor.
+     *
+     * @param now the current time in milliseconds.
+     * @return the earliest deadline of the remaining pending attempts, or {@link Long#MAX_VALUE}.
+     */
+    private long expireAttempts(long now) {
+        long earliestDeadline = Long.MAX_VALUE;
+        for (Attempt attempt : startedAttempts) {
+            if (attempt.state != AttemptState.pending) {
+                continue;
+            }
+            if (attempt.deadline <= now) {
+                attempt.failed(new SocketTimeoutException("Connection attempt to " + attempt.address + " timed out after "
+                                + connectTimeoutMillis + "ms"));
+                continue;
+            }
+            earliestDeadline = Math.min(earliestDeadline, attempt.deadline);
+        }
+        return earliestDeadline;
+    }
+
+    private void abortLosingAttempts() {
+        List<C> losingConnections = new ArrayList<>();
+        synchronized (this) {
+            for (Attempt attempt : startedAttempts) {
+                if (attempt == winner) {
+                    continue;
+                }
+                if (attempt.state == AttemptState.pending) {
+                    attempt.state = AttemptState.aborted;
+                    pendingAttempts--;
+                }
+                if (attempt.connection != null) {
+                    losingConnections.add(attempt.connection);
+                }
+            }
+        }
+        for (C connection : losingConnections) {
+            CloseableUtil.maybeClose(connection, LOGGER);
+        }
+    }
+
+    /**
+     * Interleave the addresses of the given endpoints by address family, starting with the family of the first address
+     * of each endpoint, as described in RFC 8305 § 4. The order of the endpoints is retained.
+     *
+     * @param endpoints the remote connection endpoints.
+     * @param <RCE> the type of the remote connection endpoints.
+     * @return the ordered list of addresses to connect to.
+     */
+    public static <RCE extends RemoteConnectionEndpoint> List<RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE>> interleaveAddresses(
+                    List<RCE> endpoints) {
+        List<RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE>> result = new ArrayList<>();
+        for (RCE endpoint : endpoints) {
+            Collection<? extends InetAddress> inetAddresses = endpoint.getInetAddresses();
+            List<InetAddress> preferredFamily = new ArrayList<>(inetAddresses.size());
+            List<InetAddress> otherFamily = new ArrayList<>(inetAddresses.size());
+            Boolean preferIpv6 = null;
+            for (InetAddress inetAddress : inetAddresses) {
+                boolean isIpv6 = inetAddress instanceof Inet6Address;
+                if (preferIpv6 == null) {
+                    preferIpv6 = isIpv6;
+                }
+                if (isIpv6 == preferIpv6) {
+                    preferredFamily.add(inetAddress);
+                } else {
+                    otherFamily.add(inetAddress);
+                }
+            }
+
+            for (int i = 0; i < Math.max(preferredFamily.size(), otherFamily.size()); i++) {
+                if (i < preferredFamily.size()) {
+                    result.add(new RemoteConnectionEndpoint.InetSocketAddressCoupling<>(endpoint, preferredFamily.get(i)));
+                }
+                if (i < otherFamily.size()) {
+                    result.add(new RemoteConnectionEndpoint.InetSocketAddressCoupling<>(endpoint, otherFamily.get(i)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the unresolved host and port of every given endpoint, in the order of the endpoints. Endpoints with the same
+     * host and port, e.g. the endpoints for every address of the XMPP service domain, are only included once. Used when
+     * connecting via a proxy, which resolves the host itself.
+     *
+     * @param endpoints the remote connection endpoints.
+     * @param <RCE> the type of the remote connection endpoints.
+     * @return the ordered list of unresolved addresses to connect to.
+     * @since 4.5
+     */
+    public static <RCE extends RemoteConnectionEndpoint> List<RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE>> unresolvedAddresses(
+                    List<RCE> endpoints) {
+        List<RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE>> result = new ArrayList<>(endpoints.size());
+        Set<InetSocketAddress> hostsAndPorts = new HashSet<>(endpoints.size());
+        for (RCE endpoint : endpoints) {
+            RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE> address = new RemoteConnectionEndpoint.InetSocketAddressCoupling<>(
+                            endpoint);
+            if (hostsAndPorts.add(address.getInetSocketAddress())) {
+                result.add(address);
+            }
+        }
+        return result;
+    }
+
+    private enum AttemptState {
+        pending,
+        succeeded,
+        failed,
+        aborted,
+    }
+
+    public final class Attempt {
+        private final RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE> address;
+
+        private final long deadline;
+
+        private AttemptState state = AttemptState.pending;
+
+        private C connection;
+
+        private Attempt(RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE> address, long deadline) {
+            this.address = address;
+            this.deadline = deadline;
+        }
+
+        public RemoteConnectionEndpoint.InetSocketAddressCoupling<RCE> getAddress() {
+            return address;
+        }
+
+        /**
+         * Get the connection of this attempt. Only the winning attempt is guaranteed to have a connection.
+         *
+         * @return the connection or <code>null</code>.
+         */
+        public C getConnection() {
+            synchronized (RacingConnector.this) {
+                return connection;
+            }
+        }
+
+        /**
+         * Signal that this connection attempt succeeded. If another attempt already won the race, then the given
+         * connection will be closed.
+         *
+         * @param connection the established connection.
+         */
+        public void succeeded(C connection) {
+            boolean close = false;
+            synchronized (RacingConnector.this) {
+                if (state != AttemptState.pending) {
+                    close = true;
+                } else {
+                    pendingAttempts--;
+                    this.connection = connection;
+                    if (winner == null) {
+                        state = AttemptState.succeeded;
+                        winner = this;
+                    } else {
+                        state = AttemptState.aborted;
+                        close = true;
+                    }
+                }
+                RacingConnector.this.notifyAll();
+            }
+            if (close) {
+                CloseableUtil.maybeClose(connection, LOGGER);
+            }
+        }
+
+        /**
+         * Signal that this connection attempt failed.
+         *
+         * @param exception the reason the connection attempt failed.
+         */
+        public void failed(IOException exception) {
+            synchronized (RacingConnector.this) {
+                if (state != AttemptState.pending) {
+                    return;
+                }
+                state = AttemptState.failed;
+                pendingAttempts--;
+                connectionExceptions.add(new RemoteConnectionException<>(address, exception));
+                RacingConnector.this.notifyAll();
+            }
+
+            C connection = getConnection();
+            if (connection != null) {
+                CloseableUtil.maybeClose(connection, LOGGER);
+            }
+
+            onConnectionAttemptFailed(address, exception);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.nio.channels.SelectionKey;
+
+/**
+ * Sets the interest ops of a selection key, including {@link SelectionKey#OP_READ} unless reading is suspended. The
+ * check whether reading is suspended and the setting of the interest ops are performed atomically with respect to
+ * other invocations of {@link #setInterestOps(int)}. Hence a concurrent resume of reading, which sets the interest ops
+ * after the reading suspension has been lifted, can not be overwritten by interest ops computed before the resume.
+ */
+abstract class ReadAwareInterestOps {
+
+    private final Object lock = new Object();
+
+    /**
+     * Set the interest ops to the given ones, plus {@link SelectionKey#OP_READ} if reading is not suspended.
+     *
+     * @param interestOps the interest ops besides {@link SelectionKey#OP_READ}.
+     */
+    final void setInterestOps(int interestOps) {
+        synchronized (lock) {
+            int newInterestOps = interestOps & ~SelectionKey.OP_READ;
+            if (!isReadingSuspended()) {
+                newInterestOps |= SelectionKey.OP_READ;
+            }
+            applyInterestOps(newInterestOps);
+        }
+    }
+
+    protected abstract boolean isReadingSuspended();
+
+    protected abstract void applyInterestOps(int interestOps);
+}
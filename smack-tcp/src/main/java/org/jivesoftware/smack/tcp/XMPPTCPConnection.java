@@ -29,7 +29,6 @@ import java.net.Socket;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -58,13 +57,11 @@ import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.AlreadyConnectedException;
 import org.jivesoftware.smack.SmackException.AlreadyLoggedInException;
 import org.jivesoftware.smack.SmackException.ConnectionException;
-import org.jivesoftware.smack.SmackException.EndpointConnectionException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.SmackException.NotLoggedInException;
 import org.jivesoftware.smack.SmackException.OutgoingQueueFullException;
 import org.jivesoftware.smack.SmackException.SecurityNotPossibleException;
 import org.jivesoftware.smack.SmackException.SecurityRequiredByServerException;
-import org.jivesoftware.smack.SmackFuture;
 import org.jivesoftware.smack.StanzaListener;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPException;
@@ -73,9 +70,13 @@ import org.jivesoftware.smack.XMPPException.StreamErrorException;
 import org.jivesoftware.smack.compress.packet.Compress;
 import org.jivesoftware.smack.compress.packet.Compressed;
 import org.jivesoftware.smack.compression.XMPPInputOutputStream;
-import org.jivesoftware.smack.datatypes.UInt16;
 import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.internal.SmackTlsContext;
+import org.jivesoftware.smack.isr.InstResumedProvider;
+import org.jivesoftware.smack.isr.InstantStreamResumption;
+import org.jivesoftware.smack.isr.InstantStreamResumption.InstResume;
+import org.jivesoftware.smack.isr.InstantStreamResumption.InstResumed;
+import org.jivesoftware.smack.isr.InstantStreamResumptionFailedProvider;
 import org.jivesoftware.smack.packet.Element;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.Message;
@@ -112,7 +113,7 @@ import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.TLSUtils;
 import org.jivesoftware.smack.util.XmlStringBuilder;
-import org.jivesoftware.smack.util.rce.RemoteConnectionException;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpoint;
 import org.jivesoftware.smack.xml.SmackXmlParser;
 import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
@@ -134,6 +135,11 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     private static final int QUEUE_SIZE = 500;
     private static final Logger LOGGER = Logger.getLogger(XMPPTCPConnection.class.getName());
 
+    /**
+     * The maximum number of concurrently pending connection attempts, each of which blocks a thread.
+     */
+    private static final int MAX_PENDING_CONNECTION_ATTEMPTS = 4;
+
     /**
      * The socket which is used for this connection.
      */
@@ -185,6 +191,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
     private static boolean useSmResumptionDefault = true;
 
+    private static boolean useIsrDefault = true;
+
     /**
      * The stream ID of the stream that is currently resumable, i.e. the stream we hold the state
      * for in {@link #clientHandledStanzasCount}, {@link #serverHandledStanzasCount} and
@@ -225,6 +233,24 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     private boolean useSm = useSmDefault;
     private boolean useSmResumption = useSmResumptionDefault;
 
+    /**
+     * Indicates whether Instant Stream Resumption (XEP-0397) should be used if it's supported by the server.
+     */
+    private boolean useIsr = useIsrDefault;
+
+    /**
+     * The key to authenticate the next instant resumption of the stream identified by {@link #smSessionId}, or
+     * <code>null</code> if the stream can not be instantly resumed. Every key can only be used once.
+     */
+    private String isrKey;
+
+    /**
+     * The key used by the instant resumption currently in progress, which authenticates the response of the server.
+     */
+    private volatile String isrPendingKey;
+
+    private InstantStreamResumption.Failed isrFailed;
+
     /**
      * The counter that the server sends the client about it's current height. For example, if the server sends
      * {@code <a h='42'/>}, then this will be set to 42 (while also handling the {@link #unacknowledgedStanzas} queue).
@@ -377,6 +403,14 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     @Override
     protected synchronized void loginInternal(String username, String password, Resourcepart resource) throws XMPPException,
                     SmackException, IOException, InterruptedException {
+        // Check for Instant Stream Resumption support before the stream features get replaced by the ones announced
+        // after the authentication.
+        final boolean isrSupported = hasFeature(InstantStreamResumption.Feature.QNAME);
+        if (isrSupported && isInstantStreamResumptionPossible() && instantlyResumeStream()) {
+            afterSuccessfulLogin(true);
+            return;
+        }
+
         // Authenticate using SASL
         SSLSession sslSession = secureSocket != null ? secureSocket.getSession() : null;
 
@@ -436,7 +470,9 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         if (isSmAvailable() && useSm) {
             // Remove what is maybe left from previously stream managed sessions
             serverHandledStanzasCount = 0;
-            sendNonza(new Enable(useSmResumption, smClientMaxResumptionTime));
+            boolean requestIsr = useSmResumption && useIsr
+                            && (isrSupported || hasFeature(InstantStreamResumption.Feature.QNAME));
+            sendNonza(new Enable(useSmResumption, smClientMaxResumptionTime, requestIsr));
             // XEP-198 3. Enabling Stream Management. If the server response to 'Enable' is 'Failed'
             // then this is a non recoverable error and we therefore throw an exception.
             waitForConditionOrThrowConnectionException(() -> smEnabledSyncPoint, "enabling stream mangement");
@@ -472,6 +508,73 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         afterSuccessfulLogin(false);
     }
 
+    /**
+     * Instantly resume the previous stream, authenticated by the key obtained when enabling Stream Management or by the
+     * last instant resumption, instead of authenticating with SASL and resuming the stream afterwards.
+     *
+     * @return <code>true</code> if the stream was resumed, <code>false</code> if the server rejected the instant
+     *         resumption and the normal authentication has to be performed.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws SmackException if Smack detected an exceptional situation.
+     * @throws XMPPException if an XMPP protocol error was received.
+     */
+    private boolean instantlyResumeStream() throws InterruptedException, SmackException, XMPPException {
+        // Every key can only be used once, independently of the outcome.
+        final String key = isrKey;
+        isrKey = null;
+        isrPendingKey = key;
+        isrFailed = null;
+        smResumedSyncPoint = SyncPointState.request_sent;
+        try {
+            sendNonza(InstResume.create(smSessionId, clientHandledStanzasCount, key));
+            waitForConditionOrThrowConnectionException(
+                            () -> smResumedSyncPoint == SyncPointState.successful || isrFailed != null,
+                            "instantly resume previous stream");
+        } finally {
+            isrPendingKey = null;
+        }
+        if (smResumedSyncPoint == SyncPointState.successful) {
+            return true;
+        }
+
+        // Fall back to the authentication using SASL, which may be followed by a normal stream resumption.
+        LOGGER.fine("Instant stream resumption failed, continuing with normal authentication: " + isrFailed);
+        smResumedSyncPoint = SyncPointState.initial;
+        return false;
+    }
+
+    /**
+     * Handle the successful resumption of the previous stream, either via Stream Management or Instant Stream
+     * Resumption.
+     *
+     * @param handledCount the number of stanzas handled by the server.
+     * @throws StreamManagementCounterError if the handled count does not match the unacknowledged stanzas.
+     * @throws NotConnectedException if the connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    private void onStreamResumed(long handledCount)
+                    throws StreamManagementCounterError, NotConnectedException, InterruptedException {
+        // Mark SM as enabled
+        smEnabledSyncPoint = true;
+        // First, drop the stanzas already handled by the server
+        processHandledCount(handledCount);
+        // Then re-send what is left in the unacknowledged queue
+        List<Stanza> stanzasToResend = new ArrayList<>(unacknowledgedStanzas.size());
+        unacknowledgedStanzas.drainTo(stanzasToResend);
+        for (Stanza stanza : stanzasToResend) {
+            sendInternal(stanza);
+        }
+        // If there where stanzas resent, then request a SM ack for them.
+        // Writer's sendStreamElement() won't do it automatically based on
+        // predicates.
+        if (!stanzasToResend.isEmpty()) {
+            requestSmAcknowledgementInternal();
+        }
+        // Mark SM resumption as successful
+        smResumedSyncPoint = SyncPointState.successful;
+        notifyWaitingThreads();
+    }
+
     @Override
     public boolean isSecureConnection() {
         return secureSocket != null;
@@ -606,78 +709,61 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
     private void connectUsingConfiguration() throws ConnectionException, IOException, InterruptedException {
         RemoteXmppTcpConnectionEndpoints.Result<Rfc6120TcpRemoteConnectionEndpoint> result = RemoteXmppTcpConnectionEndpoints.lookup(config);
 
-        List<RemoteConnectionException<Rfc6120TcpRemoteConnectionEndpoint>> connectionExceptions = new ArrayList<>();
-
         SocketFactory socketFactory = config.getSocketFactory();
-        ProxyInfo proxyInfo = config.getProxyInfo();
-        int timeout = config.getConnectTimeout();
+        final ProxyInfo proxyInfo = config.getProxyInfo();
+        final int timeout = config.getConnectTimeout();
         if (socketFactory == null) {
             socketFactory = SocketFactory.getDefault();
         }
-        for (Rfc6120TcpRemoteConnectionEndpoint endpoint : result.discoveredRemoteConnectionEndpoints) {
-            Iterator<? extends InetAddress> inetAddresses;
-            String host = endpoint.getHost().toString();
-            UInt16 portUint16 = endpoint.getPort();
-            int port = portUint16.intValue();
-            if (proxyInfo == null) {
-                inetAddresses = endpoint.getInetAddresses().iterator();
-                assert inetAddresses.hasNext();
-
-                innerloop: while (inetAddresses.hasNext()) {
-                    // Create a *new* Socket before every connection attempt, i.e. connect() call, since Sockets are not
-                    // re-usable after a failed connection attempt. See also SMACK-724.
-                    SmackFuture.SocketFuture socketFuture = new SmackFuture.SocketFuture(socketFactory);
-
-                    final InetAddress inetAddress = inetAddresses.next();
-                    final InetSocketAddress inetSocketAddress = new InetSocketAddress(inetAddress, port);
+        final SocketFactory finalSocketFactory = socketFactory;
+        List<RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint>> addresses;
+        if (proxyInfo == null) {
+            addresses = RacingConnector.interleaveAddresses(result.discoveredRemoteConnectionEndpoints);
+        } else {
+            // Pass the host names to the proxy, which resolves them itself. Resolving them locally could leak DNS
+            // queries and fails if only the proxy is able to resolve the host.
+            addresses = RacingConnector.unresolvedAddresses(result.discoveredRemoteConnectionEndpoints);
+        }
+        RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket> racingConnector = new RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket>(
+                        addresses, timeout,
+                        RacingConnector.getDefaultConnectionAttemptDelay(), MAX_PENDING_CONNECTION_ATTEMPTS) {
+            @Override
+            protected Socket startConnectionAttempt(Attempt attempt) throws IOException {
+                // Create a *new* Socket for every connection attempt, since Sockets are not re-usable after a
+                // failed connection attempt. See also SMACK-724.
+                final Socket socket = finalSocketFactory.createSocket();
+                final InetSocketAddress inetSocketAddress = attempt.getAddress().getInetSocketAddress();
+                if (proxyInfo == null) {
                     LOGGER.finer("Trying to establish TCP connection to " + inetSocketAddress);
-                    socketFuture.connectAsync(inetSocketAddress, timeout);
-
+                } else {
+                    LOGGER.finer("Trying to establish TCP connection via Proxy to " + inetSocketAddress);
+                }
+                asyncGo(() -> {
                     try {
-                        socket = socketFuture.getOrThrow();
-                    } catch (IOException e) {
-                        RemoteConnectionException<Rfc6120TcpRemoteConnectionEndpoint> rce = new RemoteConnectionException<>(
-                                        endpoint, inetAddress, e);
-                        connectionExceptions.add(rce);
-                        if (inetAddresses.hasNext()) {
-                            continue innerloop;
+                        if (proxyInfo == null) {
+                            socket.connect(inetSocketAddress, timeout);
                         } else {
-                            break innerloop;
+                            proxyInfo.getProxySocketConnection().connect(socket, inetSocketAddress.getHostString(),
+                                            inetSocketAddress.getPort(), timeout);
                         }
+                    } catch (IOException e) {
+                        attempt.failed(e);
+                        return;
                     }
-                    LOGGER.finer("Established TCP connection to " + inetSocketAddress);
-                    // We found a host to connect to, return here
-                    this.host = host;
-                    this.port = portUint16;
-                    return;
-                }
-            } else {
-                // TODO: Move this into the inner-loop above. There appears no reason why we should not try a proxy
-                // connection to every inet address of each connection endpoint.
-                socket = socketFactory.createSocket();
-                StringUtils.requireNotNullNorEmpty(host, "Host of endpoint " + endpoint + " must not be null when using a Proxy");
-                final String hostAndPort = host + " at port " + port;
-                LOGGER.finer("Trying to establish TCP connection via Proxy to " + hostAndPort);
-                try {
-                    proxyInfo.getProxySocketConnection().connect(socket, host, port, timeout);
-                } catch (IOException e) {
-                    CloseableUtil.maybeClose(socket, LOGGER);
-                    RemoteConnectionException<Rfc6120TcpRemoteConnectionEndpoint> rce = new RemoteConnectionException<>(endpoint, null, e);
-                    connectionExceptions.add(rce);
-                    continue;
-                }
-                LOGGER.finer("Established TCP connection to " + hostAndPort);
-                // We found a host to connect to, return here
-                this.host = host;
-                this.port = portUint16;
-                return;
+                    attempt.succeeded(socket);
+                });
+                return socket;
             }
-        }
+        };
+
+        RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket>.Attempt winner = racingConnector.race(
+                        result.lookupFailures);
 
-        // There are no more host addresses to try
-        // throw an exception and report all tried
-        // HostAddresses in the exception
-        throw EndpointConnectionException.from(result.lookupFailures, connectionExceptions);
+        Rfc6120TcpRemoteConnectionEndpoint endpoint = winner.getAddress().getRemoteConnectionEndpoint();
+        LOGGER.finer("Established TCP connection to " + winner.getAddress());
+        socket = winner.getConnection();
+        this.host = endpoint.getHost().toString();
+        this.port = endpoint.getPort();
     }
 
     /**
@@ -965,6 +1051,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
          */
         void shutdown() {
             done = true;
+            // Wake up the reader in case it is waiting because the reading is suspended.
+            notifyReadingSuspensionWaiters();
         }
 
         /**
@@ -989,6 +1077,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                             } finally {
                                 clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
                             }
+                            // Pause reading from the socket while a stanza publisher applies backpressure.
+                            waitWhileReadingSuspended(() -> done);
                             break;
                         case "stream":
                             if (StreamOpen.ETHERX_JABBER_STREAMS_NAMESPACE.equals(namespace)) {
@@ -1048,9 +1138,12 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                                     throw xmppException;
                                 }
                                 smServerMaxResumptionTime = enabled.getMaxResumptionTime();
+                                InstantStreamResumption.Enabled isrEnabled = enabled.getInstantStreamResumption();
+                                isrKey = isrEnabled != null ? isrEnabled.getKey() : null;
                             } else {
                                 // Mark this a non-resumable stream by setting smSessionId to null
                                 smSessionId = null;
+                                isrKey = null;
                             }
                             clientHandledStanzasCount = 0;
                             smWasEnabledAtLeastOnce = true;
@@ -1058,6 +1151,13 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                             notifyWaitingThreads();
                             break;
                         case Failed.ELEMENT:
+                            if (InstantStreamResumption.NAMESPACE.equals(namespace)) {
+                                // The instant resumption was rejected, which is non-fatal as we can continue with the
+                                // normal authentication in this case.
+                                isrFailed = InstantStreamResumptionFailedProvider.INSTANCE.parse(parser);
+                                notifyWaitingThreads();
+                                break;
+                            }
                             Failed failed = ParseStreamManagement.failed(parser);
                             if (smResumedSyncPoint == SyncPointState.request_sent) {
                                 // This is a <failed/> nonza in a response to resuming a previous stream, failure to do
@@ -1074,25 +1174,23 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                             if (!smSessionId.equals(resumed.getPrevId())) {
                                 throw new StreamIdDoesNotMatchException(smSessionId, resumed.getPrevId());
                             }
-                            // Mark SM as enabled
-                            smEnabledSyncPoint = true;
-                            // First, drop the stanzas already handled by the server
-                            processHandledCount(resumed.getHandledCount());
-                            // Then re-send what is left in the unacknowledged queue
-                            List<Stanza> stanzasToResend = new ArrayList<>(unacknowledgedStanzas.size());
-                            unacknowledgedStanzas.drainTo(stanzasToResend);
-                            for (Stanza stanza : stanzasToResend) {
-                                XMPPTCPConnection.this.sendInternal(stanza);
+                            onStreamResumed(resumed.getHandledCount());
+                            break;
+                        case InstResumed.ELEMENT:
+                            InstResumed instResumed = InstResumedProvider.INSTANCE.parse(parser);
+                            String usedIsrKey = isrPendingKey;
+                            if (usedIsrKey == null) {
+                                throw new SmackException.SmackMessageException(
+                                                "Received unexpected Instant Stream Resumption response");
                             }
-                            // If there where stanzas resent, then request a SM ack for them.
-                            // Writer's sendStreamElement() won't do it automatically based on
-                            // predicates.
-                            if (!stanzasToResend.isEmpty()) {
-                                requestSmAcknowledgementInternal();
+                            if (!instResumed.isAuthenticatedBy(usedIsrKey)) {
+                                // The server does not know the key, we must not resume the stream with it.
+                                throw new SmackException.SmackMessageException(
+                                                "Instant Stream Resumption response failed the HMAC verification");
                             }
-                            // Mark SM resumption as successful
-                            smResumedSyncPoint = SyncPointState.successful;
-                            notifyWaitingThreads();
+                            // The new key authenticates the next instant resumption.
+                            isrKey = instResumed.getKey();
+                            onStreamResumed(instResumed.getHandledCount());
                             break;
                         case AckAnswer.ELEMENT:
                             AckAnswer ackAnswer = ParseStreamManagement.ackAnswer(parser);
@@ -1282,6 +1380,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                 // If the method above did not throw, then the sending thread was interrupted
                 throw e;
             }
+            recordOutgoingQueueDepth(queue);
         }
 
         /**
@@ -1298,6 +1397,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                 throwNotConnectedExceptionIfDoneAndResumptionNotPossible();
                 throw new OutgoingQueueFullException();
             }
+            recordOutgoingQueueDepth(queue);
         }
 
         /**
@@ -1531,6 +1631,16 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         XMPPTCPConnection.useSmResumptionDefault = useSmResumptionDefault;
     }
 
+    /**
+     * Set if Instant Stream Resumption (XEP-0397) should be used by default for new connections.
+     *
+     * @param useIsrDefault true to use Instant Stream Resumption for new connections.
+     * @since 4.5
+     */
+    public static void setUseInstantStreamResumptionDefault(boolean useIsrDefault) {
+        XMPPTCPConnection.useIsrDefault = useIsrDefault;
+    }
+
     /**
      * Set if Stream Management should be used if supported by the server.
      *
@@ -1553,6 +1663,18 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         this.useSmResumption = useSmResumption;
     }
 
+    /**
+     * Set if Instant Stream Resumption (XEP-0397) should be used if supported by the server. Instant Stream Resumption
+     * allows to resume a stream in a single round trip, without authenticating with SASL first. It requires Stream
+     * Management resumption to be enabled.
+     *
+     * @param useIsr true to use Instant Stream Resumption.
+     * @since 4.5
+     */
+    public void setUseInstantStreamResumption(boolean useIsr) {
+        this.useIsr = useIsr;
+    }
+
     /**
      * Set the preferred resumption time in seconds.
      * @param resumptionTime the preferred resumption time in seconds
@@ -1817,6 +1939,17 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         }
     }
 
+    /**
+     * Returns true if the stream is resumable via Instant Stream Resumption (XEP-0397), i.e., if it is resumable and
+     * we hold a key to authenticate the instant resumption.
+     *
+     * @return true if the stream can be instantly resumed.
+     * @since 4.5
+     */
+    public boolean isInstantStreamResumptionPossible() {
+        return useIsr && isrKey != null && isSmResumptionPossible();
+    }
+
     /**
      * Drop the stream management state. Sets {@link #smSessionId} and
      * {@link #unacknowledgedStanzas} to <code>null</code>.
@@ -1826,6 +1959,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         // respective. No need to reset them here.
         smSessionId = null;
         unacknowledgedStanzas = null;
+        isrKey = null;
     }
 
     /**
@@ -105,6 +105,23 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
     private final XmppTcpNioTransport tcpNioTransport;
 
     private SelectionKey selectionKey;
+
+    private final ReadAwareInterestOps readAwareInterestOps = new ReadAwareInterestOps() {
+        @Override
+        protected boolean isReadingSuspended() {
+            return connectionInternal.isReadingSuspended();
+        }
+
+        @Override
+        protected void applyInterestOps(int interestOps) {
+            SelectionKey selectionKey = XmppTcpTransportModule.this.selectionKey;
+            if (selectionKey == null) {
+                return;
+            }
+            connectionInternal.setInterestOps(selectionKey, interestOps);
+        }
+    };
+
     private SelectionKeyAttachment selectionKeyAttachment;
     private SocketChannel socketChannel;
     private InetSocketAddress remoteAddress;
@@ -268,8 +285,11 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
     private void onChannelSelected(SelectableChannel selectedChannel, SelectionKey selectedSelectionKey) {
         assert selectionKey == null || selectionKey == selectedSelectionKey;
         SocketChannel selectedSocketChannel = (SocketChannel) selectedChannel;
-        // We are *always* interested in OP_READ.
-        int newInterestedOps = SelectionKey.OP_READ;
+        // We are always interested in OP_READ, unless a stanza publisher of the connection applies backpressure, in
+        // which case we stop reading until the reading is resumed. Note that OP_READ is added by readAwareInterestOps
+        // when the interest ops are set, as reading could be resumed while this callback is running.
+        final boolean readingSuspended = connectionInternal.isReadingSuspended();
+        int newInterestedOps = 0;
         boolean newPendingOutputFilterData = false;
 
         if (!channelSelectedCallbackLock.tryLock()) {
@@ -450,7 +470,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 newInterestedOps |= SelectionKey.OP_WRITE;
             }
 
-            readLoop: while (true) {
+            readLoop: while (!readingSuspended) {
                 // Prevent one callback from dominating the reactor thread. Break out of the read-loop if we have
                 // read a certain amount.
                 if (callbackBytesRead > CALLBACK_MAX_BYTES_READ) {
@@ -550,7 +570,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             newInterestedOps |= SelectionKey.OP_WRITE;
         }
 
-        connectionInternal.setInterestOps(selectionKey, newInterestedOps);
+        readAwareInterestOps.setInterestOps(newInterestedOps);
     }
 
     private void handleReadWriteIoException(IOException e) {
@@ -655,6 +675,15 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             afterOutgoingElementsQueueModified();
         }
 
+        @Override
+        protected void onReadingResumed() {
+            SelectionKey selectionKey = XmppTcpTransportModule.this.selectionKey;
+            if (selectionKey == null) {
+                return;
+            }
+            readAwareInterestOps.setInterestOps(SelectionKey.OP_WRITE);
+        }
+
         @Override
         public SSLSession getSslSession() {
             TlsState tlsState = XmppTcpTransportModule.this.tlsState;
@@ -718,7 +747,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         // Note that we need to perform setInterestedOps() *without* holding the channelSelectedCallbackLock, as
         // otherwise the reactor thread racing to the channel selected callback may found the lock still locked, which
         // would result in the outgoingElementsQueue not being handled.
-        connectionInternal.setInterestOps(selectionKey, SelectionKey.OP_WRITE | SelectionKey.OP_READ);
+        readAwareInterestOps.setInterestOps(SelectionKey.OP_WRITE);
     }
 
     @Override
@@ -881,7 +910,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             } finally {
                 channelSelectedCallbackLock.unlock();
             }
-            connectionInternal.setInterestOps(selectionKey, SelectionKey.OP_WRITE | SelectionKey.OP_READ);
+            readAwareInterestOps.setInterestOps(SelectionKey.OP_WRITE);
 
             try {
                 tlsState.waitForHandshakeFinished();
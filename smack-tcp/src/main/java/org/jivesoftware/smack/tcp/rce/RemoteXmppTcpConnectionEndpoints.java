@@ -182,6 +182,7 @@ public class RemoteXmppTcpConnectionEndpoints {
         DnsName srvDomain = DnsName.from(domainType.srvPrefix, domain);
 
         Collection<SRV> srvRecords = dnsResolver.lookupSrvRecords(srvDomain, lookupFailures, dnssecMode);
+        List<SRV> sortedSrvRecords;
         if (srvRecords != null && !srvRecords.isEmpty()) {
             if (LOGGER.isLoggable(Level.FINE)) {
                 String logMessage = "Resolved SRV RR for " + srvDomain + ":";
@@ -190,17 +191,10 @@ public class RemoteXmppTcpConnectionEndpoints {
                 LOGGER.fine(logMessage);
             }
 
-            List<SRV> sortedSrvRecords = SrvUtil.sortSrvRecords(srvRecords);
-
-            for (SRV srv : sortedSrvRecords) {
-                List<InetAddress> targetInetAddresses = dnsResolver.lookupHostAddress(srv.target, lookupFailures, dnssecMode);
-                if (targetInetAddresses != null) {
-                    SrvXmppRemoteConnectionEndpoint endpoint = new SrvXmppRemoteConnectionEndpoint(srv, targetInetAddresses);
-                    endpoints.add(endpoint);
-                }
-            }
+            sortedSrvRecords = SrvUtil.sortSrvRecords(srvRecords);
         } else {
             LOGGER.info("Could not resolve DNS SRV resource records for " + srvDomain + ". Consider adding those.");
+            sortedSrvRecords = Collections.emptyList();
         }
 
         UInt16 defaultPort;
@@ -215,8 +209,25 @@ public class RemoteXmppTcpConnectionEndpoints {
             throw new AssertionError();
         }
 
-        // Step two: Add the hostname to the end of the list
-        List<InetAddress> hostAddresses = dnsResolver.lookupHostAddress(domain, lookupFailures, dnssecMode);
+        // Step two: Resolve the SRV targets and the domain itself in parallel. The addresses of the domain are added
+        // to the end of the list.
+        List<DnsName> names = new ArrayList<>(sortedSrvRecords.size() + 1);
+        for (SRV srv : sortedSrvRecords) {
+            names.add(srv.target);
+        }
+        names.add(domain);
+
+        List<List<InetAddress>> resolvedNames = dnsResolver.lookupHostAddresses(names, lookupFailures, dnssecMode);
+
+        for (int i = 0; i < sortedSrvRecords.size(); i++) {
+            List<InetAddress> targetInetAddresses = resolvedNames.get(i);
+            if (targetInetAddresses != null) {
+                SrvXmppRemoteConnectionEndpoint endpoint = new SrvXmppRemoteConnectionEndpoint(sortedSrvRecords.get(i), targetInetAddresses);
+                endpoints.add(endpoint);
+            }
+        }
+
+        List<InetAddress> hostAddresses = resolvedNames.get(sortedSrvRecords.size());
         if (hostAddresses != null) {
             for (InetAddress inetAddress : hostAddresses) {
                 IpTcpRemoteConnectionEndpoint<InternetAddressRR<?>> endpoint = IpTcpRemoteConnectionEndpoint.from(domain, defaultPort, inetAddress);
@@ -0,0 +1,314 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
+import org.jivesoftware.smack.SmackException.EndpointConnectionException;
+import org.jivesoftware.smack.tcp.rce.RemoteXmppTcpConnectionEndpoints;
+import org.jivesoftware.smack.tcp.rce.Rfc6120TcpRemoteConnectionEndpoint;
+import org.jivesoftware.smack.util.Async;
+import org.jivesoftware.smack.util.DNSUtil;
+import org.jivesoftware.smack.util.dns.DNSResolver;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpoint;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.minidns.dnsname.DnsName;
+import org.minidns.record.SRV;
+
+public class RacingConnectorTest {
+
+    /**
+     * An address of the TEST-NET-1 block (RFC 5737), which is used to simulate an unresponsive host.
+     */
+    private static final InetAddress BLACKHOLE_ADDRESS;
+
+    static {
+        try {
+            BLACKHOLE_ADDRESS = InetAddress.getByName("192.0.2.1");
+        } catch (UnknownHostException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static final DnsName DOMAIN = DnsName.from("example.org");
+
+    private DNSResolver previousDnsResolver;
+
+    private ServerSocket serverSocket;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        previousDnsResolver = DNSUtil.getDNSResolver();
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (previousDnsResolver != null) {
+            DNSUtil.setDNSResolver(previousDnsResolver);
+        }
+        serverSocket.close();
+    }
+
+    @Test
+    public void interleaveAddressesTest() throws UnknownHostException {
+        InetAddress ipv6a = InetAddress.getByName("2001:db8::1");
+        InetAddress ipv6b = InetAddress.getByName("2001:db8::2");
+        InetAddress ipv4a = InetAddress.getByName("192.0.2.10");
+        InetAddress ipv4b = InetAddress.getByName("192.0.2.11");
+
+        StubDnsResolver resolver = new StubDnsResolver();
+        resolver.addHost(DOMAIN, ipv6a, ipv6b, ipv4a, ipv4b);
+        DNSUtil.setDNSResolver(resolver);
+
+        List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = resolveEndpoints();
+        List<RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint>> addresses = RacingConnector.interleaveAddresses(
+                        endpoints);
+
+        List<InetAddress> orderedAddresses = new ArrayList<>(addresses.size());
+        for (RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address : addresses) {
+            orderedAddresses.add(address.getInetSocketAddress().getAddress());
+        }
+        assertEquals(Arrays.asList(ipv6a, ipv4a, ipv6b, ipv4b), orderedAddresses);
+    }
+
+    @Test
+    public void unresolvedAddressesTest() throws UnknownHostException {
+        StubDnsResolver resolver = new StubDnsResolver();
+        resolver.addSrv(new SRV(0, 0, 5222, "xmpp.example.org"));
+        resolver.addHost(DnsName.from("xmpp.example.org"), InetAddress.getByName("192.0.2.10"),
+                        InetAddress.getByName("192.0.2.11"));
+        resolver.addHost(DOMAIN, InetAddress.getByName("192.0.2.20"), InetAddress.getByName("192.0.2.21"));
+        DNSUtil.setDNSResolver(resolver);
+
+        List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = resolveEndpoints();
+        List<RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint>> addresses = RacingConnector.unresolvedAddresses(
+                        endpoints);
+
+        // One address per host, instead of one per resolved address.
+        assertEquals(2, addresses.size());
+        InetSocketAddress srvTarget = addresses.get(0).getInetSocketAddress();
+        assertTrue(srvTarget.isUnresolved());
+        assertEquals("xmpp.example.org", srvTarget.getHostString());
+        assertEquals(5222, srvTarget.getPort());
+        InetSocketAddress domain = addresses.get(1).getInetSocketAddress();
+        assertTrue(domain.isUnresolved());
+        assertEquals(DOMAIN.toString(), domain.getHostString());
+    }
+
+    @Test
+    public void blackholedSrvTargetDoesNotDelayConnectionTest() throws EndpointConnectionException, InterruptedException {
+        StubDnsResolver resolver = new StubDnsResolver();
+        resolver.addSrv(new SRV(0, 0, 5222, "blackhole.example.org"));
+        resolver.addSrv(new SRV(10, 0, serverSocket.getLocalPort(), "xmpp.example.org"));
+        resolver.addHost(DnsName.from("blackhole.example.org"), BLACKHOLE_ADDRESS);
+        resolver.addHost(DnsName.from("xmpp.example.org"), InetAddress.getLoopbackAddress());
+        DNSUtil.setDNSResolver(resolver);
+
+        List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = resolveEndpoints();
+        assertEquals(2, endpoints.size());
+
+        final long connectTimeout = 60000;
+        List<Socket> blackholeSockets = new ArrayList<>();
+        RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket> racingConnector = new TestRacingConnector(endpoints,
+                        connectTimeout, blackholeSockets);
+
+        long start = System.currentTimeMillis();
+        RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket>.Attempt winner = racingConnector.race(
+                        new ArrayList<>());
+        long duration = System.currentTimeMillis() - start;
+
+        try (Socket socket = winner.getConnection()) {
+            assertTrue(socket.isConnected());
+            assertEquals(serverSocket.getLocalPort(), socket.getPort());
+        }
+        assertTrue(duration < connectTimeout / 2, "Connection establishment took " + duration + "ms");
+
+        // The attempt to the blackholed address lost the race and must have been aborted.
+        assertEquals(1, blackholeSockets.size());
+        assertTrue(blackholeSockets.get(0).isClosed());
+    }
+
+    @Test
+    public void allAttemptsFailTest() throws IOException {
+        // Obtain a loopback port on which nobody is listening.
+        int closedPort;
+        try (ServerSocket closedServerSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            closedPort = closedServerSocket.getLocalPort();
+        }
+
+        StubDnsResolver resolver = new StubDnsResolver();
+        resolver.addSrv(new SRV(0, 0, closedPort, "xmpp.example.org"));
+        resolver.addHost(DnsName.from("xmpp.example.org"), InetAddress.getLoopbackAddress());
+        resolver.addHost(DOMAIN, BLACKHOLE_ADDRESS);
+        DNSUtil.setDNSResolver(resolver);
+
+        List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = resolveEndpoints();
+
+        // Use a short connect timeout, so that the attempt to the blackholed address times out quickly.
+        RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket> racingConnector = new TestRacingConnector(endpoints,
+                        200, new ArrayList<>());
+
+        EndpointConnectionException exception = assertThrows(EndpointConnectionException.class,
+                        () -> racingConnector.race(new ArrayList<>()));
+        assertEquals(2, exception.getConnectionExceptions().size());
+    }
+
+    @Test
+    public void pendingAttemptsAreLimitedTest() throws EndpointConnectionException, InterruptedException {
+        StubDnsResolver resolver = new StubDnsResolver();
+        resolver.addSrv(new SRV(0, 0, 5222, "blackhole.example.org"));
+        resolver.addSrv(new SRV(0, 0, 5223, "blackhole.example.org"));
+        resolver.addSrv(new SRV(10, 0, serverSocket.getLocalPort(), "xmpp.example.org"));
+        resolver.addHost(DnsName.from("blackhole.example.org"), BLACKHOLE_ADDRESS);
+        resolver.addHost(DnsName.from("xmpp.example.org"), InetAddress.getLoopbackAddress());
+        DNSUtil.setDNSResolver(resolver);
+
+        List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = resolveEndpoints();
+        assertEquals(3, endpoints.size());
+
+        final long connectTimeout = 200;
+        List<Socket> blackholeSockets = new ArrayList<>();
+        TestRacingConnector racingConnector = new TestRacingConnector(endpoints, connectTimeout, 1, blackholeSockets);
+
+        long start = System.currentTimeMillis();
+        RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket>.Attempt winner = racingConnector.race(
+                        new ArrayList<>());
+        long duration = System.currentTimeMillis() - start;
+
+        try (Socket socket = winner.getConnection()) {
+            assertEquals(serverSocket.getLocalPort(), socket.getPort());
+        }
+        // Every attempt was only started after the previous one timed out.
+        assertEquals(1, racingConnector.maxPendingAttempts);
+        assertTrue(duration >= 2 * connectTimeout, "Connection establishment took " + duration + "ms");
+        assertEquals(2, blackholeSockets.size());
+        assertTrue(blackholeSockets.get(0).isClosed());
+        assertTrue(blackholeSockets.get(1).isClosed());
+    }
+
+    private static List<Rfc6120TcpRemoteConnectionEndpoint> resolveEndpoints() {
+        List<RemoteConnectionEndpointLookupFailure> lookupFailures = new ArrayList<>();
+        List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = RemoteXmppTcpConnectionEndpoints.resolveXmppServiceDomain(
+                        DOMAIN, lookupFailures, DnssecMode.disabled);
+        return endpoints;
+    }
+
+    private static final class TestRacingConnector extends RacingConnector<Rfc6120TcpRemoteConnectionEndpoint, Socket> {
+        private final List<Socket> blackholeSockets;
+
+        private int maxPendingAttempts;
+
+        private TestRacingConnector(List<Rfc6120TcpRemoteConnectionEndpoint> endpoints, long connectTimeout,
+                        List<Socket> blackholeSockets) {
+            this(endpoints, connectTimeout, Integer.MAX_VALUE, blackholeSockets);
+        }
+
+        private TestRacingConnector(List<Rfc6120TcpRemoteConnectionEndpoint> endpoints, long connectTimeout,
+                        int maxPendingAttempts, List<Socket> blackholeSockets) {
+            super(interleaveAddresses(endpoints), connectTimeout, 50, maxPendingAttempts);
+            this.blackholeSockets = blackholeSockets;
+        }
+
+        @Override
+        protected Socket startConnectionAttempt(Attempt attempt) {
+            // The sockets of failed or aborted attempts are closed, hence every open socket belongs to a pending
+            // attempt.
+            int pendingAttempts = 1;
+            for (Socket blackholeSocket : blackholeSockets) {
+                if (!blackholeSocket.isClosed()) {
+                    pendingAttempts++;
+                }
+            }
+            maxPendingAttempts = Math.max(maxPendingAttempts, pendingAttempts);
+
+            InetSocketAddress inetSocketAddress = attempt.getAddress().getInetSocketAddress();
+            Socket socket = new Socket();
+            if (inetSocketAddress.getAddress().equals(BLACKHOLE_ADDRESS)) {
+                // Simulate an unresponsive host, whose connection attempt neither succeeds nor fails.
+                blackholeSockets.add(socket);
+                return socket;
+            }
+
+            Async.go(() -> {
+                try {
+                    socket.connect(inetSocketAddress);
+                } catch (IOException e) {
+                    attempt.failed(e);
+                    return;
+                }
+                attempt.succeeded(socket);
+            });
+            return socket;
+        }
+    }
+
+    private static final class StubDnsResolver extends DNSResolver {
+        private final List<SRV> srvRecords = new ArrayList<>();
+
+        private final Map<DnsName, List<InetAddress>> hosts = new HashMap<>();
+
+        private StubDnsResolver() {
+            super(false);
+        }
+
+        private void addSrv(SRV srv) {
+            srvRecords.add(srv);
+        }
+
+        private void addHost(DnsName name, InetAddress... inetAddresses) {
+            hosts.put(name, Arrays.asList(inetAddresses));
+        }
+
+        @Override
+        protected Collection<SRV> lookupSrvRecords0(DnsName name, List<RemoteConnectionEndpointLookupFailure> lookupFailures,
+                        DnssecMode dnssecMode) {
+            return srvRecords;
+        }
+
+        @Override
+        protected List<InetAddress> lookupHostAddress0(DnsName name,
+                        List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+            List<InetAddress> inetAddresses = hosts.get(name);
+            if (inetAddresses == null) {
+                lookupFailures.add(new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(name,
+                                new UnknownHostException(name.toString())));
+            }
+            return inetAddresses;
+        }
+    }
+}
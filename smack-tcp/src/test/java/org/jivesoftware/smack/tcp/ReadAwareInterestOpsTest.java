@@ -0,0 +1,109 @@
+/**
+ *
+ * Copyright the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.channels.SelectionKey;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+public class ReadAwareInterestOpsTest {
+
+    @Test
+    public void readInterestDependsOnReadingSuspensionTest() {
+        TestInterestOps interestOps = new TestInterestOps(true);
+
+        interestOps.setInterestOps(SelectionKey.OP_WRITE | SelectionKey.OP_READ);
+        assertEquals(SelectionKey.OP_WRITE, interestOps.lastInterestOps());
+
+        interestOps.readingSuspended.set(false);
+        interestOps.setInterestOps(0);
+        assertEquals(SelectionKey.OP_READ, interestOps.lastInterestOps());
+    }
+
+    /**
+     * Simulates a channel selected callback which computes its interest ops while reading is suspended, and a resume of
+     * reading which happens before the callback sets the interest ops. The resume must not be overwritten.
+     *
+     * @throws InterruptedException if the test was interrupted.
+     */
+    @Test
+    public void resumeDuringSelectionIsNotLostTest() throws InterruptedException {
+        final CountDownLatch resumed = new CountDownLatch(1);
+        final TestInterestOps interestOps = new TestInterestOps(true);
+        final Thread resumingThread = new Thread(() -> {
+            // This is what resumeReading() does: first lift the suspension, then set the interest ops.
+            interestOps.readingSuspended.set(false);
+            resumed.countDown();
+            interestOps.setInterestOps(SelectionKey.OP_WRITE);
+        });
+
+        interestOps.onReadingSuspendedCheck = () -> {
+            // Reading was found to be suspended, now resume reading while the callback is still running.
+            boolean suspended = interestOps.readingSuspended.get();
+            if (!resumingThread.isAlive()) {
+                resumingThread.start();
+                try {
+                    resumed.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            return suspended;
+        };
+
+        // The channel selected callback, which observes the stale suspension.
+        interestOps.setInterestOps(0);
+        resumingThread.join();
+
+        assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, interestOps.lastInterestOps());
+    }
+
+    private static final class TestInterestOps extends ReadAwareInterestOps {
+        private final AtomicBoolean readingSuspended;
+        private final List<Integer> appliedInterestOps = new CopyOnWriteArrayList<>();
+        private volatile BooleanSupplier onReadingSuspendedCheck;
+
+        private TestInterestOps(boolean readingSuspended) {
+            this.readingSuspended = new AtomicBoolean(readingSuspended);
+        }
+
+        @Override
+        protected boolean isReadingSuspended() {
+            BooleanSupplier onReadingSuspendedCheck = this.onReadingSuspendedCheck;
+            if (onReadingSuspendedCheck != null) {
+                return onReadingSuspendedCheck.getAsBoolean();
+            }
+            return readingSuspended.get();
+        }
+
+        @Override
+        protected void applyInterestOps(int interestOps) {
+            appliedInterestOps.add(interestOps);
+        }
+
+        private int lastInterestOps() {
+            return appliedInterestOps.get(appliedInterestOps.size() - 1);
+        }
+    }
+}
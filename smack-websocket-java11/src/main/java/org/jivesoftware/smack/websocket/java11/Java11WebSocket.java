@@ -28,7 +28,6 @@ import java.util.logging.Level;
 import javax.net.ssl.SSLSession;
 
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
-import org.jivesoftware.smack.util.LazyStringBuilder;
 import org.jivesoftware.smack.websocket.impl.AbstractWebSocket;
 import org.jivesoftware.smack.websocket.rce.WebSocketRemoteConnectionEndpoint;
 
@@ -54,19 +53,19 @@ public final class Java11WebSocket extends AbstractWebSocket {
                 webSocket.request(1);
             }
 
-            LazyStringBuilder received = new LazyStringBuilder();
-
             @Override
             public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
-                received.append(data);
+                // Process the data before requesting the next message, as the listener must not access the data
+                // once it requested more.
+                onIncomingWebSocketText(data, last);
                 webSocket.request(1);
+                return null;
+            }
 
-                if (last) {
-                    String wholeMessage = received.toString();
-                    received = new LazyStringBuilder();
-                    onIncomingWebSocketElement(wholeMessage);
-                }
-
+            @Override
+            public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+                onIncomingWebSocketBinary(data, last);
+                webSocket.request(1);
                 return null;
             }
 
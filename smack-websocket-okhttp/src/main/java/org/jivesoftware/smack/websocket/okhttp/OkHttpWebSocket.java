@@ -29,6 +29,7 @@ import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okio.ByteString;
 
 public final class OkHttpWebSocket extends AbstractWebSocket {
 
@@ -63,6 +64,12 @@ public final class OkHttpWebSocket extends AbstractWebSocket {
             onIncomingWebSocketElement(text);
         }
 
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+            // OkHttp delivers only complete messages. Decode the bytes without creating an intermediate String.
+            onIncomingWebSocketBinary(bytes.asByteBuffer(), true);
+        }
+
         @Override
         public void onFailure(WebSocket webSocket, Throwable throwable, Response response) {
             LOGGER.log(Level.FINER, "OkHttp invoked onFailure() for " + webSocket + ". Response: " + response, throwable);
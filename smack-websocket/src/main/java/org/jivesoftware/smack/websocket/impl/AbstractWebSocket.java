@@ -17,7 +17,11 @@
 package org.jivesoftware.smack.websocket.impl;
 
 import java.io.IOException;
-import java.util.logging.Level;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLSession;
@@ -28,6 +32,7 @@ import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionIn
 import org.jivesoftware.smack.debugger.SmackDebugger;
 import org.jivesoftware.smack.packet.TopLevelStreamElement;
 import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.CharSequenceReader;
 import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.websocket.WebSocketException;
 import org.jivesoftware.smack.websocket.elements.WebSocketCloseElement;
@@ -49,6 +54,8 @@ public abstract class AbstractWebSocket {
 
     protected final WebSocketRemoteConnectionEndpoint endpoint;
 
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
     private final SmackWebSocketDebugger debugger;
 
     protected AbstractWebSocket(WebSocketRemoteConnectionEndpoint endpoint,
@@ -68,36 +75,133 @@ public abstract class AbstractWebSocket {
         return endpoint;
     }
 
-    private String streamOpen;
-    private String streamClose;
+    /**
+     * Buffers received WebSocket frame fragments until the last fragment of a message was received. The buffer is
+     * re-used for all messages of this WebSocket.
+     */
+    private final StringBuilder textFragments = new StringBuilder();
+
+    private ByteBuffer binaryFragments;
+
+    private final CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder();
+
+    /**
+     * Process a, potentially partial, text message received over this WebSocket. If {@code last} is
+     * <code>true</code> and no previous fragments of the message have been received, then the data is processed in
+     * place without copying it.
+     *
+     * @param data the received text.
+     * @param last <code>true</code> if this is the last fragment of the message.
+     * @since 4.5
+     */
+    protected final void onIncomingWebSocketText(CharSequence data, boolean last) {
+        if (textFragments.length() == 0 && last) {
+            onIncomingWebSocketElement(data);
+            return;
+        }
+
+        textFragments.append(data);
+        if (!last) {
+            return;
+        }
+
+        try {
+            onIncomingWebSocketElement(textFragments);
+        } finally {
+            textFragments.setLength(0);
+            if (textFragments.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                textFragments.trimToSize();
+            }
+        }
+    }
+
+    /**
+     * Process a, potentially partial, binary message received over this WebSocket. RFC 7395 mandates the use of text
+     * messages, but some WebSocket implementations hand out the UTF-8 encoded payload as bytes, which is decoded here
+     * without creating an intermediate {@link String}.
+     *
+     * @param data the received bytes.
+     * @param last <code>true</code> if this is the last fragment of the message.
+     * @since 4.5
+     */
+    protected final void onIncomingWebSocketBinary(ByteBuffer data, boolean last) {
+        ByteBuffer message;
+        if ((binaryFragments == null || binaryFragments.position() == 0) && last) {
+            message = data;
+        } else {
+            if (binaryFragments == null) {
+                binaryFragments = ByteBuffer.allocate(Math.max(data.remaining(), 1024));
+            } else if (binaryFragments.remaining() < data.remaining()) {
+                int newCapacity = Math.max(binaryFragments.capacity() * 2,
+                                binaryFragments.position() + data.remaining());
+                ByteBuffer enlargedBinaryFragments = ByteBuffer.allocate(newCapacity);
+                binaryFragments.flip();
+                enlargedBinaryFragments.put(binaryFragments);
+                binaryFragments = enlargedBinaryFragments;
+            }
+            binaryFragments.put(data);
+            if (!last) {
+                return;
+            }
+
+            binaryFragments.flip();
+            message = binaryFragments;
+        }
+
+        CharBuffer decodedMessage;
+        try {
+            decodedMessage = utf8Decoder.decode(message);
+        } catch (CharacterCodingException e) {
+            connectionInternal.notifyConnectionError(e);
+            return;
+        } finally {
+            if (message == binaryFragments) {
+                if (binaryFragments.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                    binaryFragments = null;
+                } else {
+                    binaryFragments.clear();
+                }
+            }
+        }
+
+        onIncomingWebSocketElement(decodedMessage);
+    }
 
-    protected final void onIncomingWebSocketElement(String element) {
+    protected final void onIncomingWebSocketElement(CharSequence element) {
         if (debugger != null) {
-            debugger.incoming(element);
+            debugger.incoming(element.toString());
+        }
+
+        // Parse the element only once: The same parser is used to determine if the element is part of the WebSocket
+        // framing (i.e., <open/> or <close/>), and, if not, to parse and process the element.
+        XmlPullParser parser;
+        try {
+            parser = PacketParserUtils.getParserFor(new CharSequenceReader(element));
+        } catch (XmlPullParserException | IOException e) {
+            connectionInternal.notifyConnectionError(e);
+            return;
         }
 
         // TODO: Once smack-websocket-java15 is there, we have to re-evaluate if the async operation here is still
         // required, or if it should only be performed if OkHTTP is used.
-        if (isOpenElement(element)) {
+        QName qname = parser.getQName();
+        if (qname.equals(WebSocketOpenElement.QNAME)) {
             // Transform the XMPP WebSocket <open/> element to a RFC 6120 <stream> open tag.
-            streamOpen = getStreamFromOpenElement(element);
-            streamClose = connectionInternal.onStreamOpen(streamOpen);
+            String streamOpen = getStreamFromOpenElement(element.toString());
+            connectionInternal.onStreamOpen(streamOpen);
             return;
         }
 
-        if (isCloseElement(element)) {
+        if (qname.equals(WebSocketCloseElement.QNAME)) {
             connectionInternal.onStreamClosed();
             return;
         }
 
         connectionInternal.withSmackDebugger(debugger -> debugger.onIncomingElementCompleted());
 
-        // TODO: Do we need to wrap the element again in the stream open to get the
-        // correct XML scoping (just like the modular TCP connection does)? It appears
-        // that this not really required, as onStreamOpen() will set the incomingStreamEnvironment, which is used for
-        // parsing.
-        String wrappedCompleteElement = streamOpen + element + streamClose;
-        connectionInternal.parseAndProcessElement(wrappedCompleteElement);
+        // There is no need to wrap the element in the stream open to get the correct XML scoping (like the modular
+        // TCP connection does), as onStreamOpen() sets the incoming stream XML environment, which is used for parsing.
+        connectionInternal.parseAndProcessElement(parser);
     }
 
     static String getStreamFromOpenElement(String openElement) {
@@ -109,30 +213,6 @@ public abstract class AbstractWebSocket {
         return streamElement;
     }
 
-    static boolean isOpenElement(String text) {
-        XmlPullParser parser;
-        try {
-            parser = PacketParserUtils.getParserFor(text);
-            QName qname = parser.getQName();
-            return qname.equals(WebSocketOpenElement.QNAME);
-        } catch (XmlPullParserException | IOException e) {
-            LOGGER.log(Level.WARNING, "Could not inspect \"" + text + "\" for open element", e);
-            return false;
-        }
-    }
-
-    static boolean isCloseElement(String text) {
-        XmlPullParser parser;
-        try {
-            parser = PacketParserUtils.getParserFor(text);
-            QName qname = parser.getQName();
-            return qname.equals(WebSocketCloseElement.QNAME);
-        } catch (XmlPullParserException | IOException e) {
-            LOGGER.log(Level.WARNING, "Could not inspect \"" + text + "\" for close element", e);
-            return false;
-        }
-    }
-
     protected void onWebSocketFailure(Throwable throwable) {
         WebSocketException websocketException = new WebSocketException(throwable);
 
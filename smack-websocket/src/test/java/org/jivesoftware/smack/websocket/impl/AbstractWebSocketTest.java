@@ -17,8 +17,6 @@
 package org.jivesoftware.smack.websocket.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
@@ -26,24 +24,10 @@ public final class AbstractWebSocketTest {
     private static final String OPEN_ELEMENT = "<open from='localhost.org' id='aov9ihhmmn' xmlns='urn:ietf:params:xml:ns:xmpp-framing' xml:lang='en' version='1.0'/>";
     private static final String OPEN_ELEMENT_EXPANDED = "<open from='localhost.org' id='aov9ihhmmn' xmlns='urn:ietf:params:xml:ns:xmpp-framing' xml:lang='en' version='1.0'></open>";
     private static final String OPEN_STREAM = "<stream:stream from='localhost.org' id='aov9ihhmmn' xmlns='jabber:client' xml:lang='en' version='1.0' xmlns:stream='http://etherx.jabber.org/streams'>";
-    private static final String CLOSE_ELEMENT = "<close xmlns='urn:ietf:params:xml:ns:xmpp-framing'/>";
 
     @Test
     public void getStreamFromOpenElementTest() {
         assertEquals(OPEN_STREAM, AbstractWebSocket.getStreamFromOpenElement(OPEN_ELEMENT));
         assertEquals(OPEN_STREAM, AbstractWebSocket.getStreamFromOpenElement(OPEN_ELEMENT_EXPANDED));
     }
-
-    @Test
-    public void isOpenElementTest() {
-        assertTrue(AbstractWebSocket.isOpenElement(OPEN_ELEMENT));
-        assertTrue(AbstractWebSocket.isOpenElement(OPEN_ELEMENT_EXPANDED));
-        assertFalse(AbstractWebSocket.isOpenElement(OPEN_STREAM));
-    }
-
-    @Test
-    public void isCloseElementTest() {
-        assertTrue(AbstractWebSocket.isCloseElement(CLOSE_ELEMENT));
-        assertFalse(AbstractWebSocket.isCloseElement(OPEN_STREAM));
-    }
 }
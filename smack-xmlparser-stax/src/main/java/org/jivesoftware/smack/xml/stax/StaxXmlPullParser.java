@@ -75,6 +75,12 @@ public final class StaxXmlPullParser implements XmlPullParser {
 
     @Override
     public String getNamespace() {
+        // Avoid the NamespaceContext lookup in the common case. Note that StAX implementations usually return the
+        // namespace URI from their internal symbol table.
+        String namespace = xmlStreamReader.getNamespaceURI();
+        if (namespace != null) {
+            return namespace;
+        }
         String prefix = getPrefix();
         return getNamespace(prefix);
     }
@@ -114,8 +120,8 @@ public final class StaxXmlPullParser implements XmlPullParser {
 
     @Override
     public String getName() {
-        QName qname = getQName();
-        return qname.getLocalPart();
+        // Unlike getQName(), this does not allocate a new QName instance.
+        return xmlStreamReader.getLocalName();
     }
 
     @Override